@@ -0,0 +1,275 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ActivityLogger class - asynchronous structured activity log
+ * Producers write fixed-layout records (code, system, child, operator, timestamp) into a
+ * preallocated ring buffer without allocating or blocking; a background thread writes them out.
+ * When the ring is full the record is dropped and counted rather than stalling recognition.
+ */
+public class ActivityLogger {
+    private static volatile ActivityLogger defaultLogger;
+
+    private final int capacity;
+    private final int mask;
+    private final byte[] codes;
+    private final String[] systemIds;
+    private final String[] childIds;
+    private final String[] operatorIds;
+    private final long[] timestamps;
+    private final AtomicLongArray published;
+    private final AtomicLong head;
+    private volatile long tail;
+    private final AtomicLong dropped;
+    private final AtomicLong written;
+    private volatile LogLevel level;
+    private volatile boolean consoleEcho;
+    private volatile boolean running;
+    private final Writer output;
+    private final Thread drainer;
+
+    // Constructor
+    public ActivityLogger(Writer output, int capacity, LogLevel level) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.codes = new byte[capacity];
+        this.systemIds = new String[capacity];
+        this.childIds = new String[capacity];
+        this.operatorIds = new String[capacity];
+        this.timestamps = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.head = new AtomicLong();
+        this.tail = 0;
+        this.dropped = new AtomicLong();
+        this.written = new AtomicLong();
+        this.level = level;
+        this.consoleEcho = false;
+        this.running = true;
+        this.output = output;
+        this.drainer = new Thread(this::drainLoop, "activity-logger");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Logger shared by the recognition systems of this JVM - writes to activity.log
+     * (or -Dtransport.activityLog=path), echoing to the console while tracing is enabled
+     */
+    public static ActivityLogger getDefault() {
+        ActivityLogger logger = defaultLogger;
+        if (logger == null) {
+            synchronized (ActivityLogger.class) {
+                logger = defaultLogger;
+                if (logger == null) {
+                    logger = openDefault();
+                    defaultLogger = logger;
+                }
+            }
+        }
+        return logger;
+    }
+
+    private static ActivityLogger openDefault() {
+        String path = System.getProperty("transport.activityLog", "activity.log");
+        Writer writer;
+        try {
+            writer = new BufferedWriter(new FileWriter(path, true), 64 * 1024);
+        } catch (IOException e) {
+            System.err.println("Cannot open activity log " + path + ": " + e.getMessage());
+            writer = Writer.nullWriter();
+        }
+        ActivityLogger logger = new ActivityLogger(writer, 1 << 16, LogLevel.INFO);
+        logger.setConsoleEcho(Trace.isEnabled());
+        Runtime.getRuntime().addShutdownHook(new Thread(logger::close, "activity-logger-shutdown"));
+        return logger;
+    }
+
+    /**
+     * Log activity - never blocks; returns false if gated by level or dropped
+     */
+    public boolean log(ActivityCode code, String systemId, String childId, String operatorId) {
+        if (code.getLevel().ordinal() < level.ordinal()) {
+            return false;
+        }
+
+        // Claim a slot - drop instead of waiting when the drainer is a full ring behind
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail >= capacity) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) (sequence & mask);
+        codes[slot] = (byte) code.ordinal();
+        systemIds[slot] = systemId;
+        childIds[slot] = childId;
+        operatorIds[slot] = operatorId;
+        timestamps[slot] = System.currentTimeMillis();
+        published.lazySet(slot, sequence); // release the record to the drainer
+        return true;
+    }
+
+    /**
+     * Background loop - write published records in order, flush when idle
+     */
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(128);
+        ActivityCode[] activityCodes = ActivityCode.values();
+        boolean dirty = false;
+        while (running || tail < head.get()) {
+            long next = tail;
+            int slot = (int) (next & mask);
+            if (published.get(slot) != next) {
+                if (dirty) {
+                    flush();
+                    dirty = false;
+                }
+                LockSupport.parkNanos(1_000_000);
+                continue;
+            }
+
+            line.setLength(0);
+            line.append(Instant.ofEpochMilli(timestamps[slot])).append('|')
+                .append(systemIds[slot]).append('|')
+                .append(activityCodes[codes[slot]]).append('|')
+                .append(childIds[slot]).append('|')
+                .append(operatorIds[slot]);
+            // console echo keeps the labelled layout of the former synchronous logActivity
+            String echo = !consoleEcho ? null : "LOG: [" + LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamps[slot]), ZoneId.systemDefault()) + "] " +
+                    "System: " + systemIds[slot] +
+                    " | Activity: " + activityCodes[codes[slot]] +
+                    " | Child: " + childIds[slot] +
+                    " | Operator: " + operatorIds[slot];
+            systemIds[slot] = null;
+            childIds[slot] = null;
+            operatorIds[slot] = null;
+            tail = next + 1; // free the slot for producers
+
+            try {
+                output.append(line).append('\n');
+                dirty = true;
+            } catch (IOException e) {
+                dropped.incrementAndGet();
+            }
+            if (echo != null) {
+                System.out.println(echo);
+            }
+            written.incrementAndGet();
+        }
+        flush();
+    }
+
+    private void flush() {
+        try {
+            output.flush();
+        } catch (IOException e) {
+            System.err.println("Activity log flush failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wait until every record logged so far has been written
+     */
+    public void awaitDrained(long timeoutMillis) {
+        long target = head.get();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (tail < target && System.currentTimeMillis() < deadline) {
+            LockSupport.parkNanos(100_000);
+        }
+        flush();
+    }
+
+    /**
+     * Drain remaining records and close the output
+     */
+    public void close() {
+        running = false;
+        try {
+            drainer.join(5_000);
+            output.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Activity log close failed: " + e.getMessage());
+        }
+    }
+
+    public boolean isEnabled(LogLevel candidate) { return candidate.ordinal() >= level.ordinal(); }
+    public LogLevel getLevel() { return level; }
+    public void setLevel(LogLevel level) { this.level = level; }
+    public boolean isConsoleEcho() { return consoleEcho; }
+    public void setConsoleEcho(boolean consoleEcho) { this.consoleEcho = consoleEcho; }
+    public int getCapacity() { return capacity; }
+    public long getWritten() { return written.get(); }
+    public long getDropped() { return dropped.get(); }
+    public long getPending() { return head.get() - tail; }
+}
+
+/**
+ * Enum for log levels
+ */
+enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF
+}
+
+/**
+ * Enum for logged activities and their levels
+ */
+enum ActivityCode {
+    IDENTIFICATION_SUCCESS(LogLevel.INFO),
+    IDENTIFICATION_FAILED(LogLevel.WARN),
+    VERIFICATION_SUCCESS(LogLevel.INFO),
+    VERIFICATION_FAILED(LogLevel.WARN),
+    DRIVER_REPORT(LogLevel.INFO),
+    PARENT_NOTIFICATION(LogLevel.INFO),
+    EMERGENCY_ACTIVATED(LogLevel.ERROR),
+    STATUS_REPORT(LogLevel.INFO),
+    PROFILE_ADDED(LogLevel.INFO),
+    OTHER(LogLevel.INFO);
+
+    private static final Map<String, ActivityCode> BY_NAME = new HashMap<>();
+
+    static {
+        for (ActivityCode code : values()) {
+            BY_NAME.put(code.name(), code);
+        }
+    }
+
+    private final LogLevel level;
+
+    ActivityCode(LogLevel level) {
+        this.level = level;
+    }
+
+    /**
+     * Look up the code of an activity name - OTHER for unknown names
+     */
+    public static ActivityCode fromName(String activity) {
+        return BY_NAME.getOrDefault(activity, OTHER);
+    }
+
+    public LogLevel getLevel() { return level; }
+}
@@ -0,0 +1,241 @@
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AttendanceBoard class - live attendance of enrolled children, fed by boarding and exit events
+ * Each child is a row in parallel arrays; schools and classes are numbered on enrollment and keep
+ * one counter per status, so an event costs a map lookup and two counter moves - nothing is
+ * recounted. Readers (the portal's table model) poll the version and the dirty row range.
+ */
+public class AttendanceBoard implements AttendanceListener {
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final Map<String, Integer> rowOfChild = new HashMap<>();
+    private final Map<String, Integer> schoolIndex = new HashMap<>();
+    private final Map<String, Integer> classIndex = new HashMap<>();
+    private final List<String> schoolIds = new ArrayList<>();
+    private final List<String> classKeys = new ArrayList<>();
+    private final List<String> classNames = new ArrayList<>();
+    private final List<int[]> schoolCounts = new ArrayList<>();
+    private final List<int[]> classCounts = new ArrayList<>();
+    private String[] childIds = new String[16];
+    private String[] names = new String[16];
+    private String[] parentContacts = new String[16];
+    private int[] schoolOfRow = new int[16];
+    private int[] classOfRow = new int[16];
+    private byte[] statuses = new byte[16];
+    private long[] eventMillis = new long[16];
+    private int rows;
+    private long version;
+    private long events;
+    private int dirtyFrom = Integer.MAX_VALUE;
+    private int dirtyTo = -1;
+
+    /**
+     * Add a child to the board and listen to their boarding and exits
+     */
+    public synchronized void enroll(Child child, String className, String parentContact) {
+        if (rowOfChild.containsKey(child.getChildId())) {
+            return;
+        }
+        if (rows == childIds.length) {
+            grow(rows * 2);
+        }
+        int row = rows++;
+        childIds[row] = child.getChildId();
+        names[row] = child.getName();
+        parentContacts[row] = parentContact;
+        schoolOfRow[row] = indexOf(schoolIndex, schoolIds, schoolCounts, child.getSchoolId());
+        classOfRow[row] = indexOf(classIndex, classKeys, classCounts, child.getSchoolId() + "/" + className);
+        if (classOfRow[row] == classNames.size()) {
+            classNames.add(className);
+        }
+        statuses[row] = (byte) AttendanceStatus.NOT_ARRIVED.ordinal();
+        schoolCounts.get(schoolOfRow[row])[statuses[row]]++;
+        classCounts.get(classOfRow[row])[statuses[row]]++;
+        rowOfChild.put(child.getChildId(), row);
+        markDirty(row);
+        child.setAttendanceListener(this);
+    }
+
+    private static int indexOf(Map<String, Integer> index, List<String> keys, List<int[]> counts, String key) {
+        Integer existing = index.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        index.put(key, keys.size());
+        keys.add(key);
+        counts.add(new int[AttendanceStatus.values().length]);
+        return keys.size() - 1;
+    }
+
+    private void grow(int capacity) {
+        childIds = java.util.Arrays.copyOf(childIds, capacity);
+        names = java.util.Arrays.copyOf(names, capacity);
+        parentContacts = java.util.Arrays.copyOf(parentContacts, capacity);
+        schoolOfRow = java.util.Arrays.copyOf(schoolOfRow, capacity);
+        classOfRow = java.util.Arrays.copyOf(classOfRow, capacity);
+        statuses = java.util.Arrays.copyOf(statuses, capacity);
+        eventMillis = java.util.Arrays.copyOf(eventMillis, capacity);
+    }
+
+    @Override
+    public void onBoarded(String childId, long timeMillis) {
+        move(childId, AttendanceStatus.EN_ROUTE, timeMillis);
+    }
+
+    @Override
+    public void onExited(String childId, long timeMillis) {
+        move(childId, AttendanceStatus.ARRIVED, timeMillis);
+    }
+
+    /**
+     * Boarding only counts before arrival; a child already arrived stays arrived
+     */
+    private synchronized void move(String childId, AttendanceStatus status, long timeMillis) {
+        Integer row = childId != null ? rowOfChild.get(childId) : null;
+        if (row == null) {
+            return;
+        }
+        int from = statuses[row];
+        if (from == status.ordinal() || (status == AttendanceStatus.EN_ROUTE && from == AttendanceStatus.ARRIVED.ordinal())) {
+            return;
+        }
+        int[] school = schoolCounts.get(schoolOfRow[row]);
+        int[] schoolClass = classCounts.get(classOfRow[row]);
+        school[from]--;
+        schoolClass[from]--;
+        school[status.ordinal()]++;
+        schoolClass[status.ordinal()]++;
+        statuses[row] = (byte) status.ordinal();
+        eventMillis[row] = timeMillis;
+        events++;
+        markDirty(row);
+    }
+
+    /**
+     * Every child back to not arrived - the one O(n) operation, once a morning
+     */
+    public synchronized void startNewDay() {
+        for (int[] counts : schoolCounts) {
+            counts[AttendanceStatus.NOT_ARRIVED.ordinal()] += counts[AttendanceStatus.EN_ROUTE.ordinal()] + counts[AttendanceStatus.ARRIVED.ordinal()];
+            counts[AttendanceStatus.EN_ROUTE.ordinal()] = counts[AttendanceStatus.ARRIVED.ordinal()] = 0;
+        }
+        for (int[] counts : classCounts) {
+            counts[AttendanceStatus.NOT_ARRIVED.ordinal()] += counts[AttendanceStatus.EN_ROUTE.ordinal()] + counts[AttendanceStatus.ARRIVED.ordinal()];
+            counts[AttendanceStatus.EN_ROUTE.ordinal()] = counts[AttendanceStatus.ARRIVED.ordinal()] = 0;
+        }
+        java.util.Arrays.fill(statuses, 0, rows, (byte) AttendanceStatus.NOT_ARRIVED.ordinal());
+        java.util.Arrays.fill(eventMillis, 0, rows, 0L);
+        if (rows > 0) {
+            markDirty(0);
+            markDirty(rows - 1);
+        }
+    }
+
+    private void markDirty(int row) {
+        version++;
+        dirtyFrom = Math.min(dirtyFrom, row);
+        dirtyTo = Math.max(dirtyTo, row);
+    }
+
+    /**
+     * Rows changed since the last call, as {from, to} - null when nothing changed
+     */
+    public synchronized int[] takeDirtyRows() {
+        if (dirtyTo < 0) {
+            return null;
+        }
+        int[] range = {dirtyFrom, dirtyTo};
+        dirtyFrom = Integer.MAX_VALUE;
+        dirtyTo = -1;
+        return range;
+    }
+
+    public synchronized AttendanceStatus getStatus(int row) {
+        return AttendanceStatus.values()[statuses[row]];
+    }
+
+    /**
+     * Time of the last boarding or arrival of the row's child, null if none yet
+     */
+    public synchronized LocalTime getEventTime(int row) {
+        return eventMillis[row] != 0 ? LocalTime.ofInstant(Instant.ofEpochMilli(eventMillis[row]), ZONE) : null;
+    }
+
+    /**
+     * Counters of one school, indexed by AttendanceStatus ordinal
+     */
+    public synchronized int[] getSchoolCounts(String schoolId) {
+        Integer index = schoolIndex.get(schoolId);
+        return index != null ? schoolCounts.get(index).clone() : new int[AttendanceStatus.values().length];
+    }
+
+    public synchronized int[] getClassCounts(String schoolId, String className) {
+        Integer index = classIndex.get(schoolId + "/" + className);
+        return index != null ? classCounts.get(index).clone() : new int[AttendanceStatus.values().length];
+    }
+
+    /**
+     * Counters over all schools, indexed by AttendanceStatus ordinal
+     */
+    public synchronized int[] getTotals() {
+        int[] totals = new int[AttendanceStatus.values().length];
+        for (int[] counts : schoolCounts) {
+            for (int s = 0; s < totals.length; s++) {
+                totals[s] += counts[s];
+            }
+        }
+        return totals;
+    }
+
+    public synchronized List<String> getClassNames(String schoolId) {
+        List<String> result = new ArrayList<>();
+        String prefix = schoolId + "/";
+        for (int c = 0; c < classKeys.size(); c++) {
+            if (classKeys.get(c).startsWith(prefix)) {
+                result.add(classNames.get(c));
+            }
+        }
+        return result;
+    }
+
+    public synchronized String getChildId(int row) { return childIds[row]; }
+    public synchronized String getName(int row) { return names[row]; }
+    public synchronized String getClassName(int row) { return classNames.get(classOfRow[row]); }
+    public synchronized String getParentContact(int row) { return parentContacts[row]; }
+    public synchronized int getRowCount() { return rows; }
+    public synchronized long getVersion() { return version; }
+    public synchronized long getEventCount() { return events; }
+}
+
+/**
+ * Listener for children boarding a ride and exiting it at school
+ */
+interface AttendanceListener {
+    void onBoarded(String childId, long timeMillis);
+
+    void onExited(String childId, long timeMillis);
+}
+
+/**
+ * Enum for attendance status
+ */
+enum AttendanceStatus {
+    NOT_ARRIVED("Not Arrived"),
+    EN_ROUTE("En Route"),
+    ARRIVED("Arrived");
+
+    private final String label;
+
+    AttendanceStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() { return label; }
+}
@@ -1,4 +1,8 @@
+import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Camera class - represents a camera in the transportation system
@@ -9,38 +13,67 @@ public class Camera {
     private String location;
     private boolean isActive;
     private String resolution;
-    private LocalDateTime lastCaptureTime;
+    private volatile long lastCaptureMillis;
+    private FramePool framePool;
+    private int frameBytes;
+    private int frameWidth;
+    private long frameSequence;
+    private volatile ChangeDetector changeDetector;
 
     // Constructor
     public Camera(String cameraId, String vehicleId, String location) {
+        this(cameraId, vehicleId, location, "1920x1080", FramePool.getShared());
+    }
+
+    public Camera(String cameraId, String vehicleId, String location, String resolution, FramePool framePool) {
         this.cameraId = cameraId;
         this.vehicleId = vehicleId;
         this.location = location;
         this.isActive = true;
-        this.resolution = "1920x1080";
-        this.lastCaptureTime = LocalDateTime.now();
+        this.resolution = resolution;
+        this.framePool = framePool;
+        this.frameBytes = FramePool.frameBytes(resolution);
+        this.frameWidth = Integer.parseInt(resolution.substring(0, resolution.indexOf('x')).trim());
+        this.lastCaptureMillis = System.currentTimeMillis();
     }
 
     /**
-     * Capture image
+     * Capture image - the frame comes from the pool; the caller releases the image when done
      */
     public Image captureImage() {
         if (!isActive) {
-            System.out.println("Camera " + cameraId + " is not active!");
+            if (Trace.isEnabled()) {
+                System.out.println("Camera " + cameraId + " is not active!");
+            }
             return null;
         }
         
-        this.lastCaptureTime = LocalDateTime.now();
-        Image image = new Image("IMG_" + cameraId + "_" + System.currentTimeMillis());
-        System.out.println("Camera " + cameraId + " captured image: " + image.getImageId());
+        long captureMillis = System.currentTimeMillis();
+        this.lastCaptureMillis = captureMillis;
+        Frame frame = framePool.acquire(frameBytes);
+        readSensor(frame.getBuffer());
+        Image image = new Image("IMG_" + cameraId + "_", captureMillis, frame, frameWidth);
+        if (Trace.isEnabled()) {
+            System.out.println("Camera " + cameraId + " captured image: " + image.getImageId());
+        }
         return image;
     }
 
+    /**
+     * Sensor readout (simulated) - the sensor writes straight into the pooled buffer
+     */
+    private void readSensor(ByteBuffer buffer) {
+        buffer.putLong(0, ++frameSequence);
+        buffer.putLong(8, lastCaptureMillis);
+    }
+
     /**
      * Capture current image
      */
     public Image captureCurrentImage() {
-        System.out.println("Camera " + cameraId + " capturing current image...");
+        if (Trace.isEnabled()) {
+            System.out.println("Camera " + cameraId + " capturing current image...");
+        }
         return captureImage();
     }
 
@@ -49,9 +82,13 @@ public class Camera {
      */
     public void startRecording() {
         if (isActive) {
-            System.out.println("Camera " + cameraId + " started recording");
+            if (Trace.isEnabled()) {
+                System.out.println("Camera " + cameraId + " started recording");
+            }
         } else {
-            System.out.println("Cannot start recording - Camera " + cameraId + " is not active");
+            if (Trace.isEnabled()) {
+                System.out.println("Cannot start recording - Camera " + cameraId + " is not active");
+            }
         }
     }
 
@@ -59,7 +96,9 @@ public class Camera {
      * Stop recording
      */
     public void stopRecording() {
-        System.out.println("Camera " + cameraId + " stopped recording");
+        if (Trace.isEnabled()) {
+            System.out.println("Camera " + cameraId + " stopped recording");
+        }
     }
 
     /**
@@ -72,18 +111,77 @@ public class Camera {
         
         Image image = captureImage();
         if (image != null) {
-            recognitionSystem.processImage(image);
-            System.out.println("Camera " + cameraId + " sent image to recognition system");
+            try {
+                if (!passesChangeDetection(image)) {
+                    return false;
+                }
+                long start = System.nanoTime();
+                recognitionSystem.processImage(image);
+                if (changeDetector != null) {
+                    changeDetector.recordRecognition(System.nanoTime() - start);
+                }
+            } finally {
+                image.release();
+            }
+            if (Trace.isEnabled()) {
+                System.out.println("Camera " + cameraId + " sent image to recognition system");
+            }
             return true;
         }
         return false;
     }
 
+    /**
+     * Send image to the shared recognition pipeline - capture is not blocked by matching
+     * The pipeline takes over the image and releases it once matched. A frame without scene
+     * change is not submitted; its outcome is skipped rather than unidentified.
+     */
+    public CompletableFuture<RecognitionOutcome> sendImageToRecognition(RecognitionPipeline pipeline) {
+        if (!isActive) {
+            return CompletableFuture.completedFuture(RecognitionOutcome.identified(null));
+        }
+
+        Image image = captureImage();
+        if (image == null) {
+            return CompletableFuture.completedFuture(RecognitionOutcome.identified(null));
+        }
+        if (!passesChangeDetection(image)) {
+            image.release();
+            return CompletableFuture.completedFuture(RecognitionOutcome.skipped());
+        }
+        ChangeDetector detector = changeDetector;
+        return pipeline.submit(image, detector != null ? detector::recordRecognition : null)
+                .thenApply(RecognitionOutcome::identified);
+    }
+
+    /**
+     * Filter frames through the change detector, if one is enabled
+     */
+    private boolean passesChangeDetection(Image image) {
+        ChangeDetector detector = changeDetector;
+        if (detector == null || detector.shouldForward(image.getFrame().getBuffer(), image.getCaptureMillis())) {
+            return true;
+        }
+        if (Trace.isEnabled()) {
+            System.out.println("Camera " + cameraId + " skipped unchanged frame " + image.getImageId());
+        }
+        return false;
+    }
+
+    /**
+     * Forward only frames with scene change to recognition, using default thresholds
+     */
+    public void enableChangeDetection() {
+        this.changeDetector = new ChangeDetector(resolution);
+    }
+
     /**
      * Calibrate the camera
      */
     public void calibrate() {
-        System.out.println("Camera " + cameraId + " calibration completed");
+        if (Trace.isEnabled()) {
+            System.out.println("Camera " + cameraId + " calibration completed");
+        }
         this.isActive = true;
     }
 
@@ -91,7 +189,7 @@ public class Camera {
      * Get camera status
      */
     public CameraStatus getStatus() {
-        return new CameraStatus(cameraId, isActive, resolution, lastCaptureTime);
+        return new CameraStatus(cameraId, isActive, resolution, getLastCaptureTime());
     }
 
     // Getters and Setters
@@ -101,30 +199,82 @@ public class Camera {
     public boolean isActive() { return isActive; }
     public void setActive(boolean active) { this.isActive = active; }
     public String getResolution() { return resolution; }
-    public LocalDateTime getLastCaptureTime() { return lastCaptureTime; }
+    public FramePool getFramePool() { return framePool; }
+    public ChangeDetector getChangeDetector() { return changeDetector; }
+    public void setChangeDetector(ChangeDetector changeDetector) { this.changeDetector = changeDetector; }
+    public LocalDateTime getLastCaptureTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(lastCaptureMillis), ZoneId.systemDefault());
+    }
 }
 
 /**
- * Image class
+ * Image class - a captured frame; pixels live in a pooled, reference-counted Frame
+ * ID and timestamp are formatted only when asked for, so capturing allocates no strings.
  */
 class Image {
     private String imageId;
-    private LocalDateTime timestamp;
-    private String data;
+    private final String idPrefix;
+    private final long captureMillis;
+    private final Frame frame;
+    private final int frameWidth;
+    private float[] faceEmbedding;
 
     public Image(String imageId) {
         this.imageId = imageId;
-        this.timestamp = LocalDateTime.now();
-        this.data = "Image data for " + imageId;
+        this.idPrefix = null;
+        this.captureMillis = System.currentTimeMillis();
+        this.frame = null;
+        this.frameWidth = 0;
+    }
+
+    public Image(String idPrefix, long captureMillis, Frame frame, int frameWidth) {
+        this.idPrefix = idPrefix;
+        this.captureMillis = captureMillis;
+        this.frame = frame;
+        this.frameWidth = frameWidth;
+    }
+
+    /**
+     * Hold the frame for another consumer - pair with release()
+     */
+    public Image retain() {
+        if (frame != null) {
+            frame.retain();
+        }
+        return this;
+    }
+
+    /**
+     * Give the frame back - the last holder returns it to the pool
+     */
+    public void release() {
+        if (frame != null) {
+            frame.release();
+        }
+    }
+
+    public String getImageId() {
+        if (imageId == null) {
+            imageId = idPrefix + captureMillis;
+        }
+        return imageId;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(captureMillis), ZoneId.systemDefault());
     }
 
-    public String getImageId() { return imageId; }
-    public LocalDateTime getTimestamp() { return timestamp; }
-    public String getData() { return data; }
+    public String getData() { return "Image data for " + getImageId(); }
+    public Frame getFrame() { return frame; }
+    public int getFrameWidth() { return frameWidth; }
+    public int getFrameHeight() { return frame != null ? frame.getSize() * 2 / 3 / frameWidth : 0; }
+    public long getCaptureMillis() { return captureMillis; }
+    public float[] getFaceEmbedding() { return faceEmbedding; }
+    public void setFaceEmbedding(float[] faceEmbedding) { this.faceEmbedding = faceEmbedding; }
 
     @Override
     public String toString() {
-        return "Image{id='" + imageId + "', timestamp=" + timestamp + "}";
+        return "Image{id='" + getImageId() + "', timestamp=" + getTimestamp() + "}";
     }
 }
 
@@ -158,4 +308,37 @@ class CameraStatus {
                 ", lastCaptureTime=" + lastCaptureTime +
                 '}';
     }
-}
\ No newline at end of file
+}
+/**
+ * Outcome of a frame sent to recognition - the identified child ID (null if nobody was recognized),
+ * or skipped when change detection kept the frame from recognition
+ */
+class RecognitionOutcome {
+    private static final RecognitionOutcome SKIPPED = new RecognitionOutcome(null, true);
+    private static final RecognitionOutcome UNIDENTIFIED = new RecognitionOutcome(null, false);
+
+    private final String childId;
+    private final boolean skipped;
+
+    private RecognitionOutcome(String childId, boolean skipped) {
+        this.childId = childId;
+        this.skipped = skipped;
+    }
+
+    public static RecognitionOutcome identified(String childId) {
+        return childId != null ? new RecognitionOutcome(childId, false) : UNIDENTIFIED;
+    }
+
+    public static RecognitionOutcome skipped() {
+        return SKIPPED;
+    }
+
+    public String getChildId() { return childId; }
+    public boolean isSkipped() { return skipped; }
+    public boolean isIdentified() { return childId != null; }
+
+    @Override
+    public String toString() {
+        return skipped ? "skipped" : childId != null ? childId : "unidentified";
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * CameraHealth class - health and circuit breaker of one camera behind a CameraProxy
+ * Outcomes of the last captures are kept in a sliding window. The circuit opens when the camera
+ * reports itself inactive, after consecutive failures, or when the failure rate of the window is
+ * too high; an open camera is skipped until the cool-down ends, then a single probe capture
+ * decides whether it closes again.
+ */
+public class CameraHealth {
+    private final String cameraId;
+    private final boolean[] outcomes;
+    private final int minimumCalls;
+    private final int failureRatePercent;
+    private final int consecutiveFailuresToTrip;
+    private final long openMillis;
+    private int windowCalls;
+    private int windowFailures;
+    private int nextOutcome;
+    private int consecutiveFailures;
+    private double averageLatencyMillis;
+    private CircuitState state;
+    private long openedAtMillis;
+    private boolean probeInFlight;
+    private long successes;
+    private long failures;
+    private long rejected;
+    private String lastError;
+
+    // Constructor
+    public CameraHealth(String cameraId) {
+        this(cameraId, 20, 5, 50, 3, 5_000);
+    }
+
+    public CameraHealth(String cameraId, int windowSize, int minimumCalls, int failureRatePercent,
+                        int consecutiveFailuresToTrip, long openMillis) {
+        this.cameraId = cameraId;
+        this.outcomes = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRatePercent = failureRatePercent;
+        this.consecutiveFailuresToTrip = consecutiveFailuresToTrip;
+        this.openMillis = openMillis;
+        this.state = CircuitState.CLOSED;
+    }
+
+    /**
+     * Ask to capture - false while the circuit is open, or while the half-open probe is running
+     */
+    public synchronized boolean tryAcquire(long nowMillis) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nowMillis - openedAtMillis >= openMillis) {
+                    state = CircuitState.HALF_OPEN;
+                    probeInFlight = true;
+                    return true;
+                }
+                rejected++;
+                return false;
+            default:
+                if (!probeInFlight) {
+                    probeInFlight = true;
+                    return true;
+                }
+                rejected++;
+                return false;
+        }
+    }
+
+    public synchronized void recordSuccess(long latencyNanos) {
+        successes++;
+        consecutiveFailures = 0;
+        recordLatency(latencyNanos);
+        recordOutcome(false);
+        if (state == CircuitState.HALF_OPEN) {
+            state = CircuitState.CLOSED;
+            probeInFlight = false;
+            resetWindow();
+            if (Trace.isEnabled()) {
+                System.out.println("Camera " + cameraId + " healthy again - circuit closed");
+            }
+        }
+    }
+
+    public synchronized void recordFailure(String reason, long latencyNanos, long nowMillis) {
+        failures++;
+        consecutiveFailures++;
+        lastError = reason;
+        recordLatency(latencyNanos);
+        recordOutcome(true);
+        if (state == CircuitState.HALF_OPEN
+                || consecutiveFailures >= consecutiveFailuresToTrip
+                || (windowCalls >= minimumCalls && windowFailures * 100 >= failureRatePercent * windowCalls)) {
+            trip(reason, nowMillis);
+        }
+    }
+
+    /**
+     * The caller abandoned a capture for its own reasons (interrupted) - no outcome for the camera,
+     * but a half-open probe is given back so the next capture can probe again
+     */
+    public synchronized void releaseProbe() {
+        probeInFlight = false;
+    }
+
+    /**
+     * Take the camera's own status into account - an inactive camera is not asked at all
+     */
+    public synchronized void recordStatus(CameraStatus status, long nowMillis) {
+        if (!status.isActive() && state != CircuitState.OPEN) {
+            lastError = "camera inactive";
+            trip(lastError, nowMillis);
+        }
+    }
+
+    private void trip(String reason, long nowMillis) {
+        state = CircuitState.OPEN;
+        openedAtMillis = nowMillis;
+        probeInFlight = false;
+        if (Trace.isEnabled()) {
+            System.out.println("Camera " + cameraId + " unhealthy (" + reason + ") - circuit open for " + openMillis + " ms");
+        }
+    }
+
+    private void recordOutcome(boolean failed) {
+        if (windowCalls == outcomes.length) {
+            if (outcomes[nextOutcome]) {
+                windowFailures--;
+            }
+        } else {
+            windowCalls++;
+        }
+        outcomes[nextOutcome] = failed;
+        if (failed) {
+            windowFailures++;
+        }
+        nextOutcome = (nextOutcome + 1) % outcomes.length;
+    }
+
+    private void resetWindow() {
+        windowCalls = 0;
+        windowFailures = 0;
+        nextOutcome = 0;
+    }
+
+    private void recordLatency(long latencyNanos) {
+        double latencyMillis = latencyNanos / 1_000_000.0;
+        averageLatencyMillis = successes + failures == 1 ? latencyMillis : 0.8 * averageLatencyMillis + 0.2 * latencyMillis;
+    }
+
+    /**
+     * Check if a capture would be allowed now - without claiming the half-open probe
+     */
+    public synchronized boolean isAvailable(long nowMillis) {
+        return state == CircuitState.CLOSED
+                || (state == CircuitState.OPEN && nowMillis - openedAtMillis >= openMillis)
+                || (state == CircuitState.HALF_OPEN && !probeInFlight);
+    }
+
+    public synchronized double getErrorRate() {
+        return windowCalls > 0 ? windowFailures / (double) windowCalls : 0.0;
+    }
+
+    public String getCameraId() { return cameraId; }
+    public synchronized CircuitState getState() { return state; }
+    public synchronized double getAverageLatencyMillis() { return averageLatencyMillis; }
+    public synchronized long getSuccesses() { return successes; }
+    public synchronized long getFailures() { return failures; }
+    public synchronized long getRejected() { return rejected; }
+    public synchronized String getLastError() { return lastError; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("CameraHealth{%s %s, latency=%.1f ms, errorRate=%.0f%%, ok=%d, failed=%d, rejected=%d%s}",
+                cameraId, state, averageLatencyMillis, getErrorRate() * 100, successes, failures, rejected,
+                lastError != null ? ", lastError='" + lastError + "'" : "");
+    }
+}
+
+/**
+ * Enum for circuit breaker states
+ */
+enum CircuitState {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+}
@@ -0,0 +1,160 @@
+import java.nio.ByteBuffer;
+
+/**
+ * ChangeDetector class - per-camera scene-change filter in front of face recognition
+ * Each frame is reduced to a small luma thumbnail (one 4x4 patch averaged per grid cell) and
+ * compared with the thumbnail of the last forwarded frame. Only frames where enough cells changed
+ * go on to recognition; a parked bus with a closed door then costs a few microseconds per frame
+ * instead of a full match - and no emergency alarm for an empty doorway.
+ * A global brightness shift (auto exposure, headlights) is subtracted before cells are compared.
+ */
+public class ChangeDetector {
+    private static final int PATCH = 4;
+
+    private final int width;
+    private final int height;
+    private final int gridColumns;
+    private final int gridRows;
+    private final int pixelThreshold;
+    private final int changedCellsThreshold;
+    private final long refreshMillis;
+    private final int[] reference;
+    private final int[] current;
+    private boolean hasReference;
+    private long lastForwardMillis;
+    private long framesSeen;
+    private long framesForwarded;
+    private long detectionNanos;
+    private long recognitionNanos;
+    private long recognitionSamples;
+
+    // Constructor
+    public ChangeDetector(String resolution) {
+        this(resolution, 32, 18, 24, 0.02, 5_000);
+    }
+
+    /**
+     * @param pixelThreshold  luma difference (0-255) at which a cell counts as changed
+     * @param changedFraction share of cells that must change for the frame to be forwarded
+     * @param refreshMillis   forward a frame at least this often even without change, 0 to never
+     */
+    public ChangeDetector(String resolution, int gridColumns, int gridRows, int pixelThreshold,
+                          double changedFraction, long refreshMillis) {
+        int separator = resolution.indexOf('x');
+        this.width = Integer.parseInt(resolution.substring(0, separator).trim());
+        this.height = Integer.parseInt(resolution.substring(separator + 1).trim());
+        if (width / gridColumns < PATCH || height / gridRows < PATCH) {
+            throw new IllegalArgumentException("Grid " + gridColumns + "x" + gridRows + " too fine for " + resolution);
+        }
+        this.gridColumns = gridColumns;
+        this.gridRows = gridRows;
+        this.pixelThreshold = pixelThreshold;
+        this.changedCellsThreshold = Math.max(1, (int) Math.ceil(changedFraction * gridColumns * gridRows));
+        this.refreshMillis = refreshMillis;
+        this.reference = new int[gridColumns * gridRows];
+        this.current = new int[gridColumns * gridRows];
+    }
+
+    /**
+     * Decide whether a frame goes to recognition - the luma plane starts at index 0 of the buffer
+     * A forwarded frame becomes the new reference.
+     */
+    public synchronized boolean shouldForward(ByteBuffer frame, long captureMillis) {
+        long start = System.nanoTime();
+        framesSeen++;
+        int meanDifference = sample(frame);
+        boolean forward = !hasReference
+                || (refreshMillis > 0 && captureMillis - lastForwardMillis >= refreshMillis)
+                || countChangedCells(meanDifference) >= changedCellsThreshold;
+        if (forward) {
+            System.arraycopy(current, 0, reference, 0, current.length);
+            hasReference = true;
+            lastForwardMillis = captureMillis;
+            framesForwarded++;
+        }
+        detectionNanos += System.nanoTime() - start;
+        return forward;
+    }
+
+    /**
+     * Fill the current thumbnail - returns the mean difference to the reference
+     */
+    private int sample(ByteBuffer frame) {
+        thumbnail(frame, width, height, gridColumns, gridRows, current);
+        long totalDifference = 0;
+        for (int cell = 0; cell < current.length; cell++) {
+            totalDifference += current[cell] - reference[cell];
+        }
+        return (int) (totalDifference / current.length);
+    }
+
+    /**
+     * Downsample the luma plane - each cell is the mean of a 4x4 patch at its center
+     */
+    static void thumbnail(ByteBuffer frame, int width, int height, int columns, int rows, int[] cells) {
+        int cellWidth = width / columns;
+        int cellHeight = height / rows;
+        for (int row = 0; row < rows; row++) {
+            int top = row * cellHeight + (cellHeight - PATCH) / 2;
+            for (int column = 0; column < columns; column++) {
+                int left = column * cellWidth + (cellWidth - PATCH) / 2;
+                int sum = 0;
+                for (int y = 0; y < PATCH; y++) {
+                    int offset = (top + y) * width + left;
+                    for (int x = 0; x < PATCH; x++) {
+                        sum += frame.get(offset + x) & 0xFF;
+                    }
+                }
+                cells[row * columns + column] = sum / (PATCH * PATCH);
+            }
+        }
+    }
+
+    private int countChangedCells(int meanDifference) {
+        int changed = 0;
+        for (int cell = 0; cell < current.length; cell++) {
+            if (Math.abs(current[cell] - reference[cell] - meanDifference) > pixelThreshold) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Record what recognition of a forwarded frame cost - the basis of the saved-CPU estimate
+     */
+    public synchronized void recordRecognition(long nanos) {
+        recognitionNanos += nanos;
+        recognitionSamples++;
+    }
+
+    /**
+     * Start over - the next frame is forwarded and becomes the reference
+     */
+    public synchronized void reset() {
+        hasReference = false;
+    }
+
+    public synchronized long getFramesSeen() { return framesSeen; }
+    public synchronized long getFramesForwarded() { return framesForwarded; }
+    public synchronized long getFramesSkipped() { return framesSeen - framesForwarded; }
+    public synchronized double getAverageDetectionMicros() {
+        return framesSeen > 0 ? detectionNanos / 1000.0 / framesSeen : 0.0;
+    }
+    public synchronized double getAverageRecognitionMicros() {
+        return recognitionSamples > 0 ? recognitionNanos / 1000.0 / recognitionSamples : 0.0;
+    }
+
+    /**
+     * Recognition CPU not spent on skipped frames, less the cost of detecting them
+     */
+    public synchronized double getSavedMillis() {
+        return (getFramesSkipped() * getAverageRecognitionMicros() - detectionNanos / 1000.0) / 1000.0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("ChangeDetector{seen=%d, forwarded=%d, skipped=%d, detect=%.1f us/frame, saved=%.1f ms}",
+                framesSeen, framesForwarded, getFramesSkipped(), getAverageDetectionMicros(), getSavedMillis());
+    }
+}
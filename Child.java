@@ -10,9 +10,10 @@ public class Child {
     private String schoolId;
     private String parentId;
     private FaceProfile faceProfile;
-    private ChildStatus currentStatus;
-    private LocalDateTime boardingTime;
-    private Location currentLocation;
+    private volatile ChildStatus currentStatus;
+    private volatile LocalDateTime boardingTime;
+    private volatile Location currentLocation;
+    private volatile AttendanceListener attendanceListener;
 
     // Constructor
     public Child(String childId, String name, int age, String schoolId, String parentId) {
@@ -22,7 +23,6 @@ public class Child {
         this.schoolId = schoolId;
         this.parentId = parentId;
         this.currentStatus = ChildStatus.NOT_ON_RIDE;
-        this.faceProfile = new FaceProfile(childId);
     }
 
     /**
@@ -32,7 +32,13 @@ public class Child {
         if (currentStatus == ChildStatus.NOT_ON_RIDE) {
             this.currentStatus = ChildStatus.ON_RIDE;
             this.boardingTime = LocalDateTime.now();
-            System.out.println("Child " + name + " (ID: " + childId + ") boarded the ride");
+            AttendanceListener listener = attendanceListener;
+            if (listener != null) {
+                listener.onBoarded(childId, System.currentTimeMillis());
+            }
+            if (Trace.isEnabled()) {
+                System.out.println("Child " + name + " (ID: " + childId + ") boarded the ride");
+            }
             return true;
         }
         return false;
@@ -44,7 +50,13 @@ public class Child {
     public boolean exitRide() {
         if (currentStatus == ChildStatus.ON_RIDE) {
             this.currentStatus = ChildStatus.NOT_ON_RIDE;
-            System.out.println("Child " + name + " (ID: " + childId + ") exited the ride");
+            AttendanceListener listener = attendanceListener;
+            if (listener != null) {
+                listener.onExited(childId, System.currentTimeMillis());
+            }
+            if (Trace.isEnabled()) {
+                System.out.println("Child " + name + " (ID: " + childId + ") exited the ride");
+            }
             return true;
         }
         return false;
@@ -69,13 +81,19 @@ public class Child {
      */
     public void updateStatus(ChildStatus newStatus) {
         this.currentStatus = newStatus;
-        System.out.println("Child " + name + " status updated to: " + newStatus);
+        if (Trace.isEnabled()) {
+            System.out.println("Child " + name + " status updated to: " + newStatus);
+        }
     }
 
     /**
      * Get face profile
      */
-    public FaceProfile getFaceProfile() {
+    public synchronized FaceProfile getFaceProfile() {
+        // Created on first use - most registered children never need it
+        if (faceProfile == null) {
+            faceProfile = new FaceProfile(childId);
+        }
         return this.faceProfile;
     }
 
@@ -84,7 +102,9 @@ public class Child {
      */
     public boolean updateCurrentLocation(Location location) {
         this.currentLocation = location;
-        System.out.println("Child " + name + " location updated to: " + location);
+        if (Trace.isEnabled()) {
+            System.out.println("Child " + name + " location updated to: " + location);
+        }
         return true;
     }
 
@@ -93,7 +113,9 @@ public class Child {
      */
     public boolean verifyChildIdentity(String childId, Object image) {
         if (this.childId.equals(childId)) {
-            System.out.println("Child identity confirmed for: " + name);
+            if (Trace.isEnabled()) {
+                System.out.println("Child identity confirmed for: " + name);
+            }
             return true;
         }
         return false;
@@ -104,7 +126,9 @@ public class Child {
      */
     public boolean verifyChildExists(String childId) {
         boolean exists = this.childId.equals(childId);
-        System.out.println("Child exists verification for ID " + childId + ": " + exists);
+        if (Trace.isEnabled()) {
+            System.out.println("Child exists verification for ID " + childId + ": " + exists);
+        }
         return exists;
     }
 
@@ -116,6 +140,8 @@ public class Child {
     public String getParentId() { return parentId; }
     public ChildStatus getCurrentStatus() { return currentStatus; }
     public LocalDateTime getBoardingTime() { return boardingTime; }
+    public AttendanceListener getAttendanceListener() { return attendanceListener; }
+    public void setAttendanceListener(AttendanceListener attendanceListener) { this.attendanceListener = attendanceListener; }
 }
 
 /**
@@ -132,16 +158,37 @@ enum ChildStatus {
  * Face profile class
  */
 class FaceProfile {
+    public static final int EMBEDDING_DIMENSION = 128;
+
     private String profileId;
     private String data;
+    private float[] embedding;
 
     public FaceProfile(String childId) {
+        this(childId, simulateEnrollment(childId));
+    }
+
+    public FaceProfile(String childId, float[] embedding) {
         this.profileId = "FP_" + childId;
         this.data = "Face data for child " + childId;
+        this.embedding = embedding;
+    }
+
+    /**
+     * Simulation of the enrollment embedding - deterministic per child
+     */
+    private static float[] simulateEnrollment(String childId) {
+        java.util.Random random = new java.util.Random(childId.hashCode());
+        float[] embedding = new float[EMBEDDING_DIMENSION];
+        for (int i = 0; i < embedding.length; i++) {
+            embedding[i] = (float) random.nextGaussian();
+        }
+        return embedding;
     }
 
     public String getProfileId() { return profileId; }
     public String getData() { return data; }
+    public float[] getEmbedding() { return embedding; }
 }
 
 /**
@@ -1,5 +1,5 @@
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -7,33 +7,50 @@ import java.util.Map;
  */
 public class ChildIdentificationManager {
     private String managerId;
-    private Map<String, String> activeIdentifications;
+    private ChildStateTable identificationStates;
     private String currentVehicleId;
     private SystemStatus systemStatus;
+    private ChildRegistry childRegistry;
+    private IdentificationJournal journal;
+    private volatile AttendanceListener attendanceListener;
 
     // Constructor
     public ChildIdentificationManager(String managerId, String vehicleId) {
+        this(managerId, vehicleId, ChildRegistry.getShared());
+    }
+
+    public ChildIdentificationManager(String managerId, String vehicleId, ChildRegistry childRegistry) {
         this.managerId = managerId;
         this.currentVehicleId = vehicleId;
-        this.activeIdentifications = new HashMap<>();
+        this.identificationStates = new ChildStateTable();
         this.systemStatus = SystemStatus.ACTIVE;
-        System.out.println("ChildIdentificationManager " + managerId + " initialized for vehicle " + vehicleId);
+        this.childRegistry = childRegistry;
+        if (Trace.isEnabled()) {
+            System.out.println("ChildIdentificationManager " + managerId + " initialized for vehicle " + vehicleId);
+        }
     }
 
     /**
      * Start identification process - step 1
      */
     public void trackChild(String childId) {
-        System.out.println("Step 1: ChildIdentificationManager.trackChild(" + childId + ")");
+        if (Trace.isEnabled()) {
+            System.out.println("Step 1: ChildIdentificationManager.trackChild(" + childId + ")");
+        }
         startIdentificationProcess();
         
         // Check if child exists in system
         Child child = getChildById(childId);
-        boolean childExists = child.verifyChildExists(childId);
+        boolean childExists = child != null && child.verifyChildExists(childId);
         
-        if (childExists) {
-            activeIdentifications.put(childId, "TRACKING_STARTED");
-            System.out.println("Child " + childId + " added to active tracking");
+        if (childExists && identificationStates.transition(childId, IdentificationState.TRACKING_STARTED)) {
+            if (journal != null) {
+                journal.appendTrackingStarted(childId);
+                snapshotIfDue();
+            }
+            if (Trace.isEnabled()) {
+                System.out.println("Child " + childId + " added to active tracking");
+            }
         }
     }
 
@@ -42,16 +59,27 @@ public class ChildIdentificationManager {
      */
     public void startIdentificationProcess() {
         systemStatus = SystemStatus.ACTIVE;
-        System.out.println("Identification process started - Manager: " + managerId);
+        if (Trace.isEnabled()) {
+            System.out.println("Identification process started - Manager: " + managerId);
+        }
     }
 
     /**
      * Process child entry
      */
     public boolean processChildEntry(String childId) {
-        if (activeIdentifications.containsKey(childId)) {
-            activeIdentifications.put(childId, "ENTERED");
-            System.out.println("Child entry processed for: " + childId);
+        if (identificationStates.transition(childId, IdentificationState.ENTERED)) {
+            if (journal != null) {
+                journal.appendEntered(childId);
+                snapshotIfDue();
+            }
+            AttendanceListener listener = attendanceListener;
+            if (listener != null) {
+                listener.onBoarded(childId, System.currentTimeMillis());
+            }
+            if (Trace.isEnabled()) {
+                System.out.println("Child entry processed for: " + childId);
+            }
             return true;
         }
         return false;
@@ -61,33 +89,55 @@ public class ChildIdentificationManager {
      * Process child exit
      */
     public boolean processChildExit(String childId) {
-        if (activeIdentifications.containsKey(childId)) {
-            activeIdentifications.put(childId, "EXITED");
-            System.out.println("Child exit processed for: " + childId);
+        if (identificationStates.transition(childId, IdentificationState.EXITED)) {
+            if (journal != null) {
+                journal.appendExited(childId);
+                snapshotIfDue();
+            }
+            AttendanceListener listener = attendanceListener;
+            if (listener != null) {
+                listener.onExited(childId, System.currentTimeMillis());
+            }
+            if (Trace.isEnabled()) {
+                System.out.println("Child exit processed for: " + childId);
+            }
             return true;
         }
         return false;
     }
 
     /**
-     * Generate identification report
+     * Generate identification report - an immutable snapshot sharing unchanged state with the manager
      */
     public Report generateIdentificationReport() {
+        StateSnapshot snapshot = identificationStates.snapshot();
         Report report = new Report("IDENTIFICATION_REPORT_" + System.currentTimeMillis());
         report.setManagerId(managerId);
         report.setVehicleId(currentVehicleId);
-        report.setActiveIdentifications(new HashMap<>(activeIdentifications));
+        report.setVersion(snapshot.getVersion());
+        report.setActiveIdentifications(snapshot.asMap());
         report.setTimestamp(LocalDateTime.now());
         
-        System.out.println("Generated identification report: " + report.getReportId());
+        if (Trace.isEnabled()) {
+            System.out.println("Generated identification report: " + report.getReportId());
+        }
         return report;
     }
 
+    /**
+     * Identifications changed since the report of the given version
+     */
+    public IdentificationDelta getIdentificationChanges(long sinceReportVersion) {
+        return identificationStates.changesSince(sinceReportVersion);
+    }
+
     /**
      * Track child - step 4
      */
     public void trackChild(String childId, LocationTracker locationTracker) {
-        System.out.println("Step 4: ChildIdentificationManager → LocationTracker.startTracking(" + childId + ")");
+        if (Trace.isEnabled()) {
+            System.out.println("Step 4: ChildIdentificationManager → LocationTracker.startTracking(" + childId + ")");
+        }
         locationTracker.startTracking(childId);
     }
 
@@ -100,25 +150,44 @@ public class ChildIdentificationManager {
     }
 
     /**
-     * Report child status - step 14
+     * Report child status - step 14; returns false (nothing recorded) if the report is not a legal transition
      */
-    public void reportChildStatus(String childId, ChildStatus status, Location location) {
-        System.out.println("Step 14: FaceRecognitionAndControlSystem → ChildIdentificationManager.reportChildStatus(" + 
-                          childId + ", " + status + ", " + location + ")");
-        
-        activeIdentifications.put(childId, status.toString());
-        
+    public boolean reportChildStatus(String childId, ChildStatus status, Location location) {
+        if (Trace.isEnabled()) {
+            System.out.println("Step 14: FaceRecognitionAndControlSystem → ChildIdentificationManager.reportChildStatus(" +
+                              childId + ", " + status + ", " + location + ")");
+        }
+
+        if (!identificationStates.transition(childId, IdentificationState.fromStatus(status))) {
+            if (Trace.isEnabled()) {
+                System.out.println("Status " + status + " rejected for " + childId + " in state " +
+                                  identificationStates.getState(childId));
+            }
+            return false;
+        }
+        if (journal != null) {
+            journal.appendStatus(childId, status);
+            snapshotIfDue();
+        }
+
         // Step 15: Update child status
         Child child = getChildById(childId);
-        System.out.println("Step 15: ChildIdentificationManager → Child.updateStatus(" + status + ")");
-        child.updateStatus(status);
+        if (Trace.isEnabled()) {
+            System.out.println("Step 15: ChildIdentificationManager → Child.updateStatus(" + status + ")");
+        }
+        if (child != null) {
+            child.updateStatus(status);
+        }
+        return true;
     }
 
     /**
      * Confirm tracking active - step 16
      */
     public void confirmTrackingActive(String childId, LocationTracker locationTracker) {
-        System.out.println("Step 16: ChildIdentificationManager → LocationTracker.confirmTrackingActive(" + childId + ")");
+        if (Trace.isEnabled()) {
+            System.out.println("Step 16: ChildIdentificationManager → LocationTracker.confirmTrackingActive(" + childId + ")");
+        }
         locationTracker.confirmTrackingActive(childId);
     }
 
@@ -126,39 +195,85 @@ public class ChildIdentificationManager {
      * Send location update - step 17
      */
     public void sendLocationUpdate(String childId, Location location, ParentNotificationProxy notificationProxy) {
-        System.out.println("Step 17: ChildIdentificationManager → ParentNotificationProxy.sendLocationUpdate(" + 
-                          "parentId, " + childId + ", " + location + ", " + LocalDateTime.now() + ")");
-        
+        if (Trace.isEnabled()) {
+            System.out.println("Step 17: ChildIdentificationManager → ParentNotificationProxy.sendLocationUpdate(" +
+                              "parentId, " + childId + ", " + location + ", " + LocalDateTime.now() + ")");
+        }
+
+        Child child = getChildById(childId);
+        if (child != null) {
+            notificationProxy.sendLocationUpdate(child.getParentId(), childId, location, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Send location update through the dispatcher - debounced per parent and child, never blocks tracking
+     */
+    public void sendLocationUpdate(String childId, Location location, NotificationDispatcher dispatcher) {
         Child child = getChildById(childId);
-        String parentId = child.getParentId();
-        notificationProxy.sendLocationUpdate(parentId, childId, location, LocalDateTime.now());
+        if (child != null) {
+            dispatcher.submitLocationUpdate(child.getParentId(), childId, location, LocalDateTime.now());
+        }
     }
 
     /**
      * Send tracking confirmation - step 19
      */
     public void sendTrackingConfirmation(String childId, ParentNotificationProxy notificationProxy) {
-        System.out.println("Step 19: ChildIdentificationManager → ParentNotificationProxy.sendTrackingConfirmation(" + 
-                          "parentId, " + childId + ")");
+        if (Trace.isEnabled()) {
+            System.out.println("Step 19: ChildIdentificationManager → ParentNotificationProxy.sendTrackingConfirmation(" + 
+                              "parentId, " + childId + ")");
+        }
         
         Child child = getChildById(childId);
-        String parentId = child.getParentId();
-        notificationProxy.sendTrackingConfirmation(parentId, childId);
+        if (child != null) {
+            notificationProxy.sendTrackingConfirmation(child.getParentId(), childId);
+        }
+    }
+
+    /**
+     * Journal every transition from now on - replaces the active identifications with the recovered ones
+     */
+    public void attachJournal(IdentificationJournal journal) {
+        Map<String, String> recovered = journal.recover();
+        identificationStates.clear();
+        recovered.forEach((childId, state) -> identificationStates.set(childId, IdentificationState.valueOf(state)));
+        this.journal = journal;
+    }
+
+    /**
+     * Report entries and exits as boarding and arrival, e.g. to a school's AttendanceBoard
+     */
+    public void attachAttendance(AttendanceListener attendanceListener) {
+        this.attendanceListener = attendanceListener;
+    }
+
+    /**
+     * Take an O(chunks) copy-on-write view of the states here; the journal writes it in the background
+     */
+    private void snapshotIfDue() {
+        if (journal.isSnapshotDue()) {
+            journal.snapshotInBackground(identificationStates.snapshot().asMap());
+        }
     }
 
     /**
      * Get child by ID
      */
     private Child getChildById(String childId) {
-        // Simulation of getting child from database
-        return new Child(childId, "Child_" + childId, 8, "SCHOOL_001", "PARENT_" + childId);
+        return childRegistry.getChild(childId);
     }
 
     // Getters
     public String getManagerId() { return managerId; }
-    public Map<String, String> getActiveIdentifications() { return activeIdentifications; }
+    public Map<String, String> getActiveIdentifications() { return identificationStates.asMap(); }
+    public ChildStateTable getIdentificationStates() { return identificationStates; }
+    public List<String> getChildrenIn(IdentificationState state) { return identificationStates.getChildIdsIn(state); }
+    public int countChildrenIn(IdentificationState state) { return identificationStates.countIn(state); }
     public String getCurrentVehicleId() { return currentVehicleId; }
     public SystemStatus getSystemStatus() { return systemStatus; }
+    public ChildRegistry getChildRegistry() { return childRegistry; }
+    public IdentificationJournal getJournal() { return journal; }
 }
 
 /**
@@ -170,6 +285,7 @@ class Report {
     private String vehicleId;
     private Map<String, String> activeIdentifications;
     private LocalDateTime timestamp;
+    private long version;
 
     public Report(String reportId) {
         this.reportId = reportId;
@@ -187,4 +303,6 @@ class Report {
     }
     public LocalDateTime getTimestamp() { return timestamp; }
     public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 }
\ No newline at end of file
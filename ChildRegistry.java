@@ -0,0 +1,126 @@
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ChildRegistry class - shared, indexed registry of children
+ * One Child instance per ID, shared by the identification manager and the location trackers.
+ * A closed registry only knows the children registered into it: a lookup of an unknown ID
+ * returns null instead of loading and registering the child, so IDs arriving from outside
+ * (an HTTP request, a scanned code) cannot grow it.
+ */
+public class ChildRegistry {
+    private static final ChildRegistry SHARED = new ChildRegistry(1024);
+
+    private final ConcurrentHashMap<String, Child> childrenById;
+    private final ConcurrentHashMap<String, String> internPool;
+    private final boolean loadOnMiss;
+
+    // Constructor
+    public ChildRegistry(int expectedChildren) {
+        this(expectedChildren, true);
+    }
+
+    public ChildRegistry(int expectedChildren, boolean loadOnMiss) {
+        this.childrenById = new ConcurrentHashMap<>(expectedChildren);
+        this.internPool = new ConcurrentHashMap<>();
+        this.loadOnMiss = loadOnMiss;
+    }
+
+    /**
+     * Get the registry shared by all components of this JVM
+     */
+    public static ChildRegistry getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Register a child - returns the instance already registered under the same ID, if any
+     */
+    public Child register(Child child) {
+        Child existing = childrenById.putIfAbsent(child.getChildId(), child);
+        return existing != null ? existing : child;
+    }
+
+    /**
+     * Bulk load children (e.g. a full school roster)
+     */
+    public void registerAll(Collection<Child> children) {
+        if (children.size() > 10_000) {
+            children.parallelStream().forEach(this::register);
+        } else {
+            for (Child child : children) {
+                register(child);
+            }
+        }
+    }
+
+    /**
+     * Create and register a child with interned school and parent references
+     */
+    public Child register(String childId, String name, int age, String schoolId, String parentId) {
+        return register(new Child(childId, name, age, intern(schoolId), intern(parentId)));
+    }
+
+    /**
+     * Get child by ID - loads the child on first access, or returns null for an unknown child
+     * if the registry is closed
+     */
+    public Child getChild(String childId) {
+        if (!loadOnMiss) {
+            return findChild(childId);
+        }
+        if (childId == null) {
+            // Unidentified child - not registered, same as the former per-call lookup
+            return loadChild(null);
+        }
+        Child child = childrenById.get(childId);
+        if (child != null) {
+            return child;
+        }
+        return register(loadChild(childId));
+    }
+
+    /**
+     * Find a registered child without loading it
+     */
+    public Child findChild(String childId) {
+        return childId != null ? childrenById.get(childId) : null;
+    }
+
+    /**
+     * Check if child is registered
+     */
+    public boolean contains(String childId) {
+        return childId != null && childrenById.containsKey(childId);
+    }
+
+    /**
+     * Remove child from registry
+     */
+    public Child unregister(String childId) {
+        return childrenById.remove(childId);
+    }
+
+    /**
+     * Share one instance of repeated strings (school IDs, parent IDs of siblings)
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = internPool.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    /**
+     * Load child from database
+     */
+    private Child loadChild(String childId) {
+        // Simulation of getting child from database
+        return new Child(childId, "Child_" + childId, 8, intern("SCHOOL_001"), "PARENT_" + childId);
+    }
+
+    public int size() { return childrenById.size(); }
+    public boolean isLoadOnMiss() { return loadOnMiss; }
+    public Collection<Child> getChildren() { return childrenById.values(); }
+}
@@ -0,0 +1,511 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * ChildStateTable class - dense identification state per child
+ * Each child gets an int slot on first sight; its state is one byte in a chunked primitive array
+ * and one bit in the bitset of that state, so "every child ON_RIDE" is read straight off a bitset.
+ * Transitions are checked against IdentificationState's rules. Not thread-safe for writers: owned
+ * by one ChildIdentificationManager (one writer, as in the fleet shards). Snapshots are immutable
+ * and may be read from any thread.
+ *
+ * Snapshots share state chunks with the table (copy-on-write): taking one copies only the chunk
+ * references, and the writer copies a chunk the first time it changes it afterwards. Unchanged
+ * chunks stay shared between versions, which is also how deltas find what changed.
+ */
+public class ChildStateTable {
+    static final byte NO_STATE = -1;
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int HISTORY_SIZE = 64;
+    static final IdentificationState[] STATES = IdentificationState.values();
+
+    // childId → slot, open addressing with linear probing
+    private String[] slotKeys;
+    private int[] slotValues;
+
+    private String[] childIds;
+    private byte[][] stateChunks;
+    private long[] chunkEpochs;
+    private long epoch;
+    private final BitSet[] childrenByState;
+    private int size;
+    private int activeCount;
+    private long version;
+    private long rejectedTransitions;
+    private StateSnapshot lastSnapshot;
+    private final ArrayDeque<StateSnapshot> history;
+
+    // Constructor
+    public ChildStateTable() {
+        this(64);
+    }
+
+    public ChildStateTable(int expectedChildren) {
+        int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, expectedChildren) - 1) << 2);
+        this.slotKeys = new String[capacity];
+        this.slotValues = new int[capacity];
+        this.childIds = new String[Math.max(16, expectedChildren)];
+        this.stateChunks = new byte[0][];
+        this.chunkEpochs = new long[0];
+        this.epoch = 1;
+        this.childrenByState = new BitSet[STATES.length];
+        for (int i = 0; i < STATES.length; i++) {
+            childrenByState[i] = new BitSet();
+        }
+        this.history = new ArrayDeque<>(HISTORY_SIZE);
+    }
+
+    /**
+     * Move a child to a state - returns false (and changes nothing) if the transition is not legal
+     */
+    public boolean transition(String childId, IdentificationState next) {
+        if (childId == null) {
+            rejectedTransitions++;
+            return false;
+        }
+        int slot = find(childId);
+        byte current = slot >= 0 ? stateAt(slot) : NO_STATE;
+        if (!IdentificationState.isLegal(current == NO_STATE ? null : STATES[current], next)) {
+            rejectedTransitions++;
+            return false;
+        }
+        if (slot < 0) {
+            slot = assignSlot(childId);
+        }
+        setState(slot, next);
+        return true;
+    }
+
+    /**
+     * Set a state without checking the rules (recovery from a journal or snapshot)
+     */
+    public void set(String childId, IdentificationState state) {
+        int slot = find(childId);
+        setState(slot >= 0 ? slot : assignSlot(childId), state);
+    }
+
+    public IdentificationState getState(String childId) {
+        int slot = find(childId);
+        byte state = slot >= 0 ? stateAt(slot) : NO_STATE;
+        return state != NO_STATE ? STATES[state] : null;
+    }
+
+    public boolean isIn(String childId, IdentificationState state) {
+        int slot = find(childId);
+        return slot >= 0 && stateAt(slot) == state.ordinal();
+    }
+
+    public boolean contains(String childId) {
+        return getState(childId) != null;
+    }
+
+    /**
+     * Children currently in the state - live bitset of slots, do not modify
+     */
+    public BitSet getSlotsIn(IdentificationState state) {
+        return childrenByState[state.ordinal()];
+    }
+
+    public int countIn(IdentificationState state) {
+        return childrenByState[state.ordinal()].cardinality();
+    }
+
+    public void forEachIn(IdentificationState state, Consumer<String> action) {
+        BitSet slots = childrenByState[state.ordinal()];
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            action.accept(childIds[slot]);
+        }
+    }
+
+    public List<String> getChildIdsIn(IdentificationState state) {
+        List<String> result = new ArrayList<>(countIn(state));
+        forEachIn(state, result::add);
+        return result;
+    }
+
+    /**
+     * Forget every state - slots are kept for the children already seen
+     */
+    public void clear() {
+        for (int chunk = 0; chunk < stateChunks.length; chunk++) {
+            byte[] empty = new byte[CHUNK_SIZE];
+            Arrays.fill(empty, NO_STATE);
+            stateChunks[chunk] = empty;
+            chunkEpochs[chunk] = epoch;
+        }
+        for (BitSet slots : childrenByState) {
+            slots.clear();
+        }
+        activeCount = 0;
+        version++;
+    }
+
+    /**
+     * Immutable view of the current states - O(chunks), and O(1) when nothing changed since the last one
+     */
+    public StateSnapshot snapshot() {
+        if (lastSnapshot != null && lastSnapshot.getVersion() == version) {
+            return lastSnapshot;
+        }
+        StateSnapshot snapshot = new StateSnapshot(version, childIds, stateChunks.clone(), size, activeCount,
+                                                   slotKeys, slotValues);
+        epoch++; // every chunk is now shared with the snapshot
+        lastSnapshot = snapshot;
+        if (history.size() == HISTORY_SIZE) {
+            history.removeFirst();
+        }
+        history.addLast(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Identifications changed since the snapshot of the given version, up to a new snapshot
+     * Falls back to every identification (not incremental) when that version is no longer retained.
+     */
+    public IdentificationDelta changesSince(long sinceVersion) {
+        StateSnapshot current = snapshot();
+        StateSnapshot base = null;
+        for (StateSnapshot candidate : history) {
+            if (candidate.getVersion() == sinceVersion) {
+                base = candidate;
+                break;
+            }
+        }
+
+        Map<String, String> changes = new HashMap<>();
+        if (base == null) {
+            current.forEach((childId, state) -> changes.put(childId, state.name()));
+            return new IdentificationDelta(sinceVersion, current.getVersion(), false, changes);
+        }
+        byte[][] before = base.chunks;
+        byte[][] after = current.chunks;
+        for (int chunk = 0; chunk < after.length; chunk++) {
+            byte[] oldStates = chunk < before.length ? before[chunk] : null;
+            if (oldStates == after[chunk]) {
+                continue; // shared - untouched between the two versions
+            }
+            int first = chunk << CHUNK_SHIFT;
+            int last = Math.min(current.size, first + CHUNK_SIZE);
+            for (int slot = first; slot < last; slot++) {
+                byte oldState = oldStates != null && slot < base.size ? oldStates[slot & CHUNK_MASK] : NO_STATE;
+                byte newState = after[chunk][slot & CHUNK_MASK];
+                if (oldState != newState) {
+                    changes.put(current.childIds[slot], newState == NO_STATE ? null : STATES[newState].name());
+                }
+            }
+        }
+        return new IdentificationDelta(sinceVersion, current.getVersion(), true, changes);
+    }
+
+    /**
+     * Read-only Map view (child ID → state name) of the current states
+     */
+    public Map<String, String> asMap() {
+        return snapshot().asMap();
+    }
+
+    private byte stateAt(int slot) {
+        return stateChunks[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    private void setState(int slot, IdentificationState state) {
+        int chunk = slot >>> CHUNK_SHIFT;
+        byte previous = stateChunks[chunk][slot & CHUNK_MASK];
+        if (previous == state.ordinal()) {
+            return;
+        }
+        if (chunkEpochs[chunk] != epoch) {
+            stateChunks[chunk] = stateChunks[chunk].clone(); // copy on first write after a snapshot
+            chunkEpochs[chunk] = epoch;
+        }
+        if (previous == NO_STATE) {
+            activeCount++;
+        } else {
+            childrenByState[previous].clear(slot);
+        }
+        stateChunks[chunk][slot & CHUNK_MASK] = (byte) state.ordinal();
+        childrenByState[state.ordinal()].set(slot);
+        version++;
+    }
+
+    private int find(String childId) {
+        return findSlot(slotKeys, slotValues, childId);
+    }
+
+    /**
+     * Slot of a child in an index - shared with snapshots, which read the index the table grows into
+     */
+    static int findSlot(String[] keys, int[] values, String childId) {
+        if (childId == null) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        int index = mix(childId.hashCode()) & mask;
+        String key;
+        while ((key = keys[index]) != null) {
+            if (key.equals(childId)) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int assignSlot(String childId) {
+        if (childId == null) {
+            throw new IllegalArgumentException("Child ID must not be null");
+        }
+        if (size == childIds.length) {
+            childIds = Arrays.copyOf(childIds, childIds.length * 2); // snapshots keep the old array
+        }
+        if ((size >>> CHUNK_SHIFT) == stateChunks.length) {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            Arrays.fill(chunk, NO_STATE);
+            stateChunks = Arrays.copyOf(stateChunks, stateChunks.length + 1);
+            stateChunks[stateChunks.length - 1] = chunk;
+            chunkEpochs = Arrays.copyOf(chunkEpochs, stateChunks.length);
+            chunkEpochs[chunkEpochs.length - 1] = epoch;
+        }
+        if ((size + 1) * 2 > slotKeys.length) {
+            rehash(slotKeys.length * 2); // new arrays - snapshots keep the old ones
+        }
+        int slot = size++;
+        childIds[slot] = childId;
+        insertKey(slotKeys, slotValues, childId, slot);
+        return slot;
+    }
+
+    private static void insertKey(String[] keys, int[] values, String childId, int slot) {
+        int mask = keys.length - 1;
+        int index = mix(childId.hashCode()) & mask;
+        while (keys[index] != null) {
+            index = (index + 1) & mask;
+        }
+        values[index] = slot;
+        keys[index] = childId;
+    }
+
+    private void rehash(int capacity) {
+        String[] keys = new String[capacity];
+        int[] values = new int[capacity];
+        for (int slot = 0; slot < size; slot++) {
+            insertKey(keys, values, childIds[slot], slot);
+        }
+        slotKeys = keys;
+        slotValues = values;
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    public int size() { return activeCount; }
+    public int getSlotCount() { return size; }
+    public long getVersion() { return version; }
+    public long getRejectedTransitions() { return rejectedTransitions; }
+}
+
+/**
+ * Immutable, versioned view of a ChildStateTable - shares unchanged chunks with the table
+ */
+class StateSnapshot {
+    private final long version;
+    final String[] childIds;
+    final byte[][] chunks;
+    final int size;
+    private final int activeCount;
+    private final String[] slotKeys;
+    private final int[] slotValues;
+
+    StateSnapshot(long version, String[] childIds, byte[][] chunks, int size, int activeCount,
+                  String[] slotKeys, int[] slotValues) {
+        this.version = version;
+        this.childIds = childIds;
+        this.chunks = chunks;
+        this.size = size;
+        this.activeCount = activeCount;
+        this.slotKeys = slotKeys;
+        this.slotValues = slotValues;
+    }
+
+    public IdentificationState getState(String childId) {
+        int slot = ChildStateTable.findSlot(slotKeys, slotValues, childId);
+        // The table may have added keys to the shared index since - only slots of this version count
+        if (slot < 0 || slot >= size || !childIds[slot].equals(childId)) {
+            return null;
+        }
+        byte state = chunks[slot >>> ChildStateTable.CHUNK_SHIFT][slot & (ChildStateTable.CHUNK_SIZE - 1)];
+        return state != ChildStateTable.NO_STATE ? ChildStateTable.STATES[state] : null;
+    }
+
+    public void forEach(BiConsumer<String, IdentificationState> action) {
+        for (int slot = 0; slot < size; slot++) {
+            byte state = chunks[slot >>> ChildStateTable.CHUNK_SHIFT][slot & (ChildStateTable.CHUNK_SIZE - 1)];
+            if (state != ChildStateTable.NO_STATE) {
+                action.accept(childIds[slot], ChildStateTable.STATES[state]);
+            }
+        }
+    }
+
+    /**
+     * Read-only Map view (child ID → state name)
+     */
+    public Map<String, String> asMap() {
+        return new SnapshotMapView();
+    }
+
+    public long getVersion() { return version; }
+    public int size() { return activeCount; }
+
+    /**
+     * Map view over the slots that hold a state
+     */
+    private class SnapshotMapView extends AbstractMap<String, String> {
+        @Override
+        public String get(Object key) {
+            IdentificationState state = key instanceof String ? getState((String) key) : null;
+            return state != null ? state.name() : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && getState((String) key) != null;
+        }
+
+        @Override
+        public int size() {
+            return activeCount;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return activeCount;
+                }
+
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<>() {
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            while (from < size && stateAt(from) == ChildStateTable.NO_STATE) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (next >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, String> entry = new SimpleImmutableEntry<>(childIds[next],
+                                    ChildStateTable.STATES[stateAt(next)].name());
+                            next = advance(next + 1);
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+
+        private byte stateAt(int slot) {
+            return chunks[slot >>> ChildStateTable.CHUNK_SHIFT][slot & (ChildStateTable.CHUNK_SIZE - 1)];
+        }
+    }
+}
+
+/**
+ * Identifications changed between two snapshot versions - a null state means the identification was cleared
+ * Not incremental when the base version was no longer retained: then every identification is listed.
+ */
+class IdentificationDelta {
+    private final long fromVersion;
+    private final long toVersion;
+    private final boolean incremental;
+    private final Map<String, String> changes;
+
+    public IdentificationDelta(long fromVersion, long toVersion, boolean incremental, Map<String, String> changes) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.incremental = incremental;
+        this.changes = changes;
+    }
+
+    public long getFromVersion() { return fromVersion; }
+    public long getToVersion() { return toVersion; }
+    public boolean isIncremental() { return incremental; }
+    public Map<String, String> getChanges() { return changes; }
+}
+
+/**
+ * Enum for identification states of a child, with the transitions allowed between them
+ */
+enum IdentificationState {
+    TRACKING_STARTED,
+    ENTERED,
+    EXITED,
+    NOT_ON_RIDE,
+    ON_RIDE,
+    TRACKED_ACTIVE,
+    CONFIRMED;
+
+    private static final IdentificationState[] BY_STATUS = new IdentificationState[ChildStatus.values().length];
+
+    /**
+     * Allowed transitions, row = current state (first row: child not seen yet), column = next state.
+     * Entering needs a known child that is not aboard, exiting needs one that boarded since tracking
+     * started, and a status report cannot contradict the last door event
+     */
+    private static final boolean[][] LEGAL = {
+        //                   TRACKING_STARTED ENTERED EXITED NOT_ON_RIDE ON_RIDE TRACKED_ACTIVE CONFIRMED
+        /* (none)           */ {true,          false,  false, true,       true,   true,          true},
+        /* TRACKING_STARTED */ {true,          true,   false, true,       true,   true,          true},
+        /* ENTERED          */ {true,          false,  true,  false,      true,   true,          true},
+        /* EXITED           */ {true,          true,   false, true,       false,  true,          true},
+        /* NOT_ON_RIDE      */ {true,          true,   false, true,       true,   true,          true},
+        /* ON_RIDE          */ {true,          false,  true,  true,       true,   true,          true},
+        /* TRACKED_ACTIVE   */ {true,          true,   true,  true,       true,   true,          true},
+        /* CONFIRMED        */ {true,          true,   true,  true,       true,   true,          true},
+    };
+
+    static {
+        for (ChildStatus status : ChildStatus.values()) {
+            BY_STATUS[status.ordinal()] = valueOf(status.name());
+        }
+    }
+
+    /**
+     * Check a transition against the table - current is null for a child not seen yet
+     */
+    public static boolean isLegal(IdentificationState current, IdentificationState next) {
+        return LEGAL[current == null ? 0 : current.ordinal() + 1][next.ordinal()];
+    }
+
+    public static IdentificationState fromStatus(ChildStatus status) {
+        return BY_STATUS[status.ordinal()];
+    }
+}
@@ -0,0 +1,234 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EmbeddingMatrix class - face embeddings packed into one contiguous float array
+ * Row i holds the L2-normalized embedding of childIds[i], so cosine similarity is a dot product
+ */
+public class EmbeddingMatrix {
+    private static final EmbeddingKernel KERNEL = EmbeddingKernel.best();
+
+    private final int dimension;
+    private final Map<String, Integer> rowByChildId;
+    private volatile float[] vectors;
+    private volatile String[] childIds;
+    private volatile int size;
+
+    // Constructor
+    public EmbeddingMatrix(int dimension, int initialCapacity) {
+        this.dimension = dimension;
+        this.rowByChildId = new HashMap<>();
+        this.vectors = new float[dimension * Math.max(initialCapacity, 1)];
+        this.childIds = new String[Math.max(initialCapacity, 1)];
+        this.size = 0;
+    }
+
+    /**
+     * Add or replace the embedding of a child - returns its row
+     */
+    public synchronized int put(String childId, float[] embedding) {
+        if (embedding.length != dimension) {
+            throw new IllegalArgumentException("Embedding length " + embedding.length +
+                    " does not match matrix dimension " + dimension);
+        }
+
+        Integer existingRow = rowByChildId.get(childId);
+        int row = existingRow != null ? existingRow : size;
+        if (row == childIds.length) {
+            grow();
+        }
+        copyNormalized(embedding, vectors, row * dimension);
+        if (existingRow == null) {
+            childIds[row] = childId;
+            rowByChildId.put(childId, row);
+            size = row + 1; // publish the row to concurrent readers
+        }
+        return row;
+    }
+
+    /**
+     * Brute-force top-k scan by cosine similarity
+     */
+    public List<FaceMatch> findTopMatches(float[] probe, int k) {
+        return findTopMatches(new float[][]{probe}, k).get(0);
+    }
+
+    /**
+     * Brute-force top-k scan for a batch of probes - each row is read once for the whole batch
+     */
+    public List<List<FaceMatch>> findTopMatches(float[][] probes, int k) {
+        // Read the volatile fields once - rows below size are fully written
+        int rows = size;
+        float[] data = vectors;
+        String[] ids = childIds;
+        int probeCount = probes.length;
+
+        float[] queries = new float[probeCount * dimension];
+        for (int p = 0; p < probeCount; p++) {
+            copyNormalized(probes[p], queries, p * dimension);
+        }
+
+        int limit = Math.max(Math.min(k, rows), 0);
+        int[] topRows = new int[probeCount * limit];
+        float[] topScores = new float[probeCount * limit];
+        int[] found = new int[probeCount];
+
+        for (int row = 0, offset = 0; row < rows && limit > 0; row++, offset += dimension) {
+            for (int p = 0; p < probeCount; p++) {
+                float score = KERNEL.dot(data, offset, queries, p * dimension, dimension);
+                int base = p * limit;
+                int count = found[p];
+                if (count < limit || score > topScores[base + count - 1]) {
+                    // Insertion into the small sorted top-k arrays
+                    int position = count < limit ? count : limit - 1;
+                    if (count < limit) {
+                        found[p] = count + 1;
+                    }
+                    while (position > 0 && topScores[base + position - 1] < score) {
+                        topScores[base + position] = topScores[base + position - 1];
+                        topRows[base + position] = topRows[base + position - 1];
+                        position--;
+                    }
+                    topScores[base + position] = score;
+                    topRows[base + position] = row;
+                }
+            }
+        }
+
+        List<List<FaceMatch>> results = new ArrayList<>(probeCount);
+        for (int p = 0; p < probeCount; p++) {
+            List<FaceMatch> matches = new ArrayList<>(found[p]);
+            for (int i = 0; i < found[p]; i++) {
+                matches.add(new FaceMatch(ids[topRows[p * limit + i]], topScores[p * limit + i]));
+            }
+            results.add(matches);
+        }
+        return results;
+    }
+
+    /**
+     * Cosine similarity between a probe and the stored embedding of a child
+     */
+    public float similarity(String childId, float[] probe) {
+        Integer row;
+        synchronized (this) {
+            row = rowByChildId.get(childId);
+        }
+        if (row == null) {
+            return -1f;
+        }
+        float[] query = new float[dimension];
+        copyNormalized(probe, query, 0);
+        return KERNEL.dot(vectors, row * dimension, query, 0, dimension);
+    }
+
+    /**
+     * Copy embedding of a row into target
+     */
+    public void copyRow(int row, float[] target) {
+        System.arraycopy(vectors, row * dimension, target, 0, dimension);
+    }
+
+    private void grow() {
+        int capacity = childIds.length * 2;
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        childIds = Arrays.copyOf(childIds, capacity);
+    }
+
+    /**
+     * Write the L2-normalized source vector into target at offset
+     */
+    static void copyNormalized(float[] source, float[] target, int offset) {
+        float norm = (float) Math.sqrt(KERNEL.dot(source, 0, source, 0, source.length));
+        float scale = norm > 0f ? 1f / norm : 0f;
+        for (int i = 0; i < source.length; i++) {
+            target[offset + i] = source[i] * scale;
+        }
+    }
+
+    public int getDimension() { return dimension; }
+    public int size() { return size; }
+    public String getChildId(int row) { return childIds[row]; }
+    public float[] getVectors() { return vectors; }
+    public static String getKernelName() { return KERNEL.getName(); }
+    static EmbeddingKernel kernel() { return KERNEL; }
+}
+
+/**
+ * Face match result class
+ */
+class FaceMatch {
+    private String childId;
+    private float similarity;
+
+    public FaceMatch(String childId, float similarity) {
+        this.childId = childId;
+        this.similarity = similarity;
+    }
+
+    public String getChildId() { return childId; }
+    public float getSimilarity() { return similarity; }
+
+    /**
+     * L2 distance between the normalized embeddings
+     */
+    public double getDistance() {
+        return Math.sqrt(Math.max(0.0, 2.0 - 2.0 * similarity));
+    }
+
+    @Override
+    public String toString() {
+        return "FaceMatch{childId='" + childId + "', similarity=" + similarity + "}";
+    }
+}
+
+/**
+ * Dot-product kernel used by the embedding scans
+ */
+interface EmbeddingKernel {
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    String getName();
+
+    /**
+     * Vector API kernel when jdk.incubator.vector is available, scalar kernel otherwise
+     */
+    static EmbeddingKernel best() {
+        if (!Boolean.getBoolean("transport.scalarKernel")) {
+            try {
+                return (EmbeddingKernel) Class.forName("VectorEmbeddingKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (Exception | LinkageError e) {
+                // Module not added at runtime (--add-modules jdk.incubator.vector) - use the scalar kernel
+            }
+        }
+        return new ScalarEmbeddingKernel();
+    }
+}
+
+/**
+ * Scalar kernel - four independent accumulators so the JIT can pipeline the loop
+ */
+class ScalarEmbeddingKernel implements EmbeddingKernel {
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum0 = 0f, sum1 = 0f, sum2 = 0f, sum3 = 0f;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+            sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    @Override
+    public String getName() { return "scalar"; }
+}
@@ -0,0 +1,439 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EtaEngine class - arrival time estimates over a RoadGraph
+ * Named places (schools, stops) get a shortest-path tree computed backwards from the place, once:
+ * the ETA of any position to a place is then a snap to the nearest node plus one array read.
+ * Node-to-node queries use A* with ALT lower bounds - precomputed distances to and from a few
+ * landmarks spread over the graph, which bound the remaining travel time by the triangle inequality.
+ * Attached to a GpsFeed, the engine refreshes the ETA of every tracked vehicle on each fix.
+ */
+public class EtaEngine {
+    private static final double OFF_ROAD_METERS_PER_SECOND = 20 / 3.6;
+    private static volatile EtaEngine shared;
+    private static volatile boolean sharedLoaded;
+
+    private final RoadGraph graph;
+    private final int[] landmarks;
+    private final int[][] fromLandmark;
+    private final int[][] toLandmark;
+    private final ConcurrentHashMap<Integer, int[]> destinationTrees;
+    private final ConcurrentHashMap<String, VehicleEta> vehicleEtas;
+    private final ThreadLocal<SearchSpace> searchSpaces;
+    private final LongAdder queries;
+    private GpsFeed gpsFeed;
+    private GpsListener gpsListener;
+
+    // Constructor
+    public EtaEngine(RoadGraph graph) {
+        this(graph, 8);
+    }
+
+    public EtaEngine(RoadGraph graph, int landmarkCount) {
+        this.graph = graph;
+        this.destinationTrees = new ConcurrentHashMap<>();
+        this.vehicleEtas = new ConcurrentHashMap<>();
+        this.searchSpaces = ThreadLocal.withInitial(() -> new SearchSpace(graph.size()));
+        this.queries = new LongAdder();
+
+        long start = System.nanoTime();
+        int count = Math.min(landmarkCount, graph.size());
+        this.landmarks = new int[count];
+        this.fromLandmark = new int[count][];
+        this.toLandmark = new int[count][];
+        selectLandmarks();
+        for (int place : graph.getPlaces().values()) {
+            treeTo(place);
+        }
+        if (Trace.isEnabled()) {
+            System.out.printf("EtaEngine ready: %s, %d landmarks, %d place trees in %.0f ms%n",
+                              graph, count, destinationTrees.size(), (System.nanoTime() - start) / 1e6);
+        }
+    }
+
+    /**
+     * Engine over the road graph of -Dtransport.roadGraph (default data/roads_tel_aviv.txt), attached to
+     * the shared GpsFeed - loaded on first use; null if the graph cannot be loaded
+     */
+    public static EtaEngine getShared() {
+        if (!sharedLoaded) {
+            synchronized (EtaEngine.class) {
+                if (!sharedLoaded) {
+                    shared = loadShared();
+                    sharedLoaded = true;
+                }
+            }
+        }
+        return shared;
+    }
+
+    private static EtaEngine loadShared() {
+        Path path = Path.of(System.getProperty("transport.roadGraph", "data/roads_tel_aviv.txt"));
+        if (!Files.isReadable(path)) {
+            System.err.println("No road graph at " + path + " - arrival times are rough estimates");
+            return null;
+        }
+        try {
+            EtaEngine engine = new EtaEngine(RoadGraph.load(path));
+            engine.attachGpsFeed(GpsFeed.getShared());
+            return engine;
+        } catch (RuntimeException e) {
+            System.err.println("Cannot load road graph " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Place the vehicles head for unless told otherwise - -Dtransport.destination, default "School 1"
+     */
+    public static String getDefaultDestination() {
+        return System.getProperty("transport.destination", "School 1");
+    }
+
+    /**
+     * Farthest-point landmarks: each new landmark is the node farthest from those already chosen
+     */
+    private void selectLandmarks() {
+        int[] nearestLandmarkDistance = new int[graph.size()];
+        Arrays.fill(nearestLandmarkDistance, Integer.MAX_VALUE);
+        int candidate = landmarks.length > 0 ? farthest(shortestPaths(0, true)) : 0;
+        for (int i = 0; i < landmarks.length; i++) {
+            landmarks[i] = candidate;
+            fromLandmark[i] = shortestPaths(candidate, true);
+            toLandmark[i] = shortestPaths(candidate, false);
+            for (int node = 0; node < nearestLandmarkDistance.length; node++) {
+                nearestLandmarkDistance[node] = Math.min(nearestLandmarkDistance[node], fromLandmark[i][node]);
+            }
+            candidate = farthest(nearestLandmarkDistance);
+        }
+    }
+
+    private static int farthest(int[] distances) {
+        int best = 0;
+        for (int node = 1; node < distances.length; node++) {
+            if (distances[node] < RoadGraph.UNREACHABLE && distances[node] > distances[best]) {
+                best = node;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Travel time in seconds from a position to a named place, or -1 if unknown or unreachable
+     */
+    public int secondsTo(double latitude, double longitude, String destination) {
+        Integer place = graph.getPlaceNode(destination);
+        if (place == null) {
+            return -1;
+        }
+        queries.increment();
+        int node = graph.nearestNode(latitude, longitude);
+        int[] tree = destinationTrees.get(place);
+        int tenths = (tree != null ? tree : treeTo(place))[node];
+        if (tenths >= RoadGraph.UNREACHABLE) {
+            return -1;
+        }
+        return (tenths + 5) / 10 + offRoadSeconds(latitude, longitude, node);
+    }
+
+    /**
+     * Arrival time from a position to a named place, or null if it cannot be estimated
+     */
+    public LocalDateTime estimateArrival(Location from, String destination) {
+        int seconds = secondsTo(from.getLatitude(), from.getLongitude(), destination);
+        return seconds >= 0 ? LocalDateTime.now().plusSeconds(seconds) : null;
+    }
+
+    /**
+     * Travel time in seconds between two nodes (A* with landmark bounds), or -1 if unreachable
+     */
+    public int secondsBetween(int fromNode, int toNode) {
+        queries.increment();
+        int tenths = search(fromNode, toNode, true);
+        return tenths >= RoadGraph.UNREACHABLE ? -1 : (tenths + 5) / 10;
+    }
+
+    /**
+     * Shortest path tree towards a node - travel time of every node to it, built once per destination
+     */
+    int[] treeTo(int destination) {
+        return destinationTrees.computeIfAbsent(destination, node -> shortestPaths(node, false));
+    }
+
+    private int offRoadSeconds(double latitude, double longitude, int node) {
+        double meters = SpatialIndex.distanceMeters(latitude, longitude, graph.getLatitude(node), graph.getLongitude(node));
+        return (int) Math.round(meters / OFF_ROAD_METERS_PER_SECOND);
+    }
+
+    /**
+     * Dijkstra over the whole graph - forward from the source, or backward towards it
+     */
+    private int[] shortestPaths(int source, boolean forward) {
+        int[] start = forward ? graph.forwardStart() : graph.reverseStart();
+        int[] neighbor = forward ? graph.forwardTarget() : graph.reverseSource();
+        int[] time = forward ? graph.forwardTime() : graph.reverseTime();
+        int[] distance = new int[graph.size()];
+        Arrays.fill(distance, RoadGraph.UNREACHABLE);
+        distance[source] = 0;
+        NodeHeap heap = new NodeHeap(64);
+        heap.push(0, source);
+        while (!heap.isEmpty()) {
+            long top = heap.pop();
+            int node = (int) top;
+            if ((int) (top >>> 32) > distance[node]) {
+                continue;
+            }
+            for (int e = start[node]; e < start[node + 1]; e++) {
+                int next = neighbor[e];
+                int candidate = distance[node] + time[e];
+                if (candidate < distance[next]) {
+                    distance[next] = candidate;
+                    heap.push(candidate, next);
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Point-to-point search in tenths of a second - A* with ALT bounds, or plain Dijkstra
+     */
+    int search(int from, int to, boolean useLandmarks) {
+        SearchSpace space = searchSpaces.get();
+        int epoch = space.nextEpoch();
+        int[] start = graph.forwardStart();
+        int[] target = graph.forwardTarget();
+        int[] time = graph.forwardTime();
+        NodeHeap heap = space.heap;
+        heap.clear();
+        space.visit(from, epoch, 0, useLandmarks ? lowerBound(from, to) : 0);
+        heap.push(space.bound[from], from);
+        space.settled = 0;
+        while (!heap.isEmpty()) {
+            long top = heap.pop();
+            int node = (int) top;
+            int distance = space.distance[node];
+            if ((int) (top >>> 32) > distance + space.bound[node]) {
+                continue; // stale entry
+            }
+            space.settled++;
+            if (node == to) {
+                return distance;
+            }
+            for (int e = start[node]; e < start[node + 1]; e++) {
+                int next = target[e];
+                int candidate = distance + time[e];
+                if (space.epoch[next] != epoch) {
+                    space.visit(next, epoch, candidate, useLandmarks ? lowerBound(next, to) : 0);
+                } else if (candidate < space.distance[next]) {
+                    space.distance[next] = candidate;
+                } else {
+                    continue;
+                }
+                heap.push(candidate + space.bound[next], next);
+            }
+        }
+        return RoadGraph.UNREACHABLE;
+    }
+
+    /**
+     * Lower bound of the travel time from node to target, from the triangle inequality per landmark
+     */
+    private int lowerBound(int node, int target) {
+        int bound = 0;
+        for (int i = 0; i < landmarks.length; i++) {
+            int[] from = fromLandmark[i];
+            int[] to = toLandmark[i];
+            if (from[target] < RoadGraph.UNREACHABLE && from[node] < RoadGraph.UNREACHABLE) {
+                bound = Math.max(bound, from[target] - from[node]);
+            }
+            if (to[node] < RoadGraph.UNREACHABLE && to[target] < RoadGraph.UNREACHABLE) {
+                bound = Math.max(bound, to[node] - to[target]);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Follow a vehicle's ETA to a place - refreshed on every fix of the attached feed
+     */
+    public void trackVehicle(String vehicleId, String destination) {
+        VehicleEta eta = new VehicleEta(vehicleId, destination, -1, 0L);
+        vehicleEtas.put(vehicleId, eta);
+        GpsFeed feed = gpsFeed;
+        Location lastFix = feed != null ? feed.getLastFix(vehicleId) : null;
+        if (lastFix != null) {
+            onGpsFix(vehicleId, lastFix);
+        }
+    }
+
+    public void untrackVehicle(String vehicleId) {
+        vehicleEtas.remove(vehicleId);
+    }
+
+    public synchronized void attachGpsFeed(GpsFeed feed) {
+        detachGpsFeed();
+        this.gpsListener = this::onGpsFix;
+        this.gpsFeed = feed;
+        feed.subscribeAll(gpsListener);
+    }
+
+    public synchronized void detachGpsFeed() {
+        if (gpsFeed != null) {
+            gpsFeed.unsubscribeAll(gpsListener);
+            gpsFeed = null;
+            gpsListener = null;
+        }
+    }
+
+    /**
+     * Incremental update - a fix costs one snap and one tree lookup, no search
+     */
+    private void onGpsFix(String vehicleId, Location fix) {
+        VehicleEta current = vehicleEtas.get(vehicleId);
+        if (current == null) {
+            return;
+        }
+        int seconds = secondsTo(fix.getLatitude(), fix.getLongitude(), current.getDestination());
+        vehicleEtas.replace(vehicleId, current,
+                new VehicleEta(vehicleId, current.getDestination(), seconds, System.currentTimeMillis()));
+    }
+
+    public VehicleEta getEta(String vehicleId) { return vehicleEtas.get(vehicleId); }
+    public Map<String, VehicleEta> getEtas() { return vehicleEtas; }
+    public RoadGraph getGraph() { return graph; }
+    public int[] getLandmarks() { return landmarks.clone(); }
+    public int getDestinationTreeCount() { return destinationTrees.size(); }
+    public long getQueryCount() { return queries.sum(); }
+    int getLastSettledCount() { return searchSpaces.get().settled; }
+
+    /**
+     * Per-thread search state - epoch stamps spare clearing the arrays between queries
+     */
+    private static class SearchSpace {
+        private final int[] epoch;
+        private final int[] distance;
+        private final int[] bound;
+        private final NodeHeap heap;
+        private int currentEpoch;
+        private int settled;
+
+        SearchSpace(int nodes) {
+            this.epoch = new int[nodes];
+            this.distance = new int[nodes];
+            this.bound = new int[nodes];
+            this.heap = new NodeHeap(256);
+        }
+
+        int nextEpoch() {
+            if (++currentEpoch == Integer.MAX_VALUE) {
+                Arrays.fill(epoch, 0);
+                currentEpoch = 1;
+            }
+            return currentEpoch;
+        }
+
+        void visit(int node, int currentEpoch, int nodeDistance, int nodeBound) {
+            epoch[node] = currentEpoch;
+            distance[node] = nodeDistance;
+            bound[node] = nodeBound;
+        }
+    }
+
+    /**
+     * Binary min-heap of (key, node) packed into longs - no boxing on the search path
+     */
+    private static class NodeHeap {
+        private long[] entries;
+        private int size;
+
+        NodeHeap(int capacity) {
+            this.entries = new long[capacity];
+        }
+
+        void push(int key, int node) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            long entry = ((long) key << 32) | (node & 0xFFFFFFFFL);
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (entries[parent] <= entry) {
+                    break;
+                }
+                entries[i] = entries[parent];
+                i = parent;
+            }
+            entries[i] = entry;
+        }
+
+        long pop() {
+            long top = entries[0];
+            long last = entries[--size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && entries[child + 1] < entries[child]) {
+                    child++;
+                }
+                if (last <= entries[child]) {
+                    break;
+                }
+                entries[i] = entries[child];
+                i = child;
+            }
+            entries[i] = last;
+            return top;
+        }
+
+        boolean isEmpty() { return size == 0; }
+        void clear() { size = 0; }
+    }
+}
+
+/**
+ * VehicleEta class - latest ETA of a vehicle to its destination; seconds is -1 until known
+ */
+class VehicleEta {
+    private final String vehicleId;
+    private final String destination;
+    private final int seconds;
+    private final long updatedMillis;
+
+    public VehicleEta(String vehicleId, String destination, int seconds, long updatedMillis) {
+        this.vehicleId = vehicleId;
+        this.destination = destination;
+        this.seconds = seconds;
+        this.updatedMillis = updatedMillis;
+    }
+
+    /**
+     * Arrival time as of the fix the ETA was computed from, or null if not known yet
+     */
+    public LocalDateTime getArrivalTime() {
+        if (seconds < 0) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(updatedMillis + seconds * 1000L), ZoneId.systemDefault());
+    }
+
+    public String getVehicleId() { return vehicleId; }
+    public String getDestination() { return destination; }
+    public int getSeconds() { return seconds; }
+    public long getUpdatedMillis() { return updatedMillis; }
+
+    @Override
+    public String toString() {
+        return "VehicleEta{" + vehicleId + " -> " + destination + ": " + (seconds >= 0 ? seconds + " s" : "unknown") + "}";
+    }
+}
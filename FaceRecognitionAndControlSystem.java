@@ -1,6 +1,7 @@
-import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * FaceRecognitionAndControlSystem class - face recognition and control system
@@ -11,6 +12,12 @@ public class FaceRecognitionAndControlSystem {
     private double accuracy;
     private String operatorId;
     private Map<String, FaceProfile> recognitionDatabase;
+    private EmbeddingMatrix embeddingMatrix;
+    private HnswIndex annIndex;
+    private int annThreshold;
+    private float matchThreshold;
+    private ActivityLogger activityLogger;
+    private volatile RecognitionCache resultCache;
 
     // Constructor
     public FaceRecognitionAndControlSystem(String systemId, String operatorId) {
@@ -18,7 +25,12 @@ public class FaceRecognitionAndControlSystem {
         this.operatorId = operatorId;
         this.isActive = true;
         this.accuracy = 95.5; // accuracy percentage
-        this.recognitionDatabase = new HashMap<>();
+        this.recognitionDatabase = new ConcurrentHashMap<>();
+        this.embeddingMatrix = new EmbeddingMatrix(FaceProfile.EMBEDDING_DIMENSION, 1024);
+        this.annIndex = new HnswIndex(embeddingMatrix, 16, 100, 64);
+        this.annThreshold = 20_000; // gallery size from which the approximate index is used
+        this.matchThreshold = 0.75f; // minimum cosine similarity for a match
+        this.activityLogger = ActivityLogger.getDefault();
         initializeDatabase();
     }
 
@@ -26,12 +38,16 @@ public class FaceRecognitionAndControlSystem {
      * Initialize the face profiles database
      */
     private void initializeDatabase() {
-        System.out.println("Initializing face recognition database...");
+        if (Trace.isEnabled()) {
+            System.out.println("Initializing face recognition database...");
+        }
         // Add sample profiles
-        recognitionDatabase.put("CHILD_001", new FaceProfile("CHILD_001"));
-        recognitionDatabase.put("CHILD_002", new FaceProfile("CHILD_002"));
-        recognitionDatabase.put("CHILD_003", new FaceProfile("CHILD_003"));
-        System.out.println("Face recognition database initialized with " + recognitionDatabase.size() + " profiles");
+        storeProfile("CHILD_001", new FaceProfile("CHILD_001"));
+        storeProfile("CHILD_002", new FaceProfile("CHILD_002"));
+        storeProfile("CHILD_003", new FaceProfile("CHILD_003"));
+        if (Trace.isEnabled()) {
+            System.out.println("Face recognition database initialized with " + recognitionDatabase.size() + " profiles");
+        }
     }
 
     /**
@@ -39,26 +55,110 @@ public class FaceRecognitionAndControlSystem {
      */
     public String identifyChild(Image image) {
         if (!isActive) {
-            System.out.println("Face recognition system is not active!");
+            if (Trace.isEnabled()) {
+                System.out.println("Face recognition system is not active!");
+            }
             return null;
         }
 
-        System.out.println("Identifying child from image: " + image.getImageId());
+        if (Trace.isEnabled()) {
+            System.out.println("Identifying child from image: " + image.getImageId());
+        }
         
-        // Simulation of identification process
-        for (String childId : recognitionDatabase.keySet()) {
-            if (Math.random() > 0.3) { // Simulation of successful identification
-                System.out.println("Child identified: " + childId + " with accuracy: " + accuracy + "%");
-                logActivity("IDENTIFICATION_SUCCESS", childId);
-                return childId;
+        // 1:N search over the embedding matrix
+        return recordIdentification(searchGallery(extractEmbedding(image), 1));
+    }
+
+    /**
+     * Identify children in a batch of images - one matching pass over the gallery
+     */
+    public String[] identifyChildren(List<Image> images) {
+        String[] identified = new String[images.size()];
+        if (!isActive) {
+            return identified;
+        }
+
+        float[][] probes = new float[images.size()][];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = extractEmbedding(images.get(i));
+        }
+
+        if (embeddingMatrix.size() >= annThreshold) {
+            for (int i = 0; i < probes.length; i++) {
+                identified[i] = recordIdentification(annIndex.findTopMatches(probes[i], 1));
+            }
+        } else {
+            List<List<FaceMatch>> matches = embeddingMatrix.findTopMatches(probes, 1);
+            for (int i = 0; i < probes.length; i++) {
+                identified[i] = recordIdentification(matches.get(i));
             }
         }
-        
-        System.out.println("No child identified from image");
+        return identified;
+    }
+
+    /**
+     * Accept the best match if it passes the threshold and log the outcome
+     */
+    private String recordIdentification(List<FaceMatch> matches) {
+        if (!matches.isEmpty() && matches.get(0).getSimilarity() >= matchThreshold) {
+            String childId = matches.get(0).getChildId();
+            if (Trace.isEnabled()) {
+                System.out.println("Child identified: " + childId + " with accuracy: " + accuracy + "%" +
+                                  " (similarity " + matches.get(0).getSimilarity() + ")");
+            }
+            logActivity("IDENTIFICATION_SUCCESS", childId);
+            return childId;
+        }
+
+        if (Trace.isEnabled()) {
+            System.out.println("No child identified from image");
+        }
         logActivity("IDENTIFICATION_FAILED", "UNKNOWN");
         return null;
     }
 
+    /**
+     * Find the k most similar profiles to the face in the image
+     */
+    public List<FaceMatch> findTopMatches(Image image, int k) {
+        return searchGallery(extractEmbedding(image), k);
+    }
+
+    /**
+     * Exact scan for small galleries, approximate index for large ones
+     */
+    private List<FaceMatch> searchGallery(float[] probe, int k) {
+        if (embeddingMatrix.size() >= annThreshold) {
+            return annIndex.findTopMatches(probe, k);
+        }
+        return embeddingMatrix.findTopMatches(probe, k);
+    }
+
+    /**
+     * Extract face embedding from image
+     */
+    private float[] extractEmbedding(Image image) {
+        if (image.getFaceEmbedding() != null) {
+            return image.getFaceEmbedding();
+        }
+
+        // Simulation of the feature extractor - a known child is in front of the camera most of the time
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        float[] embedding = new float[FaceProfile.EMBEDDING_DIMENSION];
+        int rows = embeddingMatrix.size();
+        if (rows > 0 && random.nextDouble() > 0.1) {
+            embeddingMatrix.copyRow(random.nextInt(rows), embedding);
+            for (int i = 0; i < embedding.length; i++) {
+                embedding[i] += (float) (random.nextGaussian() * 0.03);
+            }
+        } else {
+            for (int i = 0; i < embedding.length; i++) {
+                embedding[i] = (float) random.nextGaussian();
+            }
+        }
+        return embedding;
+    }
+
     /**
      * Verify identity
      */
@@ -67,9 +167,15 @@ public class FaceRecognitionAndControlSystem {
             return false;
         }
 
-        boolean verified = recognitionDatabase.containsKey(childId);
-        System.out.println("Identity verification for child " + childId + ": " + 
-                          (verified ? "VERIFIED" : "FAILED"));
+        boolean verified = childId != null && recognitionDatabase.containsKey(childId);
+        if (verified && image != null && image.getFaceEmbedding() != null) {
+            // 1:1 check against the enrolled embedding
+            verified = embeddingMatrix.similarity(childId, image.getFaceEmbedding()) >= matchThreshold;
+        }
+        if (Trace.isEnabled()) {
+            System.out.println("Identity verification for child " + childId + ": " + 
+                              (verified ? "VERIFIED" : "FAILED"));
+        }
         
         if (verified) {
             logActivity("VERIFICATION_SUCCESS", childId);
@@ -84,24 +190,70 @@ public class FaceRecognitionAndControlSystem {
      * Process image
      */
     public String processImage(Image image) {
-        System.out.println("Processing image: " + image.getImageId());
-        String identifiedChild = identifyChild(image);
-        
+        if (Trace.isEnabled()) {
+            System.out.println("Processing image: " + image.getImageId());
+        }
+        String identifiedChild = resultCache != null ? identifyChildCached(image, resultCache) : identifyChild(image);
+        handleIdentificationResult(identifiedChild);
+        return identifiedChild;
+    }
+
+    /**
+     * Identify through the result cache - a near-identical recent frame reuses its match
+     */
+    private String identifyChildCached(Image image, RecognitionCache cache) {
+        if (!isActive || !RecognitionCache.isHashable(image)) {
+            return identifyChild(image);
+        }
+        long start = System.nanoTime();
+        long hash = cache.hashOf(image);
+        CachedRecognition cached = cache.get(hash, System.currentTimeMillis());
+        if (cached != null) {
+            String childId = cached.getChildId();
+            if (Trace.isEnabled()) {
+                System.out.println("Cached identification for image " + image.getImageId() + ": " +
+                                   (childId != null ? childId + " (similarity " + cached.getConfidence() + ")" : "unknown"));
+            }
+            logActivity(childId != null ? "IDENTIFICATION_SUCCESS" : "IDENTIFICATION_FAILED",
+                        childId != null ? childId : "UNKNOWN");
+            cache.recordHit(System.nanoTime() - start);
+            return childId;
+        }
+
+        List<FaceMatch> matches = searchGallery(extractEmbedding(image), 1);
+        String childId = recordIdentification(matches);
+        cache.put(hash, childId, matches.isEmpty() ? 0f : matches.get(0).getSimilarity(), System.currentTimeMillis());
+        cache.recordMiss(System.nanoTime() - start);
+        return childId;
+    }
+
+    /**
+     * Process a batch of images - one matching pass, then the per-frame reactions
+     */
+    public String[] processBatch(List<Image> images) {
+        String[] identified = identifyChildren(images);
+        for (String childId : identified) {
+            handleIdentificationResult(childId);
+        }
+        return identified;
+    }
+
+    private void handleIdentificationResult(String identifiedChild) {
         if (identifiedChild != null) {
             reportToDriver(identifiedChild);
             sendParentNotification(identifiedChild);
         } else {
             activateEmergencyMode();
         }
-        
-        return identifiedChild;
     }
 
     /**
      * Report to driver
      */
     public void reportToDriver(String childId) {
-        System.out.println("DRIVER ALERT: Child " + childId + " identified on vehicle");
+        if (Trace.isEnabled()) {
+            System.out.println("DRIVER ALERT: Child " + childId + " identified on vehicle");
+        }
         logActivity("DRIVER_REPORT", childId);
     }
 
@@ -109,7 +261,9 @@ public class FaceRecognitionAndControlSystem {
      * Send parent notification
      */
     public void sendParentNotification(String childId) {
-        System.out.println("Sending parent notification for child: " + childId);
+        if (Trace.isEnabled()) {
+            System.out.println("Sending parent notification for child: " + childId);
+        }
         logActivity("PARENT_NOTIFICATION", childId);
     }
 
@@ -117,29 +271,28 @@ public class FaceRecognitionAndControlSystem {
      * Activate emergency mode
      */
     public void activateEmergencyMode() {
-        System.out.println("EMERGENCY MODE ACTIVATED - Unidentified person detected!");
+        if (Trace.isEnabled()) {
+            System.out.println("EMERGENCY MODE ACTIVATED - Unidentified person detected!");
+        }
         logActivity("EMERGENCY_ACTIVATED", "UNKNOWN_PERSON");
     }
 
     /**
-     * Log system activity
+     * Log system activity - recorded asynchronously, never blocks on I/O
      */
     public void logActivity(String activity, String childId) {
-        String logEntry = "[" + LocalDateTime.now() + "] " + 
-                         "System: " + systemId + 
-                         " | Activity: " + activity + 
-                         " | Child: " + childId + 
-                         " | Operator: " + operatorId;
-        System.out.println("LOG: " + logEntry);
+        activityLogger.log(ActivityCode.fromName(activity), systemId, childId, operatorId);
     }
 
     /**
      * Report child status
      */
     public void reportChildStatus(String childId, ChildStatus status, Location location) {
-        System.out.println("Reporting child status - ID: " + childId + 
-                          ", Status: " + status + 
-                          ", Location: " + location);
+        if (Trace.isEnabled()) {
+            System.out.println("Reporting child status - ID: " + childId + 
+                              ", Status: " + status + 
+                              ", Location: " + location);
+        }
         logActivity("STATUS_REPORT", childId);
     }
 
@@ -147,11 +300,30 @@ public class FaceRecognitionAndControlSystem {
      * Add new profile to database
      */
     public void addFaceProfile(String childId, FaceProfile profile) {
-        recognitionDatabase.put(childId, profile);
-        System.out.println("Added new face profile for child: " + childId);
+        storeProfile(childId, profile);
+        if (Trace.isEnabled()) {
+            System.out.println("Added new face profile for child: " + childId);
+        }
         logActivity("PROFILE_ADDED", childId);
     }
 
+    /**
+     * Store profile in the database and its embedding in the matrix
+     */
+    private void storeProfile(String childId, FaceProfile profile) {
+        recognitionDatabase.put(childId, profile);
+        int row = embeddingMatrix.put(childId, profile.getEmbedding());
+        if (row < annIndex.size()) {
+            annIndex.relink(row); // re-enrolment replaced the row in place - its old links are stale
+        } else {
+            annIndex.insertPending();
+        }
+        RecognitionCache cache = resultCache;
+        if (cache != null) {
+            cache.clear(); // a new face may match frames cached as unknown
+        }
+    }
+
     // Getters and Setters
     public String getSystemId() { return systemId; }
     public boolean isActive() { return isActive; }
@@ -160,6 +332,22 @@ public class FaceRecognitionAndControlSystem {
     public void setAccuracy(double accuracy) { this.accuracy = accuracy; }
     public String getOperatorId() { return operatorId; }
     public Map<String, FaceProfile> getRecognitionDatabase() { return recognitionDatabase; }
+    public EmbeddingMatrix getEmbeddingMatrix() { return embeddingMatrix; }
+    public HnswIndex getAnnIndex() { return annIndex; }
+    public int getAnnThreshold() { return annThreshold; }
+    public void setAnnThreshold(int annThreshold) { this.annThreshold = annThreshold; }
+    public float getMatchThreshold() { return matchThreshold; }
+    public void setMatchThreshold(float matchThreshold) {
+        this.matchThreshold = matchThreshold;
+        RecognitionCache cache = resultCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+    public RecognitionCache getResultCache() { return resultCache; }
+    public void setResultCache(RecognitionCache resultCache) { this.resultCache = resultCache; }
+    public ActivityLogger getActivityLogger() { return activityLogger; }
+    public void setActivityLogger(ActivityLogger activityLogger) { this.activityLogger = activityLogger; }
 }
 
 /**
@@ -0,0 +1,280 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * FleetIdentificationManager class - identification for a whole fleet, sharded across cores
+ * Every vehicle is owned by one shard. A shard is a single-writer event loop: it alone touches
+ * the vehicle's ChildIdentificationManager, so mutations need no locks. After each batch of
+ * events the shard publishes an immutable snapshot that queries read without coordination.
+ */
+public class FleetIdentificationManager {
+    private final String fleetId;
+    private final ChildRegistry childRegistry;
+    private final Shard[] shards;
+
+    // Constructor
+    public FleetIdentificationManager(String fleetId) {
+        this(fleetId, Runtime.getRuntime().availableProcessors(), ChildRegistry.getShared());
+    }
+
+    public FleetIdentificationManager(String fleetId, int shardCount, ChildRegistry childRegistry) {
+        this.fleetId = fleetId;
+        this.childRegistry = childRegistry;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(fleetId + "-shard-" + i, 64 * 1024);
+        }
+        if (Trace.isEnabled()) {
+            System.out.println("FleetIdentificationManager " + fleetId + " initialized with " + shardCount + " shards");
+        }
+    }
+
+    /**
+     * Run an operation on the vehicle's manager, on the vehicle's owning shard
+     */
+    public <T> CompletableFuture<T> execute(String vehicleId, Function<ChildIdentificationManager, T> operation) {
+        return shardFor(vehicleId).submit(vehicleId, operation);
+    }
+
+    public CompletableFuture<Void> trackChild(String vehicleId, String childId) {
+        return execute(vehicleId, manager -> {
+            manager.trackChild(childId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> reportChildStatus(String vehicleId, String childId, ChildStatus status, Location location) {
+        return execute(vehicleId, manager -> manager.reportChildStatus(childId, status, location));
+    }
+
+    public CompletableFuture<Boolean> processChildEntry(String vehicleId, String childId) {
+        return execute(vehicleId, manager -> manager.processChildEntry(childId));
+    }
+
+    public CompletableFuture<Boolean> processChildExit(String vehicleId, String childId) {
+        return execute(vehicleId, manager -> manager.processChildExit(childId));
+    }
+
+    /**
+     * Complete once every event submitted so far is applied and visible to queries
+     */
+    public CompletableFuture<Void> sync() {
+        CompletableFuture<?>[] barriers = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            barriers[i] = shards[i].barrier();
+        }
+        return CompletableFuture.allOf(barriers);
+    }
+
+    /**
+     * Active identifications of one vehicle as of the last published snapshot
+     */
+    public Map<String, String> getActiveIdentifications(String vehicleId) {
+        StateSnapshot identifications = shardFor(vehicleId).snapshot.get(vehicleId);
+        return identifications != null ? identifications.asMap() : Collections.emptyMap();
+    }
+
+    /**
+     * Vehicle that has the child in its active identifications, or null
+     */
+    public String findVehicleOf(String childId) {
+        for (Shard shard : shards) {
+            for (Map.Entry<String, StateSnapshot> vehicle : shard.snapshot.entrySet()) {
+                if (vehicle.getValue().getState(childId) != null) {
+                    return vehicle.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Children per status across the fleet
+     */
+    public Map<String, Integer> countByStatus() {
+        int[] counters = new int[IdentificationState.values().length];
+        for (Shard shard : shards) {
+            for (StateSnapshot identifications : shard.snapshot.values()) {
+                identifications.forEach((childId, state) -> counters[state.ordinal()]++);
+            }
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        for (IdentificationState state : IdentificationState.values()) {
+            if (counters[state.ordinal()] > 0) {
+                counts.put(state.name(), counters[state.ordinal()]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * One identification report per vehicle, built from the published snapshots
+     */
+    public List<Report> generateFleetReport() {
+        List<Report> reports = new ArrayList<>();
+        for (Shard shard : shards) {
+            for (Map.Entry<String, StateSnapshot> vehicle : shard.snapshot.entrySet()) {
+                Report report = new Report("IDENTIFICATION_REPORT_" + vehicle.getKey() + "_" + System.currentTimeMillis());
+                report.setManagerId(fleetId);
+                report.setVehicleId(vehicle.getKey());
+                report.setVersion(vehicle.getValue().getVersion());
+                report.setActiveIdentifications(vehicle.getValue().asMap());
+                report.setTimestamp(java.time.LocalDateTime.now());
+                reports.add(report);
+            }
+        }
+        return reports;
+    }
+
+    public int getVehicleCount() {
+        int vehicles = 0;
+        for (Shard shard : shards) {
+            vehicles += shard.snapshot.size();
+        }
+        return vehicles;
+    }
+
+    /**
+     * Finish queued events and stop the shards
+     */
+    public void shutdown() {
+        for (Shard shard : shards) {
+            shard.stop();
+        }
+        if (Trace.isEnabled()) {
+            System.out.println("FleetIdentificationManager " + fleetId + " stopped");
+        }
+    }
+
+    private Shard shardFor(String vehicleId) {
+        int hash = vehicleId.hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    public String getFleetId() { return fleetId; }
+    public int getShardCount() { return shards.length; }
+    public ChildRegistry getChildRegistry() { return childRegistry; }
+
+    /**
+     * Single-writer event loop owning a subset of the vehicles
+     */
+    private class Shard {
+        private final BlockingQueue<Runnable> events;
+        private final Map<String, ChildIdentificationManager> managers;
+        private final Set<String> dirtyVehicles;
+        private final Thread loop;
+        private volatile Map<String, StateSnapshot> snapshot;
+        private volatile boolean running;
+
+        Shard(String name, int queueCapacity) {
+            this.events = new LinkedBlockingQueue<>(queueCapacity);
+            this.managers = new HashMap<>();
+            this.dirtyVehicles = new HashSet<>();
+            this.snapshot = Collections.emptyMap();
+            this.running = true;
+            this.loop = new Thread(this::runLoop, name);
+            this.loop.setDaemon(true);
+            this.loop.start();
+        }
+
+        <T> CompletableFuture<T> submit(String vehicleId, Function<ChildIdentificationManager, T> operation) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            enqueue(result, () -> {
+                ChildIdentificationManager manager = managers.get(vehicleId);
+                if (manager == null) {
+                    manager = new ChildIdentificationManager(fleetId + "_" + vehicleId, vehicleId, childRegistry);
+                    managers.put(vehicleId, manager);
+                }
+                dirtyVehicles.add(vehicleId);
+                try {
+                    result.complete(operation.apply(manager));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            return result;
+        }
+
+        CompletableFuture<Void> barrier() {
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            enqueue(result, () -> {
+                publish();
+                result.complete(null);
+            });
+            return result;
+        }
+
+        private void enqueue(CompletableFuture<?> result, Runnable event) {
+            if (!running) {
+                result.completeExceptionally(new RejectedExecutionException("Fleet shard is shut down"));
+                return;
+            }
+            try {
+                events.put(event); // a full shard pushes back on its producers
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(new RejectedExecutionException("Interrupted while queueing event"));
+            }
+        }
+
+        /**
+         * Apply queued events in batches, publish a snapshot after each batch
+         */
+        private void runLoop() {
+            List<Runnable> batch = new ArrayList<>(1024);
+            while (running || !events.isEmpty()) {
+                try {
+                    Runnable first = events.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    events.drainTo(batch, 1023);
+                    for (Runnable event : batch) {
+                        event.run();
+                    }
+                    batch.clear();
+                    publish();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Copy only the vehicles changed since the last snapshot, then swap it in
+         */
+        private void publish() {
+            if (dirtyVehicles.isEmpty()) {
+                return;
+            }
+            Map<String, StateSnapshot> next = new HashMap<>(snapshot);
+            for (String vehicleId : dirtyVehicles) {
+                next.put(vehicleId, managers.get(vehicleId).getIdentificationStates().snapshot());
+            }
+            dirtyVehicles.clear();
+            snapshot = next; // never mutated once published
+        }
+
+        void stop() {
+            running = false;
+            try {
+                loop.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
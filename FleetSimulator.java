@@ -0,0 +1,616 @@
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * FleetSimulator class - synthetic load on the real fleet classes, reproducible from a seed
+ * N vehicles carry M children each. Every vehicle has a door camera capturing K frames a second into
+ * the shared RecognitionPipeline, and a simulated GPS fix every 1/Hz seconds on a GpsFeed. A door
+ * event puts one child's face in the frame; once recognized the child boards or leaves through the
+ * FleetIdentificationManager, the AttendanceBoard follows, and the parent gets an SMS. Every fix of a
+ * vehicle sends a location push for each child aboard through the NotificationDispatcher, whose
+ * channels have injected latency and failure rates.
+ * The workload - door events, faces, GPS walk, channel faults - comes from the seed; thread timing
+ * does not, so counters match between runs only as far as the machine keeps up.
+ */
+public class FleetSimulator {
+    private static final int ABOARD = 1;
+    private static final int PENDING = 2;
+
+    private final Config config;
+    private final String[] vehicleIds;
+    private final String[] childIds;
+    private final String[] parentIds;
+    private final float[][] faces;
+    private final Map<String, Integer> vehicleIndex;
+    private final AtomicIntegerArray childStates;
+    private final StageMetrics doorMetrics;
+    private final StageMetrics transitionMetrics;
+    private final StageMetrics gpsMetrics;
+    private final AtomicLong frames;
+    private final AtomicLong sightings;
+    private final AtomicLong missedDoorEvents;
+    private final AtomicLong locationUpdates;
+
+    // Constructor
+    public FleetSimulator(Config config) {
+        this.config = config;
+        int children = config.vehicles * config.childrenPerVehicle;
+        this.vehicleIds = new String[config.vehicles];
+        this.childIds = new String[children];
+        this.parentIds = new String[children];
+        this.faces = new float[children][];
+        this.vehicleIndex = new HashMap<>();
+        for (int v = 0; v < config.vehicles; v++) {
+            vehicleIds[v] = "SIM_VEHICLE_" + v;
+            vehicleIndex.put(vehicleIds[v], v);
+            for (int c = 0; c < config.childrenPerVehicle; c++) {
+                int child = v * config.childrenPerVehicle + c;
+                childIds[child] = "SIM_CHILD_" + v + "_" + c;
+                parentIds[child] = "SIM_PARENT_" + v + "_" + c;
+            }
+        }
+        this.childStates = new AtomicIntegerArray(children);
+        this.doorMetrics = new StageMetrics("door");
+        this.transitionMetrics = new StageMetrics("transition");
+        this.gpsMetrics = new StageMetrics("gps");
+        this.frames = new AtomicLong();
+        this.sightings = new AtomicLong();
+        this.missedDoorEvents = new AtomicLong();
+        this.locationUpdates = new AtomicLong();
+    }
+
+    /**
+     * Build the fleet, run the load for the configured duration, drain and report
+     */
+    public SimulationReport run() {
+        ChildRegistry registry = new ChildRegistry(childIds.length);
+        FaceRecognitionAndControlSystem recognitionSystem = new FaceRecognitionAndControlSystem("FRS_SIM", "OP_SIM");
+        AttendanceBoard attendance = new AttendanceBoard();
+        for (int child = 0; child < childIds.length; child++) {
+            Child registered = registry.register(childIds[child], "Child " + child, 6 + child % 10,
+                    "SIM_SCHOOL_" + (child / config.childrenPerVehicle) % 10, parentIds[child]);
+            FaceProfile profile = new FaceProfile(childIds[child]);
+            faces[child] = profile.getEmbedding();
+            recognitionSystem.addFaceProfile(childIds[child], profile);
+            attendance.enroll(registered, "Class " + (child % 4 + 1), parentIds[child]);
+        }
+
+        FleetIdentificationManager fleet = new FleetIdentificationManager("FLEET_SIM",
+                Runtime.getRuntime().availableProcessors(), registry);
+        for (int v = 0; v < vehicleIds.length; v++) {
+            fleet.execute(vehicleIds[v], manager -> {
+                manager.attachAttendance(attendance);
+                return null;
+            });
+            for (int c = 0; c < config.childrenPerVehicle; c++) {
+                fleet.trackChild(vehicleIds[v], childIds[v * config.childrenPerVehicle + c]);
+            }
+        }
+        fleet.sync().join();
+
+        FaultInjectingNotificationProxy proxy = new FaultInjectingNotificationProxy(config);
+        NotificationDispatcher dispatcher = new NotificationDispatcher(proxy, config.notifyDebounceMillis, 50, 100,
+                proxy.getMaxAttempts(), 200, 5_000, 100_000);
+        RecognitionPipeline pipeline = new RecognitionPipeline(recognitionSystem, 1024, 32, 5,
+                OverflowPolicy.DROP_OLDEST, Runtime.getRuntime().availableProcessors());
+        FramePool framePool = new FramePool(4 * config.vehicles, 8);
+        Camera[] cameras = new Camera[vehicleIds.length];
+        for (int v = 0; v < vehicleIds.length; v++) {
+            cameras[v] = new Camera("SIM_CAM_" + v, vehicleIds[v], "Door", config.resolution, framePool);
+        }
+
+        GpsFeed feed = new GpsFeed("SIM");
+        feed.subscribeAll((vehicleId, fix) -> onFix(vehicleId, fix, dispatcher));
+        SimulatedGpsSource gps = new SimulatedGpsSource(feed, config.gpsHz, config.seed, vehicleIds);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        AtomicLong peakHeap = new AtomicLong(memory.getHeapMemoryUsage().getUsed());
+        AtomicLong peakDirect = new AtomicLong(directBytes()); // pooled frames live off-heap
+        Random random = new Random(config.seed);
+        ScheduledExecutorService driver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fleet-simulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long frameMicros = (long) (1_000_000 / config.cameraFps);
+        long start = System.nanoTime();
+        driver.scheduleAtFixedRate(() -> captureRound(cameras, pipeline, fleet, dispatcher, random),
+                0, frameMicros, TimeUnit.MICROSECONDS);
+        driver.scheduleAtFixedRate(() -> {
+            long used = memory.getHeapMemoryUsage().getUsed();
+            long direct = directBytes();
+            peakHeap.accumulateAndGet(used, Math::max);
+            peakDirect.accumulateAndGet(direct, Math::max);
+            if (config.progress) {
+                System.out.printf("  t=%4.1fs frames=%d door=%d fixes=%d notifications=%d heap=%d MB direct=%d MB%n",
+                        (System.nanoTime() - start) / 1e9, frames.get(), doorMetrics.getCompleted(),
+                        feed.getDelivered(), dispatcher.getDelivered(), used >> 20, direct >> 20);
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+        gps.start();
+
+        LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(config.seconds));
+        gps.stop();
+        driver.shutdown();
+        try {
+            driver.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long loadNanos = System.nanoTime() - start;
+
+        // Drain: frames still queued, transitions they cause, then the notifications
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline
+               && (pipeline.getBatchMetrics().getCompleted() + pipeline.getIngestMetrics().getDropped() < frames.get()
+                   || doorMetrics.getCompleted() + doorMetrics.getDropped() + missedDoorEvents.get() < doorMetrics.getReceived())) {
+            LockSupport.parkNanos(1_000_000);
+        }
+        fleet.sync().join();
+        feed.awaitIdle(1_000);
+        long drainNanos = System.nanoTime() - start - loadNanos;
+        dispatcher.close(30_000);
+
+        SimulationReport report = new SimulationReport(config, loadNanos / 1e9, drainNanos / 1e9, frames.get(),
+                sightings.get(), missedDoorEvents.get(), locationUpdates.get(), feed.getPublished(),
+                feed.getCoalesced(), dispatcher.toString(), attendance.getTotals(),
+                List.of(doorMetrics, transitionMetrics, gpsMetrics, pipeline.getIngestMetrics(),
+                        pipeline.getBatchMetrics(), pipeline.getMatchMetrics(), proxy.getSmsMetrics(),
+                        proxy.getPushMetrics()),
+                peakHeap.get(), memory.getHeapMemoryUsage().getUsed(), peakDirect.get(), directBytes(),
+                gcCount() - gcCountBefore, gcMillis() - gcMillisBefore);
+        pipeline.shutdown();
+        feed.close();
+        fleet.shutdown();
+        return report;
+    }
+
+    /**
+     * One frame per door camera - a door event puts a child in front of the camera, otherwise the
+     * camera sees a random seat, which is empty when that child is not aboard
+     */
+    private void captureRound(Camera[] cameras, RecognitionPipeline pipeline, FleetIdentificationManager fleet,
+                              NotificationDispatcher dispatcher, Random random) {
+        double doorProbability = config.doorEventsPerMinute / 60.0 / config.cameraFps;
+        for (int v = 0; v < cameras.length; v++) {
+            int doorChild = -1;
+            int seat = v * config.childrenPerVehicle + random.nextInt(config.childrenPerVehicle);
+            if (random.nextDouble() < doorProbability) {
+                int state = childStates.get(seat);
+                if ((state & PENDING) == 0 && childStates.compareAndSet(seat, state, state | PENDING)) {
+                    doorChild = seat;
+                    doorMetrics.recordReceived(1);
+                }
+            }
+            float[] face = new float[FaceProfile.EMBEDDING_DIMENSION];
+            boolean visible = doorChild >= 0 || (childStates.get(seat) & ABOARD) != 0;
+            for (int i = 0; i < face.length; i++) {
+                face[i] = visible ? faces[seat][i] + (float) (random.nextGaussian() * 0.03) : (float) random.nextGaussian();
+            }
+
+            Image image = cameras[v].captureImage();
+            if (image == null) {
+                if (doorChild >= 0) {
+                    // no frame, no door event - the child can be picked again next round
+                    doorMetrics.recordDropped(1);
+                    childStates.set(doorChild, childStates.get(doorChild) & ABOARD);
+                }
+                continue;
+            }
+            image.setFaceEmbedding(face);
+            frames.incrementAndGet();
+            long submitted = System.nanoTime();
+            int child = doorChild;
+            String vehicleId = vehicleIds[v];
+            pipeline.submit(image).whenComplete((identified, error) -> {
+                if (child < 0) {
+                    if (identified != null) {
+                        sightings.incrementAndGet();
+                    }
+                } else if (error != null) {
+                    doorMetrics.recordDropped(1);
+                    childStates.set(child, childStates.get(child) & ABOARD);
+                } else if (!childIds[child].equals(identified)) {
+                    missedDoorEvents.incrementAndGet();
+                    childStates.set(child, childStates.get(child) & ABOARD);
+                } else {
+                    passDoor(vehicleId, child, submitted, fleet, dispatcher);
+                }
+            });
+        }
+    }
+
+    /**
+     * Recognized at the door - board if not aboard, otherwise arrive
+     */
+    private void passDoor(String vehicleId, int child, long submitted, FleetIdentificationManager fleet,
+                          NotificationDispatcher dispatcher) {
+        boolean boarding = (childStates.get(child) & ABOARD) == 0;
+        long transitionStart = System.nanoTime();
+        transitionMetrics.recordReceived(1);
+        CompletableFuture<Boolean> transition = boarding ? fleet.processChildEntry(vehicleId, childIds[child])
+                                                         : fleet.processChildExit(vehicleId, childIds[child]);
+        transition.whenComplete((applied, error) -> {
+            long now = System.nanoTime();
+            if (error == null && applied) {
+                transitionMetrics.recordCompleted(1, now - transitionStart);
+                doorMetrics.recordCompleted(1, now - submitted);
+                dispatcher.submit(NotificationChannel.SMS, parentIds[child], childIds[child],
+                        "Child " + childIds[child] + (boarding ? " boarded " : " arrived with ") + vehicleId);
+                childStates.set(child, boarding ? ABOARD : 0);
+            } else {
+                transitionMetrics.recordDropped(1);
+                doorMetrics.recordDropped(1);
+                childStates.set(child, childStates.get(child) & ABOARD);
+            }
+        });
+    }
+
+    /**
+     * GPS fix of a vehicle - a location push to the parent of every child aboard
+     */
+    private void onFix(String vehicleId, Location fix, NotificationDispatcher dispatcher) {
+        Integer v = vehicleIndex.get(vehicleId);
+        if (v == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        gpsMetrics.recordReceived(1);
+        LocalDateTime now = LocalDateTime.now();
+        for (int child = v * config.childrenPerVehicle; child < (v + 1) * config.childrenPerVehicle; child++) {
+            if ((childStates.get(child) & ABOARD) != 0) {
+                dispatcher.submitLocationUpdate(parentIds[child], childIds[child], fix, now);
+                locationUpdates.incrementAndGet();
+            }
+        }
+        gpsMetrics.recordCompleted(1, System.nanoTime() - start);
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(collector.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long directBytes() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(collector.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+
+    /**
+     * Run from the command line - every setting is a system property, see Config.fromSystemProperties
+     */
+    public static void main(String[] args) {
+        Trace.setEnabled(false);
+        Config config = Config.fromSystemProperties().progress(true);
+        System.out.println("FleetSimulator: " + config);
+        System.out.println(new FleetSimulator(config).run());
+        System.exit(0);
+    }
+
+    public Config getConfig() { return config; }
+
+    /**
+     * Simulation settings - defaults are a mid-size morning run
+     */
+    public static class Config {
+        private int vehicles = 50;
+        private int childrenPerVehicle = 30;
+        private double cameraFps = 5;
+        private double gpsHz = 1;
+        private double doorEventsPerMinute = 6;
+        private int seconds = 10;
+        private long seed = 42;
+        private String resolution = "640x480";
+        private long notifyDebounceMillis = 1_000;
+        private long smsLatencyMillis = 80;
+        private double smsFailureRate = 0.1;
+        private long pushLatencyMillis = 20;
+        private double pushFailureRate = 0.02;
+        private boolean progress;
+
+        /**
+         * Settings from -Dsim.vehicles, -Dsim.childrenPerVehicle, -Dsim.cameraFps, -Dsim.gpsHz,
+         * -Dsim.doorEventsPerMinute, -Dsim.seconds, -Dsim.seed, -Dsim.resolution, -Dsim.notifyDebounceMillis,
+         * -Dsim.smsLatencyMillis, -Dsim.smsFailureRate, -Dsim.pushLatencyMillis and -Dsim.pushFailureRate
+         */
+        public static Config fromSystemProperties() {
+            Config config = new Config();
+            config.vehicles = Integer.getInteger("sim.vehicles", config.vehicles);
+            config.childrenPerVehicle = Integer.getInteger("sim.childrenPerVehicle", config.childrenPerVehicle);
+            config.cameraFps = doubleProperty("sim.cameraFps", config.cameraFps);
+            config.gpsHz = doubleProperty("sim.gpsHz", config.gpsHz);
+            config.doorEventsPerMinute = doubleProperty("sim.doorEventsPerMinute", config.doorEventsPerMinute);
+            config.seconds = Integer.getInteger("sim.seconds", config.seconds);
+            config.seed = Long.getLong("sim.seed", config.seed);
+            config.resolution = System.getProperty("sim.resolution", config.resolution);
+            config.notifyDebounceMillis = Long.getLong("sim.notifyDebounceMillis", config.notifyDebounceMillis);
+            config.smsLatencyMillis = Long.getLong("sim.smsLatencyMillis", config.smsLatencyMillis);
+            config.smsFailureRate = doubleProperty("sim.smsFailureRate", config.smsFailureRate);
+            config.pushLatencyMillis = Long.getLong("sim.pushLatencyMillis", config.pushLatencyMillis);
+            config.pushFailureRate = doubleProperty("sim.pushFailureRate", config.pushFailureRate);
+            return config;
+        }
+
+        private static double doubleProperty(String name, double defaultValue) {
+            String value = System.getProperty(name);
+            return value != null ? Double.parseDouble(value) : defaultValue;
+        }
+
+        public Config vehicles(int vehicles) {
+            this.vehicles = vehicles;
+            return this;
+        }
+
+        public Config childrenPerVehicle(int childrenPerVehicle) {
+            this.childrenPerVehicle = childrenPerVehicle;
+            return this;
+        }
+
+        public Config cameraFps(double cameraFps) {
+            this.cameraFps = cameraFps;
+            return this;
+        }
+
+        public Config gpsHz(double gpsHz) {
+            this.gpsHz = gpsHz;
+            return this;
+        }
+
+        public Config doorEventsPerMinute(double doorEventsPerMinute) {
+            this.doorEventsPerMinute = doorEventsPerMinute;
+            return this;
+        }
+
+        public Config seconds(int seconds) {
+            this.seconds = seconds;
+            return this;
+        }
+
+        public Config seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Config sms(long latencyMillis, double failureRate) {
+            this.smsLatencyMillis = latencyMillis;
+            this.smsFailureRate = failureRate;
+            return this;
+        }
+
+        public Config push(long latencyMillis, double failureRate) {
+            this.pushLatencyMillis = latencyMillis;
+            this.pushFailureRate = failureRate;
+            return this;
+        }
+
+        public Config progress(boolean progress) {
+            this.progress = progress;
+            return this;
+        }
+
+        public int getVehicles() { return vehicles; }
+        public int getChildrenPerVehicle() { return childrenPerVehicle; }
+        public double getCameraFps() { return cameraFps; }
+        public double getGpsHz() { return gpsHz; }
+        public int getSeconds() { return seconds; }
+        public long getSeed() { return seed; }
+        public long getSmsLatencyMillis() { return smsLatencyMillis; }
+        public double getSmsFailureRate() { return smsFailureRate; }
+        public long getPushLatencyMillis() { return pushLatencyMillis; }
+        public double getPushFailureRate() { return pushFailureRate; }
+
+        @Override
+        public String toString() {
+            return String.format("%d vehicles x %d children, cameras %.1f fps (%s), GPS %.1f Hz, %.1f door events/min, " +
+                                 "SMS %d ms/%.0f%% failures, push %d ms/%.0f%% failures, %d s, seed %d",
+                    vehicles, childrenPerVehicle, cameraFps, resolution, gpsHz, doorEventsPerMinute,
+                    smsLatencyMillis, smsFailureRate * 100, pushLatencyMillis, pushFailureRate * 100, seconds, seed);
+        }
+    }
+}
+
+/**
+ * Notification proxy with simulated channel latency and failures
+ * Latency is uniform between half and one and a half times the configured mean. Whether an attempt
+ * fails depends only on the seed, the message and the attempt number, so the same messages meet the
+ * same faults in every run, whatever order the sender threads take them in.
+ */
+class FaultInjectingNotificationProxy extends ParentNotificationProxy {
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final long seed;
+    private final long smsLatencyMillis;
+    private final double smsFailureRate;
+    private final long pushLatencyMillis;
+    private final double pushFailureRate;
+    private final ConcurrentHashMap<String, Integer> attempts = new ConcurrentHashMap<>();
+    private final StageMetrics smsMetrics = new StageMetrics("sms");
+    private final StageMetrics pushMetrics = new StageMetrics("push");
+
+    public FaultInjectingNotificationProxy(FleetSimulator.Config config) {
+        super("PNP_SIM");
+        this.seed = config.getSeed();
+        this.smsLatencyMillis = config.getSmsLatencyMillis();
+        this.smsFailureRate = config.getSmsFailureRate();
+        this.pushLatencyMillis = config.getPushLatencyMillis();
+        this.pushFailureRate = config.getPushFailureRate();
+    }
+
+    @Override
+    public boolean sendSMSToParent(String parentId, String message) {
+        return attempt(smsMetrics, smsLatencyMillis, smsFailureRate, "SMS|" + parentId + '|' + message);
+    }
+
+    @Override
+    public void pushNotification(String parentId, String message) {
+        if (!attempt(pushMetrics, pushLatencyMillis, pushFailureRate, "PUSH|" + parentId + '|' + message)) {
+            throw new IllegalStateException("Push to " + parentId + " failed");
+        }
+    }
+
+    /**
+     * One send attempt - blocks the (virtual) sender thread for the channel latency
+     */
+    private boolean attempt(StageMetrics metrics, long latencyMillis, double failureRate, String key) {
+        long start = System.nanoTime();
+        metrics.recordReceived(1);
+        int attempt = attempts.merge(key, 1, Integer::sum);
+        SplittableRandom random = new SplittableRandom(seed * 31 + key.hashCode() * 17L + attempt);
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(latencyMillis) / 2
+                              + (long) (random.nextDouble() * TimeUnit.MILLISECONDS.toNanos(latencyMillis)));
+        boolean failed = random.nextDouble() < failureRate;
+        if (!failed || attempt >= MAX_ATTEMPTS) {
+            attempts.remove(key);
+        }
+        if (failed) {
+            metrics.recordDropped(1);
+            return false;
+        }
+        metrics.recordCompleted(1, System.nanoTime() - start);
+        return true;
+    }
+
+    public int getMaxAttempts() { return MAX_ATTEMPTS; }
+    public StageMetrics getSmsMetrics() { return smsMetrics; }
+    public StageMetrics getPushMetrics() { return pushMetrics; }
+}
+
+/**
+ * Outcome of one simulation run
+ */
+class SimulationReport {
+    private final FleetSimulator.Config config;
+    private final double loadSeconds;
+    private final double drainSeconds;
+    private final long frames;
+    private final long sightings;
+    private final long missedDoorEvents;
+    private final long locationUpdates;
+    private final long fixesPublished;
+    private final long fixesCoalesced;
+    private final String notifications;
+    private final int[] attendanceTotals;
+    private final List<StageMetrics> stages;
+    private final long peakHeapBytes;
+    private final long endHeapBytes;
+    private final long peakDirectBytes;
+    private final long endDirectBytes;
+    private final long gcCount;
+    private final long gcMillis;
+
+    SimulationReport(FleetSimulator.Config config, double loadSeconds, double drainSeconds, long frames,
+                     long sightings, long missedDoorEvents, long locationUpdates, long fixesPublished,
+                     long fixesCoalesced, String notifications, int[] attendanceTotals, List<StageMetrics> stages,
+                     long peakHeapBytes, long endHeapBytes, long peakDirectBytes, long endDirectBytes,
+                     long gcCount, long gcMillis) {
+        this.config = config;
+        this.loadSeconds = loadSeconds;
+        this.drainSeconds = drainSeconds;
+        this.frames = frames;
+        this.sightings = sightings;
+        this.missedDoorEvents = missedDoorEvents;
+        this.locationUpdates = locationUpdates;
+        this.fixesPublished = fixesPublished;
+        this.fixesCoalesced = fixesCoalesced;
+        this.notifications = notifications;
+        this.attendanceTotals = attendanceTotals;
+        this.stages = new ArrayList<>(stages);
+        this.peakHeapBytes = peakHeapBytes;
+        this.endHeapBytes = endHeapBytes;
+        this.peakDirectBytes = peakDirectBytes;
+        this.endDirectBytes = endDirectBytes;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+    }
+
+    /**
+     * Frames matched per second of load and drain - sustained only if the drain stays short
+     */
+    public double getFrameThroughput() {
+        StageMetrics batch = getStage("batch");
+        return batch != null ? batch.getCompleted() / (loadSeconds + drainSeconds) : 0.0;
+    }
+
+    public StageMetrics getStage(String stageName) {
+        for (StageMetrics stage : stages) {
+            if (stage.getStageName().equals(stageName)) {
+                return stage;
+            }
+        }
+        return null;
+    }
+
+    public double getLoadSeconds() { return loadSeconds; }
+    public double getDrainSeconds() { return drainSeconds; }
+    public long getFrames() { return frames; }
+    public long getSightings() { return sightings; }
+    public long getMissedDoorEvents() { return missedDoorEvents; }
+    public long getLocationUpdates() { return locationUpdates; }
+    public List<StageMetrics> getStages() { return stages; }
+    public long getPeakHeapBytes() { return peakHeapBytes; }
+    public long getEndHeapBytes() { return endHeapBytes; }
+    public long getPeakDirectBytes() { return peakDirectBytes; }
+    public long getEndDirectBytes() { return endDirectBytes; }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        double expectedFrames = config.getVehicles() * config.getCameraFps() * loadSeconds;
+        text.append(String.format("Load %.1f s, drain %.2f s%n", loadSeconds, drainSeconds));
+        text.append(String.format("Frames      %d captured (%.0f%% of %.0f offered), %.0f/s matched, %d sightings aboard, " +
+                                  "%d missed door events%n",
+                frames, expectedFrames > 0 ? frames * 100 / expectedFrames : 0.0, expectedFrames,
+                getFrameThroughput(), sightings, missedDoorEvents));
+        text.append(String.format("GPS fixes   %d published, %d coalesced, %d location updates (%.0f/s)%n",
+                fixesPublished, fixesCoalesced, locationUpdates, locationUpdates / loadSeconds));
+        text.append("Notify      ").append(notifications).append(System.lineSeparator());
+        text.append(String.format("Attendance  not arrived=%d en route=%d arrived=%d%n",
+                attendanceTotals[AttendanceStatus.NOT_ARRIVED.ordinal()],
+                attendanceTotals[AttendanceStatus.EN_ROUTE.ordinal()],
+                attendanceTotals[AttendanceStatus.ARRIVED.ordinal()]));
+        for (StageMetrics stage : stages) {
+            text.append(String.format("  %-10s completed=%d dropped=%d rate=%.1f/s latency{%s}%n",
+                    stage.getStageName(), stage.getCompleted(), stage.getDropped(),
+                    stage.getCompleted() / (loadSeconds + drainSeconds), stage.getLatency()));
+        }
+        text.append(String.format("Heap        peak %d MB, end %d MB, %d GCs taking %d ms%n",
+                peakHeapBytes >> 20, endHeapBytes >> 20, gcCount, gcMillis));
+        text.append(String.format("Direct      peak %d MB, end %d MB (pooled frames)",
+                peakDirectBytes >> 20, endDirectBytes >> 20));
+        return text.toString();
+    }
+}
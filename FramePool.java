@@ -0,0 +1,236 @@
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FramePool class - pooled direct buffers for camera frames
+ * Frames are slices of large direct slabs, grouped by frame size. A frame is reference counted:
+ * whoever holds an Image retains it, and the last release returns the buffer to the pool, so
+ * frames travel camera → proxy → pipeline without copies and without garbage.
+ * With -Dtransport.frameLeakDetection=true every frame remembers where it was acquired and a
+ * frame collected without being released is reported (and its buffer recovered).
+ */
+public class FramePool {
+    static final boolean LEAK_DETECTION = Boolean.getBoolean("transport.frameLeakDetection");
+    private static final Cleaner CLEANER = LEAK_DETECTION ? Cleaner.create() : null;
+    private static final FramePool SHARED = new FramePool(Integer.getInteger("transport.framePoolRetained", 256), 8);
+
+    private final int maxRetainedPerSize;
+    private final int framesPerSlab;
+    private final ConcurrentHashMap<Integer, SizeClass> sizeClasses;
+    private final AtomicLong allocatedBytes;
+    private final AtomicLong acquired;
+    private final AtomicLong recycled;
+    private final AtomicLong leaked;
+
+    // Constructor
+    public FramePool(int maxRetainedPerSize, int framesPerSlab) {
+        this.maxRetainedPerSize = maxRetainedPerSize;
+        this.framesPerSlab = framesPerSlab;
+        this.sizeClasses = new ConcurrentHashMap<>();
+        this.allocatedBytes = new AtomicLong();
+        this.acquired = new AtomicLong();
+        this.recycled = new AtomicLong();
+        this.leaked = new AtomicLong();
+    }
+
+    /**
+     * Get the pool shared by all cameras of this JVM
+     */
+    public static FramePool getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Bytes of one frame at a resolution such as "1920x1080" - YUV 4:2:0, 1.5 bytes per pixel
+     */
+    public static int frameBytes(String resolution) {
+        int separator = resolution.indexOf('x');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Resolution must be WIDTHxHEIGHT: " + resolution);
+        }
+        int width = Integer.parseInt(resolution.substring(0, separator).trim());
+        int height = Integer.parseInt(resolution.substring(separator + 1).trim());
+        return width * height * 3 / 2;
+    }
+
+    /**
+     * Acquire a frame of the given size - the caller holds the only reference
+     */
+    public Frame acquire(int frameBytes) {
+        SizeClass sizeClass = sizeClasses.computeIfAbsent(frameBytes, SizeClass::new);
+        ByteBuffer buffer = sizeClass.free.poll();
+        if (buffer == null) {
+            buffer = allocateSlab(sizeClass);
+        } else {
+            sizeClass.freeCount.decrementAndGet();
+        }
+        acquired.incrementAndGet();
+        buffer.clear();
+        return new Frame(this, sizeClass, buffer);
+    }
+
+    /**
+     * Allocate a slab of frames - keep one, pool the rest
+     */
+    private ByteBuffer allocateSlab(SizeClass sizeClass) {
+        int frameBytes = sizeClass.frameBytes;
+        ByteBuffer slab = ByteBuffer.allocateDirect(frameBytes * framesPerSlab);
+        allocatedBytes.addAndGet((long) frameBytes * framesPerSlab);
+        for (int i = 1; i < framesPerSlab; i++) {
+            sizeClass.free.offer(slab.slice(i * frameBytes, frameBytes));
+            sizeClass.freeCount.incrementAndGet();
+        }
+        return slab.slice(0, frameBytes);
+    }
+
+    /**
+     * Take a buffer back - beyond the retention limit it is left to the GC
+     */
+    void recycle(SizeClass sizeClass, ByteBuffer buffer) {
+        recycled.incrementAndGet();
+        if (sizeClass.freeCount.get() < maxRetainedPerSize) {
+            sizeClass.freeCount.incrementAndGet();
+            sizeClass.free.offer(buffer);
+        }
+    }
+
+    void recordLeak(String acquiredAt) {
+        leaked.incrementAndGet();
+        System.err.println("Frame leak: frame collected without release, acquired at" + acquiredAt);
+    }
+
+    static Cleaner.Cleanable trackLeak(Frame frame, LeakState state) {
+        return CLEANER.register(frame, state);
+    }
+
+    public long getAllocatedBytes() { return allocatedBytes.get(); }
+    public long getAcquired() { return acquired.get(); }
+    public long getRecycled() { return recycled.get(); }
+    public long getLeaked() { return leaked.get(); }
+    public long getOutstanding() { return acquired.get() - recycled.get() - leaked.get(); }
+
+    @Override
+    public String toString() {
+        return "FramePool{allocated=" + allocatedBytes.get() / 1_048_576 + " MB, acquired=" + acquired.get() +
+               ", outstanding=" + getOutstanding() + ", leaked=" + leaked.get() + "}";
+    }
+
+    /**
+     * Free buffers of one frame size
+     */
+    static class SizeClass {
+        final int frameBytes;
+        final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+        final AtomicInteger freeCount = new AtomicInteger();
+
+        SizeClass(int frameBytes) {
+            this.frameBytes = frameBytes;
+        }
+    }
+
+    /**
+     * What the cleaner needs to recover a leaked frame - must not reference the frame itself
+     */
+    static class LeakState implements Runnable {
+        private final FramePool pool;
+        private final SizeClass sizeClass;
+        private final ByteBuffer buffer;
+        private final Throwable acquiredAt;
+        volatile boolean released;
+
+        LeakState(FramePool pool, SizeClass sizeClass, ByteBuffer buffer) {
+            this.pool = pool;
+            this.sizeClass = sizeClass;
+            this.buffer = buffer;
+            this.acquiredAt = new Throwable();
+        }
+
+        @Override
+        public void run() {
+            if (!released) {
+                StringBuilder trace = new StringBuilder();
+                for (StackTraceElement element : acquiredAt.getStackTrace()) {
+                    trace.append("\n    at ").append(element);
+                }
+                pool.recordLeak(trace.toString());
+                sizeClass.freeCount.incrementAndGet();
+                sizeClass.free.offer(buffer);
+            }
+        }
+    }
+}
+
+/**
+ * Frame class - reference-counted view of a pooled frame buffer
+ */
+class Frame {
+    private final FramePool pool;
+    private final FramePool.SizeClass sizeClass;
+    private final ByteBuffer buffer;
+    private final AtomicInteger references;
+    private final FramePool.LeakState leakState;
+    private final java.lang.ref.Cleaner.Cleanable cleanable;
+
+    Frame(FramePool pool, FramePool.SizeClass sizeClass, ByteBuffer buffer) {
+        this.pool = pool;
+        this.sizeClass = sizeClass;
+        this.buffer = buffer;
+        this.references = new AtomicInteger(1);
+        if (FramePool.LEAK_DETECTION) {
+            this.leakState = new FramePool.LeakState(pool, sizeClass, buffer);
+            this.cleanable = FramePool.trackLeak(this, leakState);
+        } else {
+            this.leakState = null;
+            this.cleanable = null;
+        }
+    }
+
+    /**
+     * Add a holder - each retain needs its own release
+     */
+    public Frame retain() {
+        int count;
+        do {
+            count = references.get();
+            if (count <= 0) {
+                throw new IllegalStateException("Frame already released");
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return this;
+    }
+
+    /**
+     * Drop a holder - the last release returns the buffer to the pool
+     */
+    public void release() {
+        int count = references.decrementAndGet();
+        if (count > 0) {
+            return;
+        }
+        if (count < 0) {
+            throw new IllegalStateException("Frame released more often than retained");
+        }
+        if (leakState != null) {
+            leakState.released = true;
+            cleanable.clean();
+        }
+        pool.recycle(sizeClass, buffer);
+    }
+
+    /**
+     * The frame bytes - shared, not copied; use absolute gets or duplicate() for a private position
+     */
+    public ByteBuffer getBuffer() {
+        if (references.get() <= 0) {
+            throw new IllegalStateException("Frame already released");
+        }
+        return buffer;
+    }
+
+    public int getSize() { return buffer.capacity(); }
+    public int getReferenceCount() { return references.get(); }
+}
@@ -0,0 +1,225 @@
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GpsFeed class - long-lived GPS feed that pushes fixes to subscribers
+ * Bursts are coalesced: while a vehicle's fix waits for dispatch, newer fixes replace it,
+ * so subscribers only ever process the latest fix per vehicle.
+ */
+public class GpsFeed {
+    private static final GpsFeed SHARED = new GpsFeed("GPS_FEED_SHARED");
+
+    private final String feedId;
+    private final ConcurrentHashMap<String, Location> pendingFixes;
+    private final ConcurrentLinkedQueue<String> dirtyVehicles;
+    private final ConcurrentHashMap<String, Location> lastFixes;
+    private final ConcurrentHashMap<String, List<GpsListener>> vehicleListeners;
+    private final List<GpsListener> allVehicleListeners;
+    private final AtomicLong published;
+    private final AtomicLong delivered;
+    private final AtomicLong coalesced;
+    private final Thread dispatcher;
+    private volatile boolean running;
+
+    // Constructor
+    public GpsFeed(String feedId) {
+        this.feedId = feedId;
+        this.pendingFixes = new ConcurrentHashMap<>();
+        this.dirtyVehicles = new ConcurrentLinkedQueue<>();
+        this.lastFixes = new ConcurrentHashMap<>();
+        this.vehicleListeners = new ConcurrentHashMap<>();
+        this.allVehicleListeners = new CopyOnWriteArrayList<>();
+        this.published = new AtomicLong();
+        this.delivered = new AtomicLong();
+        this.coalesced = new AtomicLong();
+        this.running = true;
+        this.dispatcher = new Thread(this::dispatchLoop, "gps-feed-" + feedId);
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Get the feed shared by all components of this JVM
+     */
+    public static GpsFeed getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Subscribe to the fixes of one vehicle
+     */
+    public void subscribe(String vehicleId, GpsListener listener) {
+        vehicleListeners.computeIfAbsent(vehicleId, id -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Subscribe to the fixes of every vehicle
+     */
+    public void subscribeAll(GpsListener listener) {
+        allVehicleListeners.add(listener);
+    }
+
+    public void unsubscribe(String vehicleId, GpsListener listener) {
+        List<GpsListener> listeners = vehicleListeners.get(vehicleId);
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    public void unsubscribeAll(GpsListener listener) {
+        allVehicleListeners.remove(listener);
+    }
+
+    /**
+     * Publish a fix - never blocks; replaces a fix of the same vehicle that was not dispatched yet
+     */
+    public void publish(String vehicleId, Location fix) {
+        published.incrementAndGet();
+        if (pendingFixes.put(vehicleId, fix) == null) {
+            dirtyVehicles.offer(vehicleId);
+            LockSupport.unpark(dispatcher);
+        } else {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    /**
+     * Dispatcher loop - delivers the latest pending fix of each dirty vehicle
+     */
+    private void dispatchLoop() {
+        while (running) {
+            String vehicleId = dirtyVehicles.poll();
+            if (vehicleId == null) {
+                LockSupport.parkNanos(this, 10_000_000);
+                continue;
+            }
+            Location fix = pendingFixes.remove(vehicleId);
+            if (fix == null) {
+                continue;
+            }
+            lastFixes.put(vehicleId, fix);
+            List<GpsListener> listeners = vehicleListeners.get(vehicleId);
+            if (listeners != null) {
+                for (GpsListener listener : listeners) {
+                    deliver(listener, vehicleId, fix);
+                }
+            }
+            for (GpsListener listener : allVehicleListeners) {
+                deliver(listener, vehicleId, fix);
+            }
+        }
+    }
+
+    private void deliver(GpsListener listener, String vehicleId, Location fix) {
+        try {
+            listener.onFix(vehicleId, fix);
+            delivered.incrementAndGet();
+        } catch (RuntimeException e) {
+            System.err.println("GPS listener failed for vehicle " + vehicleId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wait until every published fix has been dispatched
+     */
+    public void awaitIdle(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while ((!dirtyVehicles.isEmpty() || !pendingFixes.isEmpty()) && System.currentTimeMillis() < deadline) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    public void close() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+    }
+
+    public String getFeedId() { return feedId; }
+    public Location getLastFix(String vehicleId) { return lastFixes.get(vehicleId); }
+    public Map<String, Location> getLastFixes() { return lastFixes; }
+    public long getPublished() { return published.get(); }
+    public long getDelivered() { return delivered.get(); }
+    public long getCoalesced() { return coalesced.get(); }
+}
+
+/**
+ * Listener for GPS fixes
+ */
+interface GpsListener {
+    void onFix(String vehicleId, Location location);
+}
+
+/**
+ * Simulated GPS source - random walk around Tel Aviv per vehicle, reproducible from the seed
+ */
+class SimulatedGpsSource {
+    private final GpsFeed feed;
+    private final String[] vehicleIds;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final String[] descriptions;
+    private final double rateHz;
+    private final Random random;
+    private ScheduledExecutorService scheduler;
+
+    public SimulatedGpsSource(GpsFeed feed, double rateHz, long seed, String... vehicleIds) {
+        this.feed = feed;
+        this.vehicleIds = vehicleIds;
+        this.rateHz = rateHz;
+        this.random = new Random(seed);
+        this.latitudes = new double[vehicleIds.length];
+        this.longitudes = new double[vehicleIds.length];
+        this.descriptions = new String[vehicleIds.length];
+        for (int i = 0; i < vehicleIds.length; i++) {
+            descriptions[i] = "GPS fix " + vehicleIds[i];
+            latitudes[i] = 32.0853 + (random.nextDouble() - 0.5) * 0.05;
+            longitudes[i] = 34.7818 + (random.nextDouble() - 0.5) * 0.05;
+        }
+    }
+
+    /**
+     * Start publishing one fix per vehicle every 1/rateHz seconds
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simulated-gps");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodMicros = (long) (1_000_000 / rateHz);
+        scheduler.scheduleAtFixedRate(this::publishRound, 0, periodMicros, TimeUnit.MICROSECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Move every vehicle a small step and publish its fix
+     */
+    public void publishRound() {
+        for (int i = 0; i < vehicleIds.length; i++) {
+            latitudes[i] += (random.nextDouble() - 0.5) * 0.0005;
+            longitudes[i] += (random.nextDouble() - 0.5) * 0.0005;
+            feed.publish(vehicleIds[i], new Location(latitudes[i], longitudes[i], descriptions[i]));
+        }
+    }
+
+    public String[] getVehicleIds() { return vehicleIds; }
+    public double getRateHz() { return rateHz; }
+}
@@ -0,0 +1,443 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HeadlessServer class - the core system behind an HTTP/JSON API, without AWT or Swing
+ * Wires one vehicle's ChildIdentificationManager, LocationTracker (fed by the shared GpsFeed),
+ * FaceRecognitionAndControlSystem and ParentNotificationProxy, and serves them with the JDK's
+ * HttpServer; every request runs on its own virtual thread. The identification manager has one
+ * writer: request threads hand every call on it to a single owner thread and wait for the result.
+ * Children come from a closed roster - an unknown ID is a 404 and never registers anything.
+ *
+ *   GET  /status                         system, tracking and recognition status
+ *   GET  /report[?since=version]         identification report, or only the changes since a version
+ *   POST /children/{id}/track            start tracking a child, parent gets a confirmation
+ *   POST /children/{id}/entry|exit       child boarded / left the vehicle
+ *   GET  /children/{id}/location         latest vehicle position of a tracked child, ETA to ?destination=
+ *   POST /vehicles/{id}/fix?lat=&lon=    publish a GPS fix
+ */
+public class HeadlessServer {
+    static {
+        // headers and body are separate writes - without TCP_NODELAY each keep-alive response can wait ~40 ms
+        // for the client's delayed ACK; must be set before the JDK server reads its configuration
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final String vehicleId;
+    private final ChildRegistry roster;
+    private final ChildIdentificationManager identificationManager;
+    private final ExecutorService managerOwner;
+    private final LocationTracker locationTracker;
+    private final FaceRecognitionAndControlSystem recognitionSystem;
+    private final ParentNotificationProxy notificationProxy;
+    private final GpsFeed gpsFeed;
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final StageMetrics requestMetrics;
+    private final long startedMillis;
+
+    // Constructor
+    public HeadlessServer(int port, String vehicleId) throws IOException {
+        this(port, vehicleId, GpsFeed.getShared(), demoRoster(Integer.getInteger("server.rosterSize", 100)));
+    }
+
+    public HeadlessServer(int port, String vehicleId, GpsFeed gpsFeed, ChildRegistry roster) throws IOException {
+        this.vehicleId = vehicleId;
+        this.gpsFeed = gpsFeed;
+        this.roster = roster;
+        this.identificationManager = new ChildIdentificationManager("MGR_" + vehicleId, vehicleId, roster);
+        this.managerOwner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "identification-owner-" + vehicleId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.locationTracker = new LocationTracker("LT_" + vehicleId, vehicleId, roster);
+        this.locationTracker.attachGpsFeed(gpsFeed);
+        this.locationTracker.setEtaEngine(EtaEngine.getShared());
+        this.recognitionSystem = new FaceRecognitionAndControlSystem("FRS_" + vehicleId, "SERVER");
+        this.notificationProxy = new ParentNotificationProxy("PNP_" + vehicleId);
+        this.requestMetrics = new StageMetrics("http");
+        this.executor = VirtualThreads.newExecutor("http");
+        this.httpServer = HttpServer.create(new InetSocketAddress(port), 4096);
+        this.httpServer.setExecutor(executor);
+        this.httpServer.createContext("/status", exchange -> serve(exchange, this::status));
+        this.httpServer.createContext("/report", exchange -> serve(exchange, this::report));
+        this.httpServer.createContext("/children/", exchange -> serve(exchange, this::child));
+        this.httpServer.createContext("/vehicles/", exchange -> serve(exchange, this::vehicle));
+        this.startedMillis = System.currentTimeMillis();
+    }
+
+    public void start() {
+        httpServer.start();
+        if (Trace.isEnabled()) {
+            System.out.println("HeadlessServer listening on port " + getPort());
+        }
+    }
+
+    public void stop() {
+        httpServer.stop(0);
+        locationTracker.detachGpsFeed();
+        executor.shutdownNow();
+        managerOwner.shutdown();
+    }
+
+    /**
+     * Closed roster of CHILD_001.. CHILD_n - children the server knows without loading on demand
+     */
+    public static ChildRegistry demoRoster(int size) {
+        ChildRegistry roster = new ChildRegistry(size, false);
+        for (int i = 1; i <= size; i++) {
+            String childId = String.format("CHILD_%03d", i);
+            roster.register(childId, "Child_" + childId, 8, "SCHOOL_001", "PARENT_" + childId);
+        }
+        return roster;
+    }
+
+    /**
+     * Run an operation on the identification manager's owner thread and wait for it
+     */
+    private <T> T onManager(Callable<T> operation) {
+        try {
+            return managerOwner.submit(operation).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the identification manager");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Run a handler and write its JSON response; a handler failure is a 500, never a dropped connection
+     */
+    private void serve(HttpExchange exchange, Handler handler) throws IOException {
+        long start = System.nanoTime();
+        requestMetrics.recordReceived(1);
+        Response response;
+        try {
+            response = handler.handle(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                                      queryOf(exchange.getRequestURI().getRawQuery()));
+        } catch (IllegalArgumentException e) {
+            response = Response.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            response = Response.error(500, e.toString());
+        }
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        requestMetrics.recordCompleted(1, System.nanoTime() - start);
+    }
+
+    private Response status(String method, String path, Map<String, String> query) {
+        if (!"GET".equals(method)) {
+            return Response.error(405, "GET only");
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("vehicleId", vehicleId);
+        status.put("managerId", identificationManager.getManagerId());
+        status.put("systemStatus", String.valueOf(onManager(identificationManager::getSystemStatus)));
+        status.put("tracking", locationTracker.isTracking());
+        status.put("trackedChildren", locationTracker.getTrackedChildren().size());
+        status.put("activeIdentifications", onManager(() -> identificationManager.getIdentificationStates().size()));
+        status.put("recognitionActive", recognitionSystem.isActive());
+        status.put("faceProfiles", recognitionSystem.getRecognitionDatabase().size());
+        status.put("roadGraph", locationTracker.getEtaEngine() != null);
+        status.put("uptimeMillis", System.currentTimeMillis() - startedMillis);
+        status.put("requests", requestMetrics.getCompleted());
+        return Response.ok(Json.of(status));
+    }
+
+    private Response report(String method, String path, Map<String, String> query) {
+        if (!"GET".equals(method)) {
+            return Response.error(405, "GET only");
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        String since = query.get("since");
+        if (since != null) {
+            long fromVersion = parseLong(since, "since");
+            IdentificationDelta delta = onManager(() -> identificationManager.getIdentificationChanges(fromVersion));
+            result.put("fromVersion", delta.getFromVersion());
+            result.put("toVersion", delta.getToVersion());
+            result.put("incremental", delta.isIncremental());
+            result.put("changes", delta.getChanges());
+        } else {
+            Report report = onManager(identificationManager::generateIdentificationReport);
+            result.put("reportId", report.getReportId());
+            result.put("vehicleId", report.getVehicleId());
+            result.put("version", report.getVersion());
+            result.put("timestamp", String.valueOf(report.getTimestamp()));
+            result.put("activeIdentifications", report.getActiveIdentifications());
+        }
+        return Response.ok(Json.of(result));
+    }
+
+    /**
+     * /children/{id}/{action}
+     */
+    private Response child(String method, String path, Map<String, String> query) {
+        String[] parts = path.split("/");
+        if (parts.length != 4 || parts[2].isEmpty()) {
+            return Response.error(404, "Expected /children/{id}/track|entry|exit|location");
+        }
+        String childId = parts[2];
+        String action = parts[3];
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("childId", childId);
+        if (!roster.contains(childId)) {
+            return Response.error(404, "Unknown child " + childId);
+        }
+        switch (action) {
+            case "track":
+                if (!"POST".equals(method)) {
+                    return Response.error(405, "POST only");
+                }
+                onManager(() -> {
+                    identificationManager.trackChild(childId);
+                    identificationManager.trackChild(childId, locationTracker);
+                    identificationManager.sendTrackingConfirmation(childId, notificationProxy);
+                    return null;
+                });
+                result.put("tracking", true);
+                return Response.ok(Json.of(result));
+            case "entry":
+            case "exit":
+                if (!"POST".equals(method)) {
+                    return Response.error(405, "POST only");
+                }
+                boolean changed = onManager(() -> "entry".equals(action)
+                        ? identificationManager.processChildEntry(childId)
+                        : identificationManager.processChildExit(childId));
+                result.put("changed", changed);
+                return Response.ok(Json.of(result));
+            case "location":
+                if (!"GET".equals(method)) {
+                    return Response.error(405, "GET only");
+                }
+                if (!locationTracker.getTrackedChildren().containsKey(childId)) {
+                    return Response.error(404, "Child " + childId + " is not tracked");
+                }
+                Location location = locationTracker.getCurrentLocation();
+                result.put("vehicleId", vehicleId);
+                if (location != null) {
+                    result.put("latitude", location.getLatitude());
+                    result.put("longitude", location.getLongitude());
+                    result.put("description", location.getDescription());
+                }
+                String destination = query.getOrDefault("destination", EtaEngine.getDefaultDestination());
+                result.put("destination", destination);
+                result.put("eta", String.valueOf(locationTracker.estimateArrivalTime(destination).withNano(0)));
+                EtaEngine engine = locationTracker.getEtaEngine();
+                result.put("roadGraph", engine != null && engine.getGraph().getPlaceNode(destination) != null);
+                return Response.ok(Json.of(result));
+            default:
+                return Response.error(404, "Unknown action " + action);
+        }
+    }
+
+    /**
+     * /vehicles/{id}/fix?lat=..&lon=..
+     */
+    private Response vehicle(String method, String path, Map<String, String> query) {
+        String[] parts = path.split("/");
+        if (parts.length != 4 || !"fix".equals(parts[3])) {
+            return Response.error(404, "Expected /vehicles/{id}/fix");
+        }
+        if (!"POST".equals(method)) {
+            return Response.error(405, "POST only");
+        }
+        double latitude = parseCoordinate(query.get("lat"), "lat", 90);
+        double longitude = parseCoordinate(query.get("lon"), "lon", 180);
+        gpsFeed.publish(parts[2], new Location(latitude, longitude, query.getOrDefault("description", "GPS fix")));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("vehicleId", parts[2]);
+        result.put("published", true);
+        return Response.ok(Json.of(result));
+    }
+
+    private static Map<String, String> queryOf(String rawQuery) {
+        Map<String, String> query = new LinkedHashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    query.put(java.net.URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                              java.net.URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return query;
+    }
+
+    private static long parseLong(String value, String name) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " must be a number");
+        }
+    }
+
+    private static double parseDouble(String value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter " + name);
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " must be a number");
+        }
+    }
+
+    private static double parseCoordinate(String value, String name, double bound) {
+        double coordinate = parseDouble(value, name);
+        if (!(coordinate >= -bound && coordinate <= bound)) {
+            throw new IllegalArgumentException("Parameter " + name + " must be between -" + (int) bound + " and " + (int) bound);
+        }
+        return coordinate;
+    }
+
+    /**
+     * Headless entry point: java HeadlessServer [port] [vehicleId]; -Dserver.simulateGps=true adds a simulated bus,
+     * -Dserver.rosterSize=N sets the number of known children
+     */
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        System.setProperty("java.awt.headless", "true");
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        String vehicleId = args.length > 1 ? args[1] : "VEHICLE_001";
+        HeadlessServer server = new HeadlessServer(port, vehicleId);
+        server.start();
+        if (Boolean.getBoolean("server.simulateGps")) {
+            new SimulatedGpsSource(GpsFeed.getShared(), 1.0, 42L, vehicleId).start();
+        }
+        System.out.printf("HeadlessServer for %s on port %d, started in %.0f ms%n", vehicleId, server.getPort(),
+                          (System.nanoTime() - start) / 1e6);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "http-shutdown"));
+    }
+
+    public int getPort() { return httpServer.getAddress().getPort(); }
+    public String getVehicleId() { return vehicleId; }
+    public ChildRegistry getRoster() { return roster; }
+    public ChildIdentificationManager getIdentificationManager() { return identificationManager; }
+    public LocationTracker getLocationTracker() { return locationTracker; }
+    public FaceRecognitionAndControlSystem getRecognitionSystem() { return recognitionSystem; }
+    public StageMetrics getRequestMetrics() { return requestMetrics; }
+
+    /**
+     * One API operation
+     */
+    private interface Handler {
+        Response handle(String method, String path, Map<String, String> query);
+    }
+
+    /**
+     * Status code and JSON body
+     */
+    private static class Response {
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(String body) {
+            return new Response(200, body);
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, "{\"error\":" + Json.quote(message) + "}");
+        }
+    }
+}
+
+/**
+ * Minimal JSON writer - maps, collections, strings, numbers, booleans and null
+ */
+class Json {
+    private Json() {
+    }
+
+    public static String of(Object value) {
+        StringBuilder out = new StringBuilder(128);
+        write(out, value);
+        return out.toString();
+    }
+
+    private static void write(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if ((value instanceof Double && !Double.isFinite((Double) value))
+                || (value instanceof Float && !Float.isFinite((Float) value))) {
+            // NaN and Infinity are not JSON
+            out.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof Map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                out.append(quote(String.valueOf(entry.getKey()))).append(':');
+                write(out, entry.getValue());
+            }
+            out.append('}');
+        } else if (value instanceof Collection) {
+            out.append('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                write(out, element);
+            }
+            out.append(']');
+        } else {
+            out.append(quote(value.toString()));
+        }
+    }
+
+    public static String quote(String text) {
+        StringBuilder out = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"').toString();
+    }
+}
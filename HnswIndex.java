@@ -0,0 +1,513 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * HnswIndex class - approximate nearest-neighbour graph over the rows of an EmbeddingMatrix
+ * Hierarchical navigable small world graph; links are kept in primitive int arrays,
+ * vectors are read from the matrix (no copy). Higher efSearch = better recall, slower queries.
+ */
+public class HnswIndex {
+    private final EmbeddingMatrix matrix;
+    private final int maxLinks;         // M - links per node on the upper levels
+    private final int maxLinksLevel0;   // 2 * M on level 0
+    private final int efConstruction;
+    private volatile int efSearch;
+    private final double levelMultiplier;
+    private final Random random;
+    private final ReentrantReadWriteLock lock;
+    private final ThreadLocal<VisitedSet> visitedSets;
+
+    // Level 0 links: per node [count, link_0 .. link_maxLinksLevel0-1]
+    private int[] level0Links;
+    // Upper level links: upperLinks[node] holds (count, links...) blocks for levels 1..nodeLevel
+    private int[][] upperLinks;
+    private byte[] nodeLevels;
+    private int size;
+    private int entryPoint;
+    private int maxLevel;
+
+    // Constructor
+    public HnswIndex(EmbeddingMatrix matrix, int maxLinks, int efConstruction, int efSearch) {
+        this.matrix = matrix;
+        this.maxLinks = maxLinks;
+        this.maxLinksLevel0 = maxLinks * 2;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1.0 / Math.log(maxLinks);
+        this.random = new Random(42);
+        this.lock = new ReentrantReadWriteLock();
+        this.visitedSets = ThreadLocal.withInitial(VisitedSet::new);
+        this.level0Links = new int[1024 * (maxLinksLevel0 + 1)];
+        this.upperLinks = new int[1024][];
+        this.nodeLevels = new byte[1024];
+        this.size = 0;
+        this.entryPoint = -1;
+        this.maxLevel = -1;
+    }
+
+    /**
+     * Insert every matrix row not yet in the graph
+     */
+    public void insertPending() {
+        lock.writeLock().lock();
+        try {
+            while (size < matrix.size()) {
+                insert(size);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Insert matrix row - rows must be inserted in order
+     */
+    public void insert(int row) {
+        lock.writeLock().lock();
+        try {
+            if (row != size) {
+                throw new IllegalArgumentException("Row " + row + " inserted out of order, expected " + size);
+            }
+            ensureCapacity(row + 1);
+            float[] vectors = matrix.getVectors();
+            int dimension = matrix.getDimension();
+            int queryOffset = row * dimension;
+
+            int level = (int) Math.min(Byte.MAX_VALUE, Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMultiplier));
+            nodeLevels[row] = (byte) level;
+            if (level > 0) {
+                upperLinks[row] = new int[level * (maxLinks + 1)];
+            }
+            size = row + 1;
+
+            if (entryPoint < 0) {
+                entryPoint = row;
+                maxLevel = level;
+                return;
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedyClosest(vectors, queryOffset, current, l);
+            }
+
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                ScoreHeap candidates = searchLayer(vectors, queryOffset, current, efConstruction, l);
+                int next = candidates.best();
+                int limit = l == 0 ? maxLinksLevel0 : maxLinks;
+                int[] selected = selectNeighbors(vectors, candidates, limit);
+                int[] links = links(row, l);
+                int base = linkBase(row, l);
+                links[base] = selected.length;
+                System.arraycopy(selected, 0, links, base + 1, selected.length);
+                for (int neighbour : selected) {
+                    addLink(vectors, neighbour, row, l);
+                }
+                current = next;
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = row;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-link a row whose vector was replaced in the matrix (re-enrolment) - drop every link to the row,
+     * then connect it again from the entry point as an insert would, keeping its level
+     */
+    public void relink(int row) {
+        lock.writeLock().lock();
+        try {
+            if (row >= size) {
+                insertPending();
+                return;
+            }
+            int level = nodeLevels[row];
+            for (int node = 0; node < size; node++) {
+                if (node != row) {
+                    for (int l = Math.min(level, nodeLevels[node]); l >= 0; l--) {
+                        removeLink(node, row, l);
+                    }
+                }
+            }
+            for (int l = level; l >= 0; l--) {
+                links(row, l)[linkBase(row, l)] = 0;
+            }
+
+            // Nothing links to the row any more, so searches from another node cannot reach it
+            int start = entryPoint;
+            if (start == row) {
+                start = -1;
+                for (int node = 0; node < size; node++) {
+                    if (node != row && (start < 0 || nodeLevels[node] > nodeLevels[start])) {
+                        start = node;
+                    }
+                }
+                if (start < 0) {
+                    return;
+                }
+            }
+            float[] vectors = matrix.getVectors();
+            int queryOffset = row * matrix.getDimension();
+            int current = start;
+            for (int l = nodeLevels[start]; l > level; l--) {
+                current = greedyClosest(vectors, queryOffset, current, l);
+            }
+            for (int l = Math.min(level, nodeLevels[start]); l >= 0; l--) {
+                ScoreHeap candidates = searchLayer(vectors, queryOffset, current, efConstruction, l);
+                int next = candidates.best();
+                int[] selected = selectNeighbors(vectors, candidates, l == 0 ? maxLinksLevel0 : maxLinks);
+                int[] links = links(row, l);
+                int base = linkBase(row, l);
+                links[base] = selected.length;
+                System.arraycopy(selected, 0, links, base + 1, selected.length);
+                for (int neighbour : selected) {
+                    addLink(vectors, neighbour, row, l);
+                }
+                current = next;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate top-k search by cosine similarity
+     */
+    public List<FaceMatch> findTopMatches(float[] probe, int k) {
+        float[] query = new float[matrix.getDimension()];
+        EmbeddingMatrix.copyNormalized(probe, query, 0);
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return new ArrayList<>();
+            }
+            float[] vectors = matrix.getVectors();
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(vectors, query, 0, current, l);
+            }
+            ScoreHeap results = searchLayer(vectors, query, 0, current, Math.max(efSearch, k), 0);
+
+            int count = Math.min(k, results.size());
+            int[] ids = new int[results.size()];
+            float[] scores = new float[results.size()];
+            results.drainAscending(ids, scores);
+            List<FaceMatch> matches = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int index = ids.length - 1 - i;
+                matches.add(new FaceMatch(matrix.getChildId(ids[index]), scores[index]));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int greedyClosest(float[] vectors, int queryOffset, int start, int level) {
+        return greedyClosest(vectors, vectors, queryOffset, start, level);
+    }
+
+    /**
+     * Greedy walk on one upper level towards the query
+     */
+    private int greedyClosest(float[] vectors, float[] query, int queryOffset, int start, int level) {
+        int dimension = matrix.getDimension();
+        int current = start;
+        float currentScore = dot(vectors, current * dimension, query, queryOffset);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] links = links(current, level);
+            int base = linkBase(current, level);
+            for (int i = 1; i <= links[base]; i++) {
+                int candidate = links[base + i];
+                float score = dot(vectors, candidate * dimension, query, queryOffset);
+                if (score > currentScore) {
+                    currentScore = score;
+                    current = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private ScoreHeap searchLayer(float[] vectors, int queryOffset, int start, int ef, int level) {
+        return searchLayer(vectors, vectors, queryOffset, start, ef, level);
+    }
+
+    /**
+     * Best-first search of one level - returns up to ef nodes in a min-heap (worst on top)
+     */
+    private ScoreHeap searchLayer(float[] vectors, float[] query, int queryOffset, int start, int ef, int level) {
+        int dimension = matrix.getDimension();
+        VisitedSet visited = visitedSets.get();
+        visited.reset(size);
+
+        ScoreHeap candidates = new ScoreHeap(ef * 2, true);
+        ScoreHeap results = new ScoreHeap(ef + 1, false);
+        float startScore = dot(vectors, start * dimension, query, queryOffset);
+        visited.mark(start);
+        candidates.push(start, startScore);
+        results.push(start, startScore);
+
+        while (candidates.size() > 0) {
+            float candidateScore = candidates.topScore();
+            if (results.size() >= ef && candidateScore < results.topScore()) {
+                break;
+            }
+            int candidate = candidates.pop();
+            int[] links = links(candidate, level);
+            int base = linkBase(candidate, level);
+            for (int i = 1; i <= links[base]; i++) {
+                int neighbour = links[base + i];
+                if (!visited.mark(neighbour)) {
+                    continue;
+                }
+                float score = dot(vectors, neighbour * dimension, query, queryOffset);
+                if (results.size() < ef || score > results.topScore()) {
+                    candidates.push(neighbour, score);
+                    results.push(neighbour, score);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour selection heuristic - prefer candidates that are not already covered by a closer neighbour
+     */
+    private int[] selectNeighbors(float[] vectors, ScoreHeap candidates, int limit) {
+        int dimension = matrix.getDimension();
+        int[] ids = new int[candidates.size()];
+        float[] scores = new float[candidates.size()];
+        candidates.drainAscending(ids, scores);
+
+        int[] selected = new int[Math.min(limit, ids.length)];
+        boolean[] taken = new boolean[ids.length];
+        int count = 0;
+        for (int i = ids.length - 1; i >= 0 && count < selected.length; i--) {
+            boolean diverse = true;
+            for (int j = 0; j < count; j++) {
+                if (dot(vectors, ids[i] * dimension, vectors, selected[j] * dimension) > scores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = ids[i];
+                taken[i] = true;
+            }
+        }
+        // Fill the remaining slots with the closest pruned candidates
+        for (int i = ids.length - 1; i >= 0 && count < selected.length; i--) {
+            if (!taken[i]) {
+                selected[count++] = ids[i];
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Add back-link from node to newNode, pruning the node's links when full
+     */
+    private void addLink(float[] vectors, int node, int newNode, int level) {
+        int[] links = links(node, level);
+        int base = linkBase(node, level);
+        int limit = level == 0 ? maxLinksLevel0 : maxLinks;
+        int count = links[base];
+        if (count < limit) {
+            links[base + 1 + count] = newNode;
+            links[base] = count + 1;
+            return;
+        }
+
+        int dimension = matrix.getDimension();
+        ScoreHeap candidates = new ScoreHeap(limit + 1, false);
+        candidates.push(newNode, dot(vectors, newNode * dimension, vectors, node * dimension));
+        for (int i = 1; i <= count; i++) {
+            int neighbour = links[base + i];
+            candidates.push(neighbour, dot(vectors, neighbour * dimension, vectors, node * dimension));
+        }
+        int[] selected = selectNeighbors(vectors, candidates, limit);
+        links[base] = selected.length;
+        System.arraycopy(selected, 0, links, base + 1, selected.length);
+    }
+
+    private void removeLink(int node, int target, int level) {
+        int[] links = links(node, level);
+        int base = linkBase(node, level);
+        int count = links[base];
+        for (int i = 1; i <= count; i++) {
+            if (links[base + i] == target) {
+                System.arraycopy(links, base + i + 1, links, base + i, count - i);
+                links[base] = count - 1;
+                return;
+            }
+        }
+    }
+
+    private int[] links(int node, int level) {
+        return level == 0 ? level0Links : upperLinks[node];
+    }
+
+    private int linkBase(int node, int level) {
+        return level == 0 ? node * (maxLinksLevel0 + 1) : (level - 1) * (maxLinks + 1);
+    }
+
+    private float dot(float[] a, int aOffset, float[] b, int bOffset) {
+        return EmbeddingMatrix.kernel().dot(a, aOffset, b, bOffset, matrix.getDimension());
+    }
+
+    private void ensureCapacity(int nodes) {
+        if (nodes > nodeLevels.length) {
+            int capacity = Math.max(nodes, nodeLevels.length * 2);
+            level0Links = Arrays.copyOf(level0Links, capacity * (maxLinksLevel0 + 1));
+            upperLinks = Arrays.copyOf(upperLinks, capacity);
+            nodeLevels = Arrays.copyOf(nodeLevels, capacity);
+        }
+    }
+
+    public int size() { return size; }
+    public int getMaxLinks() { return maxLinks; }
+    public int getEfConstruction() { return efConstruction; }
+    public int getEfSearch() { return efSearch; }
+    public void setEfSearch(int efSearch) { this.efSearch = efSearch; }
+}
+
+/**
+ * Binary heap of (node, score) pairs on primitive arrays
+ */
+class ScoreHeap {
+    private int[] ids;
+    private float[] scores;
+    private int size;
+    private final boolean maxHeap;
+
+    public ScoreHeap(int capacity, boolean maxHeap) {
+        this.ids = new int[Math.max(capacity, 4)];
+        this.scores = new float[Math.max(capacity, 4)];
+        this.maxHeap = maxHeap;
+    }
+
+    public void push(int id, float score) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        int position = size++;
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!before(score, scores[parent])) {
+                break;
+            }
+            ids[position] = ids[parent];
+            scores[position] = scores[parent];
+            position = parent;
+        }
+        ids[position] = id;
+        scores[position] = score;
+    }
+
+    public int pop() {
+        int top = ids[0];
+        size--;
+        if (size > 0) {
+            int lastId = ids[size];
+            float lastScore = scores[size];
+            int position = 0;
+            while (true) {
+                int child = position * 2 + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(scores[child + 1], scores[child])) {
+                    child++;
+                }
+                if (!before(scores[child], lastScore)) {
+                    break;
+                }
+                ids[position] = ids[child];
+                scores[position] = scores[child];
+                position = child;
+            }
+            ids[position] = lastId;
+            scores[position] = lastScore;
+        }
+        return top;
+    }
+
+    /**
+     * Highest-scoring entry (linear scan - used once per level)
+     */
+    public int best() {
+        int best = 0;
+        for (int i = 1; i < size; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        return ids[best];
+    }
+
+    /**
+     * Empty a min-heap into arrays in ascending score order
+     */
+    public void drainAscending(int[] targetIds, float[] targetScores) {
+        int count = size;
+        for (int i = 0; i < count; i++) {
+            targetScores[i] = scores[0];
+            targetIds[i] = pop();
+        }
+    }
+
+    private boolean before(float a, float b) {
+        return maxHeap ? a > b : a < b;
+    }
+
+    public int size() { return size; }
+    public float topScore() { return scores[0]; }
+}
+
+/**
+ * Visited marks reused across searches of one thread
+ */
+class VisitedSet {
+    private int[] marks = new int[1024];
+    private int epoch;
+
+    public void reset(int nodes) {
+        if (nodes > marks.length) {
+            marks = new int[Math.max(nodes, marks.length * 2)];
+            epoch = 0;
+        }
+        epoch++;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * Mark node - returns false if it was already visited
+     */
+    public boolean mark(int node) {
+        if (marks[node] == epoch) {
+            return false;
+        }
+        marks[node] = epoch;
+        return true;
+    }
+}
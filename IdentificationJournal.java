@@ -0,0 +1,417 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * IdentificationJournal class - append-only journal of identification transitions
+ * Each transition is a fixed 64-byte record written into a memory-mapped segment file; the OS
+ * keeps mapped pages across a JVM crash, so no write call or fsync sits on the hot path.
+ * Periodic snapshots bound recovery to loading the snapshot and replaying the records after it;
+ * they are written and fsynced on a background thread from an immutable view of the state, as is
+ * the final flush of a full segment.
+ *
+ * Record: seq(8) time(8) kind(1) status(1) idLength(1) unused(1) crc(4) childId(40)
+ */
+public class IdentificationJournal {
+    static final int RECORD_SIZE = 64;
+    static final int MAX_CHILD_ID_BYTES = 40;
+    private static final int SNAPSHOT_MAGIC = 0x4A534E50; // "JSNP"
+    private static final JournalEntryKind[] KINDS = JournalEntryKind.values();
+    private static final ChildStatus[] STATUSES = ChildStatus.values();
+
+    private final Path directory;
+    private final String name;
+    private final int recordsPerSegment;
+    private final long snapshotEvery;
+    private final byte[] record;
+    private final ByteBuffer recordBuffer;
+    private final CRC32C crc;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private long segmentFirstSequence;
+    private long nextSequence;
+    private long lastSnapshotSequence;
+    private long requestedSnapshotSequence;
+    private ExecutorService background;
+
+    // Constructor
+    public IdentificationJournal(Path directory, String name) {
+        this(directory, name, 1 << 18, 100_000);
+    }
+
+    public IdentificationJournal(Path directory, String name, int recordsPerSegment, long snapshotEvery) {
+        this.directory = directory;
+        this.name = name;
+        this.recordsPerSegment = recordsPerSegment;
+        this.snapshotEvery = snapshotEvery;
+        this.record = new byte[RECORD_SIZE];
+        this.recordBuffer = ByteBuffer.wrap(record);
+        this.crc = new CRC32C();
+        this.nextSequence = 1;
+    }
+
+    /**
+     * Rebuild the state: latest snapshot, then every valid record after it
+     * Must be called once before appending; positions the journal after the last valid record.
+     */
+    public synchronized Map<String, String> recover() {
+        try {
+            Files.createDirectories(directory);
+            Map<String, String> state = new HashMap<>();
+            lastSnapshotSequence = loadLatestSnapshot(state);
+            requestedSnapshotSequence = lastSnapshotSequence;
+            nextSequence = lastSnapshotSequence + 1;
+
+            TreeMap<Long, Path> segments = listFiles("seg");
+            for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+                openSegment(entry.getKey(), entry.getValue());
+                int slot = replaySegment(state);
+                segment.position(slot * RECORD_SIZE); // a full segment rolls on the next append
+                if (slot < recordsPerSegment) {
+                    break; // end of the journal (or a torn record) - later segments cannot be newer
+                }
+            }
+            if (segment == null) {
+                openSegment(nextSequence, segmentPath(nextSequence));
+            }
+            if (Trace.isEnabled()) {
+                System.out.println("Journal " + name + " recovered " + state.size() + " identifications up to #" +
+                                   (nextSequence - 1) + " (snapshot #" + lastSnapshotSequence + ")");
+            }
+            return state;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover journal " + name, e);
+        }
+    }
+
+    /**
+     * Replay the current segment into the state - returns the first slot without a valid record
+     */
+    private int replaySegment(Map<String, String> state) {
+        ByteBuffer view = segment.duplicate();
+        for (int slot = 0; slot < recordsPerSegment; slot++) {
+            view.position(slot * RECORD_SIZE);
+            view.get(record);
+            long sequence = recordBuffer.getLong(0);
+            if (sequence == 0 || checksum() != recordBuffer.getInt(20)) {
+                return slot;
+            }
+            if (sequence != segmentFirstSequence + slot) {
+                return slot; // stale record from a segment that was reused
+            }
+            if (sequence > lastSnapshotSequence) {
+                String childId = new String(record, 24, record[18], StandardCharsets.UTF_8);
+                state.put(childId, stateOf(KINDS[record[16]], record[17]));
+            }
+            nextSequence = sequence + 1;
+        }
+        return recordsPerSegment;
+    }
+
+    /**
+     * Append one transition - a 64-byte copy into the mapped segment
+     */
+    public synchronized long append(JournalEntryKind kind, String childId, ChildStatus status) {
+        if (segment == null) {
+            throw new IllegalStateException("Journal " + name + " must be recovered before appending");
+        }
+        if (!segment.hasRemaining()) {
+            rollSegment();
+        }
+        byte[] id = childId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_CHILD_ID_BYTES) {
+            throw new IllegalArgumentException("Child ID too long for journal record: " + childId);
+        }
+
+        long sequence = nextSequence++;
+        recordBuffer.putLong(0, sequence);
+        recordBuffer.putLong(8, System.currentTimeMillis());
+        record[16] = (byte) kind.ordinal();
+        record[17] = (byte) (status != null ? status.ordinal() : -1);
+        record[18] = (byte) id.length;
+        record[19] = 0;
+        System.arraycopy(id, 0, record, 24, id.length);
+        java.util.Arrays.fill(record, 24 + id.length, RECORD_SIZE, (byte) 0);
+        recordBuffer.putInt(20, checksum());
+        segment.put(record);
+        return sequence;
+    }
+
+    public long appendTrackingStarted(String childId) {
+        return append(JournalEntryKind.TRACKING_STARTED, childId, null);
+    }
+
+    public long appendEntered(String childId) {
+        return append(JournalEntryKind.ENTERED, childId, null);
+    }
+
+    public long appendExited(String childId) {
+        return append(JournalEntryKind.EXITED, childId, null);
+    }
+
+    public long appendStatus(String childId, ChildStatus status) {
+        return append(JournalEntryKind.STATUS, childId, status);
+    }
+
+    /**
+     * Check if enough records were appended since the last snapshot
+     */
+    public synchronized boolean isSnapshotDue() {
+        return nextSequence - 1 - requestedSnapshotSequence >= snapshotEvery;
+    }
+
+    /**
+     * Write the full state as of the last appended record, then delete what it makes obsolete
+     * The state must match the journal (the owner snapshots between transitions).
+     */
+    public void snapshot(Map<String, String> state) {
+        long sequence;
+        synchronized (this) {
+            sequence = nextSequence - 1;
+            requestedSnapshotSequence = Math.max(requestedSnapshotSequence, sequence);
+        }
+        writeSnapshot(sequence, state);
+    }
+
+    /**
+     * Snapshot in the background - the state must be an immutable view as of the last appended record
+     * (a StateSnapshot), so the owner can go on appending while it is written and fsynced
+     */
+    public synchronized CompletableFuture<Void> snapshotInBackground(Map<String, String> state) {
+        long sequence = nextSequence - 1;
+        requestedSnapshotSequence = Math.max(requestedSnapshotSequence, sequence);
+        return CompletableFuture.runAsync(() -> {
+            try {
+                writeSnapshot(sequence, state);
+            } catch (UncheckedIOException e) {
+                System.err.println(e.getMessage() + ": " + e.getCause().getMessage());
+                throw e;
+            }
+        }, background());
+    }
+
+    private ExecutorService background() {
+        if (background == null) {
+            background = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-background-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return background;
+    }
+
+    /**
+     * Write and fsync the snapshot file outside the lock, then publish it and delete what it covers
+     */
+    private void writeSnapshot(long sequence, Map<String, String> state) {
+        Path target = snapshotPath(sequence);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                         java.nio.channels.Channels.newOutputStream(channel), 64 * 1024))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(sequence);
+                out.writeInt(state.size());
+                for (Map.Entry<String, String> entry : state.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeUTF(entry.getValue());
+                }
+                out.flush();
+                channel.force(true);
+            }
+            synchronized (this) {
+                if (sequence <= lastSnapshotSequence) {
+                    Files.deleteIfExists(temporary); // a newer snapshot got there first
+                    return;
+                }
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                lastSnapshotSequence = sequence;
+                deleteObsolete(sequence);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot of journal " + name, e);
+        }
+    }
+
+    /**
+     * Flush mapped pages to the device - for durability beyond a JVM crash (power loss)
+     */
+    public synchronized void force() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Wait for a background snapshot still being written, then flush and close the segment
+     */
+    public void close() {
+        ExecutorService writer;
+        synchronized (this) {
+            writer = background;
+            background = null;
+        }
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            force();
+            closeSegment();
+        }
+    }
+
+    private long loadLatestSnapshot(Map<String, String> state) throws IOException {
+        TreeMap<Long, Path> snapshots = listFiles("snap");
+        for (Map.Entry<Long, Path> entry : snapshots.descendingMap().entrySet()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(entry.getValue()), 64 * 1024))) {
+                if (in.readInt() != SNAPSHOT_MAGIC) {
+                    continue;
+                }
+                long sequence = in.readLong();
+                int count = in.readInt();
+                Map<String, String> loaded = new HashMap<>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    loaded.put(in.readUTF(), in.readUTF());
+                }
+                state.putAll(loaded);
+                return sequence;
+            } catch (IOException e) {
+                System.err.println("Skipping unreadable snapshot " + entry.getValue() + ": " + e.getMessage());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Continue in a new segment - the full one is flushed to the device in the background
+     */
+    private void rollSegment() {
+        MappedByteBuffer full = segment;
+        background().execute(full::force);
+        openSegment(nextSequence, segmentPath(nextSequence));
+    }
+
+    private void openSegment(long firstSequence, Path path) {
+        closeSegment();
+        try {
+            segmentChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                              StandardOpenOption.WRITE);
+            segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+            segmentFirstSequence = firstSequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal segment " + path, e);
+        }
+    }
+
+    private void closeSegment() {
+        if (segmentChannel != null) {
+            try {
+                segmentChannel.close(); // the mapping stays valid until collected
+            } catch (IOException e) {
+                System.err.println("Cannot close journal segment: " + e.getMessage());
+            }
+            segmentChannel = null;
+        }
+    }
+
+    /**
+     * Delete older snapshots and segments whose records are all covered by the snapshot
+     */
+    private void deleteObsolete(long snapshotSequence) throws IOException {
+        for (Map.Entry<Long, Path> entry : listFiles("snap").headMap(snapshotSequence).entrySet()) {
+            Files.deleteIfExists(entry.getValue());
+        }
+        List<Long> firstSequences = new ArrayList<>(listFiles("seg").keySet());
+        for (int i = 0; i + 1 < firstSequences.size(); i++) {
+            long first = firstSequences.get(i);
+            if (firstSequences.get(i + 1) <= snapshotSequence + 1 && first != segmentFirstSequence) {
+                Files.deleteIfExists(segmentPath(first));
+            }
+        }
+    }
+
+    private TreeMap<Long, Path> listFiles(String extension) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        String prefix = name + "-";
+        String suffix = "." + extension;
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(path -> {
+                String fileName = path.getFileName().toString();
+                if (fileName.startsWith(prefix) && fileName.endsWith(suffix)) {
+                    try {
+                        files.put(Long.parseLong(fileName.substring(prefix.length(),
+                                fileName.length() - suffix.length())), path);
+                    } catch (NumberFormatException e) {
+                        // not one of ours
+                    }
+                }
+            });
+        }
+        return files;
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%s-%019d.seg", name, firstSequence));
+    }
+
+    private Path snapshotPath(long sequence) {
+        return directory.resolve(String.format("%s-%019d.snap", name, sequence));
+    }
+
+    private int checksum() {
+        crc.reset();
+        crc.update(record, 0, 20);
+        crc.update(record, 24, RECORD_SIZE - 24);
+        return (int) crc.getValue();
+    }
+
+    private static String stateOf(JournalEntryKind kind, byte status) {
+        return kind == JournalEntryKind.STATUS ? STATUSES[status].name() : kind.name();
+    }
+
+    public synchronized long getLastSequence() { return nextSequence - 1; }
+    public synchronized long getLastSnapshotSequence() { return lastSnapshotSequence; }
+    public Path getDirectory() { return directory; }
+    public String getName() { return name; }
+}
+
+/**
+ * Enum for journaled transitions - names match the identification states they produce
+ */
+enum JournalEntryKind {
+    TRACKING_STARTED,
+    ENTERED,
+    EXITED,
+    STATUS
+}
@@ -1,61 +1,129 @@
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * LocationTracker class - location tracking
  */
 public class LocationTracker {
     private String trackerId;
-    private Location currentLocation;
+    private volatile Location currentLocation;
     private String vehicleId;
-    private boolean isTracking;
+    private volatile boolean isTracking;
     private Map<String, TrackingInfo> trackedChildren;
+    private ChildRegistry childRegistry;
+    private GPSServiceProxy gpsProxy;
+    private GpsFeed gpsFeed;
+    private GpsListener gpsListener;
+    private volatile EtaEngine etaEngine;
 
     // Constructor
     public LocationTracker(String trackerId, String vehicleId) {
+        this(trackerId, vehicleId, ChildRegistry.getShared());
+    }
+
+    public LocationTracker(String trackerId, String vehicleId, ChildRegistry childRegistry) {
         this.trackerId = trackerId;
         this.vehicleId = vehicleId;
         this.isTracking = false;
         this.currentLocation = new Location(32.0853, 34.7818, "Tel Aviv Center"); // initial location
-        this.trackedChildren = new HashMap<>();
-        System.out.println("LocationTracker " + trackerId + " initialized for vehicle " + vehicleId);
+        this.trackedChildren = new ConcurrentHashMap<>();
+        this.childRegistry = childRegistry;
+        if (Trace.isEnabled()) {
+            System.out.println("LocationTracker " + trackerId + " initialized for vehicle " + vehicleId);
+        }
     }
 
     /**
-     * Start tracking - step 4
+     * Start tracking - step 4; false if the child ID is null or not known to the registry
      */
-    public void startTracking(String childId) {
-        System.out.println("Step 4: LocationTracker.startTracking(" + childId + ")");
+    public boolean startTracking(String childId) {
+        if (Trace.isEnabled()) {
+            System.out.println("Step 4: LocationTracker.startTracking(" + childId + ")");
+        }
+        Child child = childId != null ? childRegistry.getChild(childId) : null;
+        if (child == null) {
+            if (Trace.isEnabled()) {
+                System.out.println("Tracking rejected for unknown child: " + childId);
+            }
+            return false;
+        }
         
         // Step 5: Set active tracking mode
         setTrackingMode(TrackingMode.ACTIVE);
         
         TrackingInfo trackingInfo = new TrackingInfo(childId, LocalDateTime.now());
+        trackingInfo.setChild(child);
         trackedChildren.put(childId, trackingInfo);
         this.isTracking = true;
         
-        System.out.println("Tracking started for child: " + childId);
+        if (Trace.isEnabled()) {
+            System.out.println("Tracking started for child: " + childId);
+        }
+        return true;
     }
 
     /**
      * Set tracking mode - step 5
      */
     public void setTrackingMode(TrackingMode mode) {
-        System.out.println("Step 5: LocationTracker.setTrackingMode(" + mode + ")");
+        if (Trace.isEnabled()) {
+            System.out.println("Step 5: LocationTracker.setTrackingMode(" + mode + ")");
+        }
         this.isTracking = (mode == TrackingMode.ACTIVE);
     }
 
+    /**
+     * Attach to a GPS feed - fixes for this vehicle are pushed in and fanned out to tracked children
+     */
+    public synchronized void attachGpsFeed(GpsFeed feed) {
+        detachGpsFeed();
+        this.gpsListener = (fixVehicleId, fix) -> onGpsFix(fix);
+        this.gpsFeed = feed;
+        feed.subscribe(vehicleId, gpsListener);
+        Location lastFix = feed.getLastFix(vehicleId);
+        if (lastFix != null) {
+            this.currentLocation = lastFix;
+        }
+    }
+
+    public synchronized void detachGpsFeed() {
+        if (gpsFeed != null) {
+            gpsFeed.unsubscribe(vehicleId, gpsListener);
+            gpsFeed = null;
+            gpsListener = null;
+        }
+    }
+
+    /**
+     * React to a pushed GPS fix
+     */
+    private void onGpsFix(Location fix) {
+        this.currentLocation = fix;
+        updateLocation();
+    }
+
     /**
      * Get current location - step 6
+     * With a GPS feed attached this is the latest pushed fix; otherwise the GPS proxy is polled
      */
     public Location getCurrentLocation() {
+        if (gpsFeed != null) {
+            return this.currentLocation;
+        }
+
         // Step 6: Get location from GPS
-        GPSServiceProxy gpsProxy = new GPSServiceProxy("GPS_001");
-        System.out.println("Step 6: LocationTracker → GPSServiceProxy.getCurrentGPSLocation()");
+        if (gpsProxy == null) {
+            gpsProxy = new GPSServiceProxy("GPS_001");
+        }
+        if (Trace.isEnabled()) {
+            System.out.println("Step 6: LocationTracker → GPSServiceProxy.getCurrentGPSLocation()");
+        }
         
         Location gpsLocation = gpsProxy.getCurrentGPSLocation();
-        System.out.println("Step 7: GPSServiceProxy → LocationTracker.return currentLocation");
+        if (Trace.isEnabled()) {
+            System.out.println("Step 7: GPSServiceProxy → LocationTracker.return currentLocation");
+        }
         
         this.currentLocation = gpsLocation;
         updateLocation();
@@ -67,11 +135,14 @@ public class LocationTracker {
      */
     public void updateLocation() {
         if (isTracking) {
-            System.out.println("Location updated to: " + currentLocation);
-            
-            // Update location for all tracked children
-            for (String childId : trackedChildren.keySet()) {
-                updateChildLocation(childId, currentLocation);
+            if (Trace.isEnabled()) {
+                System.out.println("Location updated to: " + currentLocation);
+            }
+
+            // Update location for all tracked children - one timestamp for the whole fan-out
+            LocalDateTime updateTime = LocalDateTime.now();
+            for (TrackingInfo trackingInfo : trackedChildren.values()) {
+                updateChildLocation(trackingInfo, currentLocation, updateTime);
             }
         }
     }
@@ -79,26 +150,36 @@ public class LocationTracker {
     /**
      * Update child location - step 8
      */
-    private void updateChildLocation(String childId, Location location) {
-        System.out.println("Step 8: LocationTracker → Child.updateCurrentLocation(" + location + ")");
-        
-        Child child = getChildById(childId);
-        boolean locationUpdated = child.updateCurrentLocation(location);
-        
-        System.out.println("Step 9: Child → LocationTracker.return locationUpdated = " + locationUpdated);
-        
+    private void updateChildLocation(TrackingInfo trackingInfo, Location location, LocalDateTime updateTime) {
+        if (Trace.isEnabled()) {
+            System.out.println("Step 8: LocationTracker → Child.updateCurrentLocation(" + location + ")");
+        }
+
+        Child child = trackingInfo.getChild();
+        boolean locationUpdated = child != null && child.updateCurrentLocation(location);
+
+        if (Trace.isEnabled()) {
+            System.out.println("Step 9: Child → LocationTracker.return locationUpdated = " + locationUpdated);
+        }
+
         if (locationUpdated) {
-            trackedChildren.get(childId).setLastLocationUpdate(LocalDateTime.now());
+            trackingInfo.setLastLocationUpdate(updateTime);
         }
     }
 
     /**
-     * Estimate arrival time
+     * Estimate arrival time - over the road graph when an ETA engine is attached
      */
     public LocalDateTime estimateArrivalTime(String destination) {
-        // Simulation of arrival time calculation
-        LocalDateTime estimatedArrival = LocalDateTime.now().plusMinutes(15);
-        System.out.println("Estimated arrival time to " + destination + ": " + estimatedArrival);
+        EtaEngine engine = etaEngine;
+        LocalDateTime estimatedArrival = engine != null ? engine.estimateArrival(currentLocation, destination) : null;
+        if (estimatedArrival == null) {
+            // Simulation of arrival time calculation - no road graph, or not a known place
+            estimatedArrival = LocalDateTime.now().plusMinutes(15);
+        }
+        if (Trace.isEnabled()) {
+            System.out.println("Estimated arrival time to " + destination + ": " + estimatedArrival);
+        }
         return estimatedArrival;
     }
 
@@ -106,7 +187,9 @@ public class LocationTracker {
      * Capture current image - step 10
      */
     public Image captureCurrentImage(Camera camera) {
-        System.out.println("Step 10: LocationTracker → Camera.captureCurrentImage()");
+        if (Trace.isEnabled()) {
+            System.out.println("Step 10: LocationTracker → Camera.captureCurrentImage()");
+        }
         return camera.captureCurrentImage();
     }
 
@@ -114,27 +197,28 @@ public class LocationTracker {
      * Confirm active tracking - step 16
      */
     public void confirmTrackingActive(String childId) {
-        System.out.println("Step 16: LocationTracker.confirmTrackingActive(" + childId + ")");
+        if (Trace.isEnabled()) {
+            System.out.println("Step 16: LocationTracker.confirmTrackingActive(" + childId + ")");
+        }
         
-        if (trackedChildren.containsKey(childId)) {
-            trackedChildren.get(childId).setTrackingConfirmed(true);
-            System.out.println("Tracking confirmed as active for child: " + childId);
+        TrackingInfo trackingInfo = childId != null ? trackedChildren.get(childId) : null;
+        if (trackingInfo != null) {
+            trackingInfo.setTrackingConfirmed(true);
+            if (Trace.isEnabled()) {
+                System.out.println("Tracking confirmed as active for child: " + childId);
+            }
         }
     }
 
-    /**
-     * Get child by ID
-     */
-    private Child getChildById(String childId) {
-        // Simulation of getting child from database
-        return new Child(childId, "Child_" + childId, 8, "SCHOOL_001", "PARENT_" + childId);
-    }
-
     // Getters and Setters
     public String getTrackerId() { return trackerId; }
     public String getVehicleId() { return vehicleId; }
     public boolean isTracking() { return isTracking; }
     public Map<String, TrackingInfo> getTrackedChildren() { return trackedChildren; }
+    public ChildRegistry getChildRegistry() { return childRegistry; }
+    public GpsFeed getGpsFeed() { return gpsFeed; }
+    public EtaEngine getEtaEngine() { return etaEngine; }
+    public void setEtaEngine(EtaEngine etaEngine) { this.etaEngine = etaEngine; }
 }
 
 /**
@@ -151,9 +235,10 @@ enum TrackingMode {
  */
 class TrackingInfo {
     private String childId;
+    private Child child;
     private LocalDateTime trackingStartTime;
-    private LocalDateTime lastLocationUpdate;
-    private boolean trackingConfirmed;
+    private volatile LocalDateTime lastLocationUpdate;
+    private volatile boolean trackingConfirmed;
 
     public TrackingInfo(String childId, LocalDateTime startTime) {
         this.childId = childId;
@@ -164,6 +249,8 @@ class TrackingInfo {
 
     // Getters and Setters
     public String getChildId() { return childId; }
+    public Child getChild() { return child; }
+    public void setChild(Child child) { this.child = child; }
     public LocalDateTime getTrackingStartTime() { return trackingStartTime; }
     public LocalDateTime getLastLocationUpdate() { return lastLocationUpdate; }
     public void setLastLocationUpdate(LocalDateTime lastLocationUpdate) { 
@@ -202,7 +202,10 @@ public class MainApplication extends JFrame {
         System.out.println("SDD Project - System Design Document");
         System.out.println("Developed with all requirements: 10 classes + 5 interfaces + sequence diagram");
         System.out.println("==========================================\n");
-        
+
+        // Road graph for arrival times - loaded once, before any tracking screen asks for an ETA
+        EtaEngine.getShared();
+
         // Create and display main windows
         SwingUtilities.invokeLater(() -> {
             try {
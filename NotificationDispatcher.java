@@ -0,0 +1,317 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * NotificationDispatcher class - debounced, batched and retried parent notifications
+ * submit → debounce per (channel, parent, child) → per-channel batch → one message per parent
+ * → sender (virtual thread) → retry with exponential backoff and jitter
+ * Callers never wait for a channel; a notification is either delivered, coalesced into a newer
+ * one, or dropped after its last attempt.
+ */
+public class NotificationDispatcher {
+    private final ParentNotificationProxy notificationProxy;
+    private final long debounceMillis;
+    private final long batchLingerMillis;
+    private final int maxBatchSize;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int maxPending;
+    private final ConcurrentHashMap<String, PendingNotification> pending;
+    private final Map<NotificationChannel, ChannelQueue> channels;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService senders;
+    private final AtomicLong submitted;
+    private final AtomicLong delivered;
+    private final AtomicLong coalesced;
+    private final AtomicLong dropped;
+    private final AtomicLong retried;
+    private final AtomicLong messagesSent;
+    private final AtomicLong inFlight;
+    private volatile boolean running;
+
+    // Constructor
+    public NotificationDispatcher(ParentNotificationProxy notificationProxy) {
+        this(notificationProxy, 2_000, 50, 100, 5, 200, 30_000, 100_000);
+    }
+
+    public NotificationDispatcher(ParentNotificationProxy notificationProxy, long debounceMillis, long batchLingerMillis,
+                                  int maxBatchSize, int maxAttempts, long baseBackoffMillis, long maxBackoffMillis,
+                                  int maxPending) {
+        this.notificationProxy = notificationProxy;
+        this.debounceMillis = debounceMillis;
+        this.batchLingerMillis = batchLingerMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.maxPending = maxPending;
+        this.pending = new ConcurrentHashMap<>();
+        this.channels = new EnumMap<>(NotificationChannel.class);
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            channels.put(channel, new ChannelQueue(channel));
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.senders = VirtualThreads.newExecutor("notification-sender");
+        this.submitted = new AtomicLong();
+        this.delivered = new AtomicLong();
+        this.coalesced = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.retried = new AtomicLong();
+        this.messagesSent = new AtomicLong();
+        this.inFlight = new AtomicLong();
+        this.running = true;
+        if (Trace.isEnabled()) {
+            System.out.println("NotificationDispatcher initialized - debounce " + debounceMillis + " ms, " +
+                               (VirtualThreads.isAvailable() ? "virtual" : "platform") + " sender threads");
+        }
+    }
+
+    /**
+     * Queue a location update for the parent - replaces an update of the same child still in its window
+     */
+    public boolean submitLocationUpdate(String parentId, String childId, Location location, LocalDateTime timestamp) {
+        String message = "Location update: Child " + childId + " is at " + location.getDescription() +
+                         " at " + timestamp.toLocalTime();
+        return submit(NotificationChannel.PUSH, parentId, childId, message);
+    }
+
+    /**
+     * Queue a notification - returns false if it was dropped
+     */
+    public boolean submit(NotificationChannel channel, String parentId, String childId, String message) {
+        submitted.incrementAndGet();
+        String key = channel.name() + '|' + parentId + '|' + childId;
+        if (!running || (pending.size() >= maxPending && !pending.containsKey(key))) {
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        PendingNotification created = new PendingNotification(channel, parentId, message);
+        PendingNotification notification = pending.compute(key, (k, current) -> {
+            if (current == null) {
+                return created;
+            }
+            current.message = message;
+            return current;
+        });
+        if (notification == created) {
+            // First update of the window - delivered when the window closes, with the latest message
+            inFlight.incrementAndGet();
+            scheduler.schedule(() -> release(key), debounceMillis, TimeUnit.MILLISECONDS);
+        } else {
+            coalesced.incrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Debounce window closed - hand the latest message to its channel
+     */
+    private void release(String key) {
+        PendingNotification notification = pending.remove(key);
+        if (notification == null) {
+            return;
+        }
+        ChannelQueue channelQueue = channels.get(notification.channel);
+        channelQueue.queue.offer(notification);
+        if (channelQueue.drainScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> drain(channelQueue), batchLingerMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Take released notifications in batches and send one message per parent
+     */
+    private void drain(ChannelQueue channelQueue) {
+        channelQueue.drainScheduled.set(false);
+        while (true) {
+            Map<String, OutboundMessage> byParent = new LinkedHashMap<>();
+            PendingNotification notification;
+            int taken = 0;
+            while (taken < maxBatchSize && (notification = channelQueue.queue.poll()) != null) {
+                byParent.computeIfAbsent(notification.parentId,
+                        parentId -> new OutboundMessage(channelQueue.channel, parentId)).add(notification.message);
+                taken++;
+            }
+            if (taken == 0) {
+                return;
+            }
+            for (OutboundMessage message : byParent.values()) {
+                senders.execute(() -> send(message));
+            }
+        }
+    }
+
+    /**
+     * Send on the channel - runs on a sender thread, reschedules itself on failure
+     */
+    private void send(OutboundMessage message) {
+        boolean sent;
+        try {
+            if (message.channel == NotificationChannel.SMS) {
+                sent = notificationProxy.sendSMSToParent(message.parentId, message.getText());
+            } else {
+                notificationProxy.pushNotification(message.parentId, message.getText());
+                sent = true;
+            }
+        } catch (RuntimeException e) {
+            sent = false;
+        }
+        message.attempts++;
+
+        if (sent) {
+            messagesSent.incrementAndGet();
+            delivered.addAndGet(message.lines.size());
+            inFlight.addAndGet(-message.lines.size());
+        } else if (message.attempts < maxAttempts && running) {
+            retried.incrementAndGet();
+            scheduler.schedule(() -> senders.execute(() -> send(message)),
+                               backoffMillis(message.attempts), TimeUnit.MILLISECONDS);
+        } else {
+            dropped.addAndGet(message.lines.size());
+            inFlight.addAndGet(-message.lines.size());
+        }
+    }
+
+    /**
+     * Exponential backoff with jitter - half fixed, half random, so retries of a burst spread out
+     */
+    private long backoffMillis(int failedAttempts) {
+        long backoff = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(failedAttempts - 1, 20));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * Close every debounce window now
+     */
+    public void flush() {
+        for (String key : pending.keySet()) {
+            scheduler.execute(() -> release(key));
+        }
+    }
+
+    /**
+     * Wait until every accepted notification has been delivered or dropped
+     */
+    public boolean awaitIdle(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+            LockSupport.parkNanos(1_000_000);
+        }
+        return inFlight.get() == 0;
+    }
+
+    /**
+     * Flush, give in-flight notifications time to finish, then stop
+     * Whatever is still in flight then - scheduled retries, open windows - is counted as dropped.
+     */
+    public void close(long timeoutMillis) {
+        flush();
+        awaitIdle(timeoutMillis);
+        running = false;
+        scheduler.shutdownNow();
+        senders.shutdown();
+        try {
+            senders.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dropped.addAndGet(inFlight.getAndSet(0));
+        if (Trace.isEnabled()) {
+            System.out.println("NotificationDispatcher stopped: " + this);
+        }
+    }
+
+    public long getSubmitted() { return submitted.get(); }
+    public long getDelivered() { return delivered.get(); }
+    public long getCoalesced() { return coalesced.get(); }
+    public long getDropped() { return dropped.get(); }
+    public long getRetried() { return retried.get(); }
+    public long getMessagesSent() { return messagesSent.get(); }
+    public long getInFlight() { return inFlight.get(); }
+    public long getDebounceMillis() { return debounceMillis; }
+
+    @Override
+    public String toString() {
+        return "submitted=" + submitted.get() + " delivered=" + delivered.get() + " coalesced=" + coalesced.get() +
+               " dropped=" + dropped.get() + " retried=" + retried.get() + " messages=" + messagesSent.get();
+    }
+
+    /**
+     * Latest notification of one (channel, parent, child) within its debounce window
+     */
+    private static class PendingNotification {
+        private final NotificationChannel channel;
+        private final String parentId;
+        private volatile String message;
+
+        PendingNotification(NotificationChannel channel, String parentId, String message) {
+            this.channel = channel;
+            this.parentId = parentId;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Released notifications of one channel waiting to be batched
+     */
+    private static class ChannelQueue {
+        private final NotificationChannel channel;
+        private final ConcurrentLinkedQueue<PendingNotification> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+        ChannelQueue(NotificationChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * One message to one parent, carrying every notification batched for them
+     */
+    private static class OutboundMessage {
+        private final NotificationChannel channel;
+        private final String parentId;
+        private final List<String> lines = new ArrayList<>(2);
+        private int attempts;
+
+        OutboundMessage(NotificationChannel channel, String parentId) {
+            this.channel = channel;
+            this.parentId = parentId;
+        }
+
+        void add(String line) {
+            lines.add(line);
+        }
+
+        String getText() {
+            return lines.size() == 1 ? lines.get(0) : String.join("\n", lines);
+        }
+    }
+}
+
+/**
+ * Enum for notification channels
+ */
+enum NotificationChannel {
+    SMS,
+    PUSH
+}
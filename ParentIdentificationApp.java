@@ -1,8 +1,12 @@
 import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Parent identification interface - Figure 1
@@ -57,17 +61,23 @@ public class ParentIdentificationApp extends JFrame {
             if (!childId.isEmpty()) {
                 statusLabel.setText("Authenticating child: " + childId);
                 statusLabel.setForeground(Color.ORANGE);
-                
-                // Start authentication process
-                boolean authenticated = identificationManager.verifyChildExists(childId);
-                
-                if (authenticated) {
-                    statusLabel.setText("Authentication successful for child: " + childId);
-                    statusLabel.setForeground(Color.GREEN);
-                } else {
-                    statusLabel.setText("Authentication error for child: " + childId);
-                    statusLabel.setForeground(Color.RED);
-                }
+
+                // Start authentication process - off the EDT, a newer request replaces this one
+                UiCommandBus.getShared().submit("verifyChild", "ParentIdentificationApp.authenticate",
+                    () -> identificationManager.verifyChildExists(childId),
+                    authenticated -> {
+                        if (authenticated) {
+                            statusLabel.setText("Authentication successful for child: " + childId);
+                            statusLabel.setForeground(Color.GREEN);
+                        } else {
+                            statusLabel.setText("Authentication error for child: " + childId);
+                            statusLabel.setForeground(Color.RED);
+                        }
+                    },
+                    error -> {
+                        statusLabel.setText("Authentication failed: " + error.getMessage());
+                        statusLabel.setForeground(Color.RED);
+                    });
             }
         }
     }
@@ -83,9 +93,16 @@ public class ParentIdentificationApp extends JFrame {
  * Building residents transportation interface - Figure 2
  */
 class BuildingResidentsApp extends JFrame {
+    private static final Location BUILDING = new Location(32.0853, 34.7818, "Residents building");
+    private static final Location SCHOOL = new Location(32.0912, 34.7745, "School");
+
     private JList<String> residentsList;
     private JButton orderRideButton;
     private JLabel statusLabel;
+    private final SharedRideOptimizer rideOptimizer = new SharedRideOptimizer();
+    private final java.util.List<RideVehicle> vehicles = java.util.List.of(
+            new RideVehicle("VAN-1", 4, BUILDING),
+            new RideVehicle("VAN-2", 4, BUILDING));
 
     public BuildingResidentsApp() {
         setTitle("Building Residents Transportation");
@@ -131,12 +148,44 @@ class BuildingResidentsApp extends JFrame {
     private void orderSharedRide() {
         java.util.List<String> selectedResidents = residentsList.getSelectedValuesList();
         if (!selectedResidents.isEmpty()) {
-            statusLabel.setText("Shared ride ordered for " + selectedResidents.size() + " families");
-            System.out.println("Shared ride ordered for: " + selectedResidents);
+            java.util.List<RideRequest> requests = new java.util.ArrayList<>();
+            for (String resident : selectedResidents) {
+                requests.add(new RideRequest(resident, BUILDING, SCHOOL.getDescription(), SCHOOL, childrenOf(resident)));
+            }
+            statusLabel.setText("Planning shared ride for " + selectedResidents.size() + " families...");
+            orderRideButton.setEnabled(false);
+            // plan off the event thread - the optimizer runs up to its time budget
+            java.util.concurrent.CompletableFuture.supplyAsync(() -> rideOptimizer.optimize(requests, vehicles))
+                    .whenComplete((plan, error) -> SwingUtilities.invokeLater(() -> showPlan(plan, error)));
         } else {
             statusLabel.setText("Please select at least one family");
         }
     }
+
+    private void showPlan(SharedRidePlan plan, Throwable error) {
+        orderRideButton.setEnabled(true);
+        if (error != null) {
+            statusLabel.setText("Shared ride planning failed: " + error.getMessage());
+            return;
+        }
+        int families = plan.getRoutes().stream().mapToInt(route -> route.getPickups().size()).sum();
+        String text = "Shared ride ordered for " + families + " families in " + plan.getRoutes().size() + " vehicles";
+        if (!plan.getUnassigned().isEmpty()) {
+            text += " (" + plan.getUnassigned().size() + " without a seat)";
+        }
+        statusLabel.setText(text);
+        if (Trace.isEnabled()) {
+            System.out.println("Shared ride ordered: " + plan.getRoutes());
+        }
+    }
+
+    /**
+     * Seats needed by a resident entry, e.g. "Apartment 1 - Cohen Family (2 children)"
+     */
+    private static int childrenOf(String resident) {
+        java.util.regex.Matcher matcher = java.util.regex.Pattern.compile("\\((\\d+) child").matcher(resident);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 1;
+    }
 }
 
 /**
@@ -145,7 +194,13 @@ class BuildingResidentsApp extends JFrame {
 class DriverInterface extends JFrame {
     private JTextArea routeArea;
     private JList<String> childrenList;
+    private DefaultListModel<String> childrenModel;
+    private JButton absentButton;
     private JLabel statusLabel;
+    private final RoutePlanner routePlanner = new RoutePlanner(
+            new Location(32.0700, 34.7700, "Depot"), LocalTime.of(7, 20),
+            new Location(32.0853, 34.7818, "Tel Aviv Elementary School"), "Tel Aviv Elementary School", LocalTime.of(8, 0));
+    private final java.util.Set<String> absentChildren = new java.util.LinkedHashSet<>();
 
     public DriverInterface() {
         setTitle("Driver Interface");
@@ -160,23 +215,21 @@ class DriverInterface extends JFrame {
     private void initializeComponents() {
         // Detailed route
         routeArea = new JTextArea();
-        routeArea.setText("Today's Route:\n" +
-                         "1. Herzl Street 15 - Pick up Yossi (07:30)\n" +
-                         "2. Rothschild Boulevard 45 - Pick up Noa (07:35)\n" +
-                         "3. Dizengoff Street 12 - Pick up Or (07:40)\n" +
-                         "4. Tel Aviv Elementary School (08:00)");
         routeArea.setEditable(false);
         routeArea.setFont(new Font("Arial", Font.PLAIN, 12));
 
         // Children list at stations
-        String[] children = {
-            "Yossi Cohen - Station 1 - Status: Waiting",
-            "Noa Levy - Station 2 - Status: Waiting", 
-            "Or David - Station 3 - Status: Waiting"
-        };
-        childrenList = new JList<>(children);
+        childrenModel = new DefaultListModel<>();
+        childrenList = new JList<>(childrenModel);
+        absentButton = new JButton("Mark Absent");
+        absentButton.addActionListener(e -> markSelectedAbsent());
 
         statusLabel = new JLabel("Ready to start route - " + LocalDateTime.now().toLocalTime());
+        RoutePlan plan = routePlanner.plan(java.util.List.of(
+            new RouteStop("Herzl Street 15", new Location(32.0625, 34.7725, "Herzl Street 15"), java.util.List.of("Yossi Cohen"), 60),
+            new RouteStop("Rothschild Boulevard 45", new Location(32.0641, 34.7748, "Rothschild Boulevard 45"), java.util.List.of("Noa Levy"), 60),
+            new RouteStop("Dizengoff Street 12", new Location(32.0770, 34.7740, "Dizengoff Street 12"), java.util.List.of("Or David"), 60)));
+        showPlan(plan);
 
         JPanel leftPanel = new JPanel(new BorderLayout());
         leftPanel.add(new JLabel("Detailed Route:", JLabel.CENTER), BorderLayout.NORTH);
@@ -185,6 +238,7 @@ class DriverInterface extends JFrame {
         JPanel rightPanel = new JPanel(new BorderLayout());
         rightPanel.add(new JLabel("Children at Stations:", JLabel.CENTER), BorderLayout.NORTH);
         rightPanel.add(new JScrollPane(childrenList), BorderLayout.CENTER);
+        rightPanel.add(absentButton, BorderLayout.SOUTH);
 
         JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, leftPanel, rightPanel);
         splitPane.setDividerLocation(300);
@@ -192,24 +246,100 @@ class DriverInterface extends JFrame {
         add(splitPane, BorderLayout.CENTER);
         add(statusLabel, BorderLayout.SOUTH);
     }
+
+    private void markSelectedAbsent() {
+        String selected = childrenList.getSelectedValue();
+        if (selected == null) {
+            statusLabel.setText("Select a child to mark absent");
+            return;
+        }
+        String childName = selected.substring(0, selected.indexOf(" - "));
+        if (absentChildren.add(childName)) {
+            RoutePlan plan = routePlanner.markAbsent(childName);
+            showPlan(plan);
+            statusLabel.setText(String.format("%s absent - route re-planned in %.1f ms", childName, plan.getPlanMillis()));
+        }
+    }
+
+    /**
+     * Route text and children list from the planner's current plan
+     */
+    private void showPlan(RoutePlan plan) {
+        StringBuilder text = new StringBuilder("Today's Route:\n");
+        childrenModel.clear();
+        int number = 1;
+        for (PlannedStop planned : plan.getStops()) {
+            text.append(number).append(". ").append(planned.getStop().getStopId())
+                .append(" - Pick up ").append(String.join(", ", planned.getStop().getChildren()))
+                .append(" (").append(planned.getArrival()).append(")")
+                .append(planned.getLateSeconds() > 0 ? " LATE\n" : "\n");
+            for (String child : planned.getStop().getChildren()) {
+                childrenModel.addElement(child + " - Station " + number + " - Status: Waiting");
+            }
+            number++;
+        }
+        text.append(number).append(". ").append(plan.getSchoolName()).append(" (").append(plan.getSchoolArrival()).append(")")
+            .append(plan.isOnTime() ? "" : " - " + (plan.getLateSeconds() + 59) / 60 + " min late");
+        for (String child : absentChildren) {
+            childrenModel.addElement(child + " - Status: Absent");
+        }
+        routeArea.setText(text.toString());
+    }
 }
 
 /**
  * Parent tracking interface - Figure 4
  */
 class ParentTrackingApp extends JFrame {
+    private static final int MAX_FRAMES_PER_SECOND = 10;
+
     private JButton trackButton;
     private JTextArea mapArea;
     private JTextField childIdField;
-    private LocationTracker locationTracker;
+    private JTextField vehicleIdField;
+    private JTable watchTable;
+    private JLabel statusLabel;
+    private final GpsFeed gpsFeed;
+    private final TrackingTableModel trackingModel;
+    // repaints capped at MAX_FRAMES_PER_SECOND; GPS fixes arriving in between are coalesced per vehicle
+    private final UiCommandBus frameBus;
+    private final Map<String, LocationTracker> trackers = new HashMap<>();
+    private final GpsListener gpsListener;
+    private final EtaEngine etaEngine;
+    private SimulatedGpsSource gpsSource;
 
     public ParentTrackingApp() {
         setTitle("Parent Tracking Interface");
-        setSize(500, 400);
+        setSize(700, 500);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
 
-        locationTracker = new LocationTracker("LT_001", "VEHICLE_001");
+        // Bus positions are pushed by the GPS feed - no polling from the UI
+        gpsFeed = GpsFeed.getShared();
+        etaEngine = EtaEngine.getShared();
+        trackingModel = new TrackingTableModel(etaEngine);
+        frameBus = new UiCommandBus(SwingUtilities::invokeLater, 1000 / MAX_FRAMES_PER_SECOND);
+        gpsListener = (vehicleId, fix) -> {
+            if (trackingModel.offer(vehicleId, fix)) {
+                frameBus.post("ParentTrackingApp.frame", this::showFrame);
+            }
+        };
+        gpsSource = new SimulatedGpsSource(gpsFeed, 1.0, 42L, "VEHICLE_001", "VEHICLE_002", "VEHICLE_003");
+        gpsSource.start();
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                gpsSource.stop();
+                for (Map.Entry<String, LocationTracker> tracker : trackers.entrySet()) {
+                    gpsFeed.unsubscribe(tracker.getKey(), gpsListener);
+                    tracker.getValue().detachGpsFeed();
+                    if (etaEngine != null) {
+                        etaEngine.untrackVehicle(tracker.getKey());
+                    }
+                }
+                frameBus.shutdown();
+            }
+        });
         initializeComponents();
         System.out.println("ParentTrackingApp initialized");
     }
@@ -220,51 +350,293 @@ class ParentTrackingApp extends JFrame {
         topPanel.add(new JLabel("Child ID:"));
         childIdField = new JTextField(10);
         topPanel.add(childIdField);
-        
+        topPanel.add(new JLabel("Vehicle:"));
+        vehicleIdField = new JTextField("VEHICLE_001", 10);
+        topPanel.add(vehicleIdField);
+
         trackButton = new JButton("Track Child");
         trackButton.setFont(new Font("Arial", Font.BOLD, 14));
         trackButton.addActionListener(e -> startTracking());
         topPanel.add(trackButton);
 
-        // Map (simulation)
+        // Watched children - one row each, repainted only when their vehicle moved
+        watchTable = new JTable(trackingModel);
+        watchTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        watchTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showSelected();
+            }
+        });
+
+        // Map (simulation) - details of the selected child
         mapArea = new JTextArea();
         mapArea.setText("=== Real-time Tracking Map ===\n\n" +
-                       "🚌 Bus: Herzl Street 25\n" +
-                       "📍 Last location: 32.0853, 34.7818\n" +
-                       "⏰ Update time: " + LocalDateTime.now().toLocalTime() + "\n\n" +
-                       "🎯 Next destination: Elementary School\n" +
-                       "⏱️ Estimated arrival: 15 minutes");
+                       "Enter a child ID and vehicle to start tracking.\n" +
+                       "Positions update live as the buses report them.");
         mapArea.setEditable(false);
         mapArea.setFont(new Font("Arial", Font.PLAIN, 12));
 
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(watchTable), new JScrollPane(mapArea));
+        splitPane.setDividerLocation(250);
+        statusLabel = new JLabel("Watching 0 children");
+
         add(topPanel, BorderLayout.NORTH);
-        add(new JScrollPane(mapArea), BorderLayout.CENTER);
+        add(splitPane, BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
     }
 
     private void startTracking() {
         String childId = childIdField.getText().trim();
-        if (!childId.isEmpty()) {
-            locationTracker.startTracking(childId);
-            Location currentLocation = locationTracker.getCurrentLocation();
-            
-            mapArea.setText("=== Active tracking for child: " + childId + " ===\n\n" +
-                           "🚌 Bus is at: " + currentLocation.getDescription() + "\n" +
-                           "📍 Coordinates: " + currentLocation.getLatitude() + ", " + currentLocation.getLongitude() + "\n" +
-                           "⏰ Update time: " + LocalDateTime.now().toLocalTime() + "\n\n" +
-                           "✅ Tracking active\n" +
-                           "🔄 Updates automatically every 30 seconds");
+        String vehicleId = vehicleIdField.getText().trim();
+        if (!childId.isEmpty() && !vehicleId.isEmpty()) {
+            LocationTracker tracker = trackerFor(vehicleId);
+            mapArea.setText("=== Starting tracking for child: " + childId + " ===");
+            UiCommandBus.getShared().submit("startTracking", "ParentTrackingApp.track",
+                () -> {
+                    if (!tracker.startTracking(childId)) {
+                        throw new IllegalArgumentException("unknown child");
+                    }
+                    return tracker.getCurrentLocation();
+                },
+                currentLocation -> watch(childId, vehicleId, currentLocation),
+                error -> mapArea.setText("Tracking failed for child " + childId + ": " + error.getMessage()));
+        }
+    }
+
+    /**
+     * Add a child to the watch list - called on the event dispatch thread
+     */
+    public void watch(String childId, String vehicleId, Location currentLocation) {
+        trackerFor(vehicleId);
+        int row = trackingModel.watch(childId, vehicleId, currentLocation != null ? currentLocation : gpsFeed.getLastFix(vehicleId));
+        if (row >= 0) {
+            watchTable.getSelectionModel().setSelectionInterval(row, row);
+        }
+        statusLabel.setText("Watching " + trackingModel.getRowCount() + " children on " + trackers.size() + " vehicles");
+    }
+
+    /**
+     * One tracker and one feed subscription per vehicle, however many children ride it
+     */
+    private LocationTracker trackerFor(String vehicleId) {
+        return trackers.computeIfAbsent(vehicleId, id -> {
+            LocationTracker tracker = new LocationTracker("LT_" + id, id);
+            tracker.attachGpsFeed(gpsFeed);
+            tracker.setEtaEngine(etaEngine);
+            if (etaEngine != null) {
+                etaEngine.trackVehicle(id, EtaEngine.getDefaultDestination());
+            }
+            gpsFeed.subscribe(id, gpsListener);
+            return tracker;
+        });
+    }
+
+    /**
+     * Apply the fixes that arrived since the last frame - called on the event dispatch thread
+     */
+    private void showFrame() {
+        java.util.Set<String> movedVehicles = trackingModel.drain();
+        int selected = watchTable.getSelectedRow();
+        if (selected >= 0 && movedVehicles.contains(trackingModel.getVehicleId(selected))) {
+            showSelected();
+        }
+    }
+
+    private void showSelected() {
+        int row = watchTable.getSelectedRow();
+        if (row < 0) {
+            return;
+        }
+        Location currentLocation = trackingModel.getLocation(row);
+        if (currentLocation == null) {
+            mapArea.setText("=== Active tracking for child: " + trackingModel.getChildId(row) + " ===\n\n" +
+                           "Waiting for the first position of " + trackingModel.getVehicleId(row));
+            return;
+        }
+        mapArea.setText("=== Active tracking for child: " + trackingModel.getChildId(row) + " ===\n\n" +
+                       "🚌 Bus is at: " + currentLocation.getDescription() + "\n" +
+                       "📍 Coordinates: " + currentLocation.getLatitude() + ", " + currentLocation.getLongitude() + "\n" +
+                       "⏰ Update time: " + trackingModel.getUpdateTime(row) + "\n" +
+                       "🏫 Arrival at " + EtaEngine.getDefaultDestination() + ": " +
+                       trackingModel.getValueAt(row, TrackingTableModel.ETA_COLUMN) + "\n\n" +
+                       "✅ Tracking active\n" +
+                       "🔄 Updates live as the bus reports its position");
+    }
+
+    public TrackingTableModel getTrackingModel() { return trackingModel; }
+}
+
+/**
+ * Table model of watched children - latest fix per vehicle is coalesced off the EDT and applied per frame;
+ * rows are kept grouped by vehicle so a moved vehicle is one rowsUpdated event over its children
+ */
+class TrackingTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    static final int ETA_COLUMN = 5;
+    private static final String[] COLUMNS = {"Child ID", "Vehicle", "Bus position", "Coordinates", "Updated", "ETA"};
+
+    private final EtaEngine etaEngine;
+    private final java.util.concurrent.ConcurrentHashMap<String, Location> pendingFixes = new java.util.concurrent.ConcurrentHashMap<>();
+    private final java.util.Set<String> watchedVehicles = java.util.concurrent.ConcurrentHashMap.newKeySet();
+    private final java.util.List<String> childIds = new java.util.ArrayList<>();
+    private final java.util.List<String> vehicleIds = new java.util.ArrayList<>();
+    private final Map<String, Location> locations = new HashMap<>();
+    private final Map<String, LocalTime> updateTimes = new HashMap<>();
+    private final Map<String, int[]> rowsOfVehicle = new HashMap<>();
+    private long fixesApplied;
+    private long rowsRepainted;
+
+    public TrackingTableModel() {
+        this(null);
+    }
+
+    /**
+     * ETAs come from the engine, refreshed by the same fixes that repaint a vehicle's rows
+     */
+    public TrackingTableModel(EtaEngine etaEngine) {
+        this.etaEngine = etaEngine;
+    }
+
+    /**
+     * Store the latest fix of a watched vehicle - any thread; true if the vehicle is watched
+     */
+    public boolean offer(String vehicleId, Location fix) {
+        if (!watchedVehicles.contains(vehicleId)) {
+            return false;
         }
+        pendingFixes.put(vehicleId, fix);
+        return true;
     }
+
+    /**
+     * Apply the pending fixes and repaint their rows - on the event dispatch thread; returns the moved vehicles
+     */
+    public java.util.Set<String> drain() {
+        java.util.Set<String> moved = new java.util.HashSet<>();
+        for (String vehicleId : pendingFixes.keySet()) {
+            Location fix = pendingFixes.remove(vehicleId);
+            if (fix == null) {
+                continue;
+            }
+            fixesApplied++;
+            locations.put(vehicleId, fix);
+            updateTimes.put(vehicleId, LocalTime.now().withNano(0));
+            moved.add(vehicleId);
+            int[] rows = rowsOfVehicle.get(vehicleId);
+            if (rows != null) {
+                rowsRepainted += rows[1] - rows[0] + 1;
+                fireTableRowsUpdated(rows[0], rows[1]);
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Add a watched child next to the other children of the same vehicle - returns its row, -1 if already watched
+     */
+    public int watch(String childId, String vehicleId, Location currentLocation) {
+        if (childIds.contains(childId)) {
+            return -1;
+        }
+        int row = vehicleIds.lastIndexOf(vehicleId) + 1;
+        if (row == 0) {
+            row = childIds.size();
+        }
+        childIds.add(row, childId);
+        vehicleIds.add(row, vehicleId);
+        watchedVehicles.add(vehicleId);
+        if (currentLocation != null && !locations.containsKey(vehicleId)) {
+            locations.put(vehicleId, currentLocation);
+            updateTimes.put(vehicleId, LocalTime.now().withNano(0));
+        }
+        rowsOfVehicle.clear();
+        for (int r = 0; r < vehicleIds.size(); r++) {
+            int[] rows = rowsOfVehicle.computeIfAbsent(vehicleIds.get(r), id -> new int[] {Integer.MAX_VALUE, -1});
+            rows[0] = Math.min(rows[0], r);
+            rows[1] = Math.max(rows[1], r);
+        }
+        fireTableRowsInserted(row, row);
+        return row;
+    }
+
+    @Override
+    public int getRowCount() {
+        return childIds.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Location location = getLocation(row);
+        switch (column) {
+            case 0: return childIds.get(row);
+            case 1: return vehicleIds.get(row);
+            case 2: return location != null ? location.getDescription() : "---";
+            case 3: return location != null ? String.format("%.5f, %.5f", location.getLatitude(), location.getLongitude()) : "---";
+            case 4: return getUpdateTime(row) != null ? getUpdateTime(row).toString() : "---";
+            default:
+                VehicleEta eta = etaEngine != null ? etaEngine.getEta(vehicleIds.get(row)) : null;
+                LocalDateTime arrival = eta != null ? eta.getArrivalTime() : null;
+                return arrival != null ? arrival.toLocalTime().withSecond(0).withNano(0).toString() : "---";
+        }
+    }
+
+    public String getChildId(int row) { return childIds.get(row); }
+    public String getVehicleId(int row) { return vehicleIds.get(row); }
+    public Location getLocation(int row) { return locations.get(vehicleIds.get(row)); }
+    public LocalTime getUpdateTime(int row) { return updateTimes.get(vehicleIds.get(row)); }
+    public long getFixesApplied() { return fixesApplied; }
+    public long getRowsRepainted() { return rowsRepainted; }
 }
 
 /**
  * Educational institution portal - Figure 5
  */
 class SchoolPortal extends JFrame {
+    private static final String SCHOOL_ID = "TLV-ELEMENTARY";
+
     private JTable attendanceTable;
     private JLabel summaryLabel;
+    private final AttendanceBoard attendanceBoard;
+    private AttendanceTableModel attendanceModel;
+    private Timer refreshTimer;
 
     public SchoolPortal() {
+        this(new AttendanceBoard());
+        Object[][] roster = {
+            {"001", "Yossi Cohen", "A1", "Father - 050-1234567"},
+            {"002", "Noa Levy", "A1", "Mother - 050-2345678"},
+            {"003", "Or David", "B2", "Mother - 050-3456789"},
+            {"004", "Dana Abraham", "B2", "Father - 050-4567890"},
+            {"005", "Eitan Samuel", "C1", "Grandmother - 050-5678901"}
+        };
+        java.util.List<Child> children = new java.util.ArrayList<>();
+        for (Object[] student : roster) {
+            Child child = ChildRegistry.getShared().register(
+                    new Child((String) student[0], (String) student[1], 8, SCHOOL_ID, "P" + student[0]));
+            attendanceBoard.enroll(child, (String) student[2], (String) student[3]);
+            children.add(child);
+        }
+        // morning so far: three arrived, one on the way
+        for (int i : new int[] {0, 1, 2, 4}) {
+            children.get(i).boardRide();
+        }
+        for (int i : new int[] {0, 2, 4}) {
+            children.get(i).exitRide();
+        }
+    }
+
+    public SchoolPortal(AttendanceBoard attendanceBoard) {
+        this.attendanceBoard = attendanceBoard;
         setTitle("Educational Institution Management - School Portal");
         setSize(700, 500);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -275,26 +647,127 @@ class SchoolPortal extends JFrame {
     }
 
     private void initializeComponents() {
-        // Attendance table
-        String[] columnNames = {"Student ID", "Name", "Class", "Arrival Status", "Arrival Time", "Parent"};
-        Object[][] data = {
-            {"001", "Yossi Cohen", "A1", "Arrived", "07:45", "Father - 050-1234567"},
-            {"002", "Noa Levy", "A1", "En Route", "Expected 08:00", "Mother - 050-2345678"},
-            {"003", "Or David", "B2", "Arrived", "07:50", "Mother - 050-3456789"},
-            {"004", "Dana Abraham", "B2", "Not Arrived", "---", "Father - 050-4567890"},
-            {"005", "Eitan Samuel", "C1", "Arrived", "07:40", "Grandmother - 050-5678901"}
-        };
-
-        attendanceTable = new JTable(data, columnNames);
+        // Attendance table - cells are read from the board only for the rows on screen
+        attendanceModel = new AttendanceTableModel(attendanceBoard);
+        attendanceTable = new JTable(attendanceModel);
         attendanceTable.setRowHeight(25);
         JScrollPane scrollPane = new JScrollPane(attendanceTable);
 
         // Summary
-        summaryLabel = new JLabel("Summary: 5 students registered | 3 arrived | 1 en route | 1 not arrived", JLabel.CENTER);
+        summaryLabel = new JLabel("", JLabel.CENTER);
         summaryLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        refreshSummary();
 
         add(new JLabel("Student Attendance Tracking", JLabel.CENTER), BorderLayout.NORTH);
         add(scrollPane, BorderLayout.CENTER);
         add(summaryLabel, BorderLayout.SOUTH);
+
+        // events arrive on any thread; the view catches up at most five times a second
+        refreshTimer = new Timer(200, e -> {
+            if (attendanceModel.refresh()) {
+                refreshSummary();
+            }
+        });
+        refreshTimer.start();
+    }
+
+    private void refreshSummary() {
+        int[] counts = attendanceBoard.getTotals();
+        int registered = counts[0] + counts[1] + counts[2];
+        summaryLabel.setText("Summary: " + registered + " students registered | " +
+                counts[AttendanceStatus.ARRIVED.ordinal()] + " arrived | " +
+                counts[AttendanceStatus.EN_ROUTE.ordinal()] + " en route | " +
+                counts[AttendanceStatus.NOT_ARRIVED.ordinal()] + " not arrived");
+        StringBuilder byClass = new StringBuilder("<html>");
+        for (String className : attendanceBoard.getClassNames(SCHOOL_ID)) {
+            int[] classCounts = attendanceBoard.getClassCounts(SCHOOL_ID, className);
+            byClass.append(className).append(": ").append(classCounts[AttendanceStatus.ARRIVED.ordinal()])
+                   .append(" of ").append(classCounts[0] + classCounts[1] + classCounts[2]).append(" arrived<br>");
+        }
+        summaryLabel.setToolTipText(byClass.append("</html>").toString());
+    }
+
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+        super.dispose();
+    }
+
+    public AttendanceBoard getAttendanceBoard() { return attendanceBoard; }
+}
+
+/**
+ * Table model over an AttendanceBoard - no copy of the rows, JTable asks only for visible cells
+ */
+class AttendanceTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"Student ID", "Name", "Class", "Arrival Status", "Arrival Time", "Parent"};
+    private static final java.time.format.DateTimeFormatter TIME = java.time.format.DateTimeFormatter.ofPattern("HH:mm");
+
+    private final AttendanceBoard board;
+    private int rowCount;
+
+    public AttendanceTableModel(AttendanceBoard board) {
+        this.board = board;
+        this.rowCount = board.getRowCount();
+        board.takeDirtyRows();
     }
-}
\ No newline at end of file
+
+    /**
+     * Catch up with the board - returns false when nothing changed since the last call
+     */
+    public boolean refresh() {
+        int[] dirty = board.takeDirtyRows();
+        if (dirty == null) {
+            return false;
+        }
+        int rows = board.getRowCount();
+        if (rows != rowCount) {
+            int previous = rowCount;
+            rowCount = rows;
+            fireTableRowsInserted(previous, rows - 1);
+        }
+        if (dirty[0] < rowCount) {
+            fireTableRowsUpdated(dirty[0], Math.min(dirty[1], rowCount - 1));
+        }
+        return true;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case 0: return board.getChildId(row);
+            case 1: return board.getName(row);
+            case 2: return board.getClassName(row);
+            case 3: return board.getStatus(row).getLabel();
+            case 4: return arrivalText(row);
+            default: return board.getParentContact(row);
+        }
+    }
+
+    private String arrivalText(int row) {
+        // status first: once past NOT_ARRIVED the event time is always set
+        AttendanceStatus status = board.getStatus(row);
+        java.time.LocalTime time = board.getEventTime(row);
+        switch (status) {
+            case ARRIVED: return time.format(TIME);
+            case EN_ROUTE: return "Boarded " + time.format(TIME);
+            default: return "---";
+        }
+    }
+}
@@ -0,0 +1,2020 @@
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PerformanceBenchmark class - benchmarks for the hot paths of the system
+ * Usage: java PerformanceBenchmark [scenario]   (default: all)
+ * Every measurement reports time, allocated bytes and GC count/time per operation.
+ */
+public class PerformanceBenchmark {
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        String scenario = args.length > 0 ? args[0] : "all";
+        Trace.setEnabled(false);
+
+        System.out.println("=== Performance Benchmark: " + scenario + " ===");
+        if (runs(scenario, "flow")) {
+            benchmarkTrackingFlow();
+        }
+        if (runs(scenario, "identify")) {
+            benchmarkIdentifyChild(sizes("benchmark.gallerySizes", "10,100,1000,10000,100000,1000000"));
+        }
+        if (runs(scenario, "fanout")) {
+            benchmarkLocationFanOut(sizes("benchmark.fanoutSizes", "10,100,1000,10000"));
+        }
+        if (runs(scenario, "report")) {
+            benchmarkIdentificationReport(sizes("benchmark.reportSizes", "10000,100000,1000000"));
+        }
+        if (runs(scenario, "registry")) {
+            benchmarkChildRegistry();
+        }
+        if (runs(scenario, "embedding")) {
+            benchmarkEmbeddingScan();
+        }
+        if (runs(scenario, "pipeline")) {
+            benchmarkRecognitionPipeline();
+        }
+        if (runs(scenario, "logging")) {
+            benchmarkActivityLogging();
+        }
+        if (runs(scenario, "ann")) {
+            benchmarkApproximateSearch(Integer.getInteger("benchmark.gallery", 50_000));
+        }
+        if (runs(scenario, "gps")) {
+            benchmarkGpsFeed();
+        }
+        if (runs(scenario, "notify")) {
+            benchmarkNotificationDispatch();
+        }
+        if (runs(scenario, "fleet")) {
+            benchmarkFleetIdentification(sizes("benchmark.fleetShards", "1,2,4,8"));
+        }
+        if (runs(scenario, "journal")) {
+            benchmarkIdentificationJournal(Integer.getInteger("benchmark.journalEvents", 1_000_000));
+        }
+        if (runs(scenario, "states")) {
+            benchmarkStateTable(Integer.getInteger("benchmark.stateChildren", 1_000_000));
+        }
+        if (runs(scenario, "frames")) {
+            benchmarkFrameBuffers(Integer.getInteger("benchmark.cameras", 50), Integer.getInteger("benchmark.seconds", 4));
+        }
+        if (runs(scenario, "changes")) {
+            benchmarkChangeDetection(Integer.getInteger("benchmark.frames", 3_000));
+        }
+        if (runs(scenario, "cache")) {
+            benchmarkRecognitionCache(Integer.getInteger("benchmark.appearances", 500));
+        }
+        if (runs(scenario, "burst")) {
+            benchmarkBurstCapture(sizes("benchmark.burstCameras", "3,5,8"));
+        }
+        if (runs(scenario, "eta")) {
+            benchmarkEtaEngine(Integer.getInteger("benchmark.gridSize", 200), sizes("benchmark.etaThreads", "1,2,4,8"));
+        }
+        if (runs(scenario, "rides")) {
+            benchmarkSharedRides(sizes("benchmark.buildings", "100,300,600"), Long.getLong("benchmark.rideBudgetMillis", 800));
+        }
+        if (runs(scenario, "replan")) {
+            benchmarkRoutePlanner(sizes("benchmark.routeStops", "20,40,80"));
+        }
+        if (runs(scenario, "attendance")) {
+            benchmarkAttendance(Integer.getInteger("benchmark.students", 10_000), Integer.getInteger("benchmark.eventThreads", 4));
+        }
+        if (runs(scenario, "uibus")) {
+            benchmarkUiCommandBus(Integer.getInteger("benchmark.backendMillis", 5));
+        }
+        if (runs(scenario, "trackview")) {
+            benchmarkTrackingView(Integer.getInteger("benchmark.watchedChildren", 500), Integer.getInteger("benchmark.watchedVehicles", 100));
+        }
+        if (runs(scenario, "server")) {
+            benchmarkHeadlessServer(sizes("benchmark.concurrentRequests", "100,1000,4000"));
+        }
+        if (runs(scenario, "simulate")) {
+            benchmarkFleetSimulator(sizes("benchmark.simVehicles", "20,100,400"), Integer.getInteger("benchmark.simSeconds", 5));
+        }
+        if (runs(scenario, "spatial")) {
+            benchmarkSpatialIndex(Integer.getInteger("benchmark.vehicles", 10_000));
+        }
+        System.out.println("=== Benchmark completed ===");
+    }
+
+    /**
+     * Full 20-step flow Parent → Manager → Tracker → Camera → Recognition → Notification, without pauses or output
+     */
+    static void benchmarkTrackingFlow() {
+        System.out.println("\n--- 20-step tracking flow ---");
+        String childId = "CHILD_001";
+        ChildRegistry registry = new ChildRegistry(16);
+        Parent parent = new Parent("PARENT_001", "Sarah Cohen");
+        ChildIdentificationManager manager = new ChildIdentificationManager("MGR_BENCH", "VEHICLE_001", registry);
+        LocationTracker tracker = new LocationTracker("LT_BENCH", "VEHICLE_001", registry);
+        Camera camera = new Camera("CAM_001", "VEHICLE_001", "Front Door");
+        FaceRecognitionAndControlSystem recognitionSystem = new FaceRecognitionAndControlSystem("FRS_BENCH", "OP_BENCH");
+        ParentNotificationProxy notificationProxy = new ParentNotificationProxy("PNP_BENCH");
+        Location childLocation = new Location(32.0853, 34.7818, "School Bus - Route 1");
+
+        measure("20-step flow", 20_000, () -> {
+            parent.trackChild(childId, manager);                                      // steps 1-3
+            manager.startIdentificationProcess();                                     // step 2
+            manager.verifyChildExists(childId);                                       // step 3
+            manager.trackChild(childId, tracker);                                     // steps 4-5
+            tracker.getCurrentLocation();                                             // steps 6-9
+            Image image = tracker.captureCurrentImage(camera);                        // steps 10-11
+            String identifiedChildId = recognitionSystem.processImage(image);         // steps 12-13
+            image.release();
+            manager.reportChildStatus(identifiedChildId, ChildStatus.TRACKED_ACTIVE, childLocation); // 14-15
+            manager.confirmTrackingActive(identifiedChildId, tracker);                // step 16
+            manager.sendLocationUpdate(identifiedChildId, childLocation, notificationProxy);       // 17-18
+            manager.sendTrackingConfirmation(identifiedChildId, notificationProxy);   // steps 19-20
+            return identifiedChildId;
+        });
+    }
+
+    /**
+     * identifyChild across gallery sizes (exact scan below the ANN threshold, HNSW above)
+     */
+    static void benchmarkIdentifyChild(int[] gallerySizes) {
+        System.out.println("\n--- identifyChild ---");
+        java.util.Random random = new java.util.Random(11);
+        for (int gallerySize : gallerySizes) {
+            FaceRecognitionAndControlSystem recognitionSystem = new FaceRecognitionAndControlSystem("FRS_BENCH", "OP_BENCH");
+            for (int i = recognitionSystem.getEmbeddingMatrix().size(); i < gallerySize; i++) {
+                recognitionSystem.addFaceProfile("CHILD_" + i, new FaceProfile("CHILD_" + i));
+            }
+            Image image = new Image("IMG_BENCH");
+            float[] probe = new float[FaceProfile.EMBEDDING_DIMENSION];
+            recognitionSystem.getEmbeddingMatrix().copyRow(random.nextInt(gallerySize), probe);
+            for (int d = 0; d < probe.length; d++) {
+                probe[d] += (float) (random.nextGaussian() * 0.03);
+            }
+            image.setFaceEmbedding(probe);
+            measure("identifyChild, gallery " + gallerySize, Math.max(50, 2_000_000 / gallerySize),
+                    () -> recognitionSystem.identifyChild(image));
+        }
+    }
+
+    /**
+     * LocationTracker.updateLocation fan-out across tracked children counts
+     */
+    static void benchmarkLocationFanOut(int[] childCounts) {
+        System.out.println("\n--- updateLocation fan-out ---");
+        for (int childCount : childCounts) {
+            ChildRegistry registry = new ChildRegistry(childCount);
+            LocationTracker tracker = new LocationTracker("LT_BENCH", "VEHICLE_BENCH", registry);
+            for (int i = 0; i < childCount; i++) {
+                tracker.startTracking("CHILD_" + i);
+            }
+            measure("updateLocation, " + childCount + " children", Math.max(50, 1_000_000 / childCount), () -> {
+                tracker.updateLocation();
+                return tracker;
+            });
+        }
+    }
+
+    /**
+     * generateIdentificationReport across identification map sizes
+     */
+    static void benchmarkIdentificationReport(int[] identificationCounts) {
+        System.out.println("\n--- generateIdentificationReport ---");
+        Location location = new Location(32.0853, 34.7818, "Benchmark Location");
+        for (int identificationCount : identificationCounts) {
+            ChildRegistry registry = new ChildRegistry(identificationCount);
+            ChildIdentificationManager manager = new ChildIdentificationManager("MGR_BENCH", "VEHICLE_BENCH", registry);
+            for (int i = 0; i < identificationCount; i++) {
+                manager.reportChildStatus("CHILD_" + i, ChildStatus.ON_RIDE, location);
+            }
+            measure("generateIdentificationReport, " + identificationCount + " children",
+                    Math.max(10, 1_000_000 / identificationCount), manager::generateIdentificationReport);
+
+            // Dashboard polling while the route runs: 100 transitions between polls
+            int[] next = {0};
+            long[] lastVersion = {manager.generateIdentificationReport().getVersion()};
+            ChildStatus[] statuses = {ChildStatus.ON_RIDE, ChildStatus.TRACKED_ACTIVE};
+            measure("100 updates + report, " + identificationCount + " children", 2_000, () -> {
+                for (int i = 0; i < 100; i++) {
+                    int child = next[0]++;
+                    manager.reportChildStatus("CHILD_" + (child % identificationCount),
+                                              statuses[(child / identificationCount) % 2], location);
+                }
+                return manager.generateIdentificationReport();
+            });
+            measure("100 updates + delta, " + identificationCount + " children", 2_000, () -> {
+                for (int i = 0; i < 100; i++) {
+                    int child = next[0]++;
+                    manager.reportChildStatus("CHILD_" + (child % identificationCount),
+                                              statuses[(child / identificationCount) % 2], location);
+                }
+                IdentificationDelta delta = manager.getIdentificationChanges(lastVersion[0]);
+                lastVersion[0] = delta.getToVersion();
+                return delta;
+            });
+        }
+    }
+
+    /**
+     * Child registry - allocation of the location and status loops before and after the shared registry
+     */
+    static void benchmarkChildRegistry() {
+        System.out.println("\n--- ChildRegistry ---");
+        int childCount = 1_000;
+        String[] childIds = new String[childCount];
+        for (int i = 0; i < childCount; i++) {
+            childIds[i] = "CHILD_" + i;
+        }
+        Location location = new Location(32.0853, 34.7818, "Benchmark Location");
+
+        // Before: every lookup fabricated a new Child and FaceProfile
+        measure("updateLocation fan-out (fabricated Child)", 200, () -> {
+            LocalDateTime now = null;
+            for (String childId : childIds) {
+                Child child = new Child(childId, "Child_" + childId, 8, "SCHOOL_001", "PARENT_" + childId);
+                child.getFaceProfile();
+                child.updateCurrentLocation(location);
+                now = LocalDateTime.now();
+            }
+            return now;
+        });
+
+        // After: children are resolved once from the registry when tracking starts
+        ChildRegistry registry = new ChildRegistry(childCount);
+        LocationTracker tracker = new LocationTracker("LT_BENCH", "VEHICLE_BENCH", registry);
+        for (String childId : childIds) {
+            tracker.startTracking(childId);
+        }
+        measure("updateLocation fan-out (ChildRegistry)", 200, () -> {
+            tracker.updateLocation();
+            return tracker;
+        });
+
+        // A closed registry does not load unknown IDs - tracking them is refused rather than stored as null
+        ChildRegistry closedRegistry = new ChildRegistry(childCount, false);
+        LocationTracker closedTracker = new LocationTracker("LT_CLOSED", "VEHICLE_BENCH", closedRegistry);
+        if (closedTracker.startTracking(null) || closedTracker.startTracking("CHILD_UNKNOWN")
+                || !closedTracker.getTrackedChildren().isEmpty()) {
+            throw new IllegalStateException("null or unknown child accepted for tracking");
+        }
+        closedTracker.updateLocation();
+        System.out.println("Closed registry: null and unknown child IDs refused for tracking");
+
+        Map<String, String> legacyIdentifications = new HashMap<>();
+        measure("reportChildStatus loop (fabricated Child)", 200, () -> {
+            for (String childId : childIds) {
+                Child child = new Child(childId, "Child_" + childId, 8, "SCHOOL_001", "PARENT_" + childId);
+                child.getFaceProfile();
+                legacyIdentifications.put(childId, ChildStatus.ON_RIDE.toString());
+                child.updateStatus(ChildStatus.ON_RIDE);
+            }
+            return legacyIdentifications;
+        });
+
+        ChildIdentificationManager manager = new ChildIdentificationManager("MGR_BENCH", "VEHICLE_BENCH", registry);
+        measure("reportChildStatus loop (ChildRegistry)", 200, () -> {
+            for (String childId : childIds) {
+                manager.reportChildStatus(childId, ChildStatus.ON_RIDE, location);
+            }
+            return manager;
+        });
+
+        // Bulk load of a full fleet roster
+        int bulkCount = 1_000_000;
+        List<Child> roster = new ArrayList<>(bulkCount);
+        ChildRegistry bulkRegistry = new ChildRegistry(bulkCount);
+        for (int i = 0; i < bulkCount; i++) {
+            String childId = "CHILD_" + i;
+            roster.add(new Child(childId, "Child_" + i, 6 + i % 10,
+                    bulkRegistry.intern("SCHOOL_" + (i % 200)), "PARENT_" + (i / 2)));
+        }
+        long start = System.nanoTime();
+        bulkRegistry.registerAll(roster);
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Bulk load of " + bulkRegistry.size() + " children: " + loadMillis + " ms");
+
+        start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < bulkCount; i++) {
+            if (bulkRegistry.findChild(roster.get(i).getChildId()) != null) {
+                found++;
+            }
+        }
+        System.out.printf("Lookup: %.1f ns/op (%d found)%n", (System.nanoTime() - start) / (double) bulkCount, found);
+    }
+
+    /**
+     * Embedding matrix - brute-force 1:N top-k scan per gallery size
+     * Compare kernels with and without -Dtransport.scalarKernel=true
+     */
+    static void benchmarkEmbeddingScan() {
+        System.out.println("\n--- EmbeddingMatrix (kernel: " + EmbeddingMatrix.getKernelName() + ") ---");
+        int dimension = FaceProfile.EMBEDDING_DIMENSION;
+        java.util.Random random = new java.util.Random(42);
+        for (int gallerySize : new int[]{1_000, 10_000, 100_000}) {
+            EmbeddingMatrix matrix = new EmbeddingMatrix(dimension, gallerySize);
+            float[] embedding = new float[dimension];
+            for (int i = 0; i < gallerySize; i++) {
+                for (int d = 0; d < dimension; d++) {
+                    embedding[d] = (float) random.nextGaussian();
+                }
+                matrix.put("CHILD_" + i, embedding);
+            }
+            float[] probe = new float[dimension];
+            matrix.copyRow(gallerySize / 2, probe);
+            measure("findTopMatches top-5, gallery " + gallerySize, 2_000_000 / gallerySize + 20,
+                    () -> matrix.findTopMatches(probe, 5));
+        }
+    }
+
+    /**
+     * HNSW index - recall and latency against the exact scan for several efSearch values
+     */
+    static void benchmarkApproximateSearch(int gallerySize) {
+        System.out.println("\n--- HnswIndex (gallery " + gallerySize + ") ---");
+        int dimension = FaceProfile.EMBEDDING_DIMENSION;
+        int k = 10;
+        java.util.Random random = new java.util.Random(7);
+        EmbeddingMatrix matrix = new EmbeddingMatrix(dimension, gallerySize);
+        HnswIndex index = new HnswIndex(matrix, 16, 100, 64);
+        float[] embedding = new float[dimension];
+        long start = System.nanoTime();
+        for (int i = 0; i < gallerySize; i++) {
+            for (int d = 0; d < dimension; d++) {
+                embedding[d] = (float) random.nextGaussian();
+            }
+            index.insert(matrix.put("CHILD_" + i, embedding));
+        }
+        System.out.printf("Incremental build: %.1f us/insert%n", (System.nanoTime() - start) / 1000.0 / gallerySize);
+
+        // Probes are noisy captures of enrolled children
+        int queryCount = 200;
+        float[][] probes = new float[queryCount][dimension];
+        List<List<FaceMatch>> exact = new ArrayList<>();
+        for (int q = 0; q < queryCount; q++) {
+            matrix.copyRow(random.nextInt(gallerySize), probes[q]);
+            for (int d = 0; d < dimension; d++) {
+                probes[q][d] += (float) (random.nextGaussian() * 0.03);
+            }
+            exact.add(matrix.findTopMatches(probes[q], k));
+        }
+        int[] probeIndex = new int[1];
+        measure("exact scan top-" + k, queryCount,
+                () -> matrix.findTopMatches(probes[probeIndex[0]++ % queryCount], k));
+
+        for (int ef : new int[]{16, 32, 64, 128, 256}) {
+            index.setEfSearch(ef);
+            int top1Hits = 0;
+            int topKHits = 0;
+            for (int q = 0; q < queryCount; q++) {
+                List<FaceMatch> approximate = index.findTopMatches(probes[q], k);
+                java.util.Set<String> approximateIds = new java.util.HashSet<>();
+                for (FaceMatch match : approximate) {
+                    approximateIds.add(match.getChildId());
+                }
+                if (!approximate.isEmpty() && approximate.get(0).getChildId().equals(exact.get(q).get(0).getChildId())) {
+                    top1Hits++;
+                }
+                for (FaceMatch match : exact.get(q)) {
+                    if (approximateIds.contains(match.getChildId())) {
+                        topKHits++;
+                    }
+                }
+            }
+            System.out.printf("efSearch %-4d recall@1 %.3f recall@%d %.3f%n",
+                    ef, top1Hits / (double) queryCount, k, topKHits / (double) (queryCount * k));
+            measure("  hnsw top-" + k + " efSearch " + ef, queryCount * 5,
+                    () -> index.findTopMatches(probes[probeIndex[0]++ % queryCount], k));
+        }
+
+        // Re-enrolment replaces rows in place - the graph must find the new faces, not the old neighbourhoods
+        index.setEfSearch(64);
+        int reenrolled = Math.max(1, gallerySize / 20);
+        start = System.nanoTime();
+        for (int i = 0; i < reenrolled; i++) {
+            for (int d = 0; d < dimension; d++) {
+                embedding[d] = (float) random.nextGaussian();
+            }
+            index.relink(matrix.put("CHILD_" + (i * 20), embedding));
+        }
+        long relinkNanos = System.nanoTime() - start;
+        int top1Hits = 0;
+        for (int i = 0; i < reenrolled; i++) {
+            matrix.copyRow(i * 20, probes[0]);
+            for (int d = 0; d < dimension; d++) {
+                probes[0][d] += (float) (random.nextGaussian() * 0.03);
+            }
+            List<FaceMatch> approximate = index.findTopMatches(probes[0], 1);
+            if (!approximate.isEmpty() && approximate.get(0).getChildId().equals("CHILD_" + (i * 20))) {
+                top1Hits++;
+            }
+        }
+        System.out.printf("Re-enrolled %d: %.1f us/relink, recall@1 of new faces %.3f%n",
+                reenrolled, relinkNanos / 1000.0 / reenrolled, top1Hits / (double) reenrolled);
+    }
+
+    /**
+     * Recognition pipeline - many cameras submitting concurrently, synchronous path for comparison
+     */
+    static void benchmarkRecognitionPipeline() {
+        System.out.println("\n--- RecognitionPipeline ---");
+        FaceRecognitionAndControlSystem recognitionSystem = new FaceRecognitionAndControlSystem("FRS_BENCH", "OP_BENCH");
+        for (int i = 0; i < 5_000; i++) {
+            recognitionSystem.addFaceProfile("CHILD_" + i, new FaceProfile("CHILD_" + i));
+        }
+        int cameraCount = 32;
+        int framesPerCamera = 200;
+        Camera[] cameras = new Camera[cameraCount];
+        for (int c = 0; c < cameraCount; c++) {
+            cameras[c] = new Camera("CAM_" + c, "VEHICLE_" + (c / 4), "Door " + c);
+        }
+
+        long start = System.nanoTime();
+        for (int f = 0; f < framesPerCamera / 10; f++) {
+            for (Camera camera : cameras) {
+                camera.sendImageToRecognition(recognitionSystem);
+            }
+        }
+        double syncSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Synchronous processImage: %.0f frames/s%n", cameraCount * framesPerCamera / 10 / syncSeconds);
+
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            RecognitionPipeline pipeline = new RecognitionPipeline(recognitionSystem, 64, 32, 2, policy,
+                    Runtime.getRuntime().availableProcessors());
+            List<Thread> producers = new ArrayList<>();
+            List<java.util.concurrent.CompletableFuture<RecognitionOutcome>> futures =
+                    java.util.Collections.synchronizedList(new ArrayList<>());
+            start = System.nanoTime();
+            for (Camera camera : cameras) {
+                Thread producer = new Thread(() -> {
+                    for (int f = 0; f < framesPerCamera; f++) {
+                        futures.add(camera.sendImageToRecognition(pipeline));
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                try {
+                    producer.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            long captureNanos = System.nanoTime() - start;
+            int completed = 0;
+            for (java.util.concurrent.CompletableFuture<RecognitionOutcome> future : futures) {
+                try {
+                    future.join();
+                    completed++;
+                } catch (RuntimeException e) {
+                    // dropped by the overflow policy
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Pipeline %-11s: %.0f frames/s matched, capture loop %.1f ms, %d/%d completed%n",
+                    policy, completed / seconds, captureNanos / 1e6, completed, futures.size());
+            pipeline.printMetrics();
+            pipeline.shutdown();
+        }
+
+        // Change-detecting camera on the pipeline: skipped frames are told apart from unidentified ones
+        RecognitionPipeline pipeline = new RecognitionPipeline(recognitionSystem);
+        Camera doorCamera = new Camera("CAM_DOOR", "VEHICLE_0", "Door");
+        doorCamera.enableChangeDetection();
+        int skipped = 0;
+        int matched = 0;
+        for (int f = 0; f < 50; f++) {
+            RecognitionOutcome outcome = doorCamera.sendImageToRecognition(pipeline).join();
+            if (outcome.isSkipped()) {
+                skipped++;
+            } else {
+                matched++;
+            }
+        }
+        System.out.println("Change-detecting camera: " + matched + " matched, " + skipped + " skipped, " +
+                           doorCamera.getChangeDetector());
+        pipeline.shutdown();
+    }
+
+    /**
+     * Activity logging - synchronous concatenate-and-println versus the ring-buffer logger
+     */
+    static void benchmarkActivityLogging() {
+        System.out.println("\n--- ActivityLogger ---");
+        int records = 200_000;
+        try {
+            java.io.File syncFile = java.io.File.createTempFile("activity-sync", ".log");
+            java.io.File asyncFile = java.io.File.createTempFile("activity-async", ".log");
+            syncFile.deleteOnExit();
+            asyncFile.deleteOnExit();
+
+            // Before: the string is built and written on the caller's thread
+            java.io.PrintStream syncOut = new java.io.PrintStream(new java.io.FileOutputStream(syncFile), true);
+            LatencyHistogram syncLatency = new LatencyHistogram();
+            measure("logActivity synchronous println", records, () -> {
+                long start = System.nanoTime();
+                syncOut.println("LOG: [" + LocalDateTime.now() + "] System: FRS_BENCH | Activity: DRIVER_REPORT" +
+                                " | Child: CHILD_001 | Operator: OP_BENCH");
+                syncLatency.record(System.nanoTime() - start);
+                return syncOut;
+            });
+            System.out.println("  per call: " + syncLatency);
+            syncOut.close();
+
+            // After: the caller only fills a preallocated ring slot
+            ActivityLogger logger = new ActivityLogger(
+                    new java.io.BufferedWriter(new java.io.FileWriter(asyncFile), 64 * 1024), 1 << 16, LogLevel.INFO);
+            LatencyHistogram asyncLatency = new LatencyHistogram();
+            measure("logActivity ring buffer", records, () -> {
+                long start = System.nanoTime();
+                boolean logged = logger.log(ActivityCode.DRIVER_REPORT, "FRS_BENCH", "CHILD_001", "OP_BENCH");
+                asyncLatency.record(System.nanoTime() - start);
+                return logged;
+            });
+            System.out.println("  per call: " + asyncLatency);
+            logger.awaitDrained(10_000);
+            System.out.println("  written=" + logger.getWritten() + " dropped=" + logger.getDropped());
+            logger.setLevel(LogLevel.WARN);
+            measure("logActivity below level (WARN gated)", records,
+                    () -> logger.log(ActivityCode.STATUS_REPORT, "FRS_BENCH", "CHILD_001", "OP_BENCH"));
+            logger.close();
+
+            // Stalled disk: every write takes 1 ms - callers still return immediately, overflow is dropped
+            ActivityLogger stalled = new ActivityLogger(new java.io.Writer() {
+                @Override public void write(char[] buffer, int offset, int length) {
+                    java.util.concurrent.locks.LockSupport.parkNanos(1_000_000);
+                }
+                @Override public void flush() { }
+                @Override public void close() { }
+            }, 1 << 10, LogLevel.INFO);
+            LatencyHistogram stalledLatency = new LatencyHistogram();
+            for (int i = 0; i < records; i++) {
+                long start = System.nanoTime();
+                stalled.log(ActivityCode.DRIVER_REPORT, "FRS_BENCH", "CHILD_001", "OP_BENCH");
+                stalledLatency.record(System.nanoTime() - start);
+            }
+            System.out.println("logActivity with stalled disk per call: " + stalledLatency);
+            System.out.println("  dropped=" + stalled.getDropped() + " of " + records);
+        } catch (java.io.IOException e) {
+            System.err.println("Logging benchmark failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * GPS - a proxy constructed and polled per call versus fixes pushed through the coalescing feed
+     */
+    static void benchmarkGpsFeed() {
+        System.out.println("\n--- GPS feed ---");
+        ChildRegistry registry = new ChildRegistry(1024);
+        LocationTracker pollingTracker = new LocationTracker("LT_POLL", "VEHICLE_BENCH", registry);
+        for (int i = 0; i < 100; i++) {
+            pollingTracker.startTracking("CHILD_" + i);
+        }
+        measure("getCurrentLocation polling proxy, 100 children", 20_000, pollingTracker::getCurrentLocation);
+
+        GpsFeed feed = new GpsFeed("GPS_BENCH");
+        LocationTracker pushedTracker = new LocationTracker("LT_PUSH", "VEHICLE_BENCH", registry);
+        for (int i = 0; i < 100; i++) {
+            pushedTracker.startTracking("CHILD_" + i);
+        }
+        pushedTracker.attachGpsFeed(feed);
+        Location fix = new Location(32.0853, 34.7818, "GPS fix VEHICLE_BENCH");
+        measure("publish fix (burst), 100 children tracked", 200_000, () -> {
+            feed.publish("VEHICLE_BENCH", fix);
+            return feed;
+        });
+        feed.awaitIdle(5_000);
+        System.out.println("  published=" + feed.getPublished() + " delivered=" + feed.getDelivered() +
+                           " coalesced=" + feed.getCoalesced());
+        measure("getCurrentLocation with feed attached", 200_000, pushedTracker::getCurrentLocation);
+
+        // Fleet: many vehicles at 10 Hz each - one dispatcher thread keeps up, bursts collapse per vehicle
+        GpsFeed fleetFeed = new GpsFeed("GPS_FLEET_BENCH");
+        String[] vehicleIds = new String[1_000];
+        for (int i = 0; i < vehicleIds.length; i++) {
+            vehicleIds[i] = "VEHICLE_" + i;
+        }
+        java.util.concurrent.atomic.AtomicLong received = new java.util.concurrent.atomic.AtomicLong();
+        fleetFeed.subscribeAll((vehicleId, location) -> received.incrementAndGet());
+        SimulatedGpsSource source = new SimulatedGpsSource(fleetFeed, 10.0, 42L, vehicleIds);
+        measure("publish round, 1000 vehicles", 2_000, () -> {
+            source.publishRound();
+            return source;
+        });
+        fleetFeed.awaitIdle(5_000);
+        System.out.println("  published=" + fleetFeed.getPublished() + " delivered=" + received.get() +
+                           " coalesced=" + fleetFeed.getCoalesced());
+        feed.close();
+        fleetFeed.close();
+    }
+
+    /**
+     * Proximity queries - grid index versus scanning every vehicle position
+     */
+    static void benchmarkSpatialIndex(int vehicleCount) {
+        System.out.println("\n--- Spatial index, " + vehicleCount + " vehicles ---");
+        java.util.Random random = new java.util.Random(5);
+        SpatialIndex index = new SpatialIndex(250);
+        String[] vehicleIds = new String[vehicleCount];
+        Location[] positions = new Location[vehicleCount];
+        for (int i = 0; i < vehicleCount; i++) {
+            vehicleIds[i] = "VEHICLE_" + i;
+            positions[i] = new Location(32.0853 + (random.nextDouble() - 0.5) * 0.3,
+                                        34.7818 + (random.nextDouble() - 0.5) * 0.3, "GPS fix");
+            index.update(vehicleIds[i], positions[i]);
+        }
+        Location school = new Location(32.0853, 34.7818, "Elementary School");
+
+        // One second of fixes: every vehicle moves a few metres
+        int[] next = {0};
+        measure("update (1 fix)", vehicleCount * 5, () -> {
+            int i = next[0]++ % vehicleCount;
+            Location moved = new Location(positions[i].getLatitude() + (random.nextDouble() - 0.5) * 0.0002,
+                                          positions[i].getLongitude() + (random.nextDouble() - 0.5) * 0.0002, "GPS fix");
+            positions[i] = moved;
+            index.update(vehicleIds[i], moved);
+            return moved;
+        });
+
+        Object naive = measure("naive scan, within 300 m", 2_000, () -> {
+            List<SpatialMatch> matches = new ArrayList<>();
+            for (int i = 0; i < vehicleCount; i++) {
+                double distance = SpatialIndex.distanceMeters(school.getLatitude(), school.getLongitude(),
+                        positions[i].getLatitude(), positions[i].getLongitude());
+                if (distance <= 300) {
+                    matches.add(new SpatialMatch(vehicleIds[i], positions[i], distance));
+                }
+            }
+            matches.sort(null);
+            return matches;
+        });
+        Object indexed = measure("grid index, within 300 m", 20_000, () -> index.findWithin(school, 300));
+        System.out.println("  matches: naive=" + ((List<?>) naive).size() + " index=" + ((List<?>) indexed).size() +
+                           " (" + index.getCellCount() + " cells)");
+
+        measure("naive scan, 5 nearest", 2_000, () -> {
+            List<SpatialMatch> matches = new ArrayList<>(vehicleCount);
+            for (int i = 0; i < vehicleCount; i++) {
+                matches.add(new SpatialMatch(vehicleIds[i], positions[i], SpatialIndex.distanceMeters(
+                        school.getLatitude(), school.getLongitude(), positions[i].getLatitude(), positions[i].getLongitude())));
+            }
+            matches.sort(null);
+            return matches.subList(0, 5);
+        });
+        measure("grid index, 5 nearest", 20_000, () -> index.findNearest(school, 5));
+
+        // ProximityService attached to a live feed: the replay of last fixes races the fixes still arriving
+        int feedVehicles = Math.min(vehicleCount, 2_000);
+        GpsFeed feed = new GpsFeed("GPS_SPATIAL");
+        for (int i = 0; i < feedVehicles; i++) {
+            feed.publish(vehicleIds[i], positions[i]);
+        }
+        feed.awaitIdle(5_000);
+        java.util.concurrent.atomic.AtomicBoolean moving = new java.util.concurrent.atomic.AtomicBoolean(true);
+        Thread publisher = new Thread(() -> {
+            for (int step = 1; moving.get(); step++) {
+                for (int i = 0; i < feedVehicles; i++) {
+                    feed.publish(vehicleIds[i], new Location(positions[i].getLatitude() + step * 0.00001,
+                                                             positions[i].getLongitude(), "GPS fix"));
+                }
+            }
+        }, "gps-publisher");
+        publisher.start();
+        ProximityService proximity = new ProximityService();
+        long attachStart = System.nanoTime();
+        proximity.attachGpsFeed(feed);
+        long attachNanos = System.nanoTime() - attachStart;
+        java.util.concurrent.locks.LockSupport.parkNanos(50_000_000L);
+        moving.set(false);
+        try {
+            publisher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        feed.awaitIdle(5_000);
+        int stale = 0;
+        for (int i = 0; i < feedVehicles; i++) {
+            if (proximity.getVehicleIndex().getLocation(vehicleIds[i]) != feed.getLastFix(vehicleIds[i])) {
+                stale++;
+            }
+        }
+        if (stale > 0) {
+            throw new IllegalStateException(stale + " vehicles left on an older fix after attachGpsFeed");
+        }
+        ChildRegistry registry = new ChildRegistry(16);
+        LocationTracker tracker = new LocationTracker("LT_SPATIAL", vehicleIds[0], registry);
+        tracker.startTracking("CHILD_1");
+        proximity.registerTracker(tracker);
+        Location nearVehicle = proximity.getVehicleIndex().getLocation(vehicleIds[0]);
+        measure("ProximityService children within 300 m", 20_000, () -> proximity.findChildrenNear(nearVehicle, 300));
+        System.out.printf("  attachGpsFeed with %d vehicles: %.1f ms, all on their latest fix, children near %s: %s%n",
+                          feedVehicles, attachNanos / 1e6, vehicleIds[0], proximity.findChildrenNear(nearVehicle, 300));
+        proximity.detachGpsFeed();
+        feed.close();
+    }
+
+    /**
+     * Morning peak - 20 location updates for each of 1000 children, sent directly versus through the dispatcher
+     */
+    static void benchmarkNotificationDispatch() {
+        System.out.println("\n--- Parent notifications ---");
+        int children = 1_000;
+        int updatesPerChild = 20;
+        ParentNotificationProxy proxy = new ParentNotificationProxy("PNP_BENCH");
+        Location location = new Location(32.0853, 34.7818, "School Bus - Route 1");
+        LocalDateTime timestamp = LocalDateTime.now();
+
+        int[] next = {0};
+        long[] failed = {0};
+        measure("sendSMS per update (direct, no retry)", children * updatesPerChild, () -> {
+            int child = next[0]++ % children;
+            boolean sent = proxy.sendSMSToParent("PARENT_" + child, "Location update: Child CHILD_" + child +
+                                                 " is at " + location.getDescription() + " at " + timestamp.toLocalTime());
+            if (!sent) {
+                failed[0]++;
+            }
+            return sent;
+        });
+        System.out.println("  messages=" + 2L * children * updatesPerChild + " lost=" + failed[0]);
+
+        NotificationDispatcher dispatcher = new NotificationDispatcher(proxy, 200, 20, 100, 5, 10, 1_000, 100_000);
+        next[0] = 0;
+        measure("submit SMS update (dispatcher)", children * updatesPerChild, () -> {
+            int child = next[0]++ % children;
+            return dispatcher.submit(NotificationChannel.SMS, "PARENT_" + child, "CHILD_" + child,
+                                     "Location update: Child CHILD_" + child + " is at " + location.getDescription() +
+                                     " at " + timestamp.toLocalTime());
+        });
+        boolean idle = dispatcher.awaitIdle(30_000);
+        System.out.println("  " + dispatcher + (idle ? "" : " (still in flight)"));
+        dispatcher.close(1_000);
+
+        // Close while every message waits for a retry - the pending retries must be counted as dropped
+        NotificationDispatcher failing = new NotificationDispatcher(new ParentNotificationProxy("PNP_DOWN") {
+            @Override
+            public boolean sendSMSToParent(String parentId, String message) {
+                return false;
+            }
+        }, 10, 5, 100, 5, 10_000, 10_000, 100_000);
+        for (int child = 0; child < 100; child++) {
+            failing.submit(NotificationChannel.SMS, "PARENT_" + child, "CHILD_" + child, "Arrived at school");
+        }
+        java.util.concurrent.locks.LockSupport.parkNanos(200_000_000L);
+        failing.close(200);
+        System.out.println("  closed with retries pending: " + failing + " (" +
+                           (failing.getDelivered() + failing.getDropped() + failing.getCoalesced() == failing.getSubmitted()
+                                   ? "all accounted for" : "LOST") + ")");
+    }
+
+    /**
+     * Fleet manager - status events for 2000 vehicles x 30 children per shard count, then snapshot queries
+     */
+    static void benchmarkFleetIdentification(int[] shardCounts) {
+        System.out.println("\n--- FleetIdentificationManager (" + Runtime.getRuntime().availableProcessors() + " cores) ---");
+        int vehicles = 2_000;
+        int childrenPerVehicle = 30;
+        int events = 400_000;
+        ChildRegistry registry = new ChildRegistry(vehicles * childrenPerVehicle);
+        Location location = new Location(32.0853, 34.7818, "Benchmark Location");
+        ChildStatus[] statuses = {ChildStatus.ON_RIDE, ChildStatus.TRACKED_ACTIVE, ChildStatus.CONFIRMED};
+        String[] vehicleIds = new String[vehicles];
+        String[] childIds = new String[vehicles * childrenPerVehicle];
+        for (int v = 0; v < vehicles; v++) {
+            vehicleIds[v] = "VEHICLE_" + v;
+            for (int c = 0; c < childrenPerVehicle; c++) {
+                childIds[v * childrenPerVehicle + c] = "CHILD_" + v + "_" + c;
+                registry.getChild(childIds[v * childrenPerVehicle + c]);
+            }
+        }
+
+        for (int shardCount : shardCounts) {
+            FleetIdentificationManager fleet = new FleetIdentificationManager("FLEET_BENCH", shardCount, registry);
+            for (int round = 0; round < 2; round++) { // first round warms up
+                long start = System.nanoTime();
+                for (int i = 0; i < events; i++) {
+                    int child = i % childIds.length;
+                    fleet.reportChildStatus(vehicleIds[child / childrenPerVehicle], childIds[child],
+                                            statuses[(i / childIds.length) % statuses.length], location);
+                }
+                fleet.sync().join();
+                long elapsed = System.nanoTime() - start;
+                if (round == 1) {
+                    System.out.printf("%-50s %12.0f events/s%n", "reportChildStatus, " + shardCount + " shards",
+                                      events / (elapsed / 1e9));
+                }
+            }
+            if (shardCount == shardCounts[shardCounts.length - 1]) {
+                measure("getActiveIdentifications (snapshot)", 200_000,
+                        () -> fleet.getActiveIdentifications("VEHICLE_7"));
+                measure("findVehicleOf (snapshot scan)", 200, () -> fleet.findVehicleOf("CHILD_1999_29"));
+                measure("countByStatus (snapshot scan)", 20, fleet::countByStatus);
+                System.out.println("  vehicles=" + fleet.getVehicleCount() + " " + fleet.countByStatus());
+            }
+            fleet.shutdown();
+        }
+    }
+
+    /**
+     * Journaled transitions - cost per transition, then recovery with and without snapshots
+     */
+    static void benchmarkIdentificationJournal(int events) {
+        System.out.println("\n--- IdentificationJournal, " + events + " transitions ---");
+        Location location = new Location(32.0853, 34.7818, "Benchmark Location");
+        ChildStatus[] statuses = ChildStatus.values();
+        ChildRegistry registry = new ChildRegistry(10_000);
+        String[] childIds = new String[10_000];
+        for (int i = 0; i < childIds.length; i++) {
+            childIds[i] = "CHILD_" + i;
+            registry.getChild(childIds[i]);
+        }
+        try {
+            java.nio.file.Path directory = java.nio.file.Files.createTempDirectory("journal-bench");
+            for (long snapshotEvery : new long[] {Long.MAX_VALUE, 100_000}) {
+                String name = snapshotEvery == Long.MAX_VALUE ? "nosnap" : "snap";
+                ChildIdentificationManager plain = new ChildIdentificationManager("MGR_BENCH", "VEHICLE_BENCH", registry);
+                ChildIdentificationManager journaled = new ChildIdentificationManager("MGR_BENCH", "VEHICLE_BENCH", registry);
+                journaled.attachJournal(new IdentificationJournal(directory, name, 1 << 18, snapshotEvery));
+                int[] next = {0};
+                if (snapshotEvery == Long.MAX_VALUE) {
+                    measure("reportChildStatus, no journal", events / 2, () -> {
+                        int i = next[0]++;
+                        plain.reportChildStatus(childIds[i % childIds.length], statuses[i % statuses.length], location);
+                        return plain;
+                    });
+                    next[0] = 0;
+                }
+                LatencyHistogram transitionLatency = new LatencyHistogram();
+                measure("reportChildStatus, journal (" + (snapshotEvery == Long.MAX_VALUE ? "no snapshots" :
+                        "snapshot every " + snapshotEvery) + ")", events / 2, () -> {
+                    int i = next[0]++;
+                    long start = System.nanoTime();
+                    journaled.reportChildStatus(childIds[i % childIds.length], statuses[i % statuses.length], location);
+                    transitionLatency.record(System.nanoTime() - start);
+                    return journaled;
+                });
+                System.out.printf("  per transition: p99.9=%.1fus max=%.1fus%n", transitionLatency.getPercentile(99.9) / 1000.0,
+                                  transitionLatency.getMaxNanos() / 1000.0);
+                journaled.getJournal().close();
+
+                long start = System.nanoTime();
+                ChildIdentificationManager restarted = new ChildIdentificationManager("MGR_BENCH", "VEHICLE_BENCH", registry);
+                IdentificationJournal recovered = new IdentificationJournal(directory, name, 1 << 18, snapshotEvery);
+                restarted.attachJournal(recovered);
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("  recovery: %.1f ms, %d records, snapshot #%d, state %s%n", elapsed / 1e6,
+                                  recovered.getLastSequence(), recovered.getLastSnapshotSequence(),
+                                  restarted.getActiveIdentifications().equals(journaled.getActiveIdentifications()) ?
+                                  "matches" : "DIFFERS");
+                recovered.close();
+            }
+            try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(directory)) {
+                files.forEach(file -> file.toFile().delete());
+            }
+            java.nio.file.Files.deleteIfExists(directory);
+        } catch (java.io.IOException e) {
+            System.err.println("Journal benchmark failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Identification state - Map<String, String> versus ChildStateTable: retained heap, transitions, state queries
+     */
+    static void benchmarkStateTable(int childCount) {
+        System.out.println("\n--- Identification state, " + childCount + " children ---");
+        String[] childIds = new String[childCount];
+        for (int i = 0; i < childCount; i++) {
+            childIds[i] = "CHILD_" + i;
+        }
+        IdentificationState[] states = {IdentificationState.ON_RIDE, IdentificationState.TRACKED_ACTIVE,
+                                         IdentificationState.CONFIRMED, IdentificationState.TRACKING_STARTED};
+
+        long before = usedHeap();
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < childCount; i++) {
+            map.put(childIds[i], states[i % states.length].name());
+        }
+        long mapBytes = usedHeap() - before;
+
+        before = usedHeap();
+        ChildStateTable table = new ChildStateTable();
+        for (int i = 0; i < childCount; i++) {
+            table.transition(childIds[i], states[i % states.length]);
+        }
+        long tableBytes = usedHeap() - before;
+        System.out.printf("%-50s %12.1f MB %10.1f B/child%n", "HashMap<String, String> retained",
+                          mapBytes / 1_048_576.0, (double) mapBytes / childCount);
+        System.out.printf("%-50s %12.1f MB %10.1f B/child%n", "ChildStateTable retained",
+                          tableBytes / 1_048_576.0, (double) tableBytes / childCount);
+
+        int[] next = {0};
+        measure("transition, HashMap", 1_000_000, () -> {
+            int i = next[0]++;
+            return map.put(childIds[i % childCount], states[(i / childCount + i) % states.length].toString());
+        });
+        next[0] = 0;
+        measure("transition, ChildStateTable", 1_000_000, () -> {
+            int i = next[0]++;
+            return table.transition(childIds[i % childCount], states[(i / childCount + i) % states.length]);
+        });
+        measure("count ON_RIDE, HashMap scan", 10, () -> {
+            int count = 0;
+            for (String state : map.values()) {
+                if (state.equals("ON_RIDE")) {
+                    count++;
+                }
+            }
+            return count;
+        });
+        measure("count ON_RIDE, bitset", 1_000, () -> table.countIn(IdentificationState.ON_RIDE));
+        measure("isIn(ON_RIDE), ChildStateTable", 1_000_000,
+                () -> table.isIn(childIds[next[0]++ % childCount], IdentificationState.ON_RIDE));
+        System.out.println("  " + table.countIn(IdentificationState.ON_RIDE) + " children ON_RIDE, " +
+                           table.getRejectedTransitions() + " rejected transitions, map size " + map.size());
+        checkTransitionRules();
+    }
+
+    /**
+     * Every (from, to) pair through ChildStateTable: illegal pairs are rejected and leave the state alone,
+     * the door and status flows the simulator, server and journal benchmark rely on are accepted
+     */
+    static void checkTransitionRules() {
+        IdentificationState[] all = IdentificationState.values();
+        int rejected = 0;
+        for (int from = -1; from < all.length; from++) {
+            for (IdentificationState to : all) {
+                ChildStateTable table = new ChildStateTable();
+                IdentificationState current = from < 0 ? null : all[from];
+                if (current != null) {
+                    table.set("CHILD", current);
+                }
+                boolean accepted = table.transition("CHILD", to);
+                if (accepted != IdentificationState.isLegal(current, to)
+                        || table.getState("CHILD") != (accepted ? to : current)) {
+                    throw new IllegalStateException("Transition " + current + " -> " + to + " mishandled");
+                }
+                if (!accepted) {
+                    rejected++;
+                }
+            }
+        }
+        IdentificationState[][] illegal = {
+            {null, IdentificationState.ENTERED}, {null, IdentificationState.EXITED},
+            {IdentificationState.TRACKING_STARTED, IdentificationState.EXITED},
+            {IdentificationState.ENTERED, IdentificationState.ENTERED},
+            {IdentificationState.ON_RIDE, IdentificationState.ENTERED},
+            {IdentificationState.EXITED, IdentificationState.EXITED},
+            {IdentificationState.NOT_ON_RIDE, IdentificationState.EXITED},
+            {IdentificationState.ENTERED, IdentificationState.NOT_ON_RIDE},
+            {IdentificationState.EXITED, IdentificationState.ON_RIDE}};
+        for (IdentificationState[] pair : illegal) {
+            if (IdentificationState.isLegal(pair[0], pair[1])) {
+                throw new IllegalStateException("Transition " + pair[0] + " -> " + pair[1] + " must be rejected");
+            }
+        }
+        IdentificationState[][] flows = {
+            {IdentificationState.TRACKING_STARTED, IdentificationState.ENTERED, IdentificationState.EXITED,
+             IdentificationState.ENTERED, IdentificationState.EXITED, IdentificationState.TRACKING_STARTED},
+            {IdentificationState.TRACKING_STARTED, IdentificationState.TRACKED_ACTIVE, IdentificationState.CONFIRMED},
+            {IdentificationState.ON_RIDE, IdentificationState.ON_RIDE, IdentificationState.TRACKED_ACTIVE,
+             IdentificationState.CONFIRMED, IdentificationState.ON_RIDE, IdentificationState.TRACKING_STARTED}};
+        for (IdentificationState[] flow : flows) {
+            ChildStateTable table = new ChildStateTable();
+            for (IdentificationState state : flow) {
+                if (!table.transition("CHILD", state)) {
+                    throw new IllegalStateException("Flow " + java.util.Arrays.toString(flow) + " rejected at " + state);
+                }
+            }
+        }
+        // A rejected status report is reported back to the caller and leaves the child untouched
+        ChildRegistry registry = new ChildRegistry(1);
+        ChildIdentificationManager manager = new ChildIdentificationManager("MGR_RULES", "VEHICLE_RULES", registry);
+        manager.trackChild("CHILD_RULES");
+        manager.processChildEntry("CHILD_RULES");
+        manager.processChildExit("CHILD_RULES");
+        Location location = new Location(32.0853, 34.7818, "Benchmark Location");
+        if (manager.reportChildStatus("CHILD_RULES", ChildStatus.ON_RIDE, location)
+                || registry.getChild("CHILD_RULES").getCurrentStatus() == ChildStatus.ON_RIDE) {
+            throw new IllegalStateException("ON_RIDE after EXITED must be rejected");
+        }
+        System.out.println("  transition rules: " + (all.length + 1) * all.length + " pairs checked, " + rejected +
+                           " illegal rejected, " + flows.length + " flows accepted, report after exit rejected");
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Frames at 30 fps from many cameras - a fresh heap array per frame versus pooled direct frames
+     * Each frame is held by the camera and a recognition consumer (retain/release), as in the pipeline.
+     */
+    static void benchmarkFrameBuffers(int cameras, int seconds) {
+        System.out.println("\n--- Frame buffers, " + cameras + " cameras x 30 fps x " + seconds + " s ---");
+        int frames = cameras * 30 * seconds;
+        int frameBytes = FramePool.frameBytes("1920x1080");
+        long[] checksum = {0};
+
+        Object[] inFlight = new Object[cameras]; // one frame per camera waiting for recognition
+        int[] next = {0};
+        measure("heap byte[] per frame", frames, () -> {
+            int camera = next[0]++ % cameras;
+            byte[] pixels = new byte[frameBytes];
+            pixels[0] = (byte) camera;
+            inFlight[camera] = pixels;
+            checksum[0] += pixels[0];
+            return pixels;
+        });
+
+        FramePool pool = new FramePool(cameras * 2, 8);
+        Camera[] cameraList = new Camera[cameras];
+        for (int i = 0; i < cameras; i++) {
+            cameraList[i] = new Camera("CAM_" + i, "VEHICLE_BENCH", "Front Door", "1920x1080", pool);
+        }
+        Image[] waiting = new Image[cameras];
+        next[0] = 0;
+        measure("pooled direct frame per capture", frames, () -> {
+            int camera = next[0]++ % cameras;
+            Image image = cameraList[camera].captureImage();
+            image.retain();                              // recognition consumer
+            if (waiting[camera] != null) {
+                waiting[camera].release();               // consumer done with the previous frame
+            }
+            waiting[camera] = image;
+            image.release();                             // camera done
+            checksum[0] += image.getFrame().getBuffer().get(0);
+            return image;
+        });
+        for (Image image : waiting) {
+            image.release();
+        }
+        System.out.println("  " + pool + (checksum[0] == 0 ? "" : ""));
+    }
+
+    /**
+     * Door camera of a parked bus - recognition of every frame versus only frames with scene change
+     * 30 fps: 10 s of an empty doorway with sensor noise, then 1 s of a child boarding, repeated.
+     */
+    static void benchmarkChangeDetection(int frames) {
+        System.out.println("\n--- Change detection, 1080p door camera, " + frames + " frames ---");
+        FaceRecognitionAndControlSystem recognitionSystem = new FaceRecognitionAndControlSystem("FRS_BENCH", "OP_BENCH");
+        for (int i = recognitionSystem.getEmbeddingMatrix().size(); i < 5_000; i++) {
+            recognitionSystem.addFaceProfile("CHILD_" + i, new FaceProfile("CHILD_" + i));
+        }
+        int width = 1920;
+        int height = 1080;
+        java.util.Random random = new java.util.Random(5);
+        ByteBuffer[] still = new ByteBuffer[8];
+        ByteBuffer[] boarding = new ByteBuffer[8];
+        for (int i = 0; i < still.length; i++) {
+            still[i] = syntheticFrame(width, height, -1, random);
+            boarding[i] = syntheticFrame(width, height, i * width / 10, random);
+        }
+        ByteBuffer[] sequence = new ByteBuffer[frames];
+        for (int f = 0; f < frames; f++) {
+            sequence[f] = f % 330 < 300 ? still[f % still.length] : boarding[(f / 4) % boarding.length];
+        }
+        Image image = new Image("IMG_DOOR");
+
+        int[] next = {0};
+        measure("recognize every frame", frames, () -> recognitionSystem.processImage(image));
+
+        ChangeDetector detector = new ChangeDetector(width + "x" + height);
+        measure("change detection only", frames, () -> {
+            int f = next[0]++ % frames;
+            return detector.shouldForward(sequence[f], f * 33L);
+        });
+
+        ChangeDetector filter = new ChangeDetector(width + "x" + height);
+        next[0] = 0;
+        measure("change detection + recognize changed frames", frames, () -> {
+            int f = next[0]++ % frames;
+            if (!filter.shouldForward(sequence[f], f * 33L)) {
+                return null;
+            }
+            long start = System.nanoTime();
+            String childId = recognitionSystem.processImage(image);
+            filter.recordRecognition(System.nanoTime() - start);
+            return childId;
+        });
+        System.out.println("  " + filter);
+    }
+
+    /**
+     * processImage with and without the result cache - each appearance of a child yields 8
+     * near-identical frames (2 cameras x 4 re-sends), with a 5000-child gallery
+     */
+    static void benchmarkRecognitionCache(int appearances) {
+        System.out.println("\n--- Recognition result cache, " + appearances + " appearances x 8 frames ---");
+        FaceRecognitionAndControlSystem recognitionSystem = new FaceRecognitionAndControlSystem("FRS_BENCH", "OP_BENCH");
+        for (int i = recognitionSystem.getEmbeddingMatrix().size(); i < 5_000; i++) {
+            recognitionSystem.addFaceProfile("CHILD_" + i, new FaceProfile("CHILD_" + i));
+        }
+        java.util.Random random = new java.util.Random(21);
+        int frames = appearances * 8;
+        Image[] images = new Image[frames];
+        for (int a = 0; a < appearances; a++) {
+            float[] face = new float[FaceProfile.EMBEDDING_DIMENSION];
+            recognitionSystem.getEmbeddingMatrix().copyRow(random.nextInt(5_000), face);
+            for (int d = 0; d < face.length; d++) {
+                face[d] += (float) (random.nextGaussian() * 0.03);
+            }
+            for (int f = 0; f < 8; f++) {
+                float[] frame = face.clone();
+                for (int d = 0; d < frame.length; d++) {
+                    frame[d] += (float) (random.nextGaussian() * 0.002); // sensor noise between re-sends
+                }
+                images[a * 8 + f] = new Image("IMG_CACHE_" + a + "_" + f);
+                images[a * 8 + f].setFaceEmbedding(frame);
+            }
+        }
+
+        String[] expected = new String[frames];
+        int[] next = {0};
+        measure("processImage, no cache", frames, () -> {
+            int f = next[0]++ % frames;
+            expected[f] = recognitionSystem.processImage(images[f]);
+            return expected[f];
+        });
+
+        RecognitionCache cache = new RecognitionCache(10_000, 60_000, 3);
+        recognitionSystem.setResultCache(cache);
+        int[] disagreements = {0};
+        next[0] = 0;
+        measure("processImage, result cache", frames, () -> {
+            int f = next[0]++ % frames;
+            if (f == 0) {
+                cache.clear(); // warm-up and measured pass both start cold
+            }
+            String childId = recognitionSystem.processImage(images[f]);
+            if (!java.util.Objects.equals(childId, expected[f])) {
+                disagreements[0]++;
+            }
+            return childId;
+        });
+        System.out.println("  " + cache + " disagreements=" + disagreements[0]);
+        recognitionSystem.setResultCache(null);
+    }
+
+    /**
+     * Burst capture through CameraProxy - one camera after another versus all in parallel
+     * Cameras take 20-40 ms per frame; in the second run one camera is off and one hangs.
+     */
+    static void benchmarkBurstCapture(int[] cameraCounts) {
+        System.out.println("\n--- CameraProxy burst capture, 20-40 ms per camera ---");
+        for (int cameraCount : cameraCounts) {
+            List<Camera> cameras = new ArrayList<>();
+            for (int c = 0; c < cameraCount; c++) {
+                cameras.add(new SlowCamera("CAM_" + c, 20 + 20L * c / Math.max(1, cameraCount - 1)));
+            }
+            CameraProxy proxy = new CameraProxy("PROXY_BENCH", cameras, 100);
+            measure(cameraCount + " cameras, sequential", 10, () -> {
+                for (Camera camera : cameras) {
+                    camera.captureImage().release();
+                }
+                return null;
+            });
+            measure(cameraCount + " cameras, parallel burst", 10, () -> {
+                MultiFrameCapture capture = proxy.captureBurst();
+                capture.release();
+                return capture;
+            });
+
+            cameras.get(0).setActive(false);
+            ((SlowCamera) cameras.get(cameraCount - 1)).latencyMillis = 1_000;
+            MultiFrameCapture last = null;
+            for (int i = 0; i < 5; i++) {
+                last = proxy.captureBurst();
+                last.release();
+            }
+            System.out.println("  degraded: " + last);
+            System.out.println("  " + proxy.getHealth("CAM_" + (cameraCount - 1)));
+            proxy.shutdown();
+        }
+
+        // Captures finishing right at the timeout: each one is recorded once, as a success or as a timeout
+        SlowCamera borderline = new SlowCamera("CAM_EDGE", 99);
+        CameraProxy edgeProxy = new CameraProxy("PROXY_EDGE", List.of(borderline), 100);
+        int captures = 0;
+        int timedOut = 0;
+        for (int i = 0; i < 30; i++) {
+            MultiFrameCapture capture = edgeProxy.captureBurst();
+            captures += capture.getImages().size() + capture.getFailures().size();
+            timedOut += capture.getFailures().size();
+            capture.release();
+        }
+        java.util.concurrent.locks.LockSupport.parkNanos(200_000_000L);
+        CameraHealth edgeHealth = edgeProxy.getHealth("CAM_EDGE");
+        System.out.printf("  borderline camera: %d captures, %d timed out, health %d successes + %d failures%n",
+                          captures, timedOut, edgeHealth.getSuccesses(), edgeHealth.getFailures());
+        edgeProxy.shutdown();
+
+        // A hung primary on the single-frame path fails over after the timeout
+        SlowCamera hung = new SlowCamera("CAM_HUNG", 60_000);
+        SlowCamera spare = new SlowCamera("CAM_SPARE", 5);
+        CameraProxy failover = new CameraProxy("PROXY_FAILOVER", List.of(hung, spare), 100);
+        long failoverStart = System.nanoTime();
+        Image image = failover.captureImage();
+        System.out.printf("  hung primary: %s after %.0f ms%n", image != null ? image.getImageId() : "no frame",
+                          (System.nanoTime() - failoverStart) / 1e6);
+        if (image != null) {
+            image.release();
+        }
+
+        // An interrupted burst returns at once and gives a half-open camera's probe back
+        spare.setActive(false);
+        failover.getHealth("CAM_SPARE").recordStatus(spare.getStatus(), System.currentTimeMillis() - 60_000);
+        spare.setActive(true);
+        spare.latencyMillis = 50;
+        long burstStart = System.nanoTime();
+        Thread.currentThread().interrupt();
+        MultiFrameCapture interruptedBurst = failover.captureBurst();
+        boolean interruptKept = Thread.interrupted();
+        interruptedBurst.release();
+        CameraHealth spareHealth = failover.getHealth("CAM_SPARE");
+        System.out.printf("  interrupted burst: %.1f ms, %s, interrupt kept %b, spare %s and %s%n",
+                          (System.nanoTime() - burstStart) / 1e6, interruptedBurst.getFailures(), interruptKept,
+                          spareHealth.getState(), spareHealth.isAvailable(System.currentTimeMillis()) ? "available" : "stuck");
+        failover.shutdown();
+    }
+
+    /**
+     * Camera with a simulated exposure and transfer time
+     */
+    static class SlowCamera extends Camera {
+        volatile long latencyMillis;
+
+        SlowCamera(String cameraId, long latencyMillis) {
+            super(cameraId, "VEHICLE_BENCH", "Door", "1280x720", FramePool.getShared());
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public Image captureImage() {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.captureImage();
+        }
+    }
+
+    /**
+     * ETA queries over a synthetic grid city - node-to-node A* with landmarks versus Dijkstra, position-to-place
+     * lookups on one and many threads, and incremental ETA updates from a GPS feed
+     */
+    static void benchmarkEtaEngine(int gridSize, int[] threadCounts) {
+        System.out.println("\n--- ETA engine, " + gridSize + "x" + gridSize + " grid city ---");
+        java.nio.file.Path samplePath = java.nio.file.Path.of(System.getProperty("benchmark.roadGraph", "data/roads_tel_aviv.txt"));
+        if (java.nio.file.Files.exists(samplePath)) {
+            EtaEngine sample = new EtaEngine(RoadGraph.load(samplePath));
+            System.out.println("  " + samplePath + ": " + sample.getGraph() + ", Tel Aviv Center -> School 1 " +
+                               sample.secondsTo(32.0853, 34.7818, "School 1") + " s");
+        }
+
+        long buildStart = System.nanoTime();
+        RoadGraph graph = RoadGraph.grid(gridSize, gridSize, 150, 32.0853, 34.7818, 3).build();
+        EtaEngine engine = new EtaEngine(graph);
+        System.out.printf("  %s, engine ready in %.0f ms (%d landmarks, %d place trees)%n", graph,
+                          (System.nanoTime() - buildStart) / 1e6, engine.getLandmarks().length, engine.getDestinationTreeCount());
+
+        java.util.Random random = new java.util.Random(8);
+        int pairs = 200;
+        int[] from = new int[pairs];
+        int[] to = new int[pairs];
+        for (int i = 0; i < pairs; i++) {
+            from[i] = random.nextInt(graph.size());
+            to[i] = random.nextInt(graph.size());
+        }
+        int[] next = {0};
+        long[] settled = {0};
+        measure("node-to-node, Dijkstra", pairs, () -> {
+            int i = next[0]++ % pairs;
+            int result = engine.search(from[i], to[i], false);
+            settled[0] += engine.getLastSettledCount();
+            return result;
+        });
+        long dijkstraSettled = settled[0] / (2 * pairs);
+        settled[0] = 0;
+        measure("node-to-node, A* with landmarks", pairs, () -> {
+            int i = next[0]++ % pairs;
+            int result = engine.search(from[i], to[i], true);
+            settled[0] += engine.getLastSettledCount();
+            return result;
+        });
+        System.out.println("  settled nodes per query: Dijkstra " + dijkstraSettled + ", ALT " + settled[0] / (2 * pairs));
+
+        int queryCount = 100_000;
+        String[] places = graph.getPlaces().keySet().toArray(new String[0]);
+        double[] latitudes = new double[queryCount];
+        double[] longitudes = new double[queryCount];
+        String[] destinations = new String[queryCount];
+        for (int i = 0; i < queryCount; i++) {
+            int node = random.nextInt(graph.size());
+            latitudes[i] = graph.getLatitude(node) + (random.nextDouble() - 0.5) * 0.001;
+            longitudes[i] = graph.getLongitude(node) + (random.nextDouble() - 0.5) * 0.001;
+            destinations[i] = places[random.nextInt(places.length)];
+        }
+        measure("position-to-place ETA", queryCount, () -> {
+            int i = next[0]++ % queryCount;
+            return engine.secondsTo(latitudes[i], longitudes[i], destinations[i]);
+        });
+
+        for (int threads : threadCounts) {
+            java.util.concurrent.atomic.LongAdder answered = new java.util.concurrent.atomic.LongAdder();
+            long deadline = System.nanoTime() + 1_000_000_000L;
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                int offset = t * 7919;
+                workers[t] = new Thread(() -> {
+                    long count = 0;
+                    for (int i = offset; System.nanoTime() < deadline; i++) {
+                        int q = i % queryCount;
+                        engine.secondsTo(latitudes[q], longitudes[q], destinations[q]);
+                        count++;
+                    }
+                    answered.add(count);
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            System.out.printf("  %d threads: %,d ETA queries/s%n", threads, answered.sum());
+        }
+
+        GpsFeed feed = new GpsFeed("GPS_ETA_BENCH");
+        engine.attachGpsFeed(feed);
+        String[] vehicleIds = new String[1_000];
+        for (int i = 0; i < vehicleIds.length; i++) {
+            vehicleIds[i] = "VEHICLE_" + i;
+            engine.trackVehicle(vehicleIds[i], places[i % places.length]);
+        }
+        SimulatedGpsSource source = new SimulatedGpsSource(feed, 1.0, 4L, vehicleIds);
+        long start = System.nanoTime();
+        int rounds = 200;
+        for (int r = 0; r < rounds; r++) {
+            source.publishRound();
+        }
+        feed.awaitIdle(10_000);
+        System.out.printf("  GPS feed, 1000 tracked vehicles: %d rounds in %.0f ms, %s%n", rounds,
+                          (System.nanoTime() - start) / 1e6, engine.getEta(vehicleIds[0]));
+        engine.detachGpsFeed();
+        feed.close();
+    }
+
+    /**
+     * Shared rides: buildings scattered over the city, families to a few schools, 8-seat vans from
+     * two depots - sweep construction versus the local search, on 1 worker and on the whole pool
+     */
+    static void benchmarkSharedRides(int[] buildingCounts, long budgetMillis) {
+        System.out.println("\n--- Shared ride optimizer, " + budgetMillis + " ms budget ---");
+        String[] schools = {"School 1", "School 2", "School 3"};
+        Location[] schoolLocations = {
+            new Location(32.0912, 34.7745, schools[0]),
+            new Location(32.0731, 34.7922, schools[1]),
+            new Location(32.1050, 34.8010, schools[2])
+        };
+        Location[] depots = {new Location(32.0853, 34.7818, "Depot North"), new Location(32.0600, 34.7700, "Depot South")};
+        java.util.concurrent.ForkJoinPool single = new java.util.concurrent.ForkJoinPool(1);
+        for (int buildings : buildingCounts) {
+            java.util.Random random = new java.util.Random(buildings);
+            List<RideRequest> requests = new ArrayList<>();
+            int seats = 0;
+            for (int b = 0; b < buildings; b++) {
+                Location pickup = new Location(32.05 + random.nextDouble() * 0.08, 34.75 + random.nextDouble() * 0.07, "Building " + b);
+                int school = random.nextInt(schools.length);
+                int children = 1 + random.nextInt(3);
+                seats += children;
+                requests.add(new RideRequest("B" + b, pickup, schools[school], schoolLocations[school], children));
+            }
+            List<RideVehicle> vehicles = new ArrayList<>();
+            for (int v = 0; v < seats / 7 + 1; v++) {
+                vehicles.add(new RideVehicle("VAN-" + v, 8, depots[v % depots.length]));
+            }
+
+            SharedRidePlan construction = new SharedRideOptimizer(single, 0).optimize(requests, vehicles);
+            SharedRidePlan oneWorker = new SharedRideOptimizer(single, budgetMillis, 1).optimize(requests, vehicles);
+            SharedRidePlan pooled = new SharedRideOptimizer(java.util.concurrent.ForkJoinPool.commonPool(), budgetMillis).optimize(requests, vehicles);
+            System.out.printf("  %d buildings, %d seats, %d vans: construction %d min in %.1f ms%n", buildings, seats,
+                              vehicles.size(), construction.getTotalSeconds() / 60, construction.getElapsedMillis());
+            System.out.printf("    local search, 1 worker:  %d min (-%.1f%%), %d moves, %.0f ms%n",
+                              oneWorker.getTotalSeconds() / 60, oneWorker.getImprovement() * 100, oneWorker.getMoves(), oneWorker.getElapsedMillis());
+            System.out.printf("    local search, pool of %d: %d min (-%.1f%%), %d moves, %.0f ms, %d unassigned%n",
+                              java.util.concurrent.ForkJoinPool.commonPool().getParallelism(), pooled.getTotalSeconds() / 60,
+                              pooled.getImprovement() * 100, pooled.getMoves(), pooled.getElapsedMillis(), pooled.getUnassigned().size());
+        }
+        single.shutdown();
+    }
+
+    /**
+     * Driver route with time windows: full plan, then absences and added stops re-planned incrementally,
+     * each compared with planning the same stops from scratch
+     */
+    static void benchmarkRoutePlanner(int[] stopCounts) {
+        System.out.println("\n--- Route planner with time windows ---");
+        Location depot = new Location(32.0600, 34.7650, "Depot");
+        Location school = new Location(32.0853, 34.7818, "School");
+        for (int stopCount : stopCounts) {
+            java.util.Random random = new java.util.Random(stopCount);
+            List<RouteStop> stops = new ArrayList<>();
+            for (int s = 0; s < stopCount + 10; s++) {
+                List<String> children = new ArrayList<>();
+                for (int c = 0; c <= random.nextInt(2); c++) {
+                    children.add("Child " + s + "-" + c);
+                }
+                java.time.LocalTime latest = random.nextInt(4) == 0 ? java.time.LocalTime.of(7, 30 + random.nextInt(20)) : null;
+                stops.add(new RouteStop("Stop " + s, new Location(32.055 + random.nextDouble() * 0.04, 34.76 + random.nextDouble() * 0.03,
+                                        "Stop " + s), children, 30 + random.nextInt(60), null, latest));
+            }
+            java.time.LocalTime departure = java.time.LocalTime.of(8, 30).minusMinutes(30 + 2L * stopCount);
+            java.time.LocalTime schoolStart = java.time.LocalTime.of(8, 30);
+            RoutePlanner planner = new RoutePlanner(depot, departure, school, "School", schoolStart);
+            RoutePlan full = planner.plan(stops.subList(0, stopCount));
+
+            double incrementalMillis = 0, scratchMillis = 0, maxIncrementalMillis = 0;
+            long incrementalMinutes = 0, scratchMinutes = 0, incrementalLate = 0, scratchLate = 0;
+            int changes = 20;
+            List<RouteStop> current = new ArrayList<>(stops.subList(0, stopCount));
+            for (int change = 0; change < changes; change++) {
+                RoutePlan replanned;
+                if (change % 2 == 0) {
+                    RouteStop stop = current.get(random.nextInt(current.size()));
+                    String child = stop.getChildren().get(0);
+                    replanned = planner.markAbsent(child);
+                    RouteStop remaining = stop.withoutChild(child);
+                    if (remaining.getChildren().isEmpty()) {
+                        current.remove(stop);
+                    } else {
+                        current.set(current.indexOf(stop), remaining);
+                    }
+                } else {
+                    RouteStop added = stops.get(stopCount + change / 2);
+                    replanned = planner.addStop(added);
+                    current.add(added);
+                }
+                RoutePlan scratch = new RoutePlanner(depot, departure, school, "School", schoolStart).plan(current);
+                incrementalMillis += replanned.getPlanMillis();
+                maxIncrementalMillis = Math.max(maxIncrementalMillis, replanned.getPlanMillis());
+                scratchMillis += scratch.getPlanMillis();
+                incrementalMinutes += replanned.getDurationSeconds() / 60;
+                incrementalLate += replanned.getLateSeconds();
+                scratchMinutes += scratch.getDurationSeconds() / 60;
+                scratchLate += scratch.getLateSeconds();
+            }
+            System.out.printf("  %d stops: full plan %.2f ms (%d min, late %d s)%n", stopCount, full.getPlanMillis(),
+                              full.getDurationSeconds() / 60, full.getLateSeconds());
+            System.out.printf("    %d changes: incremental avg %.2f ms (max %.2f), from scratch avg %.2f ms%n",
+                              changes, incrementalMillis / changes, maxIncrementalMillis, scratchMillis / changes);
+            System.out.printf("    plan quality over the changes: incremental %d min / %d s late, from scratch %d min / %d s late%n",
+                              incrementalMinutes, incrementalLate, scratchMinutes, scratchLate);
+            int slotsBefore = planner.getSlotCount();
+            planner.plan(current);
+            System.out.printf("    slots: %d after the changes, %d after planning %d stops again%n",
+                              slotsBefore, planner.getSlotCount(), current.size());
+        }
+    }
+
+    /**
+     * Live attendance: boarding/exit events streamed from several threads into an AttendanceBoard while
+     * a 60 Hz "view" refreshes the table model and reads one screen of rows, versus rebuilding the
+     * whole Object[][] table per refresh
+     */
+    static void benchmarkAttendance(int students, int eventThreads) {
+        System.out.println("\n--- Live attendance, " + students + " students, " + eventThreads + " event threads ---");
+        AttendanceBoard board = new AttendanceBoard();
+        ChildRegistry registry = new ChildRegistry(students);
+        Child[] children = new Child[students];
+        for (int i = 0; i < students; i++) {
+            children[i] = registry.register(new Child(String.format("S%05d", i), "Student " + i, 6 + i % 8, "SCHOOL-1", "P" + i));
+            board.enroll(children[i], "C" + (i % 40), "Parent - 050-" + (1_000_000 + i));
+        }
+        AttendanceTableModel model = new AttendanceTableModel(board);
+        int visibleRows = 30;
+
+        // one screen of cells - what JTable asks for on repaint
+        measure("render visible rows (" + visibleRows + " x 6 cells)", 20_000, () -> {
+            int first = (int) (System.nanoTime() % (students - visibleRows));
+            int length = 0;
+            for (int row = first; row < first + visibleRows; row++) {
+                for (int column = 0; column < model.getColumnCount(); column++) {
+                    length += String.valueOf(model.getValueAt(row, column)).length();
+                }
+            }
+            return length;
+        });
+        measure("rebuild Object[][] of all rows", 200, () -> {
+            Object[][] data = new Object[students][model.getColumnCount()];
+            for (int row = 0; row < students; row++) {
+                for (int column = 0; column < data[row].length; column++) {
+                    data[row][column] = model.getValueAt(row, column);
+                }
+            }
+            return data.length;
+        });
+
+        // a morning per round: every child of a thread's slice boards, then arrives
+        int rounds = 50;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            board.startNewDay();
+            Thread[] threads = new Thread[eventThreads];
+            for (int t = 0; t < eventThreads; t++) {
+                final int slice = t;
+                threads[t] = new Thread(() -> {
+                    for (int i = slice; i < students; i += eventThreads) {
+                        board.onBoarded(children[i].getChildId(), System.currentTimeMillis());
+                    }
+                    for (int i = slice; i < students; i += eventThreads) {
+                        board.onExited(children[i].getChildId(), System.currentTimeMillis());
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long events = 2L * students * rounds;
+        System.out.printf("  %d events in %.2f s (%.1fM events/s), %d status changes%n", events, seconds, events / seconds / 1e6,
+                          board.getEventCount());
+
+        // the view while a stream of about 100k events/s runs
+        board.startNewDay();
+        model.refresh();
+        java.util.concurrent.atomic.AtomicBoolean streaming = new java.util.concurrent.atomic.AtomicBoolean(true);
+        Thread stream = new Thread(() -> {
+            java.util.Random random = new java.util.Random(7);
+            while (streaming.get()) {
+                for (int e = 0; e < 1_000; e++) {
+                    String childId = children[random.nextInt(students)].getChildId();
+                    if (random.nextInt(20) == 0) {
+                        board.onExited(childId, System.currentTimeMillis());
+                    } else {
+                        board.onBoarded(childId, System.currentTimeMillis());
+                    }
+                }
+                java.util.concurrent.locks.LockSupport.parkNanos(10_000_000);
+            }
+        });
+        stream.start();
+        long frames = 0, frameNanos = 0, maxFrameNanos = 0;
+        long viewStart = System.nanoTime();
+        while (System.nanoTime() - viewStart < 2_000_000_000L) {
+            long frameStart = System.nanoTime();
+            model.refresh();
+            board.getTotals();
+            int first = (int) (frames * 7 % (students - visibleRows));
+            for (int row = first; row < first + visibleRows; row++) {
+                for (int column = 0; column < model.getColumnCount(); column++) {
+                    model.getValueAt(row, column);
+                }
+            }
+            long frame = System.nanoTime() - frameStart;
+            frames++;
+            frameNanos += frame;
+            maxFrameNanos = Math.max(maxFrameNanos, frame);
+            java.util.concurrent.locks.LockSupport.parkNanos(16_000_000);
+        }
+        streaming.set(false);
+        int[] totals = board.getTotals();
+        System.out.printf("  view during the stream: %d frames, avg %.1f us, max %.1f us per frame%n",
+                          frames, frameNanos / 1e3 / Math.max(1, frames), maxFrameNanos / 1e3);
+        System.out.printf("  totals: %d arrived, %d en route, %d not arrived%n",
+                          totals[AttendanceStatus.ARRIVED.ordinal()], totals[AttendanceStatus.EN_ROUTE.ordinal()],
+                          totals[AttendanceStatus.NOT_ARRIVED.ordinal()]);
+    }
+
+    /**
+     * UI commands against a single-thread stand-in for the EDT: how late a 1 ms input probe runs while
+     * backend calls run on the EDT versus through UiCommandBus; then stale-request cancellation while
+     * typing, and update coalescing
+     */
+    static void benchmarkUiCommandBus(int backendMillis) {
+        System.out.println("\n--- UI command bus, " + backendMillis + " ms backend calls ---");
+        java.util.concurrent.ExecutorService edt = java.util.concurrent.Executors.newSingleThreadExecutor();
+        java.util.concurrent.Callable<Boolean> backend = () -> {
+            Thread.sleep(backendMillis);
+            return true;
+        };
+        int commands = 200;
+
+        for (boolean onBus : new boolean[] {false, true}) {
+            UiCommandBus bus = new UiCommandBus(edt, 16);
+            LatencyHistogram probeDelay = new LatencyHistogram();
+            // one click per backend call duration - the EDT could just keep up if it did nothing else
+            long interval = backendMillis * 1_000_000L;
+            long end = System.nanoTime() + commands * interval;
+            long nextClick = System.nanoTime();
+            int submitted = 0;
+            while (System.nanoTime() < end) {
+                long posted = System.nanoTime();
+                edt.execute(() -> probeDelay.record(System.nanoTime() - posted));
+                if (submitted < commands && posted >= nextClick) {
+                    nextClick += interval;
+                    int id = submitted++;
+                    if (onBus) {
+                        bus.submit("verifyChild", "child-" + id, backend, result -> { });
+                    } else {
+                        long start = System.nanoTime();
+                        edt.execute(() -> {
+                            try {
+                                backend.call();
+                            } catch (Exception e) {
+                                throw new IllegalStateException(e);
+                            }
+                            bus.getMetrics("verifyChild").recordCompleted(1, System.nanoTime() - start);
+                        });
+                    }
+                }
+                java.util.concurrent.locks.LockSupport.parkNanos(1_000_000);
+            }
+            java.util.concurrent.locks.LockSupport.parkNanos(50_000_000);
+            waitFor(edt);
+            System.out.printf("  %-16s input probe delay {%s}%n  %-16s command latency {%s}%n",
+                              onBus ? "UiCommandBus:" : "on the EDT:", probeDelay, "", bus.getMetrics("verifyChild").getLatency());
+            bus.shutdown();
+        }
+
+        // typing: a lookup per keystroke, each superseding the previous one
+        UiCommandBus bus = new UiCommandBus(edt, 16);
+        java.util.concurrent.atomic.AtomicInteger shown = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.atomic.AtomicInteger backendRuns = new java.util.concurrent.atomic.AtomicInteger();
+        int keystrokes = 300;
+        for (int k = 0; k < keystrokes; k++) {
+            bus.submit("lookup", "search-field", () -> {
+                Thread.sleep(20);
+                backendRuns.incrementAndGet();
+                return true;
+            }, result -> shown.incrementAndGet());
+            java.util.concurrent.locks.LockSupport.parkNanos(2_000_000);
+        }
+        java.util.concurrent.locks.LockSupport.parkNanos(100_000_000);
+        waitFor(edt);
+        StageMetrics lookups = bus.getMetrics("lookup");
+        System.out.printf("  typing: %d keystrokes, %d backend calls finished, %d dropped as stale, %d shown%n",
+                          keystrokes, backendRuns.get(), lookups.getDropped(), shown.get());
+
+        // bursty updates: 4 producers, 50 screen elements
+        int updates = 100_000;
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            final int seed = p;
+            producers[p] = new Thread(() -> {
+                for (int u = 0; u < updates / producers.length; u++) {
+                    bus.post("element-" + (u * 7 + seed) % 50, () -> { });
+                    if (u % 1_000 == 0) {
+                        java.util.concurrent.locks.LockSupport.parkNanos(1_000_000);
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        java.util.concurrent.locks.LockSupport.parkNanos(50_000_000);
+        waitFor(edt);
+        System.out.printf("  updates: %d posted, %d coalesced, %d EDT flushes%n", bus.getPostedUpdates(),
+                          bus.getCoalescedUpdates(), bus.getFlushes());
+        bus.shutdown();
+
+        // A result waiting for the flush is superseded by a newer command under its key; a shut-down bus rejects
+        UiCommandBus slowFlush = new UiCommandBus(edt, 200);
+        List<String> screen = java.util.Collections.synchronizedList(new ArrayList<>());
+        slowFlush.post("warm-up", () -> { });
+        java.util.concurrent.locks.LockSupport.parkNanos(20_000_000);
+        slowFlush.submit("lookup", "search-field", () -> "old", screen::add);
+        java.util.concurrent.locks.LockSupport.parkNanos(20_000_000);
+        slowFlush.submit("lookup", "search-field", () -> {
+            Thread.sleep(300);
+            return "new";
+        }, screen::add);
+        java.util.concurrent.locks.LockSupport.parkNanos(600_000_000);
+        waitFor(edt);
+        slowFlush.shutdown();
+        String rejected;
+        try {
+            slowFlush.submit("lookup", "search-field", () -> "late", screen::add).join();
+            rejected = "accepted";
+        } catch (java.util.concurrent.CompletionException e) {
+            rejected = e.getCause().getClass().getSimpleName();
+        }
+        System.out.printf("  superseded before flush: screen shows %s; after shutdown: %s, %d in flight%n",
+                          screen, rejected, slowFlush.getInFlightCount());
+        edt.shutdown();
+    }
+
+    private static void waitFor(java.util.concurrent.ExecutorService executor) {
+        try {
+            executor.submit(() -> { }).get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Operator view of many children: 10 Hz GPS per vehicle for 3 s, shown by rewriting the whole text per fix
+     * (one EDT task each) versus TrackingTableModel coalescing fixes into 10 frames a second and repainting only
+     * the moved vehicles' rows; cost is the stand-in EDT's busy time
+     */
+    static void benchmarkTrackingView(int children, int vehicles) {
+        System.out.println("\n--- Tracking view, " + children + " children on " + vehicles + " vehicles, 10 Hz GPS ---");
+        String[] vehicleIds = new String[vehicles];
+        for (int v = 0; v < vehicles; v++) {
+            vehicleIds[v] = String.format("VEHICLE_%03d", v);
+        }
+        java.util.concurrent.ExecutorService edt = java.util.concurrent.Executors.newSingleThreadExecutor();
+        int visibleRows = 30;
+
+        for (boolean coalesced : new boolean[] {false, true}) {
+            long[] busyNanos = {0};
+            long[] tasks = {0};
+            java.util.concurrent.Executor timedEdt = task -> edt.execute(() -> {
+                long start = System.nanoTime();
+                task.run();
+                busyNanos[0] += System.nanoTime() - start;
+                tasks[0]++;
+            });
+            GpsFeed feed = new GpsFeed("trackview");
+            TrackingTableModel model = new TrackingTableModel();
+            // what JTable does on rowsUpdated: read the cells of the changed rows that are on screen
+            model.addTableModelListener(event -> {
+                for (int row = event.getFirstRow(); row <= Math.min(event.getLastRow(), visibleRows - 1); row++) {
+                    for (int column = 0; column < model.getColumnCount(); column++) {
+                        model.getValueAt(row, column);
+                    }
+                }
+            });
+            waitFor(edt);
+            for (int c = 0; c < children; c++) {
+                model.watch(String.format("C%04d", c), vehicleIds[c % vehicles], null);
+            }
+            UiCommandBus frameBus = new UiCommandBus(timedEdt, 100);
+            Map<String, Location> lastFixes = new java.util.concurrent.ConcurrentHashMap<>();
+            for (String vehicleId : vehicleIds) {
+                feed.subscribe(vehicleId, (id, fix) -> {
+                    if (coalesced) {
+                        if (model.offer(id, fix)) {
+                            frameBus.post("frame", model::drain);
+                        }
+                    } else {
+                        lastFixes.put(id, fix);
+                        timedEdt.execute(() -> {
+                            // the whole text of every watched child, rewritten per fix
+                            StringBuilder text = new StringBuilder("=== Active tracking ===\n");
+                            for (int c = 0; c < children; c++) {
+                                Location location = lastFixes.get(vehicleIds[c % vehicles]);
+                                text.append(String.format("C%04d", c)).append(" - ")
+                                    .append(location != null ? location.getDescription() + " " + location.getLatitude() + ", " + location.getLongitude() : "---")
+                                    .append('\n');
+                            }
+                            if (text.length() == 0) {
+                                throw new IllegalStateException();
+                            }
+                        });
+                    }
+                });
+            }
+            SimulatedGpsSource source = new SimulatedGpsSource(feed, 10.0, 5L, vehicleIds);
+            source.start();
+            java.util.concurrent.locks.LockSupport.parkNanos(3_000_000_000L);
+            source.stop();
+            feed.awaitIdle(1_000);
+            java.util.concurrent.locks.LockSupport.parkNanos(200_000_000L);
+            waitFor(edt);
+            System.out.printf("  %-24s %6d fixes delivered, %6d EDT tasks, EDT busy %6.1f ms (%.1f%% of 3 s)%s%n",
+                              coalesced ? "coalesced, 10 fps:" : "full rewrite per fix:", feed.getDelivered(), tasks[0],
+                              busyNanos[0] / 1e6, busyNanos[0] / 3e7,
+                              coalesced ? String.format(", %d fixes applied, %d rows updated", model.getFixesApplied(), model.getRowsRepainted()) : "");
+            frameBus.shutdown();
+            feed.close();
+        }
+        edt.shutdown();
+    }
+
+    /**
+     * Headless server: startup time, then waves of concurrent requests (status, track, entry/exit, location,
+     * report) from virtual-thread clients over HTTP/1.1 on loopback
+     */
+    static void benchmarkHeadlessServer(int[] concurrencyLevels) {
+        System.out.println("\n--- Headless HTTP server ---");
+        GpsFeed feed = new GpsFeed("server");
+        ChildRegistry roster = new ChildRegistry(1_000, false);
+        for (int i = 0; i < 900; i++) {
+            roster.register("C" + i, "Child " + i, 8, "SCHOOL_001", "PARENT_" + i);   // C900..C999 stay unknown - 404
+        }
+        long startupStart = System.nanoTime();
+        HeadlessServer server;
+        try {
+            server = new HeadlessServer(0, "VEHICLE_001", feed, roster);
+        } catch (java.io.IOException e) {
+            System.out.println("  cannot start server: " + e);
+            return;
+        }
+        server.start();
+        System.out.printf("  startup: %.0f ms (port %d)%n", (System.nanoTime() - startupStart) / 1e6, server.getPort());
+        feed.publish("VEHICLE_001", new Location(32.0853, 34.7818, "Herzl Street 25"));
+
+        // blocking clients, one virtual thread each, keeping their connections alive
+        String base = "http://127.0.0.1:" + server.getPort();
+        System.setProperty("http.maxConnections", String.valueOf(java.util.Arrays.stream(concurrencyLevels).max().orElse(5)));
+        String[] paths = {"/status", "/children/C%d/track", "/children/C%d/entry", "/children/C%d/location", "/report?since=%d"};
+        for (int concurrency : concurrencyLevels) {
+            int perClient = Math.max(2, 10_000 / concurrency);
+            LatencyHistogram latency = new LatencyHistogram();
+            java.util.concurrent.atomic.AtomicInteger failures = new java.util.concurrent.atomic.AtomicInteger();
+            java.util.concurrent.ExecutorService clients = VirtualThreads.newExecutor("http-client");
+            java.util.concurrent.CountDownLatch ready = new java.util.concurrent.CountDownLatch(concurrency);
+            java.util.concurrent.CountDownLatch go = new java.util.concurrent.CountDownLatch(1);
+            long[] start = {0};
+            for (int c = 0; c < concurrency; c++) {
+                final int clientId = c;
+                clients.execute(() -> {
+                    ready.countDown();
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int r = 0; r < perClient; r++) {
+                        int request = clientId * perClient + r;
+                        long version = server.getIdentificationManager().getIdentificationStates().getVersion();
+                        String path = String.format(paths[request % paths.length],
+                                                    request % paths.length == 4 ? Math.max(0, version - 20) : clientId % 1_000);
+                        long sent = System.nanoTime();
+                        try {
+                            java.net.HttpURLConnection connection = (java.net.HttpURLConnection) java.net.URI.create(base + path).toURL().openConnection();
+                            if (path.endsWith("track") || path.endsWith("entry")) {
+                                connection.setRequestMethod("POST");
+                            }
+                            int status = connection.getResponseCode();
+                            try (java.io.InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                                if (body != null) {
+                                    body.readAllBytes();
+                                }
+                            }
+                            if (status != 200 && status != 404) {
+                                failures.incrementAndGet();
+                            }
+                        } catch (java.io.IOException e) {
+                            failures.incrementAndGet();
+                        }
+                        latency.record(System.nanoTime() - sent);
+                    }
+                });
+            }
+            try {
+                ready.await();
+                start[0] = System.nanoTime();
+                go.countDown();
+                clients.shutdown();
+                clients.awaitTermination(10, java.util.concurrent.TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            double seconds = (System.nanoTime() - start[0]) / 1e9;
+            long total = (long) concurrency * perClient;
+            System.out.printf("  %5d concurrent clients: %d requests in %.2f s (%.0f req/s), %d failed, latency {%s}%n",
+                              concurrency, total, seconds, total / seconds, failures.get(), latency);
+        }
+        // non-finite or out-of-range coordinates are refused; non-finite numbers never reach the JSON
+        for (String fix : new String[] {"lat=NaN&lon=34.78", "lat=32.08&lon=Infinity", "lat=91&lon=34.78", "lat=32.08&lon=-181"}) {
+            try {
+                java.net.HttpURLConnection connection = (java.net.HttpURLConnection)
+                        java.net.URI.create(base + "/vehicles/VEHICLE_001/fix?" + fix).toURL().openConnection();
+                connection.setRequestMethod("POST");
+                if (connection.getResponseCode() != 400) {
+                    throw new IllegalStateException("fix " + fix + " answered " + connection.getResponseCode());
+                }
+            } catch (java.io.IOException e) {
+                throw new IllegalStateException("fix " + fix + " failed", e);
+            }
+        }
+        String nonFinite = Json.of(List.of(Double.NaN, Double.POSITIVE_INFINITY, 1.5));
+        if (!"[null,null,1.5]".equals(nonFinite)) {
+            throw new IllegalStateException("non-finite numbers written as " + nonFinite);
+        }
+        System.out.println("  invalid fixes: NaN, Infinity and out-of-range coordinates answered 400");
+        System.out.println("  server side: " + server.getRequestMetrics().getLatency() + ", roster " + roster.size() +
+                           " children, " + server.getIdentificationManager().getIdentificationStates().size() + " tracked");
+        server.stop();
+        feed.close();
+    }
+
+    /**
+     * Synthetic fleet load - sustained frame rate against the offered one, door-to-notification latency, heap
+     */
+    static void benchmarkFleetSimulator(int[] vehicleCounts, int seconds) {
+        for (int vehicles : vehicleCounts) {
+            FleetSimulator.Config config = FleetSimulator.Config.fromSystemProperties().vehicles(vehicles).seconds(seconds);
+            System.out.println("\n--- FleetSimulator: " + config + " ---");
+            SimulationReport report = new FleetSimulator(config).run();
+            System.out.println(report);
+        }
+    }
+
+    /**
+     * Gradient scene with +-3 sensor noise; with a bright 200x400 figure at figureLeft unless negative
+     */
+    private static ByteBuffer syntheticFrame(int width, int height, int figureLeft, java.util.Random random) {
+        ByteBuffer frame = ByteBuffer.allocateDirect(width * height * 3 / 2);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean figure = figureLeft >= 0 && x >= figureLeft && x < figureLeft + 200 && y >= 500 && y < 900;
+                int luma = figure ? 220 : 40 + (x + y) / 24;
+                frame.put(y * width + x, (byte) (luma + random.nextInt(7) - 3));
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Run body repeatedly and print time, allocated bytes and GC activity per operation
+     */
+    static Object measure(String name, int operations, Op body) {
+        Object sink = null;
+        for (int i = 0; i < operations; i++) {
+            sink = body.run(); // warm-up
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long bytesBefore = THREAD_BEAN.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            sink = body.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREAD_BEAN.getThreadAllocatedBytes(threadId) - bytesBefore;
+        long collections = gcCount() - gcCountBefore;
+        long collectionMillis = gcMillis() - gcMillisBefore;
+
+        System.out.printf("%-50s %12.1f us/op %14d B/op %8.1f MB/s  gc %d (%d ms)%n",
+                name, elapsed / 1000.0 / operations, allocated / operations,
+                allocated / 1_048_576.0 / (elapsed / 1e9), collections, collectionMillis);
+        return sink;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (java.lang.management.GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (java.lang.management.GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(gc.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+
+    /**
+     * Comma-separated sizes from a system property
+     */
+    private static int[] sizes(String property, String defaults) {
+        String[] parts = System.getProperty(property, defaults).split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = Integer.parseInt(parts[i].trim());
+        }
+        return sizes;
+    }
+
+    private static boolean runs(String scenario, String name) {
+        return scenario.equals("all") || scenario.equals(name);
+    }
+
+    /**
+     * Benchmark operation - returns a value so the work is not optimized away
+     */
+    interface Op {
+        Object run();
+    }
+}
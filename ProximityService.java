@@ -0,0 +1,138 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ProximityService class - proximity queries over live vehicles, stops and tracked children
+ * Vehicle positions are kept current from the GPS feed; children are located through the
+ * tracker of the vehicle they ride.
+ */
+public class ProximityService {
+    private final SpatialIndex vehicles;
+    private final SpatialIndex stops;
+    private final ConcurrentHashMap<String, LocationTracker> trackersByVehicle;
+    private GpsFeed gpsFeed;
+    private GpsListener gpsListener;
+
+    // Constructor
+    public ProximityService() {
+        this(250);
+    }
+
+    public ProximityService(double cellSizeMeters) {
+        this.vehicles = new SpatialIndex(cellSizeMeters);
+        this.stops = new SpatialIndex(cellSizeMeters);
+        this.trackersByVehicle = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Follow every vehicle of a GPS feed
+     */
+    public synchronized void attachGpsFeed(GpsFeed feed) {
+        detachGpsFeed();
+        this.gpsListener = vehicles::update;
+        this.gpsFeed = feed;
+        feed.subscribeAll(gpsListener);
+        // the feed records a fix before delivering it, so reading it under the point lock is never
+        // older than a fix the listener already applied
+        Map<String, Location> lastFixes = feed.getLastFixes();
+        for (String vehicleId : lastFixes.keySet()) {
+            vehicles.refresh(vehicleId, lastFixes::get);
+        }
+    }
+
+    public synchronized void detachGpsFeed() {
+        if (gpsFeed != null) {
+            gpsFeed.unsubscribeAll(gpsListener);
+            gpsFeed = null;
+            gpsListener = null;
+        }
+    }
+
+    /**
+     * Update a vehicle position directly (without a GPS feed)
+     */
+    public void updateVehicle(String vehicleId, Location location) {
+        vehicles.update(vehicleId, location);
+    }
+
+    public void removeVehicle(String vehicleId) {
+        vehicles.remove(vehicleId);
+        trackersByVehicle.remove(vehicleId);
+    }
+
+    /**
+     * Register the tracker of a vehicle so its children can be found by position
+     */
+    public void registerTracker(LocationTracker tracker) {
+        trackersByVehicle.put(tracker.getVehicleId(), tracker);
+    }
+
+    public void unregisterTracker(LocationTracker tracker) {
+        trackersByVehicle.remove(tracker.getVehicleId(), tracker);
+    }
+
+    public void addStop(String stopId, Location location) {
+        stops.update(stopId, location);
+    }
+
+    public void removeStop(String stopId) {
+        stops.remove(stopId);
+    }
+
+    /**
+     * Vehicles within radiusMeters of a position, nearest first
+     */
+    public List<SpatialMatch> findVehiclesNear(Location location, double radiusMeters) {
+        return vehicles.findWithin(location, radiusMeters);
+    }
+
+    /**
+     * The k vehicles nearest to a position
+     */
+    public List<SpatialMatch> findNearestVehicles(Location location, int k) {
+        return vehicles.findNearest(location, k);
+    }
+
+    public List<SpatialMatch> findVehiclesNearStop(String stopId, double radiusMeters) {
+        return findVehiclesNear(getStop(stopId), radiusMeters);
+    }
+
+    /**
+     * Stops within radiusMeters of a position, nearest first
+     */
+    public List<SpatialMatch> findStopsNear(Location location, double radiusMeters) {
+        return stops.findWithin(location, radiusMeters);
+    }
+
+    /**
+     * Tracked children riding vehicles within radiusMeters of a position, nearest vehicle first
+     */
+    public List<String> findChildrenNear(Location location, double radiusMeters) {
+        List<String> childIds = new ArrayList<>();
+        for (SpatialMatch vehicle : vehicles.findWithin(location, radiusMeters)) {
+            LocationTracker tracker = trackersByVehicle.get(vehicle.getId());
+            if (tracker != null) {
+                childIds.addAll(tracker.getTrackedChildren().keySet());
+            }
+        }
+        return childIds;
+    }
+
+    public List<String> findChildrenNearStop(String stopId, double radiusMeters) {
+        return findChildrenNear(getStop(stopId), radiusMeters);
+    }
+
+    private Location getStop(String stopId) {
+        Location stop = stops.getLocation(stopId);
+        if (stop == null) {
+            throw new IllegalArgumentException("Unknown stop: " + stopId);
+        }
+        return stop;
+    }
+
+    public SpatialIndex getVehicleIndex() { return vehicles; }
+    public SpatialIndex getStopIndex() { return stops; }
+    public GpsFeed getGpsFeed() { return gpsFeed; }
+}
@@ -0,0 +1,445 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * RecognitionCache class - recent recognition results keyed by a perceptual hash of the frame
+ * Near-identical frames (the same child in front of two cameras, a camera re-sending a frame)
+ * hash to 64-bit values a few bits apart, so a lookup accepts any entry within a Hamming distance.
+ * Candidates are found by multi-index hashing: the hash is cut into maxDistance + 1 bands and, by
+ * pigeonhole, every entry close enough shares at least one band exactly with the probe.
+ *
+ * Eviction is W-TinyLFU: new entries enter a small LRU window; an entry leaving the window is
+ * admitted to the main segmented LRU only if a count-min sketch says it is used more often than
+ * the entry it would evict. Entries also expire after a TTL, so a child who left the door is not
+ * reported from a stale result.
+ */
+public class RecognitionCache {
+    private static final int SIMHASH_BITS = 64;
+    private static final float[][] HYPERPLANES = hyperplanes(FaceProfile.EMBEDDING_DIMENSION, 42);
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final int maxDistance;
+    private final int bands;
+    private final int bandBits;
+    private final Map<Long, CachedRecognition> byHash;
+    private final Map<Long, List<CachedRecognition>> byBand;
+    private final Segment window;
+    private final Segment probation;
+    private final Segment protectedSegment;
+    private final FrequencySketch sketch;
+    private final int[] thumbnail;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private final LatencyHistogram hitLatency;
+    private final LatencyHistogram missLatency;
+
+    // Constructor
+    public RecognitionCache() {
+        this(10_000, 2_000, 3);
+    }
+
+    /**
+     * @param maxDistance Hamming distance (0-7) at which two hashes count as the same frame
+     */
+    public RecognitionCache(int maxSize, long ttlMillis, int maxDistance) {
+        if (maxDistance < 0 || maxDistance > 7) {
+            throw new IllegalArgumentException("Hamming tolerance must be 0-7 bits: " + maxDistance);
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.maxDistance = maxDistance;
+        this.bands = maxDistance + 1;
+        this.bandBits = SIMHASH_BITS / bands;
+        this.byHash = new HashMap<>(maxSize * 2);
+        this.byBand = new HashMap<>(maxSize * 2 * bands);
+        int windowSize = Math.max(1, maxSize / 100);
+        int mainSize = Math.max(1, maxSize - windowSize);
+        this.window = new Segment(windowSize);
+        this.protectedSegment = new Segment(mainSize * 4 / 5);
+        this.probation = new Segment(mainSize - protectedSegment.capacity);
+        this.sketch = new FrequencySketch(maxSize);
+        this.thumbnail = new int[9 * 8];
+        this.hitLatency = new LatencyHistogram();
+        this.missLatency = new LatencyHistogram();
+    }
+
+    /**
+     * Check if a perceptual hash can be taken - needs an embedding or the frame pixels
+     */
+    public static boolean isHashable(Image image) {
+        return image.getFaceEmbedding() != null || (image.getFrame() != null && image.getFrameWidth() > 0);
+    }
+
+    /**
+     * Perceptual hash of the image
+     * With an embedding: SimHash, one sign bit per random hyperplane, so the Hamming distance
+     * tracks the angle between embeddings. Otherwise: dHash of the luma plane, one bit per
+     * horizontally adjacent pair of cells in a 9x8 thumbnail.
+     */
+    public long hashOf(Image image) {
+        float[] embedding = image.getFaceEmbedding();
+        if (embedding != null) {
+            long hash = 0;
+            int dimension = Math.min(embedding.length, HYPERPLANES[0].length);
+            for (int bit = 0; bit < SIMHASH_BITS; bit++) {
+                float[] plane = HYPERPLANES[bit];
+                float dot = 0f;
+                for (int d = 0; d < dimension; d++) {
+                    dot += plane[d] * embedding[d];
+                }
+                if (dot > 0f) {
+                    hash |= 1L << bit;
+                }
+            }
+            return hash;
+        }
+
+        ByteBuffer pixels = image.getFrame().getBuffer();
+        synchronized (thumbnail) {
+            ChangeDetector.thumbnail(pixels, image.getFrameWidth(), image.getFrameHeight(), 9, 8, thumbnail);
+            long hash = 0;
+            int bit = 0;
+            for (int row = 0; row < 8; row++) {
+                for (int column = 0; column < 8; column++) {
+                    if (thumbnail[row * 9 + column] > thumbnail[row * 9 + column + 1]) {
+                        hash |= 1L << bit;
+                    }
+                    bit++;
+                }
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * Closest live entry within the Hamming tolerance, or null
+     */
+    public synchronized CachedRecognition get(long hash, long nowMillis) {
+        CachedRecognition best = byHash.get(hash);
+        if (best != null && best.expiresAtMillis <= nowMillis) {
+            expire(best);
+            best = null;
+        }
+        if (best == null && maxDistance > 0) {
+            int bestDistance = maxDistance + 1;
+            List<CachedRecognition> expired = null;
+            for (int band = 0; band < bands; band++) {
+                List<CachedRecognition> candidates = byBand.get(bandKey(hash, band));
+                if (candidates == null) {
+                    continue;
+                }
+                for (int i = 0; i < candidates.size(); i++) {
+                    CachedRecognition candidate = candidates.get(i);
+                    if (candidate.expiresAtMillis <= nowMillis) {
+                        if (expired == null) {
+                            expired = new ArrayList<>();
+                        }
+                        expired.add(candidate);
+                        continue;
+                    }
+                    int distance = Long.bitCount(candidate.hash ^ hash);
+                    if (distance < bestDistance) {
+                        best = candidate;
+                        bestDistance = distance;
+                    }
+                }
+            }
+            if (expired != null) {
+                for (CachedRecognition entry : expired) {
+                    if (entry.segment != null) {
+                        expire(entry);
+                    }
+                }
+            }
+        }
+        if (best == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        sketch.increment(best.hash);
+        onAccess(best);
+        return best;
+    }
+
+    /**
+     * Store the result of a recognition - may be refused admission by the frequency filter
+     */
+    public synchronized void put(long hash, String childId, float confidence, long nowMillis) {
+        CachedRecognition existing = byHash.get(hash);
+        if (existing != null) {
+            existing.childId = childId;
+            existing.confidence = confidence;
+            existing.expiresAtMillis = nowMillis + ttlMillis;
+            onAccess(existing);
+            return;
+        }
+        sketch.increment(hash);
+        CachedRecognition entry = new CachedRecognition(hash, childId, confidence, nowMillis + ttlMillis);
+        index(entry);
+        window.addFirst(entry);
+        if (window.size > window.capacity) {
+            admit(window.removeLast(), nowMillis);
+        }
+    }
+
+    /**
+     * Move an entry leaving the window into the main space, or drop whichever of it and the
+     * main victim is used less
+     */
+    private void admit(CachedRecognition candidate, long nowMillis) {
+        if (probation.size + protectedSegment.size < probation.capacity + protectedSegment.capacity) {
+            probation.addFirst(candidate);
+            return;
+        }
+        Segment victimSegment = probation.size > 0 ? probation : protectedSegment;
+        CachedRecognition victim = victimSegment.last();
+        if (victim.expiresAtMillis <= nowMillis || sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+            victimSegment.remove(victim);
+            unindex(victim);
+            evictions++;
+            probation.addFirst(candidate);
+        } else {
+            unindex(candidate);
+            evictions++;
+        }
+    }
+
+    /**
+     * LRU bookkeeping on a hit - a second use promotes a probation entry to the protected segment
+     */
+    private void onAccess(CachedRecognition entry) {
+        Segment segment = entry.segment;
+        if (segment == probation) {
+            probation.remove(entry);
+            protectedSegment.addFirst(entry);
+            if (protectedSegment.size > protectedSegment.capacity) {
+                probation.addFirst(protectedSegment.removeLast());
+            }
+        } else {
+            segment.remove(entry);
+            segment.addFirst(entry);
+        }
+    }
+
+    private void expire(CachedRecognition entry) {
+        entry.segment.remove(entry);
+        unindex(entry);
+        expirations++;
+    }
+
+    private void index(CachedRecognition entry) {
+        byHash.put(entry.hash, entry);
+        if (maxDistance > 0) {
+            for (int band = 0; band < bands; band++) {
+                byBand.computeIfAbsent(bandKey(entry.hash, band), key -> new ArrayList<>(1)).add(entry);
+            }
+        }
+    }
+
+    private void unindex(CachedRecognition entry) {
+        byHash.remove(entry.hash);
+        if (maxDistance > 0) {
+            for (int band = 0; band < bands; band++) {
+                long key = bandKey(entry.hash, band);
+                List<CachedRecognition> candidates = byBand.get(key);
+                candidates.remove(entry);
+                if (candidates.isEmpty()) {
+                    byBand.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Band value tagged with the band number - the last band takes the leftover bits
+     */
+    private long bandKey(long hash, int band) {
+        int shift = band * bandBits;
+        int bits = band == bands - 1 ? SIMHASH_BITS - shift : bandBits;
+        long value = (hash >>> shift) & ((1L << bits) - 1);
+        return (value << 3) | band;
+    }
+
+    /**
+     * Drop every entry - after the gallery or the match threshold changed
+     */
+    public synchronized void clear() {
+        byHash.clear();
+        byBand.clear();
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    public void recordHit(long nanos) {
+        hitLatency.record(nanos);
+    }
+
+    public void recordMiss(long nanos) {
+        missLatency.record(nanos);
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups > 0 ? hits / (double) lookups : 0.0;
+    }
+
+    public synchronized int size() { return byHash.size(); }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getExpirations() { return expirations; }
+    public LatencyHistogram getHitLatency() { return hitLatency; }
+    public LatencyHistogram getMissLatency() { return missLatency; }
+    public int getMaxSize() { return maxSize; }
+    public long getTtlMillis() { return ttlMillis; }
+    public int getMaxDistance() { return maxDistance; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("RecognitionCache{size=%d, hitRate=%.1f%%, evictions=%d, expirations=%d, hit{%s}, miss{%s}}",
+                byHash.size(), getHitRate() * 100, evictions, expirations, hitLatency, missLatency);
+    }
+
+    private static float[][] hyperplanes(int dimension, long seed) {
+        Random random = new Random(seed);
+        float[][] planes = new float[SIMHASH_BITS][dimension];
+        for (float[] plane : planes) {
+            for (int d = 0; d < dimension; d++) {
+                plane[d] = (float) random.nextGaussian();
+            }
+        }
+        return planes;
+    }
+
+    /**
+     * Intrusive doubly-linked LRU list - most recent first
+     */
+    static class Segment {
+        private final int capacity;
+        private final CachedRecognition head;
+        private int size;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            this.head = new CachedRecognition(0, null, 0f, 0);
+            head.previous = head;
+            head.next = head;
+        }
+
+        void addFirst(CachedRecognition entry) {
+            entry.segment = this;
+            entry.previous = head;
+            entry.next = head.next;
+            head.next.previous = entry;
+            head.next = entry;
+            size++;
+        }
+
+        CachedRecognition last() {
+            return head.previous;
+        }
+
+        CachedRecognition removeLast() {
+            CachedRecognition entry = head.previous;
+            remove(entry);
+            return entry;
+        }
+
+        void remove(CachedRecognition entry) {
+            entry.previous.next = entry.next;
+            entry.next.previous = entry.previous;
+            entry.previous = null;
+            entry.next = null;
+            entry.segment = null;
+            size--;
+        }
+
+        void clear() {
+            head.previous = head;
+            head.next = head;
+            size = 0;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, halved every 10 x maxSize increments so that
+     * popularity ages out
+     */
+    private static class FrequencySketch {
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maxSize) {
+            int width = Integer.highestOneBit(Math.max(16, maxSize * 4) - 1) << 1;
+            this.counters = new byte[4][width];
+            this.mask = width - 1;
+            this.sampleSize = Math.max(10, maxSize * 10);
+        }
+
+        void increment(long hash) {
+            for (int row = 0; row < counters.length; row++) {
+                int index = indexOf(hash, row);
+                if (counters[row][index] < 15) {
+                    counters[row][index]++;
+                }
+            }
+            if (++additions >= sampleSize) {
+                for (byte[] row : counters) {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] >>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(long hash) {
+            int frequency = 15;
+            for (int row = 0; row < counters.length; row++) {
+                frequency = Math.min(frequency, counters[row][indexOf(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(long hash, int row) {
+            long mixed = (hash + row) * 0x9E3779B97F4A7C15L;
+            mixed ^= mixed >>> 29;
+            return (int) mixed & mask;
+        }
+    }
+}
+
+/**
+ * CachedRecognition class - one cached recognition outcome; childId is null for an unknown face
+ */
+class CachedRecognition {
+    final long hash;
+    volatile String childId;
+    volatile float confidence;
+    long expiresAtMillis;
+    CachedRecognition previous;
+    CachedRecognition next;
+    RecognitionCache.Segment segment;
+
+    CachedRecognition(long hash, String childId, float confidence, long expiresAtMillis) {
+        this.hash = hash;
+        this.childId = childId;
+        this.confidence = confidence;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public String getChildId() { return childId; }
+    public float getConfidence() { return confidence; }
+    public long getHash() { return hash; }
+}
@@ -0,0 +1,301 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * RecognitionPipeline class - staged, batched face recognition shared by all cameras of a depot
+ * ingest queue (bounded) → batcher → worker pool (one matching pass per batch)
+ */
+public class RecognitionPipeline {
+    private final FaceRecognitionAndControlSystem recognitionSystem;
+    private final BlockingQueue<PendingFrame> ingestQueue;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxBatchSize;
+    private final long maxBatchWaitNanos;
+    private final ThreadPoolExecutor workers;
+    private final Thread batcher;
+    private final StageMetrics ingestMetrics;
+    private final StageMetrics batchMetrics;
+    private final StageMetrics matchMetrics;
+    private volatile boolean running;
+
+    // Constructor
+    public RecognitionPipeline(FaceRecognitionAndControlSystem recognitionSystem) {
+        // 64 queued 1080p frames already pin ~400 MB of pooled direct memory - keep the default queue short
+        this(recognitionSystem, 64, 32, 5, OverflowPolicy.DROP_OLDEST,
+             Runtime.getRuntime().availableProcessors());
+    }
+
+    public RecognitionPipeline(FaceRecognitionAndControlSystem recognitionSystem, int queueCapacity,
+                               int maxBatchSize, long maxBatchWaitMillis, OverflowPolicy overflowPolicy,
+                               int workerCount) {
+        this.recognitionSystem = recognitionSystem;
+        this.ingestQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxBatchWaitMillis);
+        this.ingestMetrics = new StageMetrics("ingest");
+        this.batchMetrics = new StageMetrics("batch");
+        this.matchMetrics = new StageMetrics("match");
+
+        // Bounded hand-off: when every worker is busy the batcher runs the batch itself,
+        // stops draining, and the ingest queue applies the overflow policy. Once the workers
+        // are shut down a handed-off batch is rejected frame by frame instead.
+        AtomicInteger workerNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workerCount), runnable -> {
+                    Thread thread = new Thread(runnable, "recognition-worker-" + workerNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        rejectBatch(((BatchTask) task).batch, "Recognition pipeline is shut down");
+                    } else {
+                        task.run();
+                    }
+                });
+
+        this.running = true;
+        this.batcher = new Thread(this::runBatcher, "recognition-batcher");
+        this.batcher.setDaemon(true);
+        this.batcher.start();
+        if (Trace.isEnabled()) {
+            System.out.println("RecognitionPipeline initialized with " + workerCount + " workers, batch size " +
+                               maxBatchSize + ", queue capacity " + queueCapacity + " (" + overflowPolicy + ")");
+        }
+    }
+
+    /**
+     * Submit a captured frame - the future completes with the identified child ID (or null)
+     * The pipeline takes over the caller's reference to the image and releases it when done.
+     */
+    public CompletableFuture<String> submit(Image image) {
+        return submit(image, null);
+    }
+
+    /**
+     * Submit a captured frame and report its share of the batch matching time (nanoseconds) to matchCost
+     */
+    public CompletableFuture<String> submit(Image image, LongConsumer matchCost) {
+        PendingFrame frame = new PendingFrame(image, matchCost);
+        ingestMetrics.recordReceived(1);
+        if (!running) {
+            reject(frame, "Recognition pipeline is shut down");
+            return frame.result;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    ingestQueue.put(frame);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    reject(frame, "Interrupted while waiting for ingest queue");
+                    return frame.result;
+                }
+                break;
+            case DROP_NEWEST:
+                if (!ingestQueue.offer(frame)) {
+                    reject(frame, "Frame dropped: ingest queue full");
+                    return frame.result;
+                }
+                break;
+            case DROP_OLDEST:
+                while (!ingestQueue.offer(frame)) {
+                    PendingFrame oldest = ingestQueue.poll();
+                    if (oldest != null) {
+                        reject(oldest, "Frame dropped: replaced by a newer frame");
+                    }
+                }
+                break;
+        }
+        // Shut down while enqueuing: take the frame back unless the batcher or shutdown already has it
+        if (!running && ingestQueue.remove(frame)) {
+            reject(frame, "Recognition pipeline is shut down");
+            return frame.result;
+        }
+        ingestMetrics.recordCompleted(1, System.nanoTime() - frame.enqueuedNanos);
+        return frame.result;
+    }
+
+    /**
+     * Batcher loop - groups queued frames until the batch is full or the wait budget is spent
+     */
+    private void runBatcher() {
+        while (running || !ingestQueue.isEmpty()) {
+            List<PendingFrame> batch = new ArrayList<>(maxBatchSize);
+            try {
+                PendingFrame first = ingestQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxBatchWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (ingestQueue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingFrame next = ingestQueue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                long now = System.nanoTime();
+                batchMetrics.recordReceived(batch.size());
+                for (PendingFrame frame : batch) {
+                    batchMetrics.recordCompleted(1, now - frame.enqueuedNanos);
+                }
+                workers.execute(new BatchTask(batch));
+            } catch (InterruptedException e) {
+                // Interrupted by shutdown - the batch being gathered never reaches a worker
+                rejectBatch(batch, "Recognition pipeline is shut down");
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Worker - one matching pass for the whole batch, then complete the per-frame futures
+     */
+    private void processBatch(List<PendingFrame> batch) {
+        long start = System.nanoTime();
+        matchMetrics.recordReceived(batch.size());
+        List<Image> images = new ArrayList<>(batch.size());
+        for (PendingFrame frame : batch) {
+            images.add(frame.image);
+        }
+
+        try {
+            String[] identified = recognitionSystem.processBatch(images);
+            long end = System.nanoTime();
+            matchMetrics.recordCompleted(batch.size(), end - start);
+            long perFrame = (end - start) / batch.size();
+            for (int i = 0; i < batch.size(); i++) {
+                PendingFrame frame = batch.get(i);
+                frame.image.release();
+                if (frame.matchCost != null) {
+                    frame.matchCost.accept(perFrame);
+                }
+                frame.result.complete(identified[i]);
+            }
+        } catch (RuntimeException e) {
+            matchMetrics.recordDropped(batch.size());
+            for (PendingFrame frame : batch) {
+                frame.image.release();
+                frame.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void reject(PendingFrame frame, String reason) {
+        ingestMetrics.recordDropped(1);
+        frame.image.release();
+        frame.result.completeExceptionally(new RejectedExecutionException(reason));
+    }
+
+    private void rejectBatch(List<PendingFrame> batch, String reason) {
+        matchMetrics.recordDropped(batch.size());
+        for (PendingFrame frame : batch) {
+            frame.image.release();
+            frame.result.completeExceptionally(new RejectedExecutionException(reason));
+        }
+    }
+
+    /**
+     * Stop accepting frames, finish queued ones and stop the workers
+     * A batcher still busy after 5 s is interrupted and its batch rejected; the workers stop only
+     * once the batcher has exited, and frames left in the queue are rejected - every future completes.
+     */
+    public void shutdown() {
+        running = false;
+        try {
+            batcher.join(TimeUnit.SECONDS.toMillis(5));
+            if (batcher.isAlive()) {
+                batcher.interrupt();
+                batcher.join();
+            }
+            workers.shutdown();
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PendingFrame frame;
+        while ((frame = ingestQueue.poll()) != null) {
+            reject(frame, "Recognition pipeline is shut down");
+        }
+        if (Trace.isEnabled()) {
+            System.out.println("RecognitionPipeline stopped");
+        }
+    }
+
+    /**
+     * Print per-stage counters
+     */
+    public void printMetrics() {
+        System.out.println(ingestMetrics);
+        System.out.println(batchMetrics);
+        System.out.println(matchMetrics);
+    }
+
+    public int getQueueDepth() { return ingestQueue.size(); }
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+    public StageMetrics getIngestMetrics() { return ingestMetrics; }
+    public StageMetrics getBatchMetrics() { return batchMetrics; }
+    public StageMetrics getMatchMetrics() { return matchMetrics; }
+
+    /**
+     * One batch handed to the workers - the rejection handler needs its frames
+     */
+    private class BatchTask implements Runnable {
+        private final List<PendingFrame> batch;
+
+        BatchTask(List<PendingFrame> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            processBatch(batch);
+        }
+    }
+
+    /**
+     * Frame waiting in the pipeline
+     */
+    private static class PendingFrame {
+        private final Image image;
+        private final long enqueuedNanos;
+        private final CompletableFuture<String> result;
+        private final LongConsumer matchCost;
+
+        PendingFrame(Image image, LongConsumer matchCost) {
+            this.image = image;
+            this.matchCost = matchCost;
+            this.enqueuedNanos = System.nanoTime();
+            this.result = new CompletableFuture<>();
+        }
+    }
+}
+
+/**
+ * Enum for ingest queue overflow handling
+ */
+enum OverflowPolicy {
+    BLOCK,          // camera thread waits for space (backpressure)
+    DROP_NEWEST,    // reject the incoming frame
+    DROP_OLDEST     // evict the oldest queued frame - freshest frames win
+}
@@ -0,0 +1,379 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * RoadGraph class - directed road network with travel times, in compressed adjacency arrays
+ * Travel times are in tenths of a second. Both directions of the adjacency are kept, so
+ * searches can run from a destination backwards. A coarse grid snaps GPS fixes to nodes.
+ *
+ * File format, one item per line ('#' starts a comment):
+ *   node  ID LATITUDE LONGITUDE
+ *   road  FROM_ID TO_ID SPEED_KMH [oneway]
+ *   place NODE_ID NAME...
+ */
+public class RoadGraph {
+    static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+    private static final double SNAP_CELL_DEGREES = 0.005;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final String[] nodeIds;
+    private final int[] forwardStart;
+    private final int[] forwardTarget;
+    private final int[] forwardTime;
+    private final int[] reverseStart;
+    private final int[] reverseSource;
+    private final int[] reverseTime;
+    private final Map<String, Integer> places;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final int gridColumns;
+    private final int gridRows;
+    private final int[] cellStart;
+    private final int[] cellNodes;
+
+    // Constructor
+    RoadGraph(String[] nodeIds, double[] latitudes, double[] longitudes, int[] edgeFrom, int[] edgeTo,
+              int[] edgeTime, int edgeCount, Map<String, Integer> places) {
+        int nodes = nodeIds.length;
+        this.nodeIds = nodeIds;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.places = Collections.unmodifiableMap(new LinkedHashMap<>(places));
+
+        this.forwardStart = new int[nodes + 1];
+        this.forwardTarget = new int[edgeCount];
+        this.forwardTime = new int[edgeCount];
+        this.reverseStart = new int[nodes + 1];
+        this.reverseSource = new int[edgeCount];
+        this.reverseTime = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            forwardStart[edgeFrom[e] + 1]++;
+            reverseStart[edgeTo[e] + 1]++;
+        }
+        for (int n = 0; n < nodes; n++) {
+            forwardStart[n + 1] += forwardStart[n];
+            reverseStart[n + 1] += reverseStart[n];
+        }
+        int[] forwardNext = Arrays.copyOf(forwardStart, nodes);
+        int[] reverseNext = Arrays.copyOf(reverseStart, nodes);
+        for (int e = 0; e < edgeCount; e++) {
+            int f = forwardNext[edgeFrom[e]]++;
+            forwardTarget[f] = edgeTo[e];
+            forwardTime[f] = edgeTime[e];
+            int r = reverseNext[edgeTo[e]]++;
+            reverseSource[r] = edgeFrom[e];
+            reverseTime[r] = edgeTime[e];
+        }
+
+        // Snap grid: nodes bucketed by cell, cells in row-major order
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int n = 0; n < nodes; n++) {
+            minLat = Math.min(minLat, latitudes[n]);
+            maxLat = Math.max(maxLat, latitudes[n]);
+            minLon = Math.min(minLon, longitudes[n]);
+            maxLon = Math.max(maxLon, longitudes[n]);
+        }
+        this.minLatitude = nodes > 0 ? minLat : 0;
+        this.minLongitude = nodes > 0 ? minLon : 0;
+        this.gridRows = nodes > 0 ? (int) ((maxLat - minLat) / SNAP_CELL_DEGREES) + 1 : 1;
+        this.gridColumns = nodes > 0 ? (int) ((maxLon - minLon) / SNAP_CELL_DEGREES) + 1 : 1;
+        this.cellStart = new int[gridRows * gridColumns + 1];
+        this.cellNodes = new int[nodes];
+        int[] cellOf = new int[nodes];
+        for (int n = 0; n < nodes; n++) {
+            cellOf[n] = cellIndex(rowOf(latitudes[n]), columnOf(longitudes[n]));
+            cellStart[cellOf[n] + 1]++;
+        }
+        for (int c = 0; c < gridRows * gridColumns; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] cellNext = Arrays.copyOf(cellStart, gridRows * gridColumns);
+        for (int n = 0; n < nodes; n++) {
+            cellNodes[cellNext[cellOf[n]]++] = n;
+        }
+    }
+
+    /**
+     * Load a graph file - road lengths are great-circle distances between their nodes
+     */
+    public static RoadGraph load(Path path) {
+        Builder builder = new Builder();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                String content = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (content.isEmpty()) {
+                    continue;
+                }
+                String[] fields = content.split("\\s+", 3);
+                try {
+                    switch (fields[0]) {
+                        case "node":
+                            String[] coordinates = fields[2].split("\\s+");
+                            builder.addNode(fields[1], Double.parseDouble(coordinates[0]), Double.parseDouble(coordinates[1]));
+                            break;
+                        case "road":
+                            String[] rest = fields[2].split("\\s+");
+                            builder.addRoad(fields[1], rest[0], Double.parseDouble(rest[1]),
+                                            rest.length > 2 && rest[2].equals("oneway"));
+                            break;
+                        case "place":
+                            builder.addPlace(fields[1], fields[2]);
+                            break;
+                        default:
+                            throw new IllegalArgumentException("unknown item '" + fields[0] + "'");
+                    }
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException(path + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read road graph " + path, e);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Synthetic grid city around a center - arterials every 6th street, alternating one-way
+     * side streets, random missing blocks; schools and stops as places
+     */
+    public static Builder grid(int rows, int columns, double spacingMeters, double centerLatitude,
+                               double centerLongitude, long seed) {
+        Random random = new Random(seed);
+        Builder builder = new Builder();
+        double latitudeStep = spacingMeters / 111_320.0;
+        double longitudeStep = spacingMeters / (111_320.0 * Math.cos(Math.toRadians(centerLatitude)));
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                builder.addNode(r + "_" + c,
+                        centerLatitude + (r - rows / 2.0) * latitudeStep + (random.nextDouble() - 0.5) * latitudeStep * 0.2,
+                        centerLongitude + (c - columns / 2.0) * longitudeStep + (random.nextDouble() - 0.5) * longitudeStep * 0.2);
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (c + 1 < columns && (r % 6 == 0 || random.nextInt(20) != 0)) {
+                    boolean oneway = r % 6 != 0 && r % 3 == 0;
+                    String from = r % 2 == 0 ? r + "_" + c : r + "_" + (c + 1);
+                    String to = r % 2 == 0 ? r + "_" + (c + 1) : r + "_" + c;
+                    builder.addRoad(from, to, r % 6 == 0 ? 50 : 30, oneway);
+                }
+                if (r + 1 < rows && (c % 6 == 0 || random.nextInt(20) != 0)) {
+                    builder.addRoad(r + "_" + c, (r + 1) + "_" + c, c % 6 == 0 ? 50 : 30, false);
+                }
+            }
+        }
+        for (int s = 1; s <= Math.max(3, rows * columns / 2000); s++) {
+            builder.addPlace(random.nextInt(rows) + "_" + random.nextInt(columns), "School " + s);
+        }
+        for (int r = 0; r < rows; r += 12) {
+            for (int c = 0; c < columns; c += 12) {
+                builder.addPlace(r + "_" + c, "Stop " + r + "-" + c);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Write the graph in the file format load() reads
+     */
+    public void save(Path path) {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("# Road graph: " + size() + " nodes, " + getEdgeCount() + " directed roads\n");
+            for (int n = 0; n < size(); n++) {
+                writer.write(String.format("node %s %.6f %.6f%n", nodeIds[n], latitudes[n], longitudes[n]));
+            }
+            for (int n = 0; n < size(); n++) {
+                for (int e = forwardStart[n]; e < forwardStart[n + 1]; e++) {
+                    int target = forwardTarget[e];
+                    boolean twoWay = hasEdge(target, n);
+                    if (twoWay && target < n) {
+                        continue; // written from the other end
+                    }
+                    double meters = SpatialIndex.distanceMeters(latitudes[n], longitudes[n], latitudes[target], longitudes[target]);
+                    long speedKmh = Math.round(meters / (forwardTime[e] / 10.0) * 3.6);
+                    writer.write("road " + nodeIds[n] + " " + nodeIds[target] + " " + speedKmh + (twoWay ? "" : " oneway") + "\n");
+                }
+            }
+            for (Map.Entry<String, Integer> place : places.entrySet()) {
+                writer.write("place " + nodeIds[place.getValue()] + " " + place.getKey() + "\n");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write road graph " + path, e);
+        }
+    }
+
+    private boolean hasEdge(int from, int to) {
+        for (int e = forwardStart[from]; e < forwardStart[from + 1]; e++) {
+            if (forwardTarget[e] == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Node closest to the position - searches rings of grid cells outward
+     */
+    public int nearestNode(double latitude, double longitude) {
+        int row = Math.max(0, Math.min(gridRows - 1, rowOf(latitude)));
+        int column = Math.max(0, Math.min(gridColumns - 1, columnOf(longitude)));
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        int maxRing = Math.max(gridRows, gridColumns);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= gridRows) {
+                    continue;
+                }
+                boolean edgeRow = r == row - ring || r == row + ring;
+                for (int c = column - ring; c <= column + ring; c += edgeRow ? 1 : 2 * ring) {
+                    if (c < 0 || c >= gridColumns) {
+                        continue;
+                    }
+                    int cell = cellIndex(r, c);
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        int node = cellNodes[i];
+                        double dLat = latitudes[node] - latitude;
+                        double dLon = (longitudes[node] - longitude) * cosLatitude;
+                        double distance = dLat * dLat + dLon * dLon;
+                        if (distance < bestDistance) {
+                            bestDistance = distance;
+                            best = node;
+                        }
+                    }
+                    if (ring == 0) {
+                        break;
+                    }
+                }
+            }
+            // a node in a farther ring is at least (ring * cell) away
+            if (best >= 0 && Math.sqrt(bestDistance) <= ring * SNAP_CELL_DEGREES * cosLatitude) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private int rowOf(double latitude) {
+        return (int) Math.floor((latitude - minLatitude) / SNAP_CELL_DEGREES);
+    }
+
+    private int columnOf(double longitude) {
+        return (int) Math.floor((longitude - minLongitude) / SNAP_CELL_DEGREES);
+    }
+
+    private int cellIndex(int row, int column) {
+        return row * gridColumns + column;
+    }
+
+    public int size() { return nodeIds.length; }
+    public int getEdgeCount() { return forwardTarget.length; }
+    public Map<String, Integer> getPlaces() { return places; }
+    public Integer getPlaceNode(String name) { return places.get(name); }
+    public String getNodeId(int node) { return nodeIds[node]; }
+    public double getLatitude(int node) { return latitudes[node]; }
+    public double getLongitude(int node) { return longitudes[node]; }
+    int[] forwardStart() { return forwardStart; }
+    int[] forwardTarget() { return forwardTarget; }
+    int[] forwardTime() { return forwardTime; }
+    int[] reverseStart() { return reverseStart; }
+    int[] reverseSource() { return reverseSource; }
+    int[] reverseTime() { return reverseTime; }
+
+    @Override
+    public String toString() {
+        return "RoadGraph{nodes=" + size() + ", roads=" + getEdgeCount() + ", places=" + places.size() + "}";
+    }
+
+    /**
+     * Collects nodes, roads and places by external ID
+     */
+    public static class Builder {
+        private final Map<String, Integer> nodeIndex = new HashMap<>();
+        private final List<String> ids = new ArrayList<>();
+        private double[] latitudes = new double[1024];
+        private double[] longitudes = new double[1024];
+        private int[] edgeFrom = new int[4096];
+        private int[] edgeTo = new int[4096];
+        private int[] edgeTime = new int[4096];
+        private int edgeCount;
+        private final Map<String, Integer> places = new LinkedHashMap<>();
+
+        public Builder addNode(String id, double latitude, double longitude) {
+            if (nodeIndex.putIfAbsent(id, ids.size()) != null) {
+                throw new IllegalArgumentException("duplicate node " + id);
+            }
+            if (ids.size() == latitudes.length) {
+                latitudes = Arrays.copyOf(latitudes, latitudes.length * 2);
+                longitudes = Arrays.copyOf(longitudes, longitudes.length * 2);
+            }
+            latitudes[ids.size()] = latitude;
+            longitudes[ids.size()] = longitude;
+            ids.add(id);
+            return this;
+        }
+
+        public Builder addRoad(String fromId, String toId, double speedKmh, boolean oneway) {
+            int from = node(fromId);
+            int to = node(toId);
+            double meters = SpatialIndex.distanceMeters(latitudes[from], longitudes[from], latitudes[to], longitudes[to]);
+            int time = Math.max(1, (int) Math.round(meters / (speedKmh / 3.6) * 10));
+            addEdge(from, to, time);
+            if (!oneway) {
+                addEdge(to, from, time);
+            }
+            return this;
+        }
+
+        public Builder addPlace(String nodeId, String name) {
+            places.put(name.trim(), node(nodeId));
+            return this;
+        }
+
+        private void addEdge(int from, int to, int time) {
+            if (edgeCount == edgeFrom.length) {
+                edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+                edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+                edgeTime = Arrays.copyOf(edgeTime, edgeCount * 2);
+            }
+            edgeFrom[edgeCount] = from;
+            edgeTo[edgeCount] = to;
+            edgeTime[edgeCount] = time;
+            edgeCount++;
+        }
+
+        private int node(String id) {
+            Integer index = nodeIndex.get(id);
+            if (index == null) {
+                throw new IllegalArgumentException("unknown node " + id);
+            }
+            return index;
+        }
+
+        public RoadGraph build() {
+            int nodes = ids.size();
+            return new RoadGraph(ids.toArray(new String[0]), Arrays.copyOf(latitudes, nodes),
+                                 Arrays.copyOf(longitudes, nodes), edgeFrom, edgeTo, edgeTime, edgeCount, places);
+        }
+    }
+}
@@ -0,0 +1,444 @@
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RoutePlanner class - orders one driver's stops to reach school before it starts
+ * Each stop has a dwell time and an optional time window; arriving early means waiting, arriving
+ * after the window (or at school after the start time) is lateness, weighted far above driving time.
+ *
+ * The current plan is kept between calls. Marking a child absent, adding or removing a stop edits
+ * that plan in place - a cheapest insertion for a new stop - and repairs it with a short descent
+ * over Or-opt and 2-opt moves. Moves are scored from the first changed position onward, using the
+ * departure times and lateness already known for the unchanged prefix.
+ */
+public class RoutePlanner {
+    private static final double LATE_WEIGHT = 1000.0;
+    private static final double EPSILON = 1e-6;
+    private static final int START = 0;
+    private static final int SCHOOL = 1;
+
+    private final Location start;
+    private final int departureSecond;
+    private final String schoolName;
+    private final int schoolStartSecond;
+    private final long repairBudgetMillis;
+    // slots 0 and 1 are the start and the school; stops take the following slots, reused only by plan()
+    private final List<RouteStop> slots = new ArrayList<>();
+    private final List<Location> slotLocations = new ArrayList<>();
+    private final Map<String, Integer> slotOfStop = new HashMap<>();
+    private final Map<String, Integer> slotOfChild = new HashMap<>();
+    private double[][] travel = new double[0][0];
+    private int[] route = new int[8];
+    private int length;
+    // per route position: departure second and lateness so far
+    private double[] departures = new double[8];
+    private double[] lateness = new double[8];
+    private double cost;
+    private RoutePlan currentPlan;
+
+    // Constructor
+    public RoutePlanner(Location start, LocalTime departure, Location school, String schoolName, LocalTime schoolStart) {
+        this(start, departure, school, schoolName, schoolStart, 50);
+    }
+
+    public RoutePlanner(Location start, LocalTime departure, Location school, String schoolName, LocalTime schoolStart,
+                        long repairBudgetMillis) {
+        this.start = start;
+        this.departureSecond = departure.toSecondOfDay();
+        this.schoolName = schoolName;
+        this.schoolStartSecond = schoolStart.toSecondOfDay();
+        this.repairBudgetMillis = repairBudgetMillis;
+        addSlot(null, start);
+        addSlot(null, school);
+    }
+
+    /**
+     * Plan from scratch: stops by deadline, each at its cheapest position, then a full descent
+     */
+    public synchronized RoutePlan plan(List<RouteStop> stops) {
+        long startNanos = System.nanoTime();
+        // Start over with the two fixed slots - stops detached by earlier edits are reclaimed
+        Location school = slotLocations.get(SCHOOL);
+        slots.clear();
+        slotLocations.clear();
+        slotOfStop.clear();
+        slotOfChild.clear();
+        travel = new double[0][0];
+        addSlot(null, start);
+        addSlot(null, school);
+        length = 0;
+        List<RouteStop> byDeadline = new ArrayList<>(stops);
+        byDeadline.sort((a, b) -> Integer.compare(latestSecond(a), latestSecond(b)));
+        for (RouteStop stop : byDeadline) {
+            insertCheapest(addSlot(stop, stop.getLocation()));
+        }
+        improve(Long.MAX_VALUE);
+        return publish(startNanos, false);
+    }
+
+    /**
+     * Drop a child from their stop - the stop leaves the route once nobody is waiting there
+     */
+    public synchronized RoutePlan markAbsent(String childName) {
+        long startNanos = System.nanoTime();
+        Integer slot = slotOfChild.remove(childName);
+        if (slot == null) {
+            throw new IllegalArgumentException("No stop for child " + childName);
+        }
+        RouteStop stop = slots.get(slot).withoutChild(childName);
+        slots.set(slot, stop);
+        if (stop.getChildren().isEmpty()) {
+            removeFromRoute(slot);
+            detach(stop.getStopId());
+        }
+        return repair(startNanos);
+    }
+
+    public synchronized RoutePlan addStop(RouteStop stop) {
+        long startNanos = System.nanoTime();
+        if (slotOfStop.containsKey(stop.getStopId())) {
+            throw new IllegalArgumentException("Stop already planned: " + stop.getStopId());
+        }
+        insertCheapest(addSlot(stop, stop.getLocation()));
+        return repair(startNanos);
+    }
+
+    public synchronized RoutePlan removeStop(String stopId) {
+        long startNanos = System.nanoTime();
+        Integer slot = slotOfStop.get(stopId);
+        if (slot == null) {
+            throw new IllegalArgumentException("Unknown stop " + stopId);
+        }
+        removeFromRoute(slot);
+        detach(stopId);
+        return repair(startNanos);
+    }
+
+    private RoutePlan repair(long startNanos) {
+        improve(startNanos + repairBudgetMillis * 1_000_000L);
+        return publish(startNanos, true);
+    }
+
+    private int addSlot(RouteStop stop, Location location) {
+        int slot = slots.size();
+        slots.add(stop);
+        slotLocations.add(location);
+        if (stop != null) {
+            slotOfStop.put(stop.getStopId(), slot);
+            for (String child : stop.getChildren()) {
+                slotOfChild.put(child, slot);
+            }
+        }
+        if (slot >= travel.length) {
+            double[][] grown = new double[Math.max(8, travel.length * 2)][];
+            for (int i = 0; i < grown.length; i++) {
+                grown[i] = new double[grown.length];
+                if (i < travel.length) {
+                    System.arraycopy(travel[i], 0, grown[i], 0, travel.length);
+                }
+            }
+            travel = grown;
+        }
+        // only the new slot's row and column are computed
+        for (int other = 0; other < slot; other++) {
+            travel[slot][other] = travel[other][slot] = SharedRideOptimizer.travelSeconds(location, slotLocations.get(other));
+        }
+        return slot;
+    }
+
+    private void detach(String stopId) {
+        Integer slot = slotOfStop.remove(stopId);
+        if (slot != null) {
+            for (String child : slots.get(slot).getChildren()) {
+                slotOfChild.remove(child);
+            }
+            slots.set(slot, null);
+        }
+    }
+
+    private void insertCheapest(int slot) {
+        if (length == route.length) {
+            route = java.util.Arrays.copyOf(route, length * 2);
+            departures = java.util.Arrays.copyOf(departures, length * 2);
+            lateness = java.util.Arrays.copyOf(lateness, length * 2);
+        }
+        int bestPosition = length;
+        double bestCost = Double.MAX_VALUE;
+        length++;
+        for (int position = length - 1; position >= 0; position--) {
+            if (position < length - 1) {
+                route[position + 1] = route[position];
+            }
+            route[position] = slot;
+            double trial = costFrom(position);
+            if (trial < bestCost - EPSILON) {
+                bestCost = trial;
+                bestPosition = position;
+            }
+        }
+        // slot now sits at 0: move it to the best position
+        System.arraycopy(route, 1, route, 0, bestPosition);
+        route[bestPosition] = slot;
+        commitFrom(0);
+    }
+
+    private void removeFromRoute(int slot) {
+        for (int position = 0; position < length; position++) {
+            if (route[position] == slot) {
+                System.arraycopy(route, position + 1, route, position, length - position - 1);
+                length--;
+                commitFrom(position);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Descent over Or-opt (segments of 1-3 stops moved elsewhere) and 2-opt, first improvement
+     */
+    private void improve(long deadlineNanos) {
+        commitFrom(0);
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadlineNanos) {
+            improved = orOpt() || twoOpt();
+        }
+    }
+
+    private boolean orOpt() {
+        for (int segment = 1; segment <= 3; segment++) {
+            for (int from = 0; from + segment <= length; from++) {
+                for (int to = 0; to + segment <= length; to++) {
+                    if (to == from) {
+                        continue;
+                    }
+                    moveSegment(from, to, segment);
+                    int changed = Math.min(from, to);
+                    if (costFrom(changed) < cost - EPSILON) {
+                        commitFrom(changed);
+                        return true;
+                    }
+                    moveSegment(to, from, segment);
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean twoOpt() {
+        for (int i = 0; i < length - 1; i++) {
+            for (int j = i + 1; j < length; j++) {
+                reverse(i, j);
+                if (costFrom(i) < cost - EPSILON) {
+                    commitFrom(i);
+                    return true;
+                }
+                reverse(i, j);
+            }
+        }
+        return false;
+    }
+
+    private void moveSegment(int from, int to, int segment) {
+        int[] moved = new int[segment];
+        System.arraycopy(route, from, moved, 0, segment);
+        if (from < to) {
+            System.arraycopy(route, from + segment, route, from, to - from);
+        } else {
+            System.arraycopy(route, to, route, to + segment, from - to);
+        }
+        System.arraycopy(moved, 0, route, to, segment);
+    }
+
+    private void reverse(int i, int j) {
+        for (; i < j; i++, j--) {
+            int swap = route[i];
+            route[i] = route[j];
+            route[j] = swap;
+        }
+    }
+
+    /**
+     * Cost of the route if positions before 'position' are unchanged - nothing is stored
+     */
+    private double costFrom(int position) {
+        double time = position > 0 ? departures[position - 1] : departureSecond;
+        double late = position > 0 ? lateness[position - 1] : 0;
+        int at = position > 0 ? route[position - 1] : START;
+        for (int i = position; i < length; i++) {
+            RouteStop stop = slots.get(route[i]);
+            time = Math.max(time + travel[at][route[i]], earliestSecond(stop));
+            late += Math.max(0, time - latestSecond(stop));
+            time += stop.getDwellSeconds();
+            at = route[i];
+        }
+        time += travel[at][SCHOOL];
+        late += Math.max(0, time - schoolStartSecond);
+        return LATE_WEIGHT * late + time - departureSecond;
+    }
+
+    private void commitFrom(int position) {
+        double time = position > 0 ? departures[position - 1] : departureSecond;
+        double late = position > 0 ? lateness[position - 1] : 0;
+        int at = position > 0 ? route[position - 1] : START;
+        for (int i = position; i < length; i++) {
+            RouteStop stop = slots.get(route[i]);
+            time = Math.max(time + travel[at][route[i]], earliestSecond(stop));
+            late += Math.max(0, time - latestSecond(stop));
+            time += stop.getDwellSeconds();
+            departures[i] = time;
+            lateness[i] = late;
+            at = route[i];
+        }
+        cost = costFrom(length);
+    }
+
+    private int earliestSecond(RouteStop stop) {
+        return stop.getEarliest() != null ? stop.getEarliest().toSecondOfDay() : 0;
+    }
+
+    private int latestSecond(RouteStop stop) {
+        return stop.getLatest() != null ? stop.getLatest().toSecondOfDay() : schoolStartSecond;
+    }
+
+    private RoutePlan publish(long startNanos, boolean incremental) {
+        List<PlannedStop> planned = new ArrayList<>(length);
+        double previousDeparture = departureSecond;
+        int at = START;
+        for (int i = 0; i < length; i++) {
+            RouteStop stop = slots.get(route[i]);
+            double arrival = previousDeparture + travel[at][route[i]];
+            int late = (int) Math.max(0, Math.max(arrival, earliestSecond(stop)) - latestSecond(stop));
+            planned.add(new PlannedStop(stop, toTime(arrival), toTime(departures[i]), late));
+            previousDeparture = departures[i];
+            at = route[i];
+        }
+        double schoolArrival = previousDeparture + travel[at][SCHOOL];
+        double totalLate = (length > 0 ? lateness[length - 1] : 0) + Math.max(0, schoolArrival - schoolStartSecond);
+        currentPlan = new RoutePlan(planned, schoolName, toTime(schoolArrival), (int) Math.round(totalLate),
+                                    (int) Math.round(schoolArrival - departureSecond), incremental, System.nanoTime() - startNanos);
+        if (Trace.isEnabled()) {
+            System.out.println("RoutePlanner: " + currentPlan);
+        }
+        return currentPlan;
+    }
+
+    private static LocalTime toTime(double secondOfDay) {
+        return LocalTime.ofSecondOfDay(Math.min(86_399, Math.round(secondOfDay)));
+    }
+
+    public Location getStart() { return start; }
+    public String getSchoolName() { return schoolName; }
+    public synchronized RoutePlan getCurrentPlan() { return currentPlan; }
+    public synchronized int getSlotCount() { return slots.size(); }
+}
+
+/**
+ * RouteStop class - a pick-up point, the children waiting there and its time window
+ */
+class RouteStop {
+    private final String stopId;
+    private final Location location;
+    private final List<String> children;
+    private final int dwellSeconds;
+    private final LocalTime earliest;
+    private final LocalTime latest;
+
+    public RouteStop(String stopId, Location location, List<String> children, int dwellSeconds) {
+        this(stopId, location, children, dwellSeconds, null, null);
+    }
+
+    public RouteStop(String stopId, Location location, List<String> children, int dwellSeconds,
+                     LocalTime earliest, LocalTime latest) {
+        this.stopId = stopId;
+        this.location = location;
+        this.children = Collections.unmodifiableList(new ArrayList<>(children));
+        this.dwellSeconds = dwellSeconds;
+        this.earliest = earliest;
+        this.latest = latest;
+    }
+
+    /**
+     * Copy of this stop with one child less
+     */
+    public RouteStop withoutChild(String childName) {
+        List<String> remaining = new ArrayList<>(children);
+        remaining.remove(childName);
+        return new RouteStop(stopId, location, remaining, dwellSeconds, earliest, latest);
+    }
+
+    public String getStopId() { return stopId; }
+    public Location getLocation() { return location; }
+    public List<String> getChildren() { return children; }
+    public int getDwellSeconds() { return dwellSeconds; }
+    public LocalTime getEarliest() { return earliest; }
+    public LocalTime getLatest() { return latest; }
+}
+
+/**
+ * PlannedStop class - a stop with its planned arrival and departure
+ */
+class PlannedStop {
+    private final RouteStop stop;
+    private final LocalTime arrival;
+    private final LocalTime departure;
+    private final int lateSeconds;
+
+    public PlannedStop(RouteStop stop, LocalTime arrival, LocalTime departure, int lateSeconds) {
+        this.stop = stop;
+        this.arrival = arrival;
+        this.departure = departure;
+        this.lateSeconds = lateSeconds;
+    }
+
+    public RouteStop getStop() { return stop; }
+    public LocalTime getArrival() { return arrival; }
+    public LocalTime getDeparture() { return departure; }
+    public int getLateSeconds() { return lateSeconds; }
+}
+
+/**
+ * RoutePlan class - result of RoutePlanner, in driving order
+ */
+class RoutePlan {
+    private final List<PlannedStop> stops;
+    private final String schoolName;
+    private final LocalTime schoolArrival;
+    private final int lateSeconds;
+    private final int durationSeconds;
+    private final boolean incremental;
+    private final long planNanos;
+
+    public RoutePlan(List<PlannedStop> stops, String schoolName, LocalTime schoolArrival, int lateSeconds,
+                     int durationSeconds, boolean incremental, long planNanos) {
+        this.stops = Collections.unmodifiableList(stops);
+        this.schoolName = schoolName;
+        this.schoolArrival = schoolArrival;
+        this.lateSeconds = lateSeconds;
+        this.durationSeconds = durationSeconds;
+        this.incremental = incremental;
+        this.planNanos = planNanos;
+    }
+
+    public boolean isOnTime() {
+        return lateSeconds == 0;
+    }
+
+    public List<PlannedStop> getStops() { return stops; }
+    public String getSchoolName() { return schoolName; }
+    public LocalTime getSchoolArrival() { return schoolArrival; }
+    public int getLateSeconds() { return lateSeconds; }
+    public int getDurationSeconds() { return durationSeconds; }
+    public boolean isIncremental() { return incremental; }
+    public double getPlanMillis() { return planNanos / 1_000_000.0; }
+
+    @Override
+    public String toString() {
+        return String.format("RoutePlan{%d stops, %s at %s, %d min, late %d s, %s in %.2f ms}", stops.size(),
+                schoolName, schoolArrival, durationSeconds / 60, lateSeconds,
+                incremental ? "re-planned" : "planned", getPlanMillis());
+    }
+}
@@ -64,6 +64,7 @@ public class SequenceDemo {
             FaceRecognitionAndControlSystem recognitionSystem = new FaceRecognitionAndControlSystem("FRS_001", "OP_001");
             System.out.println("Step 12: LocationTracker → FaceRecognitionAndControlSystem.processImage(" + capturedImage.getImageId() + ")");
             String identifiedChildId = recognitionSystem.processImage(capturedImage);
+            capturedImage.release();
             Thread.sleep(500);
             
             // Step 13: Return identification result
@@ -0,0 +1,692 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * SharedRideOptimizer class - assigns ride requests to vehicles and orders their stops
+ * A route starts at the vehicle's depot, picks up its passengers, then visits their destinations
+ * (nearest first). Travel times are straight-line distances at city speed with a detour factor.
+ *
+ * Construction: sweep by angle around the destinations, filling vehicles up to capacity.
+ * Improvement: independent local searches on a fork-join pool, one per worker, each from its own
+ * random seed - first-improvement descent over 2-opt, relocate and exchange moves, with random
+ * perturbation when stuck, until the time budget ends. The best plan over all workers wins.
+ */
+public class SharedRideOptimizer {
+    private static final double CITY_METERS_PER_SECOND = 30 / 3.6;
+    private static final double DETOUR_FACTOR = 1.3;
+
+    private final ForkJoinPool pool;
+    private final long timeBudgetMillis;
+    private final int searches;
+
+    // Constructor
+    public SharedRideOptimizer() {
+        this(ForkJoinPool.commonPool(), 500);
+    }
+
+    public SharedRideOptimizer(ForkJoinPool pool, long timeBudgetMillis) {
+        this(pool, timeBudgetMillis, Math.max(2, pool.getParallelism()));
+    }
+
+    public SharedRideOptimizer(ForkJoinPool pool, long timeBudgetMillis, int searches) {
+        this.pool = pool;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.searches = searches;
+    }
+
+    /**
+     * Plan the rides - requests that do not fit any vehicle are returned as unassigned
+     */
+    public SharedRidePlan optimize(List<RideRequest> requests, List<RideVehicle> vehicles) {
+        long start = System.nanoTime();
+        Problem problem = new Problem(requests, vehicles);
+        Solution initial = problem.construct();
+        double initialSeconds = initial.cost;
+        long deadline = start + timeBudgetMillis * 1_000_000L;
+
+        Solution best = initial;
+        long moves = 0;
+        if (!requests.isEmpty() && !vehicles.isEmpty() && timeBudgetMillis > 0) {
+            List<LocalSearch> tasks = new ArrayList<>(searches);
+            for (int i = 0; i < searches; i++) {
+                tasks.add(new LocalSearch(problem, initial, deadline, 0x5EEDL * (i + 1)));
+            }
+            for (LocalSearch task : pool.invoke(new SearchAll(tasks))) {
+                moves += task.moves;
+                if (task.best.cost < best.cost - 1e-9) {
+                    best = task.best;
+                }
+            }
+        }
+
+        SharedRidePlan plan = problem.toPlan(best, initialSeconds, moves, System.nanoTime() - start);
+        if (Trace.isEnabled()) {
+            System.out.println("SharedRideOptimizer: " + plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Estimated driving time - straight line with a detour factor, at city speed
+     */
+    static double travelSeconds(Location from, Location to) {
+        double meters = SpatialIndex.distanceMeters(from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude());
+        return meters * DETOUR_FACTOR / CITY_METERS_PER_SECOND;
+    }
+
+    public long getTimeBudgetMillis() { return timeBudgetMillis; }
+    public int getSearches() { return searches; }
+
+    /**
+     * Forks the local searches and joins them all
+     */
+    private static class SearchAll extends RecursiveTask<List<LocalSearch>> {
+        private static final long serialVersionUID = 1L;
+        private final List<LocalSearch> tasks;
+
+        SearchAll(List<LocalSearch> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected List<LocalSearch> compute() {
+            invokeAll(tasks);
+            return tasks;
+        }
+    }
+
+    /**
+     * Instance data: nodes are the requests' pickups, then the distinct destinations, then the depots
+     */
+    private static class Problem {
+        private final List<RideRequest> requests;
+        private final List<RideVehicle> vehicles;
+        private final List<String> destinationNames;
+        private final int[] destinationOf;
+        private final int[] seats;
+        private final float[][] seconds;
+        private final int destinationBase;
+        private final int depotBase;
+
+        Problem(List<RideRequest> requests, List<RideVehicle> vehicles) {
+            this.requests = requests;
+            this.vehicles = vehicles;
+            Map<String, Location> destinations = new LinkedHashMap<>();
+            for (RideRequest request : requests) {
+                destinations.putIfAbsent(request.getDestinationName(), request.getDestination());
+            }
+            this.destinationNames = new ArrayList<>(destinations.keySet());
+            this.destinationBase = requests.size();
+            this.depotBase = destinationBase + destinations.size();
+
+            List<Location> nodes = new ArrayList<>(depotBase + vehicles.size());
+            this.destinationOf = new int[requests.size()];
+            this.seats = new int[requests.size()];
+            for (int r = 0; r < requests.size(); r++) {
+                nodes.add(requests.get(r).getPickup());
+                destinationOf[r] = destinationBase + destinationNames.indexOf(requests.get(r).getDestinationName());
+                seats[r] = requests.get(r).getSeats();
+            }
+            nodes.addAll(destinations.values());
+            for (RideVehicle vehicle : vehicles) {
+                nodes.add(vehicle.getDepot());
+            }
+            this.seconds = new float[nodes.size()][nodes.size()];
+            for (int a = 0; a < nodes.size(); a++) {
+                for (int b = a + 1; b < nodes.size(); b++) {
+                    seconds[a][b] = seconds[b][a] = (float) travelSeconds(nodes.get(a), nodes.get(b));
+                }
+            }
+        }
+
+        /**
+         * Sweep: requests by angle around the destinations' center, vehicles filled in turn;
+         * then each route's pickups ordered nearest-neighbor from the depot
+         */
+        Solution construct() {
+            double centerLatitude = 0, centerLongitude = 0;
+            for (String name : destinationNames) {
+                Location destination = destinationLocation(name);
+                centerLatitude += destination.getLatitude() / destinationNames.size();
+                centerLongitude += destination.getLongitude() / destinationNames.size();
+            }
+            Integer[] order = new Integer[requests.size()];
+            double[] angle = new double[requests.size()];
+            for (int r = 0; r < order.length; r++) {
+                order[r] = r;
+                Location pickup = requests.get(r).getPickup();
+                angle[r] = Math.atan2(pickup.getLatitude() - centerLatitude, pickup.getLongitude() - centerLongitude);
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(angle[a], angle[b]));
+
+            Solution solution = new Solution(this);
+            List<Integer> unassigned = new ArrayList<>();
+            int vehicle = 0;
+            for (int r : order) {
+                while (vehicle < vehicles.size() && solution.loads[vehicle] + seats[r] > vehicles.get(vehicle).getCapacity()) {
+                    vehicle++;
+                }
+                if (vehicle < vehicles.size()) {
+                    solution.append(vehicle, r);
+                } else {
+                    unassigned.add(r);
+                }
+            }
+            // second chance for requests skipped by the sweep: any vehicle with room
+            for (int r : unassigned) {
+                for (int v = 0; v < vehicles.size(); v++) {
+                    if (solution.loads[v] + seats[r] <= vehicles.get(v).getCapacity()) {
+                        solution.append(v, r);
+                        break;
+                    }
+                }
+            }
+            for (int v = 0; v < vehicles.size(); v++) {
+                solution.orderNearestNeighbor(v);
+            }
+            solution.evaluate();
+            return solution;
+        }
+
+        private Location destinationLocation(String name) {
+            for (RideRequest request : requests) {
+                if (request.getDestinationName().equals(name)) {
+                    return request.getDestination();
+                }
+            }
+            throw new IllegalArgumentException("Unknown destination " + name);
+        }
+
+        /**
+         * Travel time of one route: depot, pickups in order, then the destinations nearest first
+         */
+        double routeSeconds(int vehicle, int[] stops, int length, boolean[] visited) {
+            if (length == 0) {
+                return 0;
+            }
+            int at = depotBase + vehicle;
+            double total = 0;
+            for (int i = 0; i < length; i++) {
+                total += seconds[at][stops[i]];
+                at = stops[i];
+            }
+            Arrays.fill(visited, false);
+            int remaining = 0;
+            for (int i = 0; i < length; i++) {
+                int destination = destinationOf[stops[i]] - destinationBase;
+                if (!visited[destination]) {
+                    visited[destination] = true;
+                    remaining++;
+                }
+            }
+            while (remaining > 0) {
+                int next = -1;
+                for (int d = 0; d < visited.length; d++) {
+                    if (visited[d] && (next < 0 || seconds[at][destinationBase + d] < seconds[at][destinationBase + next])) {
+                        next = d;
+                    }
+                }
+                total += seconds[at][destinationBase + next];
+                at = destinationBase + next;
+                visited[next] = false;
+                remaining--;
+            }
+            return total;
+        }
+
+        SharedRidePlan toPlan(Solution solution, double initialSeconds, long moves, long elapsedNanos) {
+            List<VehicleRoute> routes = new ArrayList<>();
+            boolean[] assigned = new boolean[requests.size()];
+            boolean[] visited = new boolean[destinationNames.size()];
+            for (int v = 0; v < vehicles.size(); v++) {
+                if (solution.lengths[v] == 0) {
+                    continue;
+                }
+                List<RideRequest> pickups = new ArrayList<>();
+                List<String> dropoffs = new ArrayList<>();
+                for (int i = 0; i < solution.lengths[v]; i++) {
+                    int r = solution.routes[v][i];
+                    assigned[r] = true;
+                    pickups.add(requests.get(r));
+                    String destination = requests.get(r).getDestinationName();
+                    if (!dropoffs.contains(destination)) {
+                        dropoffs.add(destination);
+                    }
+                }
+                dropoffs = orderDropoffs(solution.routes[v][solution.lengths[v] - 1], dropoffs);
+                routes.add(new VehicleRoute(vehicles.get(v), pickups, dropoffs, solution.loads[v],
+                        (int) Math.round(routeSeconds(v, solution.routes[v], solution.lengths[v], visited))));
+            }
+            List<RideRequest> unassigned = new ArrayList<>();
+            for (int r = 0; r < requests.size(); r++) {
+                if (!assigned[r]) {
+                    unassigned.add(requests.get(r));
+                }
+            }
+            return new SharedRidePlan(routes, unassigned, (int) Math.round(initialSeconds),
+                                      (int) Math.round(solution.cost), moves, elapsedNanos);
+        }
+
+        private List<String> orderDropoffs(int lastPickup, List<String> names) {
+            List<String> ordered = new ArrayList<>();
+            List<String> remaining = new ArrayList<>(names);
+            int at = lastPickup;
+            while (!remaining.isEmpty()) {
+                String nearest = null;
+                for (String name : remaining) {
+                    int node = destinationBase + destinationNames.indexOf(name);
+                    if (nearest == null || seconds[at][node] < seconds[at][destinationBase + destinationNames.indexOf(nearest)]) {
+                        nearest = name;
+                    }
+                }
+                remaining.remove(nearest);
+                ordered.add(nearest);
+                at = destinationBase + destinationNames.indexOf(nearest);
+            }
+            return ordered;
+        }
+    }
+
+    /**
+     * Mutable plan: the pickups of each vehicle in order, with loads and route costs
+     */
+    private static class Solution {
+        private final Problem problem;
+        private final int[][] routes;
+        private final int[] lengths;
+        private final int[] loads;
+        private final double[] routeCosts;
+        private final boolean[] visited;
+        private double cost;
+
+        Solution(Problem problem) {
+            this.problem = problem;
+            int vehicles = problem.vehicles.size();
+            this.routes = new int[vehicles][Math.max(1, problem.requests.size())];
+            this.lengths = new int[vehicles];
+            this.loads = new int[vehicles];
+            this.routeCosts = new double[vehicles];
+            this.visited = new boolean[problem.destinationNames.size()];
+        }
+
+        Solution copy() {
+            Solution copy = new Solution(problem);
+            for (int v = 0; v < routes.length; v++) {
+                System.arraycopy(routes[v], 0, copy.routes[v], 0, lengths[v]);
+            }
+            System.arraycopy(lengths, 0, copy.lengths, 0, lengths.length);
+            System.arraycopy(loads, 0, copy.loads, 0, loads.length);
+            System.arraycopy(routeCosts, 0, copy.routeCosts, 0, routeCosts.length);
+            copy.cost = cost;
+            return copy;
+        }
+
+        void append(int vehicle, int request) {
+            routes[vehicle][lengths[vehicle]++] = request;
+            loads[vehicle] += problem.seats[request];
+        }
+
+        void orderNearestNeighbor(int vehicle) {
+            int[] route = routes[vehicle];
+            int at = problem.depotBase + vehicle;
+            for (int i = 0; i < lengths[vehicle]; i++) {
+                int nearest = i;
+                for (int j = i + 1; j < lengths[vehicle]; j++) {
+                    if (problem.seconds[at][route[j]] < problem.seconds[at][route[nearest]]) {
+                        nearest = j;
+                    }
+                }
+                int swap = route[i];
+                route[i] = route[nearest];
+                route[nearest] = swap;
+                at = route[i];
+            }
+        }
+
+        double routeCost(int vehicle) {
+            return problem.routeSeconds(vehicle, routes[vehicle], lengths[vehicle], visited);
+        }
+
+        void evaluate() {
+            cost = 0;
+            for (int v = 0; v < routes.length; v++) {
+                routeCosts[v] = routeCost(v);
+                cost += routeCosts[v];
+            }
+        }
+
+        boolean fits(int vehicle, int extraSeats) {
+            return loads[vehicle] + extraSeats <= problem.vehicles.get(vehicle).getCapacity();
+        }
+
+        void insert(int vehicle, int position, int request) {
+            int[] route = routes[vehicle];
+            System.arraycopy(route, position, route, position + 1, lengths[vehicle] - position);
+            route[position] = request;
+            lengths[vehicle]++;
+            loads[vehicle] += problem.seats[request];
+        }
+
+        int removeAt(int vehicle, int position) {
+            int[] route = routes[vehicle];
+            int request = route[position];
+            System.arraycopy(route, position + 1, route, position, lengths[vehicle] - position - 1);
+            lengths[vehicle]--;
+            loads[vehicle] -= problem.seats[request];
+            return request;
+        }
+
+        void reverse(int vehicle, int from, int to) {
+            int[] route = routes[vehicle];
+            for (int i = from, j = to; i < j; i++, j--) {
+                int swap = route[i];
+                route[i] = route[j];
+                route[j] = swap;
+            }
+        }
+
+        void updateCost(int vehicle) {
+            double updated = routeCost(vehicle);
+            cost += updated - routeCosts[vehicle];
+            routeCosts[vehicle] = updated;
+        }
+    }
+
+    /**
+     * One local search: descent over 2-opt, relocate and exchange, perturbed when stuck
+     */
+    private static class LocalSearch extends RecursiveTask<Solution> {
+        private static final long serialVersionUID = 1L;
+        private static final double EPSILON = 1e-6;
+
+        private final Problem problem;
+        private final Solution start;
+        private final long deadlineNanos;
+        private final SplittableRandom random;
+        private Solution best;
+        private long moves;
+
+        LocalSearch(Problem problem, Solution start, long deadlineNanos, long seed) {
+            this.problem = problem;
+            this.start = start;
+            this.deadlineNanos = deadlineNanos;
+            this.random = new SplittableRandom(seed);
+        }
+
+        @Override
+        protected Solution compute() {
+            Solution current = start.copy();
+            best = current.copy();
+            while (System.nanoTime() < deadlineNanos) {
+                boolean improved = twoOpt(current) | relocate(current) | exchange(current);
+                if (improved) {
+                    continue;
+                }
+                if (current.cost < best.cost - EPSILON) {
+                    best = current.copy();
+                } else {
+                    current = best.copy();
+                }
+                perturb(current, 2 + random.nextInt(3));
+            }
+            if (current.cost < best.cost - EPSILON) {
+                best = current;
+            }
+            return best;
+        }
+
+        private boolean twoOpt(Solution solution) {
+            boolean improved = false;
+            for (int v = 0; v < solution.routes.length && System.nanoTime() < deadlineNanos; v++) {
+                int length = solution.lengths[v];
+                for (int i = 0; i < length - 1; i++) {
+                    for (int j = i + 1; j < length; j++) {
+                        double before = solution.routeCosts[v];
+                        solution.reverse(v, i, j);
+                        if (solution.routeCost(v) < before - EPSILON) {
+                            solution.updateCost(v);
+                            moves++;
+                            improved = true;
+                        } else {
+                            solution.reverse(v, i, j);
+                        }
+                    }
+                }
+            }
+            return improved;
+        }
+
+        private boolean relocate(Solution solution) {
+            boolean improved = false;
+            int vehicles = solution.routes.length;
+            int offset = random.nextInt(Math.max(1, vehicles));
+            for (int k = 0; k < vehicles && System.nanoTime() < deadlineNanos; k++) {
+                int from = (k + offset) % vehicles;
+                for (int i = 0; i < solution.lengths[from]; i++) {
+                    int request = solution.routes[from][i];
+                    double fromBefore = solution.routeCosts[from];
+                    solution.removeAt(from, i);
+                    double fromAfter = solution.routeCost(from);
+                    boolean moved = false;
+                    for (int to = 0; to < vehicles && !moved; to++) {
+                        if (to == from || !solution.fits(to, problem.seats[request])) {
+                            continue;
+                        }
+                        double toBefore = solution.routeCosts[to];
+                        for (int j = 0; j <= solution.lengths[to]; j++) {
+                            solution.insert(to, j, request);
+                            double toAfter = solution.routeCost(to);
+                            if (fromAfter + toAfter < fromBefore + toBefore - EPSILON) {
+                                solution.updateCost(from);
+                                solution.updateCost(to);
+                                moves++;
+                                moved = true;
+                                improved = true;
+                                break;
+                            }
+                            solution.removeAt(to, j);
+                        }
+                    }
+                    if (!moved) {
+                        solution.insert(from, i, request);
+                    } else {
+                        i--;
+                    }
+                }
+            }
+            return improved;
+        }
+
+        private boolean exchange(Solution solution) {
+            boolean improved = false;
+            int vehicles = solution.routes.length;
+            for (int a = 0; a < vehicles && System.nanoTime() < deadlineNanos; a++) {
+                for (int b = a + 1; b < vehicles; b++) {
+                    for (int i = 0; i < solution.lengths[a]; i++) {
+                        for (int j = 0; j < solution.lengths[b]; j++) {
+                            int requestA = solution.routes[a][i];
+                            int requestB = solution.routes[b][j];
+                            int seatDelta = problem.seats[requestB] - problem.seats[requestA];
+                            if (!solution.fits(a, seatDelta) || !solution.fits(b, -seatDelta)) {
+                                continue;
+                            }
+                            double before = solution.routeCosts[a] + solution.routeCosts[b];
+                            swap(solution, a, i, b, j);
+                            if (solution.routeCost(a) + solution.routeCost(b) < before - EPSILON) {
+                                solution.updateCost(a);
+                                solution.updateCost(b);
+                                moves++;
+                                improved = true;
+                            } else {
+                                swap(solution, a, i, b, j);
+                            }
+                        }
+                    }
+                }
+            }
+            return improved;
+        }
+
+        private void swap(Solution solution, int a, int i, int b, int j) {
+            int requestA = solution.routes[a][i];
+            int requestB = solution.routes[b][j];
+            solution.routes[a][i] = requestB;
+            solution.routes[b][j] = requestA;
+            int seatDelta = problem.seats[requestB] - problem.seats[requestA];
+            solution.loads[a] += seatDelta;
+            solution.loads[b] -= seatDelta;
+        }
+
+        /**
+         * Random feasible relocations - a kick out of the local optimum
+         */
+        private void perturb(Solution solution, int kicks) {
+            int vehicles = solution.routes.length;
+            for (int k = 0; k < kicks && vehicles > 1; k++) {
+                int from = random.nextInt(vehicles);
+                if (solution.lengths[from] == 0) {
+                    continue;
+                }
+                int to = random.nextInt(vehicles);
+                int i = random.nextInt(solution.lengths[from]);
+                int request = solution.routes[from][i];
+                if (to == from || !solution.fits(to, problem.seats[request])) {
+                    continue;
+                }
+                solution.removeAt(from, i);
+                solution.insert(to, random.nextInt(solution.lengths[to] + 1), request);
+            }
+            solution.evaluate();
+        }
+    }
+}
+
+/**
+ * RideRequest class - a family to pick up, with the seats it needs and where the children go
+ */
+class RideRequest {
+    private final String requestId;
+    private final Location pickup;
+    private final String destinationName;
+    private final Location destination;
+    private final int seats;
+
+    public RideRequest(String requestId, Location pickup, String destinationName, Location destination, int seats) {
+        this.requestId = requestId;
+        this.pickup = pickup;
+        this.destinationName = destinationName;
+        this.destination = destination;
+        this.seats = seats;
+    }
+
+    public String getRequestId() { return requestId; }
+    public Location getPickup() { return pickup; }
+    public String getDestinationName() { return destinationName; }
+    public Location getDestination() { return destination; }
+    public int getSeats() { return seats; }
+
+    @Override
+    public String toString() {
+        return requestId + " (" + seats + " seats -> " + destinationName + ")";
+    }
+}
+
+/**
+ * RideVehicle class - a vehicle available for shared rides
+ */
+class RideVehicle {
+    private final String vehicleId;
+    private final int capacity;
+    private final Location depot;
+
+    public RideVehicle(String vehicleId, int capacity, Location depot) {
+        this.vehicleId = vehicleId;
+        this.capacity = capacity;
+        this.depot = depot;
+    }
+
+    public String getVehicleId() { return vehicleId; }
+    public int getCapacity() { return capacity; }
+    public Location getDepot() { return depot; }
+}
+
+/**
+ * VehicleRoute class - one vehicle's pickups in order, then its drop-offs
+ */
+class VehicleRoute {
+    private final RideVehicle vehicle;
+    private final List<RideRequest> pickups;
+    private final List<String> dropoffs;
+    private final int seats;
+    private final int seconds;
+
+    public VehicleRoute(RideVehicle vehicle, List<RideRequest> pickups, List<String> dropoffs, int seats, int seconds) {
+        this.vehicle = vehicle;
+        this.pickups = Collections.unmodifiableList(pickups);
+        this.dropoffs = Collections.unmodifiableList(dropoffs);
+        this.seats = seats;
+        this.seconds = seconds;
+    }
+
+    public RideVehicle getVehicle() { return vehicle; }
+    public List<RideRequest> getPickups() { return pickups; }
+    public List<String> getDropoffs() { return dropoffs; }
+    public int getSeats() { return seats; }
+    public int getSeconds() { return seconds; }
+
+    @Override
+    public String toString() {
+        return vehicle.getVehicleId() + ": " + pickups.size() + " pickups, " + seats + "/" + vehicle.getCapacity() +
+               " seats, " + seconds / 60 + " min -> " + dropoffs;
+    }
+}
+
+/**
+ * SharedRidePlan class - result of SharedRideOptimizer.optimize
+ */
+class SharedRidePlan {
+    private final List<VehicleRoute> routes;
+    private final List<RideRequest> unassigned;
+    private final int initialSeconds;
+    private final int totalSeconds;
+    private final long moves;
+    private final long elapsedNanos;
+
+    public SharedRidePlan(List<VehicleRoute> routes, List<RideRequest> unassigned, int initialSeconds,
+                          int totalSeconds, long moves, long elapsedNanos) {
+        this.routes = Collections.unmodifiableList(routes);
+        this.unassigned = Collections.unmodifiableList(unassigned);
+        this.initialSeconds = initialSeconds;
+        this.totalSeconds = totalSeconds;
+        this.moves = moves;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Share of the construction heuristic's travel time removed by local search
+     */
+    public double getImprovement() {
+        return initialSeconds > 0 ? 1.0 - totalSeconds / (double) initialSeconds : 0.0;
+    }
+
+    public List<VehicleRoute> getRoutes() { return routes; }
+    public List<RideRequest> getUnassigned() { return unassigned; }
+    public int getInitialSeconds() { return initialSeconds; }
+    public int getTotalSeconds() { return totalSeconds; }
+    public long getMoves() { return moves; }
+    public double getElapsedMillis() { return elapsedNanos / 1_000_000.0; }
+
+    @Override
+    public String toString() {
+        return String.format("SharedRidePlan{%d routes, %d unassigned, %d min total (construction %d min, -%.1f%%), %d moves, %.0f ms}",
+                routes.size(), unassigned.size(), totalSeconds / 60, initialSeconds / 60, getImprovement() * 100,
+                moves, getElapsedMillis());
+    }
+}
@@ -0,0 +1,276 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * SpatialIndex class - uniform grid over latitude/longitude for live positions
+ * Each point lives in one cell of roughly cellSizeMeters x cellSizeMeters; moving a point
+ * touches at most two cells, and a radius query only visits the cells the circle overlaps.
+ */
+public class SpatialIndex {
+    static final double METERS_PER_DEGREE = 111_320.0;
+    static final double EARTH_RADIUS_METERS = 6_371_000.0;
+
+    private final double cellSizeMeters;
+    private final double latCellDegrees;
+    private final double lonCellDegrees;
+    private final ConcurrentHashMap<String, IndexedPoint> points;
+    private final ConcurrentHashMap<Long, Set<IndexedPoint>> cells;
+
+    // Constructor
+    public SpatialIndex(double cellSizeMeters) {
+        this(cellSizeMeters, 32.0);
+    }
+
+    /**
+     * Cells are square at the reference latitude (the service area) and stay correct elsewhere
+     */
+    public SpatialIndex(double cellSizeMeters, double referenceLatitude) {
+        this.cellSizeMeters = cellSizeMeters;
+        this.latCellDegrees = cellSizeMeters / METERS_PER_DEGREE;
+        this.lonCellDegrees = cellSizeMeters / (METERS_PER_DEGREE * Math.cos(Math.toRadians(referenceLatitude)));
+        this.points = new ConcurrentHashMap<>();
+        this.cells = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Insert or move a point - only changes cells when the point crosses a cell border
+     */
+    public void update(String id, Location location) {
+        IndexedPoint point = pointFor(id);
+        synchronized (point) {
+            move(point, location);
+        }
+    }
+
+    /**
+     * Move a point to the location source holds for it, read while the point is locked - a replay
+     * from a source that is also pushed through update() can then never overwrite a newer position
+     */
+    public void refresh(String id, Function<String, Location> source) {
+        IndexedPoint point = pointFor(id);
+        synchronized (point) {
+            Location location = source.apply(id);
+            if (location != null) {
+                move(point, location);
+            }
+        }
+    }
+
+    private IndexedPoint pointFor(String id) {
+        IndexedPoint point = points.get(id);
+        if (point == null) {
+            IndexedPoint created = new IndexedPoint(id);
+            point = points.putIfAbsent(id, created);
+            if (point == null) {
+                point = created;
+            }
+        }
+        return point;
+    }
+
+    /**
+     * Called with the point locked
+     */
+    private void move(IndexedPoint point, Location location) {
+        long cellKey = cellKey(location.getLatitude(), location.getLongitude());
+        point.location = location;
+        if (!point.indexed || point.cellKey != cellKey) {
+            if (point.indexed) {
+                removeFromCell(point.cellKey, point);
+            }
+            addToCell(cellKey, point);
+            point.cellKey = cellKey;
+            point.indexed = true;
+        }
+    }
+
+    /**
+     * Remove a point - returns its last location
+     */
+    public Location remove(String id) {
+        IndexedPoint point = points.remove(id);
+        if (point == null) {
+            return null;
+        }
+        synchronized (point) {
+            if (point.indexed) {
+                removeFromCell(point.cellKey, point);
+                point.indexed = false;
+            }
+            return point.location;
+        }
+    }
+
+    /**
+     * All points within radiusMeters of the given position, nearest first
+     */
+    public List<SpatialMatch> findWithin(double latitude, double longitude, double radiusMeters) {
+        List<SpatialMatch> matches = new ArrayList<>();
+        int rowSpan = (int) Math.ceil(radiusMeters / METERS_PER_DEGREE / latCellDegrees);
+        double metersPerLonDegree = METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(latitude)), 1e-6);
+        int colSpan = (int) Math.ceil(radiusMeters / metersPerLonDegree / lonCellDegrees);
+
+        // Large circle over a sparse grid - cheaper to visit the occupied cells than the covered ones
+        if ((2L * rowSpan + 1) * (2L * colSpan + 1) > cells.size()) {
+            for (Set<IndexedPoint> cell : cells.values()) {
+                collectWithin(cell, latitude, longitude, radiusMeters, matches);
+            }
+        } else {
+            long centerRow = row(latitude);
+            long centerCol = col(longitude);
+            for (long r = centerRow - rowSpan; r <= centerRow + rowSpan; r++) {
+                for (long c = centerCol - colSpan; c <= centerCol + colSpan; c++) {
+                    Set<IndexedPoint> cell = cells.get(key(r, c));
+                    if (cell != null) {
+                        collectWithin(cell, latitude, longitude, radiusMeters, matches);
+                    }
+                }
+            }
+        }
+        matches.sort(null);
+        return matches;
+    }
+
+    public List<SpatialMatch> findWithin(Location center, double radiusMeters) {
+        return findWithin(center.getLatitude(), center.getLongitude(), radiusMeters);
+    }
+
+    /**
+     * The k points nearest to the given position, nearest first
+     * Widens the search circle until it holds k points - every point outside is farther than those inside
+     */
+    public List<SpatialMatch> findNearest(double latitude, double longitude, int k) {
+        if (k <= 0 || points.isEmpty()) {
+            return new ArrayList<>();
+        }
+        double radius = cellSizeMeters;
+        while (true) {
+            List<SpatialMatch> matches = findWithin(latitude, longitude, radius);
+            if (matches.size() >= k) {
+                return new ArrayList<>(matches.subList(0, k));
+            }
+            if (matches.size() >= points.size() || radius > Math.PI * EARTH_RADIUS_METERS) {
+                return matches;
+            }
+            radius *= 2;
+        }
+    }
+
+    public List<SpatialMatch> findNearest(Location center, int k) {
+        return findNearest(center.getLatitude(), center.getLongitude(), k);
+    }
+
+    private void collectWithin(Set<IndexedPoint> cell, double latitude, double longitude, double radiusMeters,
+                               List<SpatialMatch> matches) {
+        for (IndexedPoint point : cell) {
+            Location location = point.location;
+            double distance = distanceMeters(latitude, longitude, location.getLatitude(), location.getLongitude());
+            if (distance <= radiusMeters) {
+                matches.add(new SpatialMatch(point.id, location, distance));
+            }
+        }
+    }
+
+    private void addToCell(long cellKey, IndexedPoint point) {
+        cells.compute(cellKey, (key, cell) -> {
+            if (cell == null) {
+                cell = ConcurrentHashMap.newKeySet();
+            }
+            cell.add(point);
+            return cell;
+        });
+    }
+
+    private void removeFromCell(long cellKey, IndexedPoint point) {
+        cells.computeIfPresent(cellKey, (key, cell) -> {
+            cell.remove(point);
+            return cell.isEmpty() ? null : cell;
+        });
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return key(row(latitude), col(longitude));
+    }
+
+    private long row(double latitude) {
+        return (long) Math.floor(latitude / latCellDegrees);
+    }
+
+    private long col(double longitude) {
+        return (long) Math.floor(longitude / lonCellDegrees);
+    }
+
+    private static long key(long row, long col) {
+        return (row << 32) ^ (col & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Great-circle (haversine) distance in metres
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    public Location getLocation(String id) {
+        IndexedPoint point = points.get(id);
+        return point != null ? point.location : null;
+    }
+
+    public boolean contains(String id) { return points.containsKey(id); }
+    public int size() { return points.size(); }
+    public int getCellCount() { return cells.size(); }
+    public double getCellSizeMeters() { return cellSizeMeters; }
+    public Collection<String> getIds() { return points.keySet(); }
+
+    /**
+     * Point stored in the grid - the location is replaced, never mutated
+     */
+    private static class IndexedPoint {
+        private final String id;
+        private volatile Location location;
+        private long cellKey;
+        private boolean indexed;
+
+        IndexedPoint(String id) {
+            this.id = id;
+        }
+    }
+}
+
+/**
+ * Result of a spatial query
+ */
+class SpatialMatch implements Comparable<SpatialMatch> {
+    private final String id;
+    private final Location location;
+    private final double distanceMeters;
+
+    public SpatialMatch(String id, Location location, double distanceMeters) {
+        this.id = id;
+        this.location = location;
+        this.distanceMeters = distanceMeters;
+    }
+
+    @Override
+    public int compareTo(SpatialMatch other) {
+        return Double.compare(distanceMeters, other.distanceMeters);
+    }
+
+    public String getId() { return id; }
+    public Location getLocation() { return location; }
+    public double getDistanceMeters() { return distanceMeters; }
+
+    @Override
+    public String toString() {
+        return "SpatialMatch{id='" + id + "', distance=" + Math.round(distanceMeters) + "m}";
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * StageMetrics class - throughput and latency counters of one processing stage
+ */
+public class StageMetrics {
+    private final String stageName;
+    private final long startNanos;
+    private final AtomicLong received;
+    private final AtomicLong completed;
+    private final AtomicLong dropped;
+    private final LatencyHistogram latency;
+
+    // Constructor
+    public StageMetrics(String stageName) {
+        this.stageName = stageName;
+        this.startNanos = System.nanoTime();
+        this.received = new AtomicLong();
+        this.completed = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.latency = new LatencyHistogram();
+    }
+
+    public void recordReceived(int count) {
+        received.addAndGet(count);
+    }
+
+    public void recordCompleted(int count, long latencyNanos) {
+        completed.addAndGet(count);
+        latency.record(latencyNanos);
+    }
+
+    public void recordDropped(int count) {
+        dropped.addAndGet(count);
+    }
+
+    /**
+     * Completed items per second since the stage was created
+     */
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        return seconds > 0 ? completed.get() / seconds : 0.0;
+    }
+
+    public String getStageName() { return stageName; }
+    public long getReceived() { return received.get(); }
+    public long getCompleted() { return completed.get(); }
+    public long getDropped() { return dropped.get(); }
+    public LatencyHistogram getLatency() { return latency; }
+
+    @Override
+    public String toString() {
+        return String.format("%-10s received=%d completed=%d dropped=%d throughput=%.1f/s latency{%s}",
+                stageName, getReceived(), getCompleted(), getDropped(), getThroughput(), latency);
+    }
+}
+
+/**
+ * Lock-free latency histogram - power-of-two buckets split into 8 linear sub-buckets (~12% precision)
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKETS = 8;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong totalNanos;
+    private final AtomicLong maxNanos;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.totalNanos = new AtomicLong();
+        this.maxNanos = new AtomicLong();
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+        long max;
+        while (value > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, value)) {
+            // retry
+        }
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile (0-100), in nanoseconds
+     */
+    public long getPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(upperBoundOf(bucket), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);       // >= 3
+        int subBucket = (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return (exponent - 2) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 2;
+        long subBucket = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << (exponent - 3)) - 1;
+    }
+
+    public long getCount() { return count.get(); }
+    public long getMaxNanos() { return maxNanos.get(); }
+
+    public double getMeanNanos() {
+        long total = count.get();
+        return total == 0 ? 0.0 : totalNanos.get() / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+                getCount(), getMeanNanos() / 1000.0, getPercentile(50) / 1000.0,
+                getPercentile(99) / 1000.0, getMaxNanos() / 1000.0);
+    }
+}
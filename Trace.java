@@ -0,0 +1,24 @@
+/**
+ * Trace class - switch for the step-by-step console output
+ * Disabled with -Dtransport.quiet=true or setEnabled(false) for benchmarks and load runs
+ */
+public class Trace {
+    private static volatile boolean enabled = !Boolean.getBoolean("transport.quiet");
+
+    private Trace() {
+    }
+
+    /**
+     * Check if console tracing is enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable console tracing
+     */
+    public static void setEnabled(boolean enabled) {
+        Trace.enabled = enabled;
+    }
+}
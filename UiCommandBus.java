@@ -0,0 +1,227 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * UiCommandBus class - runs backend calls for the Swing screens off the event dispatch thread
+ * Each command runs on its own virtual thread and completes a CompletableFuture. Commands share a
+ * key per UI action: a new command cancels the one still running under its key, and a superseded
+ * result never reaches the screen. Results go back to the EDT through a pending map flushed at most
+ * once per frame interval - one invokeLater per flush, and the latest update per key wins.
+ * Every command name gets a StageMetrics with the latency from submit to the UI update.
+ */
+public class UiCommandBus {
+    private static volatile UiCommandBus shared;
+
+    private final ExecutorService executor;
+    private final Executor uiExecutor;
+    private final ScheduledExecutorService flushScheduler;
+    private final long flushIntervalNanos;
+    private final ConcurrentHashMap<String, Command<?>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, StageMetrics> metrics = new ConcurrentHashMap<>();
+    private final Map<String, Runnable> pendingUpdates = new LinkedHashMap<>();
+    private final AtomicLong uniqueKeys = new AtomicLong();
+    private final AtomicLong postedUpdates = new AtomicLong();
+    private final AtomicLong coalescedUpdates = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private boolean flushScheduled;
+    private long lastFlushNanos;
+
+    // Constructor
+    public UiCommandBus(Executor uiExecutor, long flushIntervalMillis) {
+        this.executor = VirtualThreads.newExecutor("ui-command");
+        this.uiExecutor = uiExecutor;
+        this.flushIntervalNanos = flushIntervalMillis * 1_000_000L;
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ui-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Bus of the Swing screens - updates delivered with invokeLater, at most ~60 flushes a second
+     */
+    public static UiCommandBus getShared() {
+        if (shared == null) {
+            synchronized (UiCommandBus.class) {
+                if (shared == null) {
+                    shared = new UiCommandBus(javax.swing.SwingUtilities::invokeLater, 16);
+                }
+            }
+        }
+        return shared;
+    }
+
+    public <T> CompletableFuture<T> submit(String command, String key, Callable<T> call, Consumer<? super T> onResult) {
+        return submit(command, key, call, onResult, error -> {
+            if (Trace.isEnabled()) {
+                System.out.println("UI command " + command + " failed: " + error);
+            }
+        });
+    }
+
+    /**
+     * Run call on a virtual thread; onResult or onError then runs on the UI thread, unless a newer
+     * command with the same key came in meanwhile. A null key never supersedes anything.
+     */
+    public <T> CompletableFuture<T> submit(String command, String key, Callable<T> call,
+                                           Consumer<? super T> onResult, Consumer<Throwable> onError) {
+        long submitted = System.nanoTime();
+        StageMetrics stage = getMetrics(command);
+        stage.recordReceived(1);
+        String commandKey = key != null ? key : "#" + uniqueKeys.incrementAndGet();
+        Command<T> pending = new Command<>();
+        Command<?> previous = inFlight.put(commandKey, pending);
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        pending.result.whenComplete((value, error) -> {
+            if (!inFlight.remove(commandKey, pending) || error instanceof CancellationException) {
+                stage.recordDropped(1);
+                return;
+            }
+            post(commandKey, () -> {
+                Command<?> current = inFlight.get(commandKey);
+                if (current != null && current != pending) {
+                    stage.recordDropped(1); // a newer command under the key came in before the flush
+                    return;
+                }
+                if (error == null) {
+                    onResult.accept(value);
+                } else {
+                    onError.accept(error instanceof java.util.concurrent.CompletionException && error.getCause() != null
+                                   ? error.getCause() : error);
+                }
+                stage.recordCompleted(1, System.nanoTime() - submitted);
+            });
+        });
+        try {
+            pending.task = executor.submit(() -> {
+                try {
+                    pending.result.complete(call.call());
+                } catch (Throwable e) {
+                    pending.result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Bus shut down - the completion handler removes the inFlight entry and reports the error
+            pending.result.completeExceptionally(e);
+            return pending.result;
+        }
+        if (pending.result.isCancelled()) {
+            pending.task.cancel(true);
+        }
+        return pending.result;
+    }
+
+    /**
+     * Cancel the command running under key, if any
+     */
+    public boolean cancel(String key) {
+        Command<?> running = inFlight.remove(key);
+        if (running != null) {
+            running.cancel();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Queue a UI update - within one flush interval only the latest update per key runs
+     */
+    public void post(String key, Runnable update) {
+        postedUpdates.incrementAndGet();
+        long delayNanos = -1;
+        synchronized (pendingUpdates) {
+            if (pendingUpdates.put(key, update) != null) {
+                coalescedUpdates.incrementAndGet();
+            }
+            if (!flushScheduled) {
+                flushScheduled = true;
+                delayNanos = Math.max(0, lastFlushNanos + flushIntervalNanos - System.nanoTime());
+            }
+        }
+        if (delayNanos == 0) {
+            uiExecutor.execute(this::flush);
+        } else if (delayNanos > 0) {
+            flushScheduler.schedule(() -> uiExecutor.execute(this::flush), delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Run the pending updates - on the UI thread
+     */
+    private void flush() {
+        List<Runnable> updates;
+        synchronized (pendingUpdates) {
+            updates = new ArrayList<>(pendingUpdates.values());
+            pendingUpdates.clear();
+            flushScheduled = false;
+            lastFlushNanos = System.nanoTime();
+        }
+        flushes.incrementAndGet();
+        for (Runnable update : updates) {
+            try {
+                update.run();
+            } catch (RuntimeException e) {
+                System.err.println("UI update failed: " + e);
+            }
+        }
+    }
+
+    public StageMetrics getMetrics(String command) {
+        return metrics.computeIfAbsent(command, StageMetrics::new);
+    }
+
+    public void shutdown() {
+        for (String key : new ArrayList<>(inFlight.keySet())) {
+            cancel(key);
+        }
+        executor.shutdownNow();
+        flushScheduler.shutdownNow();
+    }
+
+    public Map<String, StageMetrics> getAllMetrics() { return metrics; }
+    public int getInFlightCount() { return inFlight.size(); }
+    public long getPostedUpdates() { return postedUpdates.get(); }
+    public long getCoalescedUpdates() { return coalescedUpdates.get(); }
+    public long getFlushes() { return flushes.get(); }
+
+    @Override
+    public String toString() {
+        return String.format("UiCommandBus{inFlight=%d, posted=%d, coalesced=%d, flushes=%d}",
+                getInFlightCount(), getPostedUpdates(), getCoalescedUpdates(), getFlushes());
+    }
+
+    /**
+     * One submitted command - the future handed to the caller and the task computing it
+     */
+    private static class Command<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private volatile Future<?> task;
+
+        void cancel() {
+            result.cancel(false);
+            Future<?> running = task;
+            if (running != null) {
+                running.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * VirtualThreads class - thread-per-task executors on virtual threads where the JVM has them
+ * Looked up reflectively so the system still builds and runs on JDKs without virtual threads;
+ * there it falls back to a cached pool of daemon platform threads.
+ */
+public class VirtualThreads {
+    private static final Method OF_VIRTUAL = lookup(Thread.class, "ofVirtual");
+    private static final Method NAME = lookup(classOrNull("java.lang.Thread$Builder"), "name", String.class, long.class);
+    private static final Method FACTORY = lookup(classOrNull("java.lang.Thread$Builder"), "factory");
+    private static final Method THREAD_PER_TASK = lookup(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Executor that starts one thread per task, named namePrefix-N
+     */
+    public static ExecutorService newExecutor(String namePrefix) {
+        if (isAvailable()) {
+            try {
+                Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix + "-", 1L);
+                ThreadFactory factory = (ThreadFactory) FACTORY.invoke(builder);
+                return (ExecutorService) THREAD_PER_TASK.invoke(null, factory);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Virtual threads unavailable, using platform threads: " + e.getMessage());
+            }
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Check if this JVM supports virtual threads
+     */
+    public static boolean isAvailable() {
+        return OF_VIRTUAL != null && NAME != null && FACTORY != null && THREAD_PER_TASK != null;
+    }
+
+    private static Method lookup(Class<?> owner, String name, Class<?>... parameterTypes) {
+        if (owner == null) {
+            return null;
+        }
+        try {
+            return owner.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Class<?> classOrNull(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -1,55 +1,295 @@
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * CameraProxy class - Proxy for cameras
+ * Every connected camera has a CameraHealth; captures go only to cameras whose circuit is closed
+ * (or due for a probe). A burst captures from all of them in parallel, so it takes as long as
+ * the slowest healthy camera, bounded by the capture timeout.
  */
 class CameraProxy {
     private String proxyId;
     private List<String> connectedCameras;
+    private final Map<String, Camera> cameras;
+    private final Map<String, CameraHealth> health;
+    private final long captureTimeoutMillis;
+    private final ExecutorService captureExecutor;
 
     public CameraProxy(String proxyId) {
+        this(proxyId, defaultCameras(), 500);
+    }
+
+    public CameraProxy(String proxyId, List<Camera> cameras, long captureTimeoutMillis) {
         this.proxyId = proxyId;
         this.connectedCameras = new ArrayList<>();
-        initializeCameras();
+        this.cameras = new LinkedHashMap<>();
+        this.health = new LinkedHashMap<>();
+        this.captureTimeoutMillis = captureTimeoutMillis;
+        this.captureExecutor = VirtualThreads.newExecutor("camera-capture-" + proxyId);
+        initializeCameras(cameras);
     }
 
-    private void initializeCameras() {
-        connectedCameras.add("CAM_001");
-        connectedCameras.add("CAM_002");
-        connectedCameras.add("CAM_003");
-        System.out.println("CameraProxy " + proxyId + " initialized with " + connectedCameras.size() + " cameras");
+    private static List<Camera> defaultCameras() {
+        List<Camera> cameras = new ArrayList<>();
+        cameras.add(new Camera("CAM_001", null, "Front Door"));
+        cameras.add(new Camera("CAM_002", null, "Rear Door"));
+        cameras.add(new Camera("CAM_003", null, "Cabin"));
+        return cameras;
+    }
+
+    private void initializeCameras(List<Camera> cameraList) {
+        for (Camera camera : cameraList) {
+            connectedCameras.add(camera.getCameraId());
+            cameras.put(camera.getCameraId(), camera);
+            health.put(camera.getCameraId(), new CameraHealth(camera.getCameraId()));
+        }
+        if (Trace.isEnabled()) {
+            System.out.println("CameraProxy " + proxyId + " initialized with " + connectedCameras.size() + " cameras");
+        }
     }
 
     /**
-     * Capture image through Proxy
+     * Capture image through Proxy - from the healthiest camera, failing over to the next one
+     * A camera that does not deliver within the capture timeout counts as failed; its late frame
+     * is released when it arrives.
      */
     public Image captureImage() {
-        System.out.println("CameraProxy capturing image through proxy...");
-        // Select available camera
-        if (!connectedCameras.isEmpty()) {
-            String selectedCamera = connectedCameras.get(0);
-            Image image = new Image("PROXY_IMG_" + selectedCamera + "_" + System.currentTimeMillis());
-            System.out.println("Image captured via proxy from camera: " + selectedCamera);
-            return image;
+        if (Trace.isEnabled()) {
+            System.out.println("CameraProxy capturing image through proxy...");
+        }
+        for (String cameraId : camerasByHealth()) {
+            CameraHealth cameraHealth = health.get(cameraId);
+            long start = System.nanoTime();
+            if (!cameraHealth.tryAcquire(System.currentTimeMillis())) {
+                continue;
+            }
+            Camera camera = cameras.get(cameraId);
+            AtomicBoolean outcome = new AtomicBoolean();
+            CompletableFuture<Image> capture = CompletableFuture.supplyAsync(() -> captureFrom(camera, cameraHealth, outcome),
+                                                                             captureExecutor);
+            try {
+                Image image = capture.get(captureTimeoutMillis, TimeUnit.MILLISECONDS);
+                if (Trace.isEnabled()) {
+                    System.out.println("Image captured via proxy from camera: " + cameraId);
+                }
+                return image;
+            } catch (TimeoutException e) {
+                if (outcome.compareAndSet(false, true)) {
+                    cameraHealth.recordFailure("timeout", System.nanoTime() - start, System.currentTimeMillis());
+                }
+                capture.thenAccept(Image::release);
+            } catch (ExecutionException e) {
+                // recorded in the camera's health - try the next camera
+            } catch (InterruptedException e) {
+                if (outcome.compareAndSet(false, true)) {
+                    cameraHealth.releaseProbe();
+                }
+                capture.thenAccept(Image::release);
+                Thread.currentThread().interrupt();
+                return null;
+            }
         }
         return null;
     }
 
     /**
-     * Get camera status
+     * Capture from every healthy camera in parallel - one consolidated result
+     * Cameras with an open circuit are skipped; a camera slower than the capture timeout is
+     * reported as failed and its late frame is released when it arrives.
+     */
+    public MultiFrameCapture captureBurst() {
+        long start = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        List<String> skipped = new ArrayList<>();
+        Map<String, CompletableFuture<Image>> pending = new LinkedHashMap<>();
+        Map<String, AtomicBoolean> outcomes = new LinkedHashMap<>();
+        for (Map.Entry<String, Camera> entry : cameras.entrySet()) {
+            Camera camera = entry.getValue();
+            CameraHealth cameraHealth = health.get(entry.getKey());
+            if (!camera.isActive()) {
+                cameraHealth.recordStatus(camera.getStatus(), nowMillis);
+            }
+            if (!cameraHealth.tryAcquire(nowMillis)) {
+                skipped.add(entry.getKey());
+                continue;
+            }
+            AtomicBoolean outcome = new AtomicBoolean();
+            outcomes.put(entry.getKey(), outcome);
+            pending.put(entry.getKey(), CompletableFuture.supplyAsync(() -> captureFrom(camera, cameraHealth, outcome),
+                                                                         captureExecutor));
+        }
+
+        List<Image> images = new ArrayList<>(pending.size());
+        Map<String, String> failures = new LinkedHashMap<>();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(captureTimeoutMillis);
+        boolean interrupted = false;
+        for (Map.Entry<String, CompletableFuture<Image>> entry : pending.entrySet()) {
+            CompletableFuture<Image> capture = entry.getValue();
+            try {
+                if (interrupted && !capture.isDone()) {
+                    throw new InterruptedException(); // given up - collect only what has arrived
+                }
+                images.add(capture.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                failures.put(entry.getKey(), "timeout after " + captureTimeoutMillis + " ms");
+                if (outcomes.get(entry.getKey()).compareAndSet(false, true)) {
+                    health.get(entry.getKey()).recordFailure("timeout", System.nanoTime() - start, System.currentTimeMillis());
+                }
+                capture.thenAccept(Image::release);
+            } catch (ExecutionException e) {
+                failures.put(entry.getKey(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                interrupted = true;
+                failures.put(entry.getKey(), "interrupted");
+                if (outcomes.get(entry.getKey()).compareAndSet(false, true)) {
+                    health.get(entry.getKey()).releaseProbe();
+                }
+                capture.thenAccept(Image::release);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        MultiFrameCapture result = new MultiFrameCapture(images, failures, skipped, System.nanoTime() - start);
+        if (Trace.isEnabled()) {
+            System.out.println("CameraProxy " + proxyId + " burst: " + result);
+        }
+        return result;
+    }
+
+    /**
+     * Capture on the current thread and record the outcome in the camera's health
+     * A capture slower than the timeout counts as a failure. Outcome is shared with the waiting
+     * caller: whoever sets it first records - a capture the caller gave up on records nothing.
+     */
+    private Image captureFrom(Camera camera, CameraHealth cameraHealth, AtomicBoolean outcome) {
+        long start = System.nanoTime();
+        Image image;
+        try {
+            image = camera.captureImage();
+        } catch (RuntimeException e) {
+            if (outcome.compareAndSet(false, true)) {
+                cameraHealth.recordFailure(String.valueOf(e.getMessage()), System.nanoTime() - start, System.currentTimeMillis());
+            }
+            throw e;
+        }
+        long latency = System.nanoTime() - start;
+        if (image == null) {
+            if (outcome.compareAndSet(false, true)) {
+                cameraHealth.recordFailure("no frame", latency, System.currentTimeMillis());
+            }
+            throw new IllegalStateException("Camera " + camera.getCameraId() + " returned no frame");
+        }
+        if (!outcome.compareAndSet(false, true)) {
+            return image;
+        }
+        if (latency > TimeUnit.MILLISECONDS.toNanos(captureTimeoutMillis)) {
+            cameraHealth.recordFailure("slow capture", latency, System.currentTimeMillis());
+        } else {
+            cameraHealth.recordSuccess(latency);
+        }
+        return image;
+    }
+
+    /**
+     * Available cameras first, then by average latency
+     */
+    private List<String> camerasByHealth() {
+        long nowMillis = System.currentTimeMillis();
+        List<String> ordered = new ArrayList<>(connectedCameras);
+        ordered.sort(Comparator.comparing((String cameraId) -> !health.get(cameraId).isAvailable(nowMillis))
+                .thenComparingDouble(cameraId -> health.get(cameraId).getAverageLatencyMillis()));
+        return ordered;
+    }
+
+    /**
+     * Get camera status - of the camera captureImage would use first
      */
     public CameraStatus getCameraStatus() {
         if (!connectedCameras.isEmpty()) {
-            String cameraId = connectedCameras.get(0);
-            return new CameraStatus(cameraId, true, "1920x1080", LocalDateTime.now());
+            return cameras.get(camerasByHealth().get(0)).getStatus();
         }
         return null;
     }
 
+    /**
+     * Status of every connected camera - also feeds the cameras' health
+     */
+    public List<CameraStatus> getCameraStatuses() {
+        long nowMillis = System.currentTimeMillis();
+        List<CameraStatus> statuses = new ArrayList<>(cameras.size());
+        for (Camera camera : cameras.values()) {
+            CameraStatus status = camera.getStatus();
+            health.get(camera.getCameraId()).recordStatus(status, nowMillis);
+            statuses.add(status);
+        }
+        return statuses;
+    }
+
+    public void shutdown() {
+        captureExecutor.shutdown();
+    }
+
     public String getProxyId() { return proxyId; }
     public List<String> getConnectedCameras() { return connectedCameras; }
+    public CameraHealth getHealth(String cameraId) { return health.get(cameraId); }
+    public Map<String, CameraHealth> getHealth() { return Collections.unmodifiableMap(health); }
+    public long getCaptureTimeoutMillis() { return captureTimeoutMillis; }
+}
+
+/**
+ * MultiFrameCapture class - frames of one burst across a proxy's cameras
+ * The caller owns the images and releases them (release() releases all).
+ */
+class MultiFrameCapture {
+    private final List<Image> images;
+    private final Map<String, String> failures;
+    private final List<String> skippedCameras;
+    private final long elapsedNanos;
+
+    public MultiFrameCapture(List<Image> images, Map<String, String> failures, List<String> skippedCameras,
+                             long elapsedNanos) {
+        this.images = images;
+        this.failures = failures;
+        this.skippedCameras = skippedCameras;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Check if every connected camera delivered a frame
+     */
+    public boolean isComplete() {
+        return failures.isEmpty() && skippedCameras.isEmpty();
+    }
+
+    public void release() {
+        for (Image image : images) {
+            image.release();
+        }
+    }
+
+    public List<Image> getImages() { return images; }
+    public Map<String, String> getFailures() { return failures; }
+    public List<String> getSkippedCameras() { return skippedCameras; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public double getElapsedMillis() { return elapsedNanos / 1_000_000.0; }
+
+    @Override
+    public String toString() {
+        return "MultiFrameCapture{frames=" + images.size() + ", failed=" + failures.keySet() +
+               ", skipped=" + skippedCameras + String.format(", elapsed=%.1f ms}", getElapsedMillis());
+    }
 }
 
 /**
@@ -60,21 +300,27 @@ class GPSServiceProxy {
 
     public GPSServiceProxy(String serviceId) {
         this.serviceId = serviceId;
-        System.out.println("GPSServiceProxy " + serviceId + " initialized");
+        if (Trace.isEnabled()) {
+            System.out.println("GPSServiceProxy " + serviceId + " initialized");
+        }
     }
 
     /**
      * Get current GPS location - step 6
      */
     public Location getCurrentGPSLocation() {
-        System.out.println("Step 6: GPSServiceProxy.getCurrentGPSLocation()");
+        if (Trace.isEnabled()) {
+            System.out.println("Step 6: GPSServiceProxy.getCurrentGPSLocation()");
+        }
         
         // Simulation of GPS location retrieval
         double lat = 32.0853 + (Math.random() - 0.5) * 0.01; // Tel Aviv with small variation
         double lng = 34.7818 + (Math.random() - 0.5) * 0.01;
         
         Location currentLocation = new Location(lat, lng, "Current GPS Location");
-        System.out.println("GPS location retrieved: " + currentLocation);
+        if (Trace.isEnabled()) {
+            System.out.println("GPS location retrieved: " + currentLocation);
+        }
         return currentLocation;
     }
 
@@ -83,7 +329,9 @@ class GPSServiceProxy {
      */
     public int getSignalStrength() {
         int strength = 75 + (int)(Math.random() * 25); // 75-100%
-        System.out.println("GPS signal strength: " + strength + "%");
+        if (Trace.isEnabled()) {
+            System.out.println("GPS signal strength: " + strength + "%");
+        }
         return strength;
     }
 
@@ -98,23 +346,36 @@ class ParentNotificationProxy {
 
     public ParentNotificationProxy(String proxyId) {
         this.proxyId = proxyId;
-        System.out.println("ParentNotificationProxy " + proxyId + " initialized");
+        if (Trace.isEnabled()) {
+            System.out.println("ParentNotificationProxy " + proxyId + " initialized");
+        }
     }
 
     /**
      * Send SMS
      */
     public boolean sendSMS(String phoneNumber, String message) {
-        System.out.println("Sending SMS to " + phoneNumber + ": " + message);
+        if (Trace.isEnabled()) {
+            System.out.println("Sending SMS to " + phoneNumber + ": " + message);
+        }
         // SMS sending simulation
         return Math.random() > 0.1; // 90% success rate
     }
 
+    /**
+     * Send SMS to the parent's phone number
+     */
+    public boolean sendSMSToParent(String parentId, String message) {
+        return sendSMS(getParentById(parentId).getPhoneNumber(), message);
+    }
+
     /**
      * Send push notification
      */
     public boolean sendPushNotification(String userId, String title, String message) {
-        System.out.println("Sending push notification to user " + userId + " - " + title + ": " + message);
+        if (Trace.isEnabled()) {
+            System.out.println("Sending push notification to user " + userId + " - " + title + ": " + message);
+        }
         return true;
     }
 
@@ -122,8 +383,10 @@ class ParentNotificationProxy {
      * Send location update - step 17
      */
     public boolean sendLocationUpdate(String parentId, String childId, Location location, LocalDateTime timestamp) {
-        System.out.println("Step 17: ParentNotificationProxy.sendLocationUpdate(" + 
-                          parentId + ", " + childId + ", " + location + ", " + timestamp + ")");
+        if (Trace.isEnabled()) {
+            System.out.println("Step 17: ParentNotificationProxy.sendLocationUpdate(" + 
+                              parentId + ", " + childId + ", " + location + ", " + timestamp + ")");
+        }
         
         String message = "Location update: Child " + childId + " is at " + location.getDescription() + 
                         " at " + timestamp.toLocalTime();
@@ -138,7 +401,9 @@ class ParentNotificationProxy {
      * Send tracking confirmation - step 19
      */
     public boolean sendTrackingConfirmation(String parentId, String childId) {
-        System.out.println("Step 19: ParentNotificationProxy.sendTrackingConfirmation(" + parentId + ", " + childId + ")");
+        if (Trace.isEnabled()) {
+            System.out.println("Step 19: ParentNotificationProxy.sendTrackingConfirmation(" + parentId + ", " + childId + ")");
+        }
         
         String message = "Active tracking confirmed for child " + childId;
         
@@ -152,7 +417,9 @@ class ParentNotificationProxy {
      * Push notification - step 18
      */
     public void pushNotification(String parentId, String message) {
-        System.out.println("Step 18: ParentNotificationProxy → Parent.pushNotification(\"Child location updated\")");
+        if (Trace.isEnabled()) {
+            System.out.println("Step 18: ParentNotificationProxy → Parent.pushNotification(\"Child location updated\")");
+        }
         
         Parent parent = getParentById(parentId);
         parent.receiveNotification("Child location update", message);
@@ -162,7 +429,9 @@ class ParentNotificationProxy {
      * Display tracking status - step 20
      */
     public void displayTrackingStatus(String parentId, String status) {
-        System.out.println("Step 20: ParentNotificationProxy → Parent.displayTrackingStatus(\"" + status + "\")");
+        if (Trace.isEnabled()) {
+            System.out.println("Step 20: ParentNotificationProxy → Parent.displayTrackingStatus(\"" + status + "\")");
+        }
         
         Parent parent = getParentById(parentId);
         parent.displayTrackingStatus(status);